@@ -33,7 +33,7 @@ public abstract class AbstractBufferWriter<T> extends OutputStream {
     /**
      * 当前是否已关闭
      */
-    boolean closed = false;
+    volatile boolean closed = false;
 
     @Override
     public void write(int b) throws IOException {
@@ -15,6 +15,7 @@
  */
 package com.gettyio.core.buffer;
 
+import com.gettyio.core.buffer.buffer.ByteBuf;
 import com.gettyio.core.util.CharsetUtil;
 import com.gettyio.core.util.StringUtil;
 
@@ -518,6 +519,20 @@ public class AutoByteBuffer {
         return this;
     }
 
+    /**
+     * 写入一个ByteBuf可读数据，直接从缓冲区复制，不经过中间数组
+     *
+     * @param b 写入数据
+     * @return AutoByteBuffer
+     */
+    public AutoByteBuffer writeBytes(ByteBuf b) {
+        int readableBytes = b.readableBytes();
+        autoExpandCapacity(readableBytes);
+        b.readBytes(data, writerIndex, readableBytes);
+        writerIndex += readableBytes;
+        return this;
+    }
+
     /**
      * 写入一个ByteBuffer可读数据的部分长度
      *
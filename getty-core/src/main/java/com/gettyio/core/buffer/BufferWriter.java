@@ -20,10 +20,10 @@ import com.gettyio.core.logging.InternalLogger;
 import com.gettyio.core.logging.InternalLoggerFactory;
 import com.gettyio.core.buffer.allocator.ByteBufAllocator;
 import com.gettyio.core.buffer.buffer.ByteBuf;
-import com.gettyio.core.util.LinkedBlockQueue;
-import com.gettyio.core.util.LinkedQueue;
+import com.gettyio.core.util.MpscByteBoundedQueue;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -39,6 +39,16 @@ public final class BufferWriter extends AbstractBufferWriter<ByteBuf> {
 
     private static final InternalLogger LOGGER = InternalLoggerFactory.getInstance(BufferWriter.class);
 
+    /**
+     * 按可读字节数计算缓冲区大小
+     */
+    private static final Function<ByteBuf, Integer> BYTE_BUF_WEIGHER = new Function<ByteBuf, Integer>() {
+        @Override
+        public Integer apply(ByteBuf input) {
+            return input.readableBytes();
+        }
+    };
+
     /**
      * 函数
      */
@@ -46,7 +56,11 @@ public final class BufferWriter extends AbstractBufferWriter<ByteBuf> {
     /**
      * 数据缓冲队列
      */
-    private final LinkedQueue<ByteBuf> queue;
+    private final MpscByteBoundedQueue<ByteBuf> queue;
+    /**
+     * 队列已满时默认的最长等待时间（毫秒）
+     */
+    private final long writeQueueTimeout;
 
     /**
      * 缓冲区构造器
@@ -59,12 +73,25 @@ public final class BufferWriter extends AbstractBufferWriter<ByteBuf> {
      *
      * @param byteBufAllocator      内存池
      * @param flushFunction         函数
-     * @param bufferWriterQueueSize 写队列大小
+     * @param bufferWriterQueueSize 写队列最大字节数
      */
     public BufferWriter(ByteBufAllocator byteBufAllocator, Function<BufferWriter, Void> flushFunction, int bufferWriterQueueSize) {
+        this(byteBufAllocator, flushFunction, bufferWriterQueueSize, 0);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param byteBufAllocator      内存池
+     * @param flushFunction         函数
+     * @param bufferWriterQueueSize 写队列最大字节数
+     * @param writeQueueTimeout     队列已满时默认的最长等待时间（毫秒），0表示不等待直接失败
+     */
+    public BufferWriter(ByteBufAllocator byteBufAllocator, Function<BufferWriter, Void> flushFunction, int bufferWriterQueueSize, long writeQueueTimeout) {
         this.byteBufAllocator = byteBufAllocator;
         this.function = flushFunction;
-        this.queue = new LinkedBlockQueue<>(bufferWriterQueueSize);
+        this.queue = new MpscByteBoundedQueue<>(bufferWriterQueueSize, BYTE_BUF_WEIGHER);
+        this.writeQueueTimeout = writeQueueTimeout;
     }
 
     @Override
@@ -77,25 +104,100 @@ public final class BufferWriter extends AbstractBufferWriter<ByteBuf> {
         if (len <= 0 || b.length == 0) {
             return;
         }
-        try {
-            //申请写缓冲
-            ByteBuf byteBuf = byteBufAllocator.ioBuffer(len - off);
-            //写入数据
-            byteBuf.writeBytes(b, off, b.length);
-            //写到缓冲队列
-            queue.put(byteBuf);
-        } catch (Exception e) {
-            LOGGER.error(e);
+        //申请写缓冲
+        ByteBuf byteBuf = byteBufAllocator.ioBuffer(len);
+        //写入数据
+        byteBuf.writeBytes(b, off, len);
+        //写到缓冲队列
+        if (!enqueue(byteBuf, writeQueueTimeout)) {
+            return;
+        }
+        if (closed) {
+            //入队期间输出器被关闭，通知通道释放残留数据
+            function.apply(this);
         }
     }
 
     @Override
     public void writeAndFlush(byte[] b) throws IOException {
+        writeAndFlush(b, writeQueueTimeout);
+    }
+
+    /**
+     * 写入队列，并刷新
+     *
+     * @param b             数据
+     * @param timeoutMillis 队列已满时的最长等待时间（毫秒），0表示不等待
+     * @throws IOException 队列已满或等待被中断
+     */
+    public void writeAndFlush(byte[] b, long timeoutMillis) throws IOException {
         if (b == null) {
             throw new NullPointerException();
         }
-        write(b, 0, b.length);
-        flush();
+        if (b.length == 0) {
+            return;
+        }
+        ByteBuf byteBuf = byteBufAllocator.ioBuffer(b.length);
+        byteBuf.writeBytes(b);
+        writeAndFlush(byteBuf, timeoutMillis);
+    }
+
+    /**
+     * 直接写入池化缓冲区，不再复制，缓冲区的所有权转交给输出器。
+     * 输出器已关闭时数据仍然入队，由通道在写出线程中统一释放，保证待写出字节数的统计一致
+     *
+     * @param byteBuf 待写出的缓冲区
+     * @throws IOException 队列已满或等待被中断
+     */
+    public void writeAndFlush(ByteBuf byteBuf) throws IOException {
+        writeAndFlush(byteBuf, writeQueueTimeout);
+    }
+
+    /**
+     * 直接写入池化缓冲区，队列已满时最多等待指定时间。
+     * 在消费线程（如NIO事件循环线程）中调用时必须传0，否则等待期间无人消费队列
+     *
+     * @param byteBuf       待写出的缓冲区
+     * @param timeoutMillis 队列已满时的最长等待时间（毫秒），0表示不等待
+     * @throws IOException 队列已满或等待被中断
+     */
+    public void writeAndFlush(ByteBuf byteBuf, long timeoutMillis) throws IOException {
+        if (byteBuf == null) {
+            throw new NullPointerException();
+        }
+        byteBuf.touch();
+        if (enqueue(byteBuf, timeoutMillis)) {
+            function.apply(this);
+        }
+    }
+
+    /**
+     * 写入缓冲队列，失败时释放缓冲区。
+     * 输出器已关闭时数据已无法写出，通知通道清理后静默返回false，否则抛出异常
+     *
+     * @param byteBuf       待写出的缓冲区
+     * @param timeoutMillis 队列已满时的最长等待时间（毫秒）
+     * @return 是否已入队
+     * @throws IOException 队列已满或等待被中断
+     */
+    private boolean enqueue(ByteBuf byteBuf, long timeoutMillis) throws IOException {
+        boolean success;
+        try {
+            success = timeoutMillis > 0 ? queue.offer(byteBuf, timeoutMillis, TimeUnit.MILLISECONDS) : queue.offer(byteBuf);
+        } catch (InterruptedException e) {
+            byteBuf.release();
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        if (success) {
+            return true;
+        }
+        byteBuf.release();
+        if (closed) {
+            function.apply(this);
+            return false;
+        }
+        throw new IOException("BufferWriter queue is full");
     }
 
     @Override
@@ -116,6 +218,18 @@ public final class BufferWriter extends AbstractBufferWriter<ByteBuf> {
         closed = true;
     }
 
+    /**
+     * 关闭输出器，并释放队列中尚未写出的缓冲区。
+     * 队列为单消费者队列，只能在通道的写出线程（持有写信号量或事件循环线程）中调用
+     */
+    public void release() {
+        closed = true;
+        ByteBuf byteBuf;
+        while ((byteBuf = poll()) != null) {
+            byteBuf.release();
+        }
+    }
+
     @Override
     public boolean isClosed() {
         return closed;
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.buffer;
+
+import com.gettyio.core.buffer.buffer.ByteBuf;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 聚合写出缓冲，从输出队列一次取出多个ByteBuf，合并为一次gathering write，写出后按字节推进读下标。
+ * 非线程安全，同一时刻只允许一个写线程操作。内部数组在第一次写出时才创建，空闲连接不占用
+ *
+ * @author gogym
+ * @version 1.0.0
+ * @className GatheringBuffer.java
+ * @description
+ * @date 2026/10/17
+ */
+public final class GatheringBuffer {
+
+    /**
+     * 待写出的缓冲区
+     */
+    private ByteBuf[] buffers;
+    /**
+     * 对应的nio缓冲区，组合缓冲区会展开为多个
+     */
+    private ByteBuffer[] nioBuffers;
+    /**
+     * 当前有效的nio缓冲区数量
+     */
+    private int nioBufferCount;
+    /**
+     * 单次合并的最大缓冲区数量
+     */
+    private final int maxCount;
+    /**
+     * 单次合并的最大字节数
+     */
+    private final int maxBytes;
+    /**
+     * 当前缓冲区数量
+     */
+    private int count;
+    /**
+     * 当前待写出字节数
+     */
+    private long pendingBytes;
+
+    /**
+     * 构造方法
+     *
+     * @param maxCount 单次合并的最大缓冲区数量
+     * @param maxBytes 单次合并的最大字节数
+     */
+    public GatheringBuffer(int maxCount, int maxBytes) {
+        if (maxCount <= 0) {
+            throw new IllegalArgumentException("maxCount: " + maxCount + " (expected: > 0)");
+        }
+        this.maxCount = maxCount;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 从输出器中取出数据，直到达到数量或字节上限
+     *
+     * @param bufferWriter 输出器
+     * @return 当前缓冲区数量
+     */
+    public int fill(AbstractBufferWriter<ByteBuf> bufferWriter) {
+        if (buffers == null) {
+            if (bufferWriter.getCount() == 0) {
+                return 0;
+            }
+            buffers = new ByteBuf[maxCount];
+            nioBuffers = new ByteBuffer[maxCount];
+        }
+        ByteBuf byteBuf;
+        while (count < buffers.length && pendingBytes < maxBytes && (byteBuf = bufferWriter.poll()) != null) {
+            if (!byteBuf.isReadable()) {
+                //空数据直接释放
+                byteBuf.release();
+                continue;
+            }
+            buffers[count++] = byteBuf;
+            pendingBytes += byteBuf.readableBytes();
+        }
+        return count;
+    }
+
+    /**
+     * 获取当前待写出数据对应的nio缓冲区，有效长度为{@link #nioBufferCount()}。
+     * 由多个nio缓冲区组成的ByteBuf（如CompositeByteBuf）按组件展开，不做合并复制
+     *
+     * @return ByteBuffer[]
+     */
+    public ByteBuffer[] nioBuffers() {
+        int nioBufferCount = 0;
+        for (int i = 0; i < count; i++) {
+            ByteBuf byteBuf = buffers[i];
+            if (byteBuf.nioBufferCount() == 1) {
+                ensureNioBuffers(nioBufferCount + 1);
+                nioBuffers[nioBufferCount++] = byteBuf.nioBuffer();
+            } else {
+                ByteBuffer[] componentBuffers = byteBuf.nioBuffers();
+                ensureNioBuffers(nioBufferCount + componentBuffers.length);
+                System.arraycopy(componentBuffers, 0, nioBuffers, nioBufferCount, componentBuffers.length);
+                nioBufferCount += componentBuffers.length;
+            }
+        }
+        //清理上一次多出的引用
+        for (int i = nioBufferCount; i < this.nioBufferCount; i++) {
+            nioBuffers[i] = null;
+        }
+        this.nioBufferCount = nioBufferCount;
+        return nioBuffers;
+    }
+
+    private void ensureNioBuffers(int size) {
+        if (size > nioBuffers.length) {
+            ByteBuffer[] newNioBuffers = new ByteBuffer[Math.max(size, nioBuffers.length << 1)];
+            System.arraycopy(nioBuffers, 0, newNioBuffers, 0, nioBuffers.length);
+            nioBuffers = newNioBuffers;
+        }
+    }
+
+    /**
+     * 最近一次{@link #nioBuffers()}得到的nio缓冲区数量
+     *
+     * @return int
+     */
+    public int nioBufferCount() {
+        return nioBufferCount;
+    }
+
+    /**
+     * 根据已写出的字节数推进读下标，完全写出的缓冲区立即释放
+     *
+     * @param written 已写出字节数
+     */
+    public void removeBytes(long written) {
+        if (written <= 0) {
+            return;
+        }
+        pendingBytes -= written;
+        int removed = 0;
+        while (removed < count) {
+            ByteBuf byteBuf = buffers[removed];
+            int readableBytes = byteBuf.readableBytes();
+            if (written < readableBytes) {
+                //部分写出，只推进读下标
+                byteBuf.readerIndex(byteBuf.readerIndex() + (int) written);
+                break;
+            }
+            written -= readableBytes;
+            byteBuf.release();
+            removed++;
+        }
+        if (removed > 0) {
+            //未写完的缓冲区移到数组头部
+            System.arraycopy(buffers, removed, buffers, 0, count - removed);
+            for (int i = count - removed; i < count; i++) {
+                buffers[i] = null;
+            }
+            count -= removed;
+            clearNioBuffers();
+        }
+    }
+
+    private void clearNioBuffers() {
+        for (int i = 0; i < nioBufferCount; i++) {
+            nioBuffers[i] = null;
+        }
+        nioBufferCount = 0;
+    }
+
+    /**
+     * 当前缓冲区数量
+     *
+     * @return int
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * 当前待写出字节数
+     *
+     * @return long
+     */
+    public long pendingBytes() {
+        return pendingBytes;
+    }
+
+    /**
+     * 是否没有待写出的数据
+     *
+     * @return boolean
+     */
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * 释放所有未写出的缓冲区，通道关闭时调用
+     */
+    public void release() {
+        for (int i = 0; i < count; i++) {
+            if (buffers[i].refCnt() > 0) {
+                buffers[i].release();
+            }
+            buffers[i] = null;
+        }
+        if (nioBuffers != null) {
+            clearNioBuffers();
+        }
+        count = 0;
+        pendingBytes = 0;
+    }
+}
@@ -0,0 +1,424 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.buffer;
+
+import com.gettyio.core.logging.InternalLogger;
+import com.gettyio.core.logging.InternalLoggerFactory;
+import com.gettyio.core.util.StringUtil;
+import com.gettyio.core.util.SystemPropertyUtil;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * 引用计数对象的泄漏检测器。按采样间隔对分配的对象建立虚引用，对象在未调用release()的情况下被GC回收时，
+ * 在下一次分配时通过{@link InternalLogger}报告泄漏以及记录到的访问位置。
+ * <p>
+ * 检测级别通过-Dgetty.leakDetection.level设置，采样间隔通过-Dgetty.leakDetection.samplingInterval设置，
+ * 每个对象保留的访问记录数通过-Dgetty.leakDetection.targetRecords设置
+ * </p>
+ *
+ * @author gogym
+ * @version 1.0.0
+ * @className ResourceLeakDetector.java
+ * @description
+ * @date 2026/10/17
+ */
+public class ResourceLeakDetector<T> {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(ResourceLeakDetector.class);
+
+    /**
+     * 检测级别
+     */
+    public enum Level {
+        /**
+         * 关闭检测
+         */
+        DISABLED,
+        /**
+         * 采样检测，只报告泄漏对象的创建位置
+         */
+        SIMPLE,
+        /**
+         * 采样检测，报告创建位置和最近的访问位置
+         */
+        ADVANCED,
+        /**
+         * 检测所有对象并记录访问位置，只用于测试
+         */
+        PARANOID;
+
+        static Level parse(String levelStr) {
+            String trimmed = levelStr.trim();
+            for (Level level : values()) {
+                if (trimmed.equalsIgnoreCase(level.name()) || trimmed.equals(String.valueOf(level.ordinal()))) {
+                    return level;
+                }
+            }
+            return DEFAULT_LEVEL;
+        }
+    }
+
+    private static final Level DEFAULT_LEVEL = Level.SIMPLE;
+    private static final int DEFAULT_SAMPLING_INTERVAL = 128;
+    private static final int DEFAULT_TARGET_RECORDS = 4;
+
+    private static final int SAMPLING_INTERVAL;
+    private static final int TARGET_RECORDS;
+
+    private static volatile Level level;
+
+    static {
+        level = Level.parse(SystemPropertyUtil.get("getty.leakDetection.level", DEFAULT_LEVEL.name()));
+        SAMPLING_INTERVAL = Math.max(1, SystemPropertyUtil.getInt("getty.leakDetection.samplingInterval", DEFAULT_SAMPLING_INTERVAL));
+        TARGET_RECORDS = Math.max(0, SystemPropertyUtil.getInt("getty.leakDetection.targetRecords", DEFAULT_TARGET_RECORDS));
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dgetty.leakDetection.level: {}", level.name().toLowerCase(Locale.US));
+            logger.debug("-Dgetty.leakDetection.samplingInterval: {}", SAMPLING_INTERVAL);
+            logger.debug("-Dgetty.leakDetection.targetRecords: {}", TARGET_RECORDS);
+        }
+    }
+
+    /**
+     * 设置检测级别，对之后的分配生效
+     *
+     * @param level 检测级别
+     */
+    public static void setLevel(Level level) {
+        if (level == null) {
+            throw new NullPointerException("level");
+        }
+        ResourceLeakDetector.level = level;
+    }
+
+    public static Level getLevel() {
+        return level;
+    }
+
+    /**
+     * 所有未关闭的追踪记录，保证虚引用本身不被回收
+     */
+    private final Set<DefaultResourceLeak<?>> allLeaks =
+            Collections.newSetFromMap(new ConcurrentHashMap<DefaultResourceLeak<?>, Boolean>());
+    private final ReferenceQueue<Object> refQueue = new ReferenceQueue<Object>();
+    /**
+     * 已报告过的泄漏，相同调用栈只报告一次
+     */
+    private final Set<String> reportedLeaks = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final String resourceType;
+    private final int samplingInterval;
+
+    public ResourceLeakDetector(Class<?> resourceType) {
+        this(StringUtil.simpleClassName(resourceType), SAMPLING_INTERVAL);
+    }
+
+    public ResourceLeakDetector(String resourceType, int samplingInterval) {
+        if (resourceType == null) {
+            throw new NullPointerException("resourceType");
+        }
+        if (samplingInterval <= 0) {
+            throw new IllegalArgumentException("samplingInterval: " + samplingInterval + " (expected: 1+)");
+        }
+        this.resourceType = resourceType;
+        this.samplingInterval = samplingInterval;
+    }
+
+    /**
+     * 按当前级别决定是否追踪对象，未被采样时返回null
+     *
+     * @param obj 被追踪的对象
+     * @return ResourceLeakTracker，未追踪时为null
+     */
+    public final ResourceLeakTracker<T> track(T obj) {
+        Level level = ResourceLeakDetector.level;
+        if (level == Level.DISABLED) {
+            return null;
+        }
+        if (level != Level.PARANOID && ThreadLocalRandom.current().nextInt(samplingInterval) != 0) {
+            return null;
+        }
+        reportLeak();
+        return new DefaultResourceLeak<T>(obj, refQueue, allLeaks, level.ordinal() >= Level.ADVANCED.ordinal());
+    }
+
+    /**
+     * 处理已被GC回收的对象，未正确关闭的即为泄漏
+     */
+    private void reportLeak() {
+        for (; ; ) {
+            DefaultResourceLeak<?> ref = (DefaultResourceLeak<?>) refQueue.poll();
+            if (ref == null) {
+                break;
+            }
+            if (!ref.dispose() || !needReport()) {
+                continue;
+            }
+            String records = ref.toString();
+            if (reportedLeaks.add(records)) {
+                if (records.isEmpty()) {
+                    reportUntracedLeak(resourceType);
+                } else {
+                    reportTracedLeak(resourceType, records);
+                }
+            }
+        }
+    }
+
+    /**
+     * 是否需要报告泄漏，默认在日志开启error级别时报告
+     *
+     * @return boolean
+     */
+    protected boolean needReport() {
+        return logger.isErrorEnabled();
+    }
+
+    /**
+     * 报告带有访问记录的泄漏，子类可覆盖以改变报告方式
+     *
+     * @param resourceType 资源类型
+     * @param records      创建位置和访问记录
+     */
+    protected void reportTracedLeak(String resourceType, String records) {
+        logger.error("LEAK: {}.release() was not called before it's garbage-collected.{}", resourceType, records);
+    }
+
+    /**
+     * 报告没有访问记录的泄漏，子类可覆盖以改变报告方式
+     *
+     * @param resourceType 资源类型
+     */
+    protected void reportUntracedLeak(String resourceType) {
+        logger.error("LEAK: {}.release() was not called before it's garbage-collected. " +
+                        "Enable advanced leak reporting to find out where the leak occurred. " +
+                        "To enable advanced leak reporting, specify the JVM option '-Dgetty.leakDetection.level={}' " +
+                        "or call ResourceLeakDetector.setLevel()",
+                resourceType, Level.ADVANCED.name().toLowerCase(Locale.US));
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static final class DefaultResourceLeak<T> extends PhantomReference<Object> implements ResourceLeakTracker<T> {
+
+        private static final AtomicReferenceFieldUpdater<DefaultResourceLeak, Record> headUpdater =
+                AtomicReferenceFieldUpdater.newUpdater(DefaultResourceLeak.class, Record.class, "head");
+        private static final AtomicIntegerFieldUpdater<DefaultResourceLeak> droppedRecordsUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(DefaultResourceLeak.class, "droppedRecords");
+
+        /**
+         * 访问记录链表头，关闭后为null
+         */
+        private volatile Record head;
+        private volatile int droppedRecords;
+
+        private final Set<DefaultResourceLeak<?>> allLeaks;
+        private final boolean recordAccess;
+        private final int trackedHash;
+
+        DefaultResourceLeak(Object referent, ReferenceQueue<Object> refQueue, Set<DefaultResourceLeak<?>> allLeaks,
+                            boolean recordAccess) {
+            super(referent, refQueue);
+            this.allLeaks = allLeaks;
+            this.recordAccess = recordAccess;
+            //不能持有对象本身，只保存其哈希值用于校验close的调用方
+            trackedHash = System.identityHashCode(referent);
+            allLeaks.add(this);
+            //SIMPLE级别同样记录创建位置
+            headUpdater.set(this, new Record(Record.BOTTOM));
+        }
+
+        @Override
+        public void record() {
+            record(null);
+        }
+
+        @Override
+        public void record(Object hint) {
+            if (!recordAccess || TARGET_RECORDS == 0) {
+                return;
+            }
+            Record oldHead;
+            Record prevHead;
+            Record newHead;
+            boolean dropped;
+            do {
+                if ((prevHead = oldHead = headUpdater.get(this)) == null) {
+                    //已关闭
+                    return;
+                }
+                final int numElements = oldHead.pos + 1;
+                if (numElements >= TARGET_RECORDS) {
+                    //超出保留数量后按指数退避随机替换最近一条记录，保证最早和最近的访问都能保留下来
+                    final int backOffFactor = Math.min(numElements - TARGET_RECORDS, 30);
+                    if (dropped = ThreadLocalRandom.current().nextInt(1 << backOffFactor) != 0) {
+                        prevHead = oldHead.next;
+                    }
+                } else {
+                    dropped = false;
+                }
+                newHead = hint != null ? new Record(prevHead, hint) : new Record(prevHead);
+            } while (!headUpdater.compareAndSet(this, oldHead, newHead));
+            if (dropped) {
+                droppedRecordsUpdater.incrementAndGet(this);
+            }
+        }
+
+        boolean dispose() {
+            clear();
+            return allLeaks.remove(this);
+        }
+
+        @Override
+        public boolean close(T trackedObject) {
+            assert trackedHash == System.identityHashCode(trackedObject);
+            try {
+                if (allLeaks.remove(this)) {
+                    clear();
+                    headUpdater.set(this, null);
+                    return true;
+                }
+                return false;
+            } finally {
+                //保证对象在close完成前可达，避免在释放过程中被提前判定为泄漏
+                reachabilityFence0(trackedObject);
+            }
+        }
+
+        private static void reachabilityFence0(Object ref) {
+            if (ref != null) {
+                synchronized (ref) {
+                    //空同步块，阻止JIT提前结束对象的可达性
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            Record oldHead = headUpdater.getAndSet(this, null);
+            if (oldHead == null || !recordAccess) {
+                //SIMPLE级别只有创建位置，不输出访问记录
+                return oldHead == null ? "" : StringUtil.NEWLINE + "Created at:" + oldHead.toString();
+            }
+
+            final int dropped = droppedRecordsUpdater.get(this);
+            int duped = 0;
+            int present = oldHead.pos + 1;
+            StringBuilder buf = new StringBuilder(present * 2048).append(StringUtil.NEWLINE);
+            buf.append("Recent access records: ").append(StringUtil.NEWLINE);
+
+            int i = 1;
+            Set<String> seen = new HashSet<String>(present);
+            for (; oldHead != Record.BOTTOM; oldHead = oldHead.next) {
+                String s = oldHead.toString();
+                if (seen.add(s)) {
+                    if (oldHead.next == Record.BOTTOM) {
+                        buf.append("Created at:").append(StringUtil.NEWLINE).append(s);
+                    } else {
+                        buf.append('#').append(i++).append(':').append(StringUtil.NEWLINE).append(s);
+                    }
+                } else {
+                    duped++;
+                }
+            }
+
+            if (duped > 0) {
+                buf.append(": ").append(duped).append(" leak records were discarded because they were duplicates")
+                        .append(StringUtil.NEWLINE);
+            }
+            if (dropped > 0) {
+                buf.append(": ").append(dropped)
+                        .append(" leak records were discarded because the leak record count is targeted to ")
+                        .append(TARGET_RECORDS)
+                        .append(". Use system property getty.leakDetection.targetRecords to increase the limit.")
+                        .append(StringUtil.NEWLINE);
+            }
+            buf.setLength(buf.length() - StringUtil.NEWLINE.length());
+            return buf.toString();
+        }
+    }
+
+    /**
+     * 单条访问记录，通过异常的调用栈保存访问位置
+     */
+    private static final class Record extends Throwable {
+        private static final long serialVersionUID = 6065153674892850720L;
+
+        private static final Record BOTTOM = new Record();
+        private static final Set<String> SKIPPED_METHODS =
+                new HashSet<String>(Arrays.asList("trackLeak", "recordLeak", "toLeakAwareBuffer"));
+
+        private final String hintString;
+        private final Record next;
+        private final int pos;
+
+        Record(Record next, Object hint) {
+            //提示信息立即转换为字符串，避免记录持有业务对象
+            hintString = hint.toString();
+            this.next = next;
+            this.pos = next.pos + 1;
+        }
+
+        Record(Record next) {
+            hintString = null;
+            this.next = next;
+            this.pos = next.pos + 1;
+        }
+
+        private Record() {
+            hintString = null;
+            next = null;
+            pos = -1;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder buf = new StringBuilder(2048);
+            if (hintString != null) {
+                buf.append("\tHint: ").append(hintString).append(StringUtil.NEWLINE);
+            }
+            StackTraceElement[] array = getStackTrace();
+            //跳过检测器自身以及缓冲区追踪入口的调用栈
+            int i = 0;
+            while (i < array.length && (isDetectorClass(array[i].getClassName())
+                    || SKIPPED_METHODS.contains(array[i].getMethodName()))) {
+                i++;
+            }
+            for (; i < array.length; i++) {
+                buf.append('\t').append(array[i].toString()).append(StringUtil.NEWLINE);
+            }
+            return buf.toString();
+        }
+
+        /**
+         * 检测器自身及其内部类，不能只比较前缀，否则同名前缀的其他类也会被跳过
+         */
+        private static boolean isDetectorClass(String className) {
+            String detectorName = ResourceLeakDetector.class.getName();
+            return className.startsWith(detectorName)
+                    && (className.length() == detectorName.length() || className.charAt(detectorName.length()) == '$');
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.buffer;
+
+/**
+ * 单个被追踪对象的泄漏记录，由{@link ResourceLeakDetector#track(Object)}创建
+ *
+ * @author gogym
+ * @version 1.0.0
+ * @className ResourceLeakTracker.java
+ * @description
+ * @date 2026/10/17
+ */
+public interface ResourceLeakTracker<T> {
+
+    /**
+     * 记录当前的访问位置，仅在ADVANCED及以上级别生效
+     */
+    void record();
+
+    /**
+     * 记录当前的访问位置，并附带调试信息
+     *
+     * @param hint 调试信息
+     */
+    void record(Object hint);
+
+    /**
+     * 对象已正确释放，停止追踪
+     *
+     * @param trackedObject 被追踪的对象
+     * @return 是否第一次关闭
+     */
+    boolean close(T trackedObject);
+}
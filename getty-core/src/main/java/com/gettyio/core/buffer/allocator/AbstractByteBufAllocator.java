@@ -15,7 +15,10 @@
  */
 package com.gettyio.core.buffer.allocator;
 
+import com.gettyio.core.buffer.ResourceLeakDetector;
+import com.gettyio.core.buffer.buffer.AbstractReferenceCountedByteBuf;
 import com.gettyio.core.buffer.buffer.ByteBuf;
+import com.gettyio.core.buffer.buffer.CompositeByteBuf;
 import com.gettyio.core.buffer.buffer.EmptyByteBuf;
 import com.gettyio.core.util.PlatformDependent;
 import com.gettyio.core.util.StringUtil;
@@ -29,6 +32,10 @@ public abstract class AbstractByteBufAllocator implements ByteBufAllocator {
      * 默认的初始化容量
      */
     private static final int DEFAULT_INITIAL_CAPACITY = 256;
+    /**
+     * 缓冲区泄漏检测器，所有分配器共享
+     */
+    protected static final ResourceLeakDetector<ByteBuf> leakDetector = new ResourceLeakDetector<ByteBuf>(ByteBuf.class);
     /**
      * 是否默认使用堆外内存
      */
@@ -141,6 +148,18 @@ public abstract class AbstractByteBufAllocator implements ByteBufAllocator {
         return newDirectBuffer(initialCapacity, maxCapacity);
     }
 
+    @Override
+    public CompositeByteBuf compositeBuffer() {
+        return compositeBuffer(CompositeByteBuf.DEFAULT_MAX_COMPONENTS);
+    }
+
+    @Override
+    public CompositeByteBuf compositeBuffer(int maxNumComponents) {
+        CompositeByteBuf buf = new CompositeByteBuf(this, directByDefault, maxNumComponents);
+        buf.trackLeak(leakDetector);
+        return buf;
+    }
+
     /**
      * 验证初始化大小是否超出最大
      */
@@ -153,6 +172,19 @@ public abstract class AbstractByteBufAllocator implements ByteBufAllocator {
         }
     }
 
+    /**
+     * 按泄漏检测级别对新分配的缓冲区进行采样追踪
+     *
+     * @param buf 新分配的缓冲区
+     * @return ByteBuf
+     */
+    protected static ByteBuf toLeakAwareBuffer(ByteBuf buf) {
+        if (buf instanceof AbstractReferenceCountedByteBuf) {
+            ((AbstractReferenceCountedByteBuf) buf).trackLeak(leakDetector);
+        }
+        return buf;
+    }
+
     /**
      * 用给定的initialCapacity和maxCapacity创建一个堆{@link ByteBuf}。
      */
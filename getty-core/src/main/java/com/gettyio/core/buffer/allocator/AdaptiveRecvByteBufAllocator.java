@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.buffer.allocator;
+
+import com.gettyio.core.buffer.buffer.ByteBuf;
+import com.gettyio.core.util.MathUtil;
+
+/**
+ * 自适应的读缓冲区分配器，每个通道持有一个实例，非线程安全。
+ * 根据实际读取的字节数调整下一次读取的缓冲区大小：读满则立即扩大一倍，连续两次不足一半则缩小一半，
+ * 大小始终在[minimum, maximum]之间，且为2的幂
+ */
+public final class AdaptiveRecvByteBufAllocator {
+
+    /**
+     * 最小值
+     */
+    private final int minimum;
+    /**
+     * 最大值
+     */
+    private final int maximum;
+    /**
+     * 下一次读取的大小
+     */
+    private int nextReceiveBufferSize;
+    /**
+     * 是否已有一次不足一半的读取，连续两次才缩小，避免抖动
+     */
+    private boolean decreaseNow;
+
+    /**
+     * 构造方法
+     *
+     * @param minimum 最小值
+     * @param initial 初始值，超出范围时取边界值
+     * @param maximum 最大值
+     */
+    public AdaptiveRecvByteBufAllocator(int minimum, int initial, int maximum) {
+        if (minimum <= 0) {
+            throw new IllegalArgumentException("minimum: " + minimum);
+        }
+        if (maximum < minimum) {
+            throw new IllegalArgumentException("maximum: " + maximum);
+        }
+        this.minimum = MathUtil.safeFindNextPositivePowerOfTwo(minimum);
+        this.maximum = Math.max(this.minimum, MathUtil.safeFindNextPositivePowerOfTwo(maximum));
+        this.nextReceiveBufferSize = Math.min(this.maximum, Math.max(this.minimum, MathUtil.safeFindNextPositivePowerOfTwo(Math.max(1, initial))));
+    }
+
+    /**
+     * 按预测大小分配读缓冲区
+     *
+     * @param byteBufAllocator 内存池
+     * @return ByteBuf
+     */
+    public ByteBuf allocate(ByteBufAllocator byteBufAllocator) {
+        return byteBufAllocator.ioBuffer(nextReceiveBufferSize);
+    }
+
+    /**
+     * 预测的下一次读取大小
+     *
+     * @return int
+     */
+    public int guess() {
+        return nextReceiveBufferSize;
+    }
+
+    /**
+     * 记录一次读取的实际字节数
+     *
+     * @param actualReadBytes 实际读取字节数
+     */
+    public void record(int actualReadBytes) {
+        if (actualReadBytes >= nextReceiveBufferSize) {
+            //读满了，说明还有数据，立即扩大
+            nextReceiveBufferSize = Math.min(maximum, nextReceiveBufferSize << 1);
+            decreaseNow = false;
+        } else if (actualReadBytes <= nextReceiveBufferSize >>> 1) {
+            if (decreaseNow) {
+                nextReceiveBufferSize = Math.max(minimum, nextReceiveBufferSize >>> 1);
+                decreaseNow = false;
+            } else {
+                decreaseNow = true;
+            }
+        } else {
+            decreaseNow = false;
+        }
+    }
+}
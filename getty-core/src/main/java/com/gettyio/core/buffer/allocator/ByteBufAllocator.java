@@ -16,6 +16,7 @@
 package com.gettyio.core.buffer.allocator;
 
 import com.gettyio.core.buffer.buffer.ByteBuf;
+import com.gettyio.core.buffer.buffer.CompositeByteBuf;
 
 /**
  * 实现负责分配缓冲区。这个接口的实现应该是线程安全的。
@@ -82,6 +83,17 @@ public interface ByteBufAllocator {
      */
     ByteBuf directBuffer(int initialCapacity, int maxCapacity);
 
+    /**
+     * 分配一个{@link CompositeByteBuf}，组件数上限为{@link CompositeByteBuf#DEFAULT_MAX_COMPONENTS}。
+     * 合并组件时分配的缓冲区是直接缓冲区还是堆缓冲区取决于实际的实现。
+     */
+    CompositeByteBuf compositeBuffer();
+
+    /**
+     * 分配一个具有给定组件数上限的{@link CompositeByteBuf}。
+     */
+    CompositeByteBuf compositeBuffer(int maxNumComponents);
+
     /**
      * 如果直接的{@link ByteBuf}被池化，则返回{@code true}
      */
@@ -389,6 +389,24 @@ public abstract class AbstractByteBuf extends ByteBuf {
     }
 
 
+    @Override
+    public ByteBuf slice() {
+        return slice(readerIndex, readableBytes());
+    }
+
+    @Override
+    public ByteBuf slice(int index, int length) {
+        checkIndex(index, length);
+        return new SlicedByteBuf(this, index, length);
+    }
+
+    @Override
+    public ByteBuf retainedSlice(int index, int length) {
+        ByteBuf slice = slice(index, length);
+        retain();
+        return slice;
+    }
+
     @Override
     public ByteBuffer getNioBuffer() {
         if (byteBuffer == null) {
@@ -18,6 +18,8 @@ package com.gettyio.core.buffer.buffer;
 
 
 import com.gettyio.core.buffer.IllegalReferenceCountException;
+import com.gettyio.core.buffer.ResourceLeakDetector;
+import com.gettyio.core.buffer.ResourceLeakTracker;
 
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
@@ -34,6 +36,11 @@ public abstract class AbstractReferenceCountedByteBuf extends AbstractByteBuf {
 
     private volatile int refCnt = 1;
 
+    /**
+     * 泄漏追踪器，只有被采样的缓冲区不为null
+     */
+    private ResourceLeakTracker<ByteBuf> leak;
+
     protected AbstractReferenceCountedByteBuf(int maxCapacity) {
         super(maxCapacity);
     }
@@ -43,6 +50,15 @@ public abstract class AbstractReferenceCountedByteBuf extends AbstractByteBuf {
         return refCnt;
     }
 
+    /**
+     * 开始泄漏追踪，由分配器在分配缓冲区时调用
+     *
+     * @param leakDetector 泄漏检测器
+     */
+    public final void trackLeak(ResourceLeakDetector<ByteBuf> leakDetector) {
+        leak = leakDetector.track(this);
+    }
+
     /**
      * 一种不安全的操作，由子类直接设置缓冲区的引用计数
      */
@@ -64,6 +80,7 @@ public abstract class AbstractReferenceCountedByteBuf extends AbstractByteBuf {
                 break;
             }
         }
+        recordLeak(null);
         return this;
     }
 
@@ -85,16 +102,19 @@ public abstract class AbstractReferenceCountedByteBuf extends AbstractByteBuf {
                 break;
             }
         }
+        recordLeak(null);
         return this;
     }
 
     @Override
     public ByteBuf touch() {
+        recordLeak(null);
         return this;
     }
 
     @Override
     public ByteBuf touch(Object hint) {
+        recordLeak(hint);
         return this;
     }
 
@@ -108,9 +128,11 @@ public abstract class AbstractReferenceCountedByteBuf extends AbstractByteBuf {
 
             if (refCntUpdater.compareAndSet(this, refCnt, refCnt - 1)) {
                 if (refCnt == 1) {
+                    closeLeak();
                     deallocate();
                     return true;
                 }
+                recordLeak(null);
                 return false;
             }
         }
@@ -130,14 +152,31 @@ public abstract class AbstractReferenceCountedByteBuf extends AbstractByteBuf {
 
             if (refCntUpdater.compareAndSet(this, refCnt, refCnt - decrement)) {
                 if (refCnt == decrement) {
+                    closeLeak();
                     deallocate();
                     return true;
                 }
+                recordLeak(null);
                 return false;
             }
         }
     }
 
+    private void recordLeak(Object hint) {
+        ResourceLeakTracker<ByteBuf> leak = this.leak;
+        if (leak != null) {
+            leak.record(hint);
+        }
+    }
+
+    private void closeLeak() {
+        ResourceLeakTracker<ByteBuf> leak = this.leak;
+        if (leak != null) {
+            this.leak = null;
+            leak.close(this);
+        }
+    }
+
     /**
      * 调用一次{@link #refCnt()}等于0。
      */
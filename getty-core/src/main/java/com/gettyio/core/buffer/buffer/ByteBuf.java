@@ -602,6 +602,24 @@ public abstract class ByteBuf implements ReferenceCounted {
      */
     public abstract ByteBuf copy(int index, int length);
 
+    /**
+     * 返回该缓冲区可读字节的切片，与该缓冲区共享内容和引用计数，不复制数据。
+     * 这个方法与{@code buf.slice(buf.readerIndex(), buf.readableBytes())}相同，不修改该缓冲区的{@code readerIndex}或{@code writerIndex}。
+     * 切片不会增加引用计数，如需在该缓冲区释放后继续使用切片，请使用{@link #retainedSlice(int, int)}
+     */
+    public abstract ByteBuf slice();
+
+    /**
+     * 返回该缓冲区子区域的切片，与该缓冲区共享内容和引用计数，不复制数据。
+     * 切片拥有独立的读写下标，此方法不修改该缓冲区的{@code readerIndex}或{@code writerIndex}。
+     */
+    public abstract ByteBuf slice(int index, int length);
+
+    /**
+     * 与{@link #slice(int, int)}相同，但会对该缓冲区执行一次{@link #retain()}，使用完毕后须释放切片
+     */
+    public abstract ByteBuf retainedSlice(int index, int length);
+
 
     /**
      * @return {@code -1}如果这个缓冲区没有底层的{@link ByteBuffer}。
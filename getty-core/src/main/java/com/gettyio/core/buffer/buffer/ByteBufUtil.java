@@ -23,6 +23,10 @@ import java.nio.ByteOrder;
  */
 public final class ByteBufUtil {
 
+    /**
+     * 查找区间小于该长度时逐字节比较即可，不值得按字读取
+     */
+    private static final int SWAR_MIN_LENGTH = 8;
 
     private ByteBufUtil() {
     }
@@ -60,6 +64,15 @@ public final class ByteBufUtil {
         return hashCode;
     }
 
+    /**
+     * 获取缓冲区全部可读字节的副本，不改变读写下标。
+     */
+    public static byte[] getBytes(ByteBuf buffer) {
+        byte[] bytes = new byte[buffer.readableBytes()];
+        buffer.getBytes(buffer.readerIndex(), bytes);
+        return bytes;
+    }
+
     /**
      * 切换指定的32位整数的字节顺序。
      */
@@ -84,7 +97,18 @@ public final class ByteBufUtil {
             return -1;
         }
 
-        for (int i = fromIndex; i < toIndex; i++) {
+        int i = fromIndex;
+        //SWAR：每次读取4个字节整体比较，getInt按大端序读取，首个匹配字节位于高位
+        if (toIndex - fromIndex >= SWAR_MIN_LENGTH && buffer.order() == ByteOrder.BIG_ENDIAN) {
+            int pattern = compilePattern(value);
+            for (int end = toIndex - 4; i <= end; i += 4) {
+                int matches = firstAnyPattern(buffer.getInt(i), pattern);
+                if (matches != 0) {
+                    return i + (Integer.numberOfLeadingZeros(matches) >>> 3);
+                }
+            }
+        }
+        for (; i < toIndex; i++) {
             if (buffer.getByte(i) == value) {
                 return i;
             }
@@ -93,6 +117,23 @@ public final class ByteBufUtil {
         return -1;
     }
 
+    /**
+     * 把单个字节复制到int的4个字节中，作为SWAR比较的模式
+     */
+    private static int compilePattern(byte value) {
+        return (value & 0xFF) * 0x01010101;
+    }
+
+    /**
+     * 返回word中与模式相等的字节，相等的字节最高位为1，其余位为0。
+     * 每个字节的加法都不会向相邻字节进位，因此没有误判，可直接用前导零定位
+     */
+    private static int firstAnyPattern(int word, int pattern) {
+        int input = word ^ pattern;
+        int tmp = (input & 0x7F7F7F7F) + 0x7F7F7F7F;
+        return ~(tmp | input | 0x7F7F7F7F);
+    }
+
     private static int lastIndexOf(ByteBuf buffer, int fromIndex, int toIndex, byte value) {
         fromIndex = Math.min(fromIndex, buffer.capacity());
         if (fromIndex < 0 || buffer.capacity() == 0) {
@@ -0,0 +1,662 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.buffer.buffer;
+
+import com.gettyio.core.buffer.allocator.ByteBufAllocator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 组合缓冲区，把多个ByteBuf按顺序拼接成一个逻辑缓冲区而不复制数据，用于帧头与消息体的零拷贝拼接。
+ * 加入的缓冲区所有权转交给组合缓冲区，组合缓冲区释放时一并释放。组件数量超过上限时自动合并为一个组件，
+ * 写出时通过{@link #nioBuffers()}得到每个组件对应的nio缓冲区，直接用于gathering write
+ *
+ * @author gogym
+ * @version 1.0.0
+ * @className CompositeByteBuf.java
+ * @description
+ * @date 2026/10/17
+ */
+public class CompositeByteBuf extends AbstractReferenceCountedByteBuf {
+
+    /**
+     * 默认的最大组件数
+     */
+    public static final int DEFAULT_MAX_COMPONENTS = 16;
+
+    private static final ByteBuffer EMPTY_NIO_BUFFER = ByteBuffer.allocate(0);
+
+    private final ByteBufAllocator alloc;
+    private final boolean direct;
+    private final int maxNumComponents;
+    private final List<Component> components;
+    /**
+     * 最近一次访问的组件，顺序读写时避免重复查找
+     */
+    private Component lastAccessed;
+    private boolean freed;
+
+    public CompositeByteBuf(ByteBufAllocator alloc, boolean direct) {
+        this(alloc, direct, DEFAULT_MAX_COMPONENTS);
+    }
+
+    public CompositeByteBuf(ByteBufAllocator alloc, boolean direct, int maxNumComponents) {
+        super(Integer.MAX_VALUE);
+        if (alloc == null) {
+            throw new NullPointerException("alloc");
+        }
+        if (maxNumComponents < 2) {
+            throw new IllegalArgumentException("maxNumComponents: " + maxNumComponents + " (expected: >= 2)");
+        }
+        this.alloc = alloc;
+        this.direct = direct;
+        this.maxNumComponents = maxNumComponents;
+        components = new ArrayList<Component>(Math.min(DEFAULT_MAX_COMPONENTS, maxNumComponents));
+    }
+
+    /**
+     * 在末尾追加一个组件，并把写下标后移组件的可读字节数
+     *
+     * @param buffer 组件，所有权转交给组合缓冲区
+     * @return CompositeByteBuf
+     */
+    public CompositeByteBuf addComponent(ByteBuf buffer) {
+        return addComponent(true, buffer);
+    }
+
+    /**
+     * 在末尾追加一个组件
+     *
+     * @param increaseWriterIndex 是否把写下标后移组件的可读字节数
+     * @param buffer              组件，所有权转交给组合缓冲区
+     * @return CompositeByteBuf
+     */
+    public CompositeByteBuf addComponent(boolean increaseWriterIndex, ByteBuf buffer) {
+        addComponent0(increaseWriterIndex, buffer);
+        consolidateIfNeeded();
+        return this;
+    }
+
+    /**
+     * 按顺序在末尾追加多个组件，并后移写下标
+     *
+     * @param buffers 组件，所有权转交给组合缓冲区
+     * @return CompositeByteBuf
+     */
+    public CompositeByteBuf addComponents(ByteBuf... buffers) {
+        if (buffers == null) {
+            throw new NullPointerException("buffers");
+        }
+        for (ByteBuf buffer : buffers) {
+            addComponent0(true, buffer);
+        }
+        consolidateIfNeeded();
+        return this;
+    }
+
+    private void addComponent0(boolean increaseWriterIndex, ByteBuf buffer) {
+        if (buffer == null) {
+            throw new NullPointerException("buffer");
+        }
+        try {
+            ensureAccessible();
+        } catch (RuntimeException e) {
+            buffer.release();
+            throw e;
+        }
+        int readableBytes = buffer.readableBytes();
+        if (readableBytes == 0) {
+            //空组件不占位置
+            buffer.release();
+            return;
+        }
+        components.add(new Component(buffer, buffer.readerIndex(), capacity(), readableBytes));
+        if (increaseWriterIndex) {
+            writerIndex(writerIndex() + readableBytes);
+        }
+    }
+
+    /**
+     * 组件数超过上限时合并全部组件，避免组件过多导致查找和gathering write变慢
+     */
+    private void consolidateIfNeeded() {
+        if (components.size() > maxNumComponents) {
+            consolidate();
+        }
+    }
+
+    /**
+     * 把全部组件复制到一个新分配的缓冲区中，并释放原有组件
+     *
+     * @return CompositeByteBuf
+     */
+    public CompositeByteBuf consolidate() {
+        ensureAccessible();
+        int numComponents = components.size();
+        if (numComponents <= 1) {
+            return this;
+        }
+        int capacity = capacity();
+        ByteBuf consolidated = allocBuffer(capacity);
+        for (int i = 0; i < numComponents; i++) {
+            Component c = components.get(i);
+            consolidated.setBytes(c.offset, c.buf, c.srcOffset, c.length);
+            c.free();
+        }
+        consolidated.setIndex(0, capacity);
+        components.clear();
+        components.add(new Component(consolidated, 0, 0, capacity));
+        lastAccessed = null;
+        return this;
+    }
+
+    /**
+     * 释放已经完全读完的组件，读写下标随之前移
+     *
+     * @return CompositeByteBuf
+     */
+    public CompositeByteBuf discardReadComponents() {
+        ensureAccessible();
+        int readerIndex = readerIndex();
+        int numDiscarded = 0;
+        int discardedBytes = 0;
+        while (numDiscarded < components.size()) {
+            Component c = components.get(numDiscarded);
+            if (c.endOffset > readerIndex) {
+                break;
+            }
+            discardedBytes = c.endOffset;
+            c.free();
+            numDiscarded++;
+        }
+        if (numDiscarded == 0) {
+            return this;
+        }
+        components.subList(0, numDiscarded).clear();
+        for (Component c : components) {
+            c.reposition(c.offset - discardedBytes);
+        }
+        lastAccessed = null;
+        setIndex(readerIndex - discardedBytes, writerIndex() - discardedBytes);
+        return this;
+    }
+
+    /**
+     * 当前组件数
+     *
+     * @return int
+     */
+    public int numComponents() {
+        return components.size();
+    }
+
+    public int maxNumComponents() {
+        return maxNumComponents;
+    }
+
+    private ByteBuf allocBuffer(int capacity) {
+        return direct ? alloc.directBuffer(capacity) : alloc.heapBuffer(capacity);
+    }
+
+    /**
+     * 查找包含指定下标的组件序号
+     */
+    private int toComponentIndex(int offset) {
+        int low = 0;
+        int high = components.size() - 1;
+        while (low <= high) {
+            int mid = low + high >>> 1;
+            Component c = components.get(mid);
+            if (offset >= c.endOffset) {
+                low = mid + 1;
+            } else if (offset < c.offset) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        throw new IndexOutOfBoundsException("offset: " + offset + " (expected: range(0, " + capacity() + "))");
+    }
+
+    private Component findComponent(int offset) {
+        Component c = lastAccessed;
+        if (c != null && offset >= c.offset && offset < c.endOffset) {
+            return c;
+        }
+        c = components.get(toComponentIndex(offset));
+        lastAccessed = c;
+        return c;
+    }
+
+    @Override
+    public ByteBufAllocator alloc() {
+        return alloc;
+    }
+
+    @Override
+    public ByteOrder order() {
+        return ByteOrder.BIG_ENDIAN;
+    }
+
+    @Override
+    public boolean isDirect() {
+        int size = components.size();
+        if (size == 0) {
+            return direct;
+        }
+        for (int i = 0; i < size; i++) {
+            if (!components.get(i).buf.isDirect()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int capacity() {
+        int size = components.size();
+        return size == 0 ? 0 : components.get(size - 1).endOffset;
+    }
+
+    @Override
+    public ByteBuf capacity(int newCapacity) {
+        ensureAccessible();
+        if (newCapacity < 0 || newCapacity > maxCapacity()) {
+            throw new IllegalArgumentException("newCapacity: " + newCapacity);
+        }
+
+        int oldCapacity = capacity();
+        if (newCapacity > oldCapacity) {
+            //扩容时在末尾追加一个填充组件
+            final int paddingLength = newCapacity - oldCapacity;
+            ByteBuf padding = allocBuffer(paddingLength);
+            padding.setIndex(0, paddingLength);
+            addComponent(false, padding);
+        } else if (newCapacity < oldCapacity) {
+            //缩容时从末尾开始裁剪组件
+            int bytesToTrim = oldCapacity - newCapacity;
+            for (int i = components.size() - 1; i >= 0 && bytesToTrim > 0; i--) {
+                Component c = components.get(i);
+                if (bytesToTrim >= c.length) {
+                    bytesToTrim -= c.length;
+                    c.free();
+                    components.remove(i);
+                    continue;
+                }
+                components.set(i, new Component(c.buf, c.srcOffset, c.offset, c.length - bytesToTrim));
+                break;
+            }
+            lastAccessed = null;
+            if (readerIndex() > newCapacity) {
+                setIndex(newCapacity, newCapacity);
+            } else if (writerIndex() > newCapacity) {
+                writerIndex(newCapacity);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    protected byte _getByte(int index) {
+        Component c = findComponent(index);
+        return c.buf.getByte(c.idx(index));
+    }
+
+    @Override
+    protected int _getInt(int index) {
+        Component c = findComponent(index);
+        if (index + 4 <= c.endOffset) {
+            return c.buf.getInt(c.idx(index));
+        }
+        //跨组件时逐字节组装，组件均为大端序
+        return (_getByte(index) & 0xff) << 24 |
+                (_getByte(index + 1) & 0xff) << 16 |
+                (_getByte(index + 2) & 0xff) << 8 |
+                _getByte(index + 3) & 0xff;
+    }
+
+    @Override
+    protected void _setByte(int index, int value) {
+        Component c = findComponent(index);
+        c.buf.setByte(c.idx(index), value);
+    }
+
+    @Override
+    protected void _setInt(int index, int value) {
+        Component c = findComponent(index);
+        if (index + 4 <= c.endOffset) {
+            c.buf.setInt(c.idx(index), value);
+            return;
+        }
+        _setByte(index, (byte) (value >>> 24));
+        _setByte(index + 1, (byte) (value >>> 16));
+        _setByte(index + 2, (byte) (value >>> 8));
+        _setByte(index + 3, (byte) value);
+    }
+
+    @Override
+    public ByteBuf getBytes(int index, ByteBuf dst, int dstIndex, int length) {
+        checkDstIndex(index, length, dstIndex, dst.capacity());
+        if (length == 0) {
+            return this;
+        }
+        int i = toComponentIndex(index);
+        while (length > 0) {
+            Component c = components.get(i);
+            int localLength = Math.min(length, c.endOffset - index);
+            c.buf.getBytes(c.idx(index), dst, dstIndex, localLength);
+            index += localLength;
+            dstIndex += localLength;
+            length -= localLength;
+            i++;
+        }
+        return this;
+    }
+
+    @Override
+    public ByteBuf getBytes(int index, byte[] dst, int dstIndex, int length) {
+        checkDstIndex(index, length, dstIndex, dst.length);
+        if (length == 0) {
+            return this;
+        }
+        int i = toComponentIndex(index);
+        while (length > 0) {
+            Component c = components.get(i);
+            int localLength = Math.min(length, c.endOffset - index);
+            c.buf.getBytes(c.idx(index), dst, dstIndex, localLength);
+            index += localLength;
+            dstIndex += localLength;
+            length -= localLength;
+            i++;
+        }
+        return this;
+    }
+
+    @Override
+    public ByteBuf getBytes(int index, ByteBuffer dst) {
+        int limit = dst.limit();
+        int length = Math.min(capacity() - index, dst.remaining());
+        checkIndex(index, length);
+        if (length == 0) {
+            return this;
+        }
+        int i = toComponentIndex(index);
+        try {
+            while (length > 0) {
+                Component c = components.get(i);
+                int localLength = Math.min(length, c.endOffset - index);
+                //通过limit限制每个组件写入的字节数
+                dst.limit(dst.position() + localLength);
+                c.buf.getBytes(c.idx(index), dst);
+                index += localLength;
+                length -= localLength;
+                i++;
+            }
+        } finally {
+            dst.limit(limit);
+        }
+        return this;
+    }
+
+    @Override
+    public ByteBuf getBytes(int index, OutputStream out, int length) throws IOException {
+        checkIndex(index, length);
+        if (length == 0) {
+            return this;
+        }
+        int i = toComponentIndex(index);
+        while (length > 0) {
+            Component c = components.get(i);
+            int localLength = Math.min(length, c.endOffset - index);
+            c.buf.getBytes(c.idx(index), out, localLength);
+            index += localLength;
+            length -= localLength;
+            i++;
+        }
+        return this;
+    }
+
+    @Override
+    public ByteBuf setBytes(int index, ByteBuf src, int srcIndex, int length) {
+        checkSrcIndex(index, length, srcIndex, src.capacity());
+        if (length == 0) {
+            return this;
+        }
+        int i = toComponentIndex(index);
+        while (length > 0) {
+            Component c = components.get(i);
+            int localLength = Math.min(length, c.endOffset - index);
+            c.buf.setBytes(c.idx(index), src, srcIndex, localLength);
+            index += localLength;
+            srcIndex += localLength;
+            length -= localLength;
+            i++;
+        }
+        return this;
+    }
+
+    @Override
+    public ByteBuf setBytes(int index, byte[] src, int srcIndex, int length) {
+        checkSrcIndex(index, length, srcIndex, src.length);
+        if (length == 0) {
+            return this;
+        }
+        int i = toComponentIndex(index);
+        while (length > 0) {
+            Component c = components.get(i);
+            int localLength = Math.min(length, c.endOffset - index);
+            c.buf.setBytes(c.idx(index), src, srcIndex, localLength);
+            index += localLength;
+            srcIndex += localLength;
+            length -= localLength;
+            i++;
+        }
+        return this;
+    }
+
+    @Override
+    public ByteBuf setBytes(int index, ByteBuffer src) {
+        int limit = src.limit();
+        int length = src.remaining();
+        checkIndex(index, length);
+        if (length == 0) {
+            return this;
+        }
+        int i = toComponentIndex(index);
+        try {
+            while (length > 0) {
+                Component c = components.get(i);
+                int localLength = Math.min(length, c.endOffset - index);
+                src.limit(src.position() + localLength);
+                c.buf.setBytes(c.idx(index), src);
+                index += localLength;
+                length -= localLength;
+                i++;
+            }
+        } finally {
+            src.limit(limit);
+        }
+        return this;
+    }
+
+    @Override
+    public int setBytes(int index, InputStream in, int length) throws IOException {
+        checkIndex(index, length);
+        if (length == 0) {
+            return 0;
+        }
+        int i = toComponentIndex(index);
+        int readBytes = 0;
+        do {
+            Component c = components.get(i);
+            int localLength = Math.min(length, c.endOffset - index);
+            int localReadBytes = c.buf.setBytes(c.idx(index), in, localLength);
+            if (localReadBytes < 0) {
+                if (readBytes == 0) {
+                    return -1;
+                }
+                break;
+            }
+            index += localReadBytes;
+            length -= localReadBytes;
+            readBytes += localReadBytes;
+            if (localReadBytes < localLength) {
+                //输入流暂时没有更多数据
+                break;
+            }
+            i++;
+        } while (length > 0);
+        return readBytes;
+    }
+
+    @Override
+    public ByteBuf copy(int index, int length) {
+        checkIndex(index, length);
+        ByteBuf dst = allocBuffer(length);
+        if (length != 0) {
+            getBytes(index, dst, 0, length);
+        }
+        dst.writerIndex(length);
+        return dst;
+    }
+
+    @Override
+    public int nioBufferCount() {
+        int count = 0;
+        for (int i = 0; i < components.size(); i++) {
+            count += components.get(i).buf.nioBufferCount();
+        }
+        return count;
+    }
+
+    /**
+     * 只有一个组件时直接返回组件的nio缓冲区，跨多个组件时需要复制合并，写出时应优先使用{@link #nioBuffers()}
+     */
+    @Override
+    public ByteBuffer nioBuffer(int index, int length) {
+        checkIndex(index, length);
+        if (length == 0) {
+            return EMPTY_NIO_BUFFER;
+        }
+        Component c = findComponent(index);
+        if (index + length <= c.endOffset) {
+            return c.buf.nioBuffer(c.idx(index), length);
+        }
+        ByteBuffer merged = ByteBuffer.allocate(length).order(order());
+        for (ByteBuffer buf : nioBuffers(index, length)) {
+            merged.put(buf);
+        }
+        merged.flip();
+        return merged;
+    }
+
+    @Override
+    public ByteBuffer[] nioBuffers(int index, int length) {
+        checkIndex(index, length);
+        if (length == 0) {
+            return new ByteBuffer[]{EMPTY_NIO_BUFFER};
+        }
+        List<ByteBuffer> buffers = new ArrayList<ByteBuffer>(components.size());
+        int i = toComponentIndex(index);
+        while (length > 0) {
+            Component c = components.get(i);
+            int localLength = Math.min(length, c.endOffset - index);
+            if (c.buf.nioBufferCount() == 1) {
+                buffers.add(c.buf.nioBuffer(c.idx(index), localLength));
+            } else {
+                for (ByteBuffer buf : c.buf.nioBuffers(c.idx(index), localLength)) {
+                    buffers.add(buf);
+                }
+            }
+            index += localLength;
+            length -= localLength;
+            i++;
+        }
+        return buffers.toArray(new ByteBuffer[buffers.size()]);
+    }
+
+    @Override
+    public boolean hasMemoryAddress() {
+        return false;
+    }
+
+    @Override
+    public long memoryAddress() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ByteBuf unwrap() {
+        return null;
+    }
+
+    @Override
+    protected void deallocate() {
+        if (freed) {
+            return;
+        }
+        freed = true;
+        for (int i = 0; i < components.size(); i++) {
+            components.get(i).free();
+        }
+        components.clear();
+        lastAccessed = null;
+    }
+
+    @Override
+    public String toString() {
+        String result = super.toString();
+        result = result.substring(0, result.length() - 1);
+        return result + ", components=" + components.size() + ')';
+    }
+
+    /**
+     * 组件，记录组合缓冲区中的[offset, endOffset)对应到组件缓冲区中从srcOffset开始的区间
+     */
+    private static final class Component {
+        final ByteBuf buf;
+        final int srcOffset;
+        final int length;
+        int offset;
+        int endOffset;
+
+        Component(ByteBuf buf, int srcOffset, int offset, int length) {
+            this.buf = buf;
+            this.srcOffset = srcOffset;
+            this.length = length;
+            reposition(offset);
+        }
+
+        void reposition(int offset) {
+            this.offset = offset;
+            this.endOffset = offset + length;
+        }
+
+        int idx(int index) {
+            return index - offset + srcOffset;
+        }
+
+        void free() {
+            buf.release();
+        }
+    }
+}
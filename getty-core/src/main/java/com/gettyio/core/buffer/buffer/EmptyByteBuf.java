@@ -385,6 +385,21 @@ public final class EmptyByteBuf extends ByteBuf {
         return checkIndex(index, length);
     }
 
+    @Override
+    public ByteBuf slice() {
+        return this;
+    }
+
+    @Override
+    public ByteBuf slice(int index, int length) {
+        return checkIndex(index, length);
+    }
+
+    @Override
+    public ByteBuf retainedSlice(int index, int length) {
+        return checkIndex(index, length);
+    }
+
     @Override
     public int nioBufferCount() {
         return 1;
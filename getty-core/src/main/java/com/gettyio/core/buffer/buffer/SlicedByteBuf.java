@@ -0,0 +1,277 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.buffer.buffer;
+
+import com.gettyio.core.buffer.allocator.ByteBufAllocator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 切片缓冲区，把父缓冲区的[adjustment, adjustment + length)区间暴露为一个独立的ByteBuf，不复制数据。
+ * 切片与父缓冲区共享内容和引用计数，只维护自己的读写下标，容量固定不可扩展。
+ * 对切片再切片时直接指向最底层的父缓冲区，避免层层包装
+ *
+ * @author gogym
+ * @version 1.0.0
+ * @className SlicedByteBuf.java
+ * @description
+ * @date 2026/10/17
+ */
+public class SlicedByteBuf extends AbstractByteBuf {
+
+    private final ByteBuf buffer;
+    private final int adjustment;
+    private final int length;
+
+    public SlicedByteBuf(ByteBuf buffer, int index, int length) {
+        super(length);
+        if (index < 0 || index > buffer.capacity() - length) {
+            throw new IndexOutOfBoundsException(buffer + ".slice(" + index + ", " + length + ')');
+        }
+        //子类可能自行维护引用计数，只有普通切片才能越过
+        if (buffer.getClass() == SlicedByteBuf.class) {
+            SlicedByteBuf sliced = (SlicedByteBuf) buffer;
+            this.buffer = sliced.buffer;
+            this.adjustment = sliced.adjustment + index;
+        } else {
+            this.buffer = buffer;
+            this.adjustment = index;
+        }
+        this.length = length;
+        writerIndex(length);
+    }
+
+    private int idx(int index) {
+        return index + adjustment;
+    }
+
+    @Override
+    public ByteBuf unwrap() {
+        return buffer;
+    }
+
+    @Override
+    public ByteBufAllocator alloc() {
+        return buffer.alloc();
+    }
+
+    @Override
+    public ByteOrder order() {
+        return buffer.order();
+    }
+
+    @Override
+    public boolean isDirect() {
+        return buffer.isDirect();
+    }
+
+    @Override
+    public int capacity() {
+        return length;
+    }
+
+    @Override
+    public ByteBuf capacity(int newCapacity) {
+        throw new UnsupportedOperationException("sliced buffer");
+    }
+
+    @Override
+    protected byte _getByte(int index) {
+        return buffer.getByte(idx(index));
+    }
+
+    @Override
+    protected int _getInt(int index) {
+        return buffer.getInt(idx(index));
+    }
+
+    @Override
+    protected void _setByte(int index, int value) {
+        buffer.setByte(idx(index), value);
+    }
+
+    @Override
+    protected void _setInt(int index, int value) {
+        buffer.setInt(idx(index), value);
+    }
+
+    @Override
+    public ByteBuf getBytes(int index, ByteBuf dst, int dstIndex, int length) {
+        checkIndex(index, length);
+        buffer.getBytes(idx(index), dst, dstIndex, length);
+        return this;
+    }
+
+    @Override
+    public ByteBuf getBytes(int index, byte[] dst, int dstIndex, int length) {
+        checkIndex(index, length);
+        buffer.getBytes(idx(index), dst, dstIndex, length);
+        return this;
+    }
+
+    @Override
+    public ByteBuf getBytes(int index, ByteBuffer dst) {
+        int length = Math.min(capacity() - index, dst.remaining());
+        checkIndex(index, length);
+        int limit = dst.limit();
+        //父缓冲区按dst剩余空间复制，这里限制到切片范围内
+        dst.limit(dst.position() + length);
+        try {
+            buffer.getBytes(idx(index), dst);
+        } finally {
+            dst.limit(limit);
+        }
+        return this;
+    }
+
+    @Override
+    public ByteBuf getBytes(int index, OutputStream out, int length) throws IOException {
+        checkIndex(index, length);
+        buffer.getBytes(idx(index), out, length);
+        return this;
+    }
+
+    @Override
+    public ByteBuf setBytes(int index, ByteBuf src, int srcIndex, int length) {
+        checkIndex(index, length);
+        buffer.setBytes(idx(index), src, srcIndex, length);
+        return this;
+    }
+
+    @Override
+    public ByteBuf setBytes(int index, byte[] src, int srcIndex, int length) {
+        checkIndex(index, length);
+        buffer.setBytes(idx(index), src, srcIndex, length);
+        return this;
+    }
+
+    @Override
+    public ByteBuf setBytes(int index, ByteBuffer src) {
+        checkIndex(index, src.remaining());
+        buffer.setBytes(idx(index), src);
+        return this;
+    }
+
+    @Override
+    public int setBytes(int index, InputStream in, int length) throws IOException {
+        checkIndex(index, length);
+        return buffer.setBytes(idx(index), in, length);
+    }
+
+    @Override
+    public int indexOf(int fromIndex, int toIndex, byte value) {
+        //直接在父缓冲区上批量查找，避免逐字节经过切片的下标换算
+        int index;
+        if (fromIndex <= toIndex) {
+            fromIndex = Math.max(fromIndex, 0);
+            toIndex = Math.min(toIndex, length);
+            if (fromIndex >= toIndex) {
+                return -1;
+            }
+            index = buffer.indexOf(idx(fromIndex), idx(toIndex), value);
+        } else {
+            fromIndex = Math.min(fromIndex, length);
+            toIndex = Math.max(toIndex, 0);
+            if (fromIndex <= toIndex) {
+                return -1;
+            }
+            index = buffer.indexOf(idx(fromIndex), idx(toIndex), value);
+        }
+        return index < 0 ? -1 : index - adjustment;
+    }
+
+    @Override
+    public ByteBuf copy(int index, int length) {
+        checkIndex(index, length);
+        return buffer.copy(idx(index), length);
+    }
+
+    @Override
+    public ByteBuf slice(int index, int length) {
+        checkIndex(index, length);
+        return new SlicedByteBuf(buffer, idx(index), length);
+    }
+
+    @Override
+    public int nioBufferCount() {
+        return buffer.nioBufferCount();
+    }
+
+    @Override
+    public ByteBuffer nioBuffer(int index, int length) {
+        checkIndex(index, length);
+        return buffer.nioBuffer(idx(index), length);
+    }
+
+    @Override
+    public ByteBuffer[] nioBuffers(int index, int length) {
+        checkIndex(index, length);
+        return buffer.nioBuffers(idx(index), length);
+    }
+
+    @Override
+    public boolean hasMemoryAddress() {
+        return buffer.hasMemoryAddress();
+    }
+
+    @Override
+    public long memoryAddress() {
+        return buffer.memoryAddress() + adjustment;
+    }
+
+    @Override
+    public int refCnt() {
+        return buffer.refCnt();
+    }
+
+    @Override
+    public ByteBuf retain() {
+        buffer.retain();
+        return this;
+    }
+
+    @Override
+    public ByteBuf retain(int increment) {
+        buffer.retain(increment);
+        return this;
+    }
+
+    @Override
+    public ByteBuf touch() {
+        buffer.touch();
+        return this;
+    }
+
+    @Override
+    public ByteBuf touch(Object hint) {
+        buffer.touch(hint);
+        return this;
+    }
+
+    @Override
+    public boolean release() {
+        return buffer.release();
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        return buffer.release(decrement);
+    }
+}
@@ -10,6 +10,10 @@ import com.gettyio.core.util.PlatformDependent;
 import com.gettyio.core.util.StringUtil;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 池化内存页
@@ -18,6 +22,16 @@ import java.nio.ByteBuffer;
  */
 public abstract class PoolArena<T> {
 
+    /**
+     * 分配规格：tiny小于512字节，small小于pageSize，normal不超过chunkSize，huge超过chunkSize且不经过池
+     */
+    public enum SizeClass {
+        TINY,
+        SMALL,
+        NORMAL,
+        HUGE
+    }
+
     static final int numTinySubpagePools = 512 >>> 4;
 
     public final PooledByteBufAllocator parent;
@@ -38,6 +52,29 @@ public abstract class PoolArena<T> {
     private final PoolChunkList<T> q075;
     private final PoolChunkList<T> q100;
 
+    /**
+     * 按规格统计的分配与释放次数，下标为SizeClass的序号。缓存命中的分配同样计入
+     */
+    final LongAdder[] allocations = newCounters(SizeClass.values().length);
+    final LongAdder[] deallocations = newCounters(SizeClass.values().length);
+    /**
+     * 已分配且未释放的字节数，按规整后的容量计算
+     */
+    final LongAdder activeBytes = new LongAdder();
+    /**
+     * 线程缓存命中与未命中次数，未启用缓存的分配计为未命中
+     */
+    final LongAdder cacheHits = new LongAdder();
+    final LongAdder cacheMisses = new LongAdder();
+    /**
+     * 线程缓存整理次数以及整理时归还给arena的条目数
+     */
+    final LongAdder cacheTrims = new LongAdder();
+    final LongAdder cacheTrimmedEntries = new LongAdder();
+    /**
+     * 绑定到当前arena的线程缓存数
+     */
+    final AtomicInteger numThreadCaches = new AtomicInteger();
 
     protected PoolArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize) {
         this.parent = parent;
@@ -72,6 +109,14 @@ public abstract class PoolArena<T> {
         qInit.prevList = qInit;
     }
 
+    private static LongAdder[] newCounters(int size) {
+        LongAdder[] counters = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
     private PoolSubpage<T> newSubpagePoolHead(int pageSize) {
         PoolSubpage<T> head = new PoolSubpage<T>(pageSize);
         head.prev = head;
@@ -116,8 +161,18 @@ public abstract class PoolArena<T> {
         return (normCapacity & 0xFFFFFE00) == 0;
     }
 
+    // 根据规整后的容量判断分配规格
+    SizeClass sizeClass(int normCapacity) {
+        if (isTinyOrSmall(normCapacity)) {
+            return isTiny(normCapacity) ? SizeClass.TINY : SizeClass.SMALL;
+        }
+        return normCapacity <= chunkSize ? SizeClass.NORMAL : SizeClass.HUGE;
+    }
+
     private void allocate(PoolThreadCache cache, PooledByteBuf<T> buf, final int reqCapacity) {
         final int normCapacity = normalizeCapacity(reqCapacity);
+        allocations[sizeClass(normCapacity).ordinal()].increment();
+        activeBytes.add(normCapacity);
         // capacity < pageSize
         if (isTinyOrSmall(normCapacity)) {
             int tableIdx;
@@ -126,15 +181,19 @@ public abstract class PoolArena<T> {
             if (isTiny(normCapacity)) {
                 if (cache.allocateTiny(this, buf, reqCapacity, normCapacity)) {
                     // 是否能够从缓存中分配，继续
+                    cacheHits.increment();
                     return;
                 }
+                cacheMisses.increment();
                 tableIdx = tinyIdx(normCapacity);
                 table = tinySubpagePools;
             } else {
                 if (cache.allocateSmall(this, buf, reqCapacity, normCapacity)) {
                     // 是否能够从缓存中分配，继续
+                    cacheHits.increment();
                     return;
                 }
+                cacheMisses.increment();
                 tableIdx = smallIdx(normCapacity);
                 table = smallSubpagePools;
             }
@@ -153,8 +212,10 @@ public abstract class PoolArena<T> {
         } else if (normCapacity <= chunkSize) {
             if (cache.allocateNormal(this, buf, reqCapacity, normCapacity)) {
                 // 是否能够从缓存中分配，继续
+                cacheHits.increment();
                 return;
             }
+            cacheMisses.increment();
         } else {
             // 巨大的分配从来没有通过缓存服务，所以只要调用allocateHuge
             allocateHuge(buf, reqCapacity);
@@ -183,6 +244,8 @@ public abstract class PoolArena<T> {
     }
 
     public void free(PoolChunk<T> chunk, long handle, int normCapacity, boolean sameThreads) {
+        deallocations[chunk.unpooled ? SizeClass.HUGE.ordinal() : sizeClass(normCapacity).ordinal()].increment();
+        activeBytes.add(-normCapacity);
         if (chunk.unpooled) {
             destroyChunk(chunk);
         } else {
@@ -306,6 +369,25 @@ public abstract class PoolArena<T> {
 
     protected abstract void destroyChunk(PoolChunk<T> chunk);
 
+    /**
+     * 获取当前arena的统计快照
+     *
+     * @return PoolArenaMetric
+     */
+    public PoolArenaMetric metric() {
+        List<PoolChunkListMetric> chunkLists = new ArrayList<PoolChunkListMetric>(6);
+        long[] usageHistogram = new long[PoolArenaMetric.CHUNK_USAGE_BUCKETS];
+        synchronized (this) {
+            chunkLists.add(qInit.metric(usageHistogram));
+            chunkLists.add(q000.metric(usageHistogram));
+            chunkLists.add(q025.metric(usageHistogram));
+            chunkLists.add(q050.metric(usageHistogram));
+            chunkLists.add(q075.metric(usageHistogram));
+            chunkLists.add(q100.metric(usageHistogram));
+        }
+        return new PoolArenaMetric(this, chunkLists, usageHistogram);
+    }
+
     public synchronized String toString() {
         StringBuilder buf = new StringBuilder()
                 .append("Chunk(s) at 0~25%:")
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.buffer.pool;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * arena统计快照，包括按规格划分的分配与释放次数、活跃字节数、线程缓存命中情况和块使用率分布。
+ * 各计数器分别读取，快照之间的数值不保证严格一致
+ *
+ * @author gogym
+ * @version 1.0.0
+ * @className PoolArenaMetric.java
+ * @description
+ * @date 2026/10/17
+ */
+public final class PoolArenaMetric {
+
+    /**
+     * 块使用率直方图的桶数，每个桶跨度为{@link #CHUNK_USAGE_BUCKET_WIDTH}个百分点
+     */
+    public static final int CHUNK_USAGE_BUCKETS = 10;
+    public static final int CHUNK_USAGE_BUCKET_WIDTH = 100 / CHUNK_USAGE_BUCKETS;
+
+    private final boolean direct;
+    private final int numThreadCaches;
+    private final long[] allocations;
+    private final long[] deallocations;
+    private final long activeBytes;
+    private final long cacheHits;
+    private final long cacheMisses;
+    private final long cacheTrims;
+    private final long cacheTrimmedEntries;
+    private final List<PoolChunkListMetric> chunkLists;
+    private final long[] chunkUsageHistogram;
+
+    PoolArenaMetric(PoolArena<?> arena, List<PoolChunkListMetric> chunkLists, long[] chunkUsageHistogram) {
+        this.direct = arena.isDirect();
+        this.numThreadCaches = arena.numThreadCaches.get();
+        this.allocations = sum(arena.allocations);
+        this.deallocations = sum(arena.deallocations);
+        this.activeBytes = arena.activeBytes.sum();
+        this.cacheHits = arena.cacheHits.sum();
+        this.cacheMisses = arena.cacheMisses.sum();
+        this.cacheTrims = arena.cacheTrims.sum();
+        this.cacheTrimmedEntries = arena.cacheTrimmedEntries.sum();
+        this.chunkLists = Collections.unmodifiableList(chunkLists);
+        this.chunkUsageHistogram = chunkUsageHistogram;
+    }
+
+    private static long[] sum(LongAdder[] counters) {
+        long[] values = new long[counters.length];
+        for (int i = 0; i < counters.length; i++) {
+            values[i] = counters[i].sum();
+        }
+        return values;
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * 绑定到该arena的线程缓存数
+     *
+     * @return int
+     */
+    public int getNumThreadCaches() {
+        return numThreadCaches;
+    }
+
+    public long getNumAllocations(PoolArena.SizeClass sizeClass) {
+        return allocations[sizeClass.ordinal()];
+    }
+
+    public long getNumDeallocations(PoolArena.SizeClass sizeClass) {
+        return deallocations[sizeClass.ordinal()];
+    }
+
+    /**
+     * 指定规格下已分配且未释放的缓冲区数
+     *
+     * @param sizeClass 分配规格
+     * @return long
+     */
+    public long getNumActiveAllocations(PoolArena.SizeClass sizeClass) {
+        return Math.max(0, allocations[sizeClass.ordinal()] - deallocations[sizeClass.ordinal()]);
+    }
+
+    public long getNumAllocations() {
+        long total = 0;
+        for (long value : allocations) {
+            total += value;
+        }
+        return total;
+    }
+
+    public long getNumDeallocations() {
+        long total = 0;
+        for (long value : deallocations) {
+            total += value;
+        }
+        return total;
+    }
+
+    public long getNumActiveAllocations() {
+        return Math.max(0, getNumAllocations() - getNumDeallocations());
+    }
+
+    /**
+     * 已分配且未释放的字节数
+     *
+     * @return long
+     */
+    public long getActiveBytes() {
+        return Math.max(0, activeBytes);
+    }
+
+    public long getNumCacheHits() {
+        return cacheHits;
+    }
+
+    public long getNumCacheMisses() {
+        return cacheMisses;
+    }
+
+    /**
+     * 线程缓存命中率，huge分配不经过缓存不计入
+     *
+     * @return double，没有分配时为0
+     */
+    public double getCacheHitRatio() {
+        long total = cacheHits + cacheMisses;
+        return total == 0 ? 0 : (double) cacheHits / total;
+    }
+
+    public long getNumCacheTrims() {
+        return cacheTrims;
+    }
+
+    /**
+     * 线程缓存整理时归还给arena的条目数
+     *
+     * @return long
+     */
+    public long getNumCacheTrimmedEntries() {
+        return cacheTrimmedEntries;
+    }
+
+    /**
+     * 按使用率从低到高排列的块列表统计
+     *
+     * @return List
+     */
+    public List<PoolChunkListMetric> getChunkLists() {
+        return chunkLists;
+    }
+
+    public int getNumChunks() {
+        int total = 0;
+        for (PoolChunkListMetric chunkList : chunkLists) {
+            total += chunkList.getNumChunks();
+        }
+        return total;
+    }
+
+    /**
+     * 池化块占用的总字节数，不包括huge分配
+     *
+     * @return long
+     */
+    public long getChunkBytes() {
+        long total = 0;
+        for (PoolChunkListMetric chunkList : chunkLists) {
+            total += chunkList.getTotalBytes();
+        }
+        return total;
+    }
+
+    /**
+     * 池化块中已使用的字节数，与{@link #getActiveBytes()}的差值反映线程缓存占用和碎片
+     *
+     * @return long
+     */
+    public long getChunkUsedBytes() {
+        long total = 0;
+        for (PoolChunkListMetric chunkList : chunkLists) {
+            total += chunkList.getTotalBytes() - chunkList.getFreeBytes();
+        }
+        return total;
+    }
+
+    /**
+     * 块使用率分布，下标i为使用率在[i*10%, (i+1)*10%)之间的块数，最后一个桶包括100%
+     *
+     * @return long[]
+     */
+    public long[] getChunkUsageHistogram() {
+        return chunkUsageHistogram.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "PoolArenaMetric{" +
+                "direct=" + direct +
+                ", numThreadCaches=" + numThreadCaches +
+                ", allocations=" + Arrays.toString(allocations) +
+                ", deallocations=" + Arrays.toString(deallocations) +
+                ", activeBytes=" + getActiveBytes() +
+                ", cacheHitRatio=" + getCacheHitRatio() +
+                ", cacheTrims=" + cacheTrims +
+                ", numChunks=" + getNumChunks() +
+                ", chunkUsageHistogram=" + Arrays.toString(chunkUsageHistogram) +
+                '}';
+    }
+}
@@ -402,6 +402,14 @@ public final class PoolChunk<T> {
         return 1 << log2ChunkSize - depth(id);
     }
 
+    int chunkSize() {
+        return chunkSize;
+    }
+
+    int freeBytes() {
+        return freeBytes;
+    }
+
     private int runOffset(int id) {
         // represents the 0-based offset in #bytes from start of the byte-array chunk
         int shift = id ^ 1 << depth(id);
@@ -110,6 +110,25 @@ final class PoolChunkList<T> {
         }
     }
 
+    /**
+     * 统计列表中的块，并按使用率累加到直方图，调用方需持有arena锁
+     *
+     * @param usageHistogram 使用率直方图，每个桶跨度为{@link PoolArenaMetric#CHUNK_USAGE_BUCKET_WIDTH}
+     * @return PoolChunkListMetric
+     */
+    PoolChunkListMetric metric(long[] usageHistogram) {
+        int numChunks = 0;
+        long totalBytes = 0;
+        long freeBytes = 0;
+        for (PoolChunk<T> cur = head; cur != null; cur = cur.next) {
+            numChunks++;
+            totalBytes += cur.chunkSize();
+            freeBytes += cur.freeBytes();
+            usageHistogram[Math.min(cur.usage() / PoolArenaMetric.CHUNK_USAGE_BUCKET_WIDTH, usageHistogram.length - 1)]++;
+        }
+        return new PoolChunkListMetric(minUsage, maxUsage, numChunks, totalBytes, freeBytes);
+    }
+
     @Override
     public String toString() {
         if (head == null) {
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.buffer.pool;
+
+/**
+ * 块列表统计快照，对应arena中按使用率划分的一个PoolChunkList
+ *
+ * @author gogym
+ * @version 1.0.0
+ * @className PoolChunkListMetric.java
+ * @description
+ * @date 2026/10/17
+ */
+public final class PoolChunkListMetric {
+
+    private final int minUsage;
+    private final int maxUsage;
+    private final int numChunks;
+    private final long totalBytes;
+    private final long freeBytes;
+
+    PoolChunkListMetric(int minUsage, int maxUsage, int numChunks, long totalBytes, long freeBytes) {
+        this.minUsage = minUsage;
+        this.maxUsage = maxUsage;
+        this.numChunks = numChunks;
+        this.totalBytes = totalBytes;
+        this.freeBytes = freeBytes;
+    }
+
+    /**
+     * 列表接收块的最小使用率（百分比），块使用率低于该值时移到上一个列表
+     *
+     * @return int
+     */
+    public int getMinUsage() {
+        return Math.max(0, minUsage);
+    }
+
+    /**
+     * 列表接收块的最大使用率（百分比），块使用率达到该值时移到下一个列表
+     *
+     * @return int
+     */
+    public int getMaxUsage() {
+        return Math.min(100, maxUsage);
+    }
+
+    public int getNumChunks() {
+        return numChunks;
+    }
+
+    /**
+     * 列表中所有块的总字节数
+     *
+     * @return long
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * 列表中所有块的空闲字节数
+     *
+     * @return long
+     */
+    public long getFreeBytes() {
+        return freeBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolChunkListMetric{" +
+                "usage=" + getMinUsage() + "~" + getMaxUsage() + "%" +
+                ", numChunks=" + numChunks +
+                ", usedBytes=" + (totalBytes - freeBytes) +
+                ", totalBytes=" + totalBytes +
+                '}';
+    }
+}
@@ -24,6 +24,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 为分配充当线程缓存。这个实现将在之后模块化
@@ -47,6 +48,7 @@ final class PoolThreadCache {
     private final int freeSweepAllocationThreshold;
 
     private int allocations;
+    private final AtomicBoolean freed = new AtomicBoolean();
 
     private final Thread thread = Thread.currentThread();
     private final Runnable freeTask = new Runnable() {
@@ -99,6 +101,13 @@ final class PoolThreadCache {
             numShiftsNormalHeap = -1;
         }
 
+        if (directArena != null) {
+            directArena.numThreadCaches.incrementAndGet();
+        }
+        if (heapArena != null) {
+            heapArena.numThreadCaches.incrementAndGet();
+        }
+
         // 线程本地缓存将保存一个缓冲池列表，当线程不再活跃时，这些缓冲池必须返回到池中。
         ThreadDeathWatcher.watch(thread, freeTask);
     }
@@ -147,25 +156,25 @@ final class PoolThreadCache {
      * Try to allocate a tiny buffer out of the cache. Returns {@code true} if successful {@code false} otherwise
      */
     boolean allocateTiny(PoolArena<?> area, PooledByteBuf<?> buf, int reqCapacity, int normCapacity) {
-        return allocate(cacheForTiny(area, normCapacity), buf, reqCapacity);
+        return allocate(area, cacheForTiny(area, normCapacity), buf, reqCapacity);
     }
 
     /**
      * Try to allocate a small buffer out of the cache. Returns {@code true} if successful {@code false} otherwise
      */
     boolean allocateSmall(PoolArena<?> area, PooledByteBuf<?> buf, int reqCapacity, int normCapacity) {
-        return allocate(cacheForSmall(area, normCapacity), buf, reqCapacity);
+        return allocate(area, cacheForSmall(area, normCapacity), buf, reqCapacity);
     }
 
     /**
      * Try to allocate a small buffer out of the cache. Returns {@code true} if successful {@code false} otherwise
      */
     boolean allocateNormal(PoolArena<?> area, PooledByteBuf<?> buf, int reqCapacity, int normCapacity) {
-        return allocate(cacheForNormal(area, normCapacity), buf, reqCapacity);
+        return allocate(area, cacheForNormal(area, normCapacity), buf, reqCapacity);
     }
 
     @SuppressWarnings({"unchecked", "rawtypes"})
-    private boolean allocate(MemoryRegionCache<?> cache, PooledByteBuf buf, int reqCapacity) {
+    private boolean allocate(PoolArena<?> area, MemoryRegionCache<?> cache, PooledByteBuf buf, int reqCapacity) {
         if (cache == null) {
             // no cache found so just return false here
             return false;
@@ -173,7 +182,9 @@ final class PoolThreadCache {
         boolean allocated = cache.allocate(buf, reqCapacity);
         if (++allocations >= freeSweepAllocationThreshold) {
             allocations = 0;
-            trim();
+            // 整理次数记在触发整理的arena上
+            area.cacheTrims.increment();
+            area.cacheTrimmedEntries.add(trim());
         }
         return allocated;
     }
@@ -209,6 +220,14 @@ final class PoolThreadCache {
     }
 
     private void free0() {
+        if (freed.compareAndSet(false, true)) {
+            if (directArena != null) {
+                directArena.numThreadCaches.decrementAndGet();
+            }
+            if (heapArena != null) {
+                heapArena.numThreadCaches.decrementAndGet();
+            }
+        }
         int numFreed = free(tinySubPageDirectCaches) +
                 free(smallSubPageDirectCaches) +
                 free(normalDirectCaches) +
@@ -240,29 +259,36 @@ final class PoolThreadCache {
         return cache.free();
     }
 
-    void trim() {
-        trim(tinySubPageDirectCaches);
-        trim(smallSubPageDirectCaches);
-        trim(normalDirectCaches);
-        trim(tinySubPageHeapCaches);
-        trim(smallSubPageHeapCaches);
-        trim(normalHeapCaches);
+    /**
+     * 释放不常用的缓存条目
+     *
+     * @return 归还给arena的条目数
+     */
+    int trim() {
+        return trim(tinySubPageDirectCaches) +
+                trim(smallSubPageDirectCaches) +
+                trim(normalDirectCaches) +
+                trim(tinySubPageHeapCaches) +
+                trim(smallSubPageHeapCaches) +
+                trim(normalHeapCaches);
     }
 
-    private static void trim(MemoryRegionCache<?>[] caches) {
+    private static int trim(MemoryRegionCache<?>[] caches) {
         if (caches == null) {
-            return;
+            return 0;
         }
+        int numFreed = 0;
         for (MemoryRegionCache<?> c : caches) {
-            trim(c);
+            numFreed += trim(c);
         }
+        return numFreed;
     }
 
-    private static void trim(MemoryRegionCache<?> cache) {
+    private static int trim(MemoryRegionCache<?> cache) {
         if (cache == null) {
-            return;
+            return 0;
         }
-        cache.trim();
+        return cache.trim();
     }
 
     private MemoryRegionCache<?> cacheForTiny(PoolArena<?> area, int normCapacity) {
@@ -424,27 +450,30 @@ final class PoolThreadCache {
         /**
          * Free up cached {@link PoolChunk}s if not allocated frequently enough.
          */
-        private void trim() {
+        private int trim() {
             int free = size() - maxEntriesInUse;
             entriesInUse = 0;
             maxEntriesInUse = 0;
 
             if (free <= maxUnusedCached) {
-                return;
+                return 0;
             }
 
+            int numFreed = 0;
             int i = head;
             for (; free > 0; free--) {
                 if (!freeEntry(entries[i])) {
                     // all freed
                     break;
                 }
+                numFreed++;
                 i = nextIdx(i);
             }
 
             // Update head to point to te correct entry
             // See https://github.com/netty/netty/issues/2924
             head = i;
+            return numFreed;
         }
 
         @SuppressWarnings({"unchecked", "rawtypes"})
@@ -26,7 +26,13 @@ import com.gettyio.core.util.PlatformDependent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -148,6 +154,13 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
     private final int tinyCacheSize;
     private final int smallCacheSize;
     private final int normalCacheSize;
+    private final int pageSize;
+    private final int chunkSize;
+
+    /**
+     * 已注册的JMX名称，未注册时为null
+     */
+    private volatile ObjectName mxBeanName;
 
     final PoolThreadLocalCache threadCache;
 
@@ -175,7 +188,8 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         this.tinyCacheSize = tinyCacheSize;
         this.smallCacheSize = smallCacheSize;
         this.normalCacheSize = normalCacheSize;
-        final int chunkSize = validateAndCalculateChunkSize(pageSize, maxOrder);
+        this.pageSize = pageSize;
+        this.chunkSize = validateAndCalculateChunkSize(pageSize, maxOrder);
 
         if (nHeapArena < 0) {
             throw new IllegalArgumentException("nHeapArena: " + nHeapArena + " (expected: >= 0)");
@@ -263,7 +277,7 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
             buf = new UnpooledHeapByteBuf(this, initialCapacity, maxCapacity);
         }
 
-        return buf;
+        return toLeakAwareBuffer(buf);
     }
 
     @Override
@@ -282,7 +296,7 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
             }
         }
 
-        return buf;
+        return toLeakAwareBuffer(buf);
     }
 
     @Override
@@ -290,6 +304,66 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         return directArenas != null;
     }
 
+    /**
+     * 获取分配器的统计快照
+     *
+     * @return PooledByteBufAllocatorMetric
+     */
+    public PooledByteBufAllocatorMetric metric() {
+        return new PooledByteBufAllocatorMetric(arenaMetrics(heapArenas), arenaMetrics(directArenas),
+                pageSize, chunkSize, tinyCacheSize, smallCacheSize, normalCacheSize);
+    }
+
+    private static List<PoolArenaMetric> arenaMetrics(PoolArena<?>[] arenas) {
+        if (arenas == null) {
+            return new ArrayList<PoolArenaMetric>(0);
+        }
+        List<PoolArenaMetric> metrics = new ArrayList<PoolArenaMetric>(arenas.length);
+        for (PoolArena<?> arena : arenas) {
+            metrics.add(arena.metric());
+        }
+        return metrics;
+    }
+
+    /**
+     * 将分配器统计注册到平台MBeanServer，名称为com.gettyio:type=PooledByteBufAllocator,name={name}
+     *
+     * @param name 分配器名称，同一进程内需唯一
+     * @return ObjectName
+     */
+    public synchronized ObjectName registerMXBean(String name) {
+        if (mxBeanName != null) {
+            return mxBeanName;
+        }
+        try {
+            ObjectName objectName = new ObjectName("com.gettyio:type=PooledByteBufAllocator,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new PooledByteBufAllocatorStats(this), objectName);
+            mxBeanName = objectName;
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("failed to register allocator MXBean: " + name, e);
+        }
+    }
+
+    /**
+     * 注销已注册的JMX统计，未注册时忽略
+     */
+    public synchronized void unregisterMXBean() {
+        ObjectName objectName = mxBeanName;
+        if (objectName == null) {
+            return;
+        }
+        mxBeanName = null;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            logger.warn("failed to unregister allocator MXBean: " + objectName, e);
+        }
+    }
+
     final class PoolThreadLocalCache extends ThreadLocal<PoolThreadCache> {
         private final AtomicInteger index = new AtomicInteger();
 
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.buffer.pool;
+
+/**
+ * 池化分配器的JMX管理接口，通过{@link PooledByteBufAllocator#registerMXBean(String)}注册。
+ * 每次读取属性都会重新生成统计快照
+ *
+ * @author gogym
+ * @version 1.0.0
+ * @className PooledByteBufAllocatorMXBean.java
+ * @description
+ * @date 2026/10/17
+ */
+public interface PooledByteBufAllocatorMXBean {
+
+    int getNumHeapArenas();
+
+    int getNumDirectArenas();
+
+    int getNumThreadCaches();
+
+    int getPageSize();
+
+    int getChunkSize();
+
+    long getUsedHeapMemory();
+
+    long getUsedDirectMemory();
+
+    long getActiveHeapBytes();
+
+    long getActiveDirectBytes();
+
+    long getNumTinyAllocations();
+
+    long getNumSmallAllocations();
+
+    long getNumNormalAllocations();
+
+    long getNumHugeAllocations();
+
+    long getNumTinyDeallocations();
+
+    long getNumSmallDeallocations();
+
+    long getNumNormalDeallocations();
+
+    long getNumHugeDeallocations();
+
+    double getCacheHitRatio();
+
+    long getNumCacheTrims();
+
+    /**
+     * 所有arena合并后的块使用率分布，每个桶跨度10%
+     *
+     * @return long[]
+     */
+    long[] getChunkUsageHistogram();
+
+    /**
+     * 每个arena一行的统计摘要
+     *
+     * @return String[]
+     */
+    String[] getArenaMetrics();
+}
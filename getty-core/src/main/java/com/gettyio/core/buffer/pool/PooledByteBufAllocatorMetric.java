@@ -0,0 +1,223 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.buffer.pool;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 池化分配器统计快照，汇总所有堆内与堆外arena的统计，用于评估arena数量、块大小和线程缓存配置
+ *
+ * @author gogym
+ * @version 1.0.0
+ * @className PooledByteBufAllocatorMetric.java
+ * @description
+ * @date 2026/10/17
+ */
+public final class PooledByteBufAllocatorMetric {
+
+    private final List<PoolArenaMetric> heapArenas;
+    private final List<PoolArenaMetric> directArenas;
+    private final int pageSize;
+    private final int chunkSize;
+    private final int tinyCacheSize;
+    private final int smallCacheSize;
+    private final int normalCacheSize;
+
+    PooledByteBufAllocatorMetric(List<PoolArenaMetric> heapArenas, List<PoolArenaMetric> directArenas,
+                                 int pageSize, int chunkSize, int tinyCacheSize, int smallCacheSize, int normalCacheSize) {
+        this.heapArenas = Collections.unmodifiableList(heapArenas);
+        this.directArenas = Collections.unmodifiableList(directArenas);
+        this.pageSize = pageSize;
+        this.chunkSize = chunkSize;
+        this.tinyCacheSize = tinyCacheSize;
+        this.smallCacheSize = smallCacheSize;
+        this.normalCacheSize = normalCacheSize;
+    }
+
+    public List<PoolArenaMetric> getHeapArenas() {
+        return heapArenas;
+    }
+
+    public List<PoolArenaMetric> getDirectArenas() {
+        return directArenas;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public int getTinyCacheSize() {
+        return tinyCacheSize;
+    }
+
+    public int getSmallCacheSize() {
+        return smallCacheSize;
+    }
+
+    public int getNormalCacheSize() {
+        return normalCacheSize;
+    }
+
+    public int getNumThreadCaches() {
+        int total = 0;
+        for (PoolArenaMetric arena : heapArenas) {
+            total += arena.getNumThreadCaches();
+        }
+        // 每个线程缓存同时绑定一个堆内和一个堆外arena，只有堆外arena时才按堆外统计
+        if (heapArenas.isEmpty()) {
+            for (PoolArenaMetric arena : directArenas) {
+                total += arena.getNumThreadCaches();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 堆内arena池化块占用的字节数
+     *
+     * @return long
+     */
+    public long getUsedHeapMemory() {
+        return chunkBytes(heapArenas);
+    }
+
+    /**
+     * 堆外arena池化块占用的字节数
+     *
+     * @return long
+     */
+    public long getUsedDirectMemory() {
+        return chunkBytes(directArenas);
+    }
+
+    public long getActiveHeapBytes() {
+        return activeBytes(heapArenas);
+    }
+
+    public long getActiveDirectBytes() {
+        return activeBytes(directArenas);
+    }
+
+    public long getNumAllocations(PoolArena.SizeClass sizeClass) {
+        long total = 0;
+        for (PoolArenaMetric arena : heapArenas) {
+            total += arena.getNumAllocations(sizeClass);
+        }
+        for (PoolArenaMetric arena : directArenas) {
+            total += arena.getNumAllocations(sizeClass);
+        }
+        return total;
+    }
+
+    public long getNumDeallocations(PoolArena.SizeClass sizeClass) {
+        long total = 0;
+        for (PoolArenaMetric arena : heapArenas) {
+            total += arena.getNumDeallocations(sizeClass);
+        }
+        for (PoolArenaMetric arena : directArenas) {
+            total += arena.getNumDeallocations(sizeClass);
+        }
+        return total;
+    }
+
+    /**
+     * 所有arena的线程缓存命中率
+     *
+     * @return double，没有分配时为0
+     */
+    public double getCacheHitRatio() {
+        long hits = 0;
+        long misses = 0;
+        for (PoolArenaMetric arena : heapArenas) {
+            hits += arena.getNumCacheHits();
+            misses += arena.getNumCacheMisses();
+        }
+        for (PoolArenaMetric arena : directArenas) {
+            hits += arena.getNumCacheHits();
+            misses += arena.getNumCacheMisses();
+        }
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public long getNumCacheTrims() {
+        long total = 0;
+        for (PoolArenaMetric arena : heapArenas) {
+            total += arena.getNumCacheTrims();
+        }
+        for (PoolArenaMetric arena : directArenas) {
+            total += arena.getNumCacheTrims();
+        }
+        return total;
+    }
+
+    /**
+     * 所有arena合并后的块使用率分布
+     *
+     * @return long[]
+     */
+    public long[] getChunkUsageHistogram() {
+        long[] histogram = new long[PoolArenaMetric.CHUNK_USAGE_BUCKETS];
+        addHistogram(histogram, heapArenas);
+        addHistogram(histogram, directArenas);
+        return histogram;
+    }
+
+    private static long chunkBytes(List<PoolArenaMetric> arenas) {
+        long total = 0;
+        for (PoolArenaMetric arena : arenas) {
+            total += arena.getChunkBytes();
+        }
+        return total;
+    }
+
+    private static long activeBytes(List<PoolArenaMetric> arenas) {
+        long total = 0;
+        for (PoolArenaMetric arena : arenas) {
+            total += arena.getActiveBytes();
+        }
+        return total;
+    }
+
+    private static void addHistogram(long[] histogram, List<PoolArenaMetric> arenas) {
+        for (PoolArenaMetric arena : arenas) {
+            long[] arenaHistogram = arena.getChunkUsageHistogram();
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += arenaHistogram[i];
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PooledByteBufAllocatorMetric{" +
+                "numHeapArenas=" + heapArenas.size() +
+                ", numDirectArenas=" + directArenas.size() +
+                ", numThreadCaches=" + getNumThreadCaches() +
+                ", usedHeapMemory=" + getUsedHeapMemory() +
+                ", usedDirectMemory=" + getUsedDirectMemory() +
+                ", activeHeapBytes=" + getActiveHeapBytes() +
+                ", activeDirectBytes=" + getActiveDirectBytes() +
+                ", cacheHitRatio=" + getCacheHitRatio() +
+                ", cacheTrims=" + getNumCacheTrims() +
+                '}';
+    }
+}
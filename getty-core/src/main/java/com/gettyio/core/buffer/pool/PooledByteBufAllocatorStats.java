@@ -0,0 +1,152 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.buffer.pool;
+
+import java.util.List;
+
+/**
+ * {@link PooledByteBufAllocatorMXBean}的实现，属性均从分配器的最新快照读取
+ *
+ * @author gogym
+ * @version 1.0.0
+ * @className PooledByteBufAllocatorStats.java
+ * @description
+ * @date 2026/10/17
+ */
+final class PooledByteBufAllocatorStats implements PooledByteBufAllocatorMXBean {
+
+    private final PooledByteBufAllocator allocator;
+
+    PooledByteBufAllocatorStats(PooledByteBufAllocator allocator) {
+        this.allocator = allocator;
+    }
+
+    @Override
+    public int getNumHeapArenas() {
+        return allocator.metric().getHeapArenas().size();
+    }
+
+    @Override
+    public int getNumDirectArenas() {
+        return allocator.metric().getDirectArenas().size();
+    }
+
+    @Override
+    public int getNumThreadCaches() {
+        return allocator.metric().getNumThreadCaches();
+    }
+
+    @Override
+    public int getPageSize() {
+        return allocator.metric().getPageSize();
+    }
+
+    @Override
+    public int getChunkSize() {
+        return allocator.metric().getChunkSize();
+    }
+
+    @Override
+    public long getUsedHeapMemory() {
+        return allocator.metric().getUsedHeapMemory();
+    }
+
+    @Override
+    public long getUsedDirectMemory() {
+        return allocator.metric().getUsedDirectMemory();
+    }
+
+    @Override
+    public long getActiveHeapBytes() {
+        return allocator.metric().getActiveHeapBytes();
+    }
+
+    @Override
+    public long getActiveDirectBytes() {
+        return allocator.metric().getActiveDirectBytes();
+    }
+
+    @Override
+    public long getNumTinyAllocations() {
+        return allocator.metric().getNumAllocations(PoolArena.SizeClass.TINY);
+    }
+
+    @Override
+    public long getNumSmallAllocations() {
+        return allocator.metric().getNumAllocations(PoolArena.SizeClass.SMALL);
+    }
+
+    @Override
+    public long getNumNormalAllocations() {
+        return allocator.metric().getNumAllocations(PoolArena.SizeClass.NORMAL);
+    }
+
+    @Override
+    public long getNumHugeAllocations() {
+        return allocator.metric().getNumAllocations(PoolArena.SizeClass.HUGE);
+    }
+
+    @Override
+    public long getNumTinyDeallocations() {
+        return allocator.metric().getNumDeallocations(PoolArena.SizeClass.TINY);
+    }
+
+    @Override
+    public long getNumSmallDeallocations() {
+        return allocator.metric().getNumDeallocations(PoolArena.SizeClass.SMALL);
+    }
+
+    @Override
+    public long getNumNormalDeallocations() {
+        return allocator.metric().getNumDeallocations(PoolArena.SizeClass.NORMAL);
+    }
+
+    @Override
+    public long getNumHugeDeallocations() {
+        return allocator.metric().getNumDeallocations(PoolArena.SizeClass.HUGE);
+    }
+
+    @Override
+    public double getCacheHitRatio() {
+        return allocator.metric().getCacheHitRatio();
+    }
+
+    @Override
+    public long getNumCacheTrims() {
+        return allocator.metric().getNumCacheTrims();
+    }
+
+    @Override
+    public long[] getChunkUsageHistogram() {
+        return allocator.metric().getChunkUsageHistogram();
+    }
+
+    @Override
+    public String[] getArenaMetrics() {
+        PooledByteBufAllocatorMetric metric = allocator.metric();
+        List<PoolArenaMetric> heapArenas = metric.getHeapArenas();
+        List<PoolArenaMetric> directArenas = metric.getDirectArenas();
+        String[] arenas = new String[heapArenas.size() + directArenas.size()];
+        int i = 0;
+        for (PoolArenaMetric arena : heapArenas) {
+            arenas[i++] = arena.toString();
+        }
+        for (PoolArenaMetric arena : directArenas) {
+            arenas[i++] = arena.toString();
+        }
+        return arenas;
+    }
+}
@@ -47,12 +47,15 @@ public class UnpooledHeapByteBuf extends AbstractReferenceCountedByteBuf {
     }
 
     /**
-     * Creates a new heap buffer with an existing byte array.
+     * Creates a new heap buffer wrapping an existing byte array without copying, the whole array is readable.
+     * Ownership of the array passes to the new buffer: the caller must not modify it afterwards, because
+     * the bytes are only read when the buffer (or a composite built on it) is actually written out,
+     * possibly on another thread.
      *
      * @param initialArray the initial underlying byte array
      * @param maxCapacity  the max capacity of the underlying byte array
      */
-    protected UnpooledHeapByteBuf(ByteBufAllocator alloc, byte[] initialArray, int maxCapacity) {
+    public UnpooledHeapByteBuf(ByteBufAllocator alloc, byte[] initialArray, int maxCapacity) {
         this(alloc, initialArray, 0, initialArray.length, maxCapacity);
     }
 
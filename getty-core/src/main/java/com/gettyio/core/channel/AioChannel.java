@@ -16,6 +16,7 @@
 package com.gettyio.core.channel;
 
 import com.gettyio.core.buffer.BufferWriter;
+import com.gettyio.core.buffer.GatheringBuffer;
 import com.gettyio.core.channel.config.BaseConfig;
 import com.gettyio.core.channel.internal.ReadCompletionHandler;
 import com.gettyio.core.channel.internal.WriteCompletionHandler;
@@ -23,12 +24,14 @@ import com.gettyio.core.function.Function;
 import com.gettyio.core.handler.ssl.SslHandler;
 import com.gettyio.core.handler.ssl.sslfacade.IHandshakeCompletedListener;
 import com.gettyio.core.pipeline.ChannelPipeline;
+import com.gettyio.core.buffer.allocator.AdaptiveRecvByteBufAllocator;
 import com.gettyio.core.buffer.allocator.ByteBufAllocator;
 import com.gettyio.core.buffer.buffer.ByteBuf;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousChannelGroup;
 import java.nio.channels.AsynchronousSocketChannel;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
@@ -53,9 +56,13 @@ public class AioChannel extends SocketChannel implements Function<BufferWriter,
      */
     protected ByteBuf readByteBuffer;
     /**
-     * 写缓冲
+     * 自适应读缓冲区分配，读操作串行进行，无需同步
      */
-    protected ByteBuf writeByteBuffer;
+    private final AdaptiveRecvByteBufAllocator recvByteBufAllocator;
+    /**
+     * 聚合写缓冲，只在持有信号量的写流程中使用
+     */
+    protected GatheringBuffer gatheringBuffer;
     /**
      * 输出信号量
      */
@@ -83,6 +90,11 @@ public class AioChannel extends SocketChannel implements Function<BufferWriter,
      */
     private final ChannelPipeline channelPipeline;
 
+    /**
+     * 通道所属的aio线程组，为null表示JVM默认线程组
+     */
+    private final AsynchronousChannelGroup asynchronousChannelGroup;
+
 
     /**
      * @param channel                通道
@@ -93,12 +105,27 @@ public class AioChannel extends SocketChannel implements Function<BufferWriter,
      * @param channelPipeline        责任链
      */
     public AioChannel(AsynchronousSocketChannel channel, BaseConfig config, ReadCompletionHandler readCompletionHandler, WriteCompletionHandler writeCompletionHandler, ByteBufAllocator byteBufAllocator, ChannelPipeline channelPipeline) {
+        this(channel, config, readCompletionHandler, writeCompletionHandler, byteBufAllocator, channelPipeline, null);
+    }
+
+    /**
+     * @param channel                  通道
+     * @param config                   配置
+     * @param readCompletionHandler    读回调
+     * @param writeCompletionHandler   写回调
+     * @param byteBufAllocator         内存池
+     * @param channelPipeline          责任链
+     * @param asynchronousChannelGroup 通道所属的aio线程组，为null表示JVM默认线程组
+     */
+    public AioChannel(AsynchronousSocketChannel channel, BaseConfig config, ReadCompletionHandler readCompletionHandler, WriteCompletionHandler writeCompletionHandler, ByteBufAllocator byteBufAllocator, ChannelPipeline channelPipeline, AsynchronousChannelGroup asynchronousChannelGroup) {
         this.channel = channel;
+        this.asynchronousChannelGroup = asynchronousChannelGroup;
         this.readCompletionHandler = readCompletionHandler;
         this.writeCompletionHandler = writeCompletionHandler;
         this.config = config;
         this.byteBufAllocator = byteBufAllocator;
         this.channelPipeline = channelPipeline;
+        this.recvByteBufAllocator = new AdaptiveRecvByteBufAllocator(config.getMinReadBufferSize(), config.getReadBufferSize(), config.getMaxReadBufferSize());
 
         try {
             //注意该方法可能抛异常
@@ -113,7 +140,8 @@ public class AioChannel extends SocketChannel implements Function<BufferWriter,
         }
 
         //初始化数据输出类
-        bufferWriter = new BufferWriter(byteBufAllocator, this, config.getBufferWriterQueueSize());
+        bufferWriter = new BufferWriter(byteBufAllocator, this, config.getBufferWriterQueueBytes(), config.getWriteQueueTimeout());
+        gatheringBuffer = new GatheringBuffer(config.getGatheringWriteCount(), config.getGatheringWriteBytes());
 
         //触发责任链
         try {
@@ -153,22 +181,17 @@ public class AioChannel extends SocketChannel implements Function<BufferWriter,
             readByteBuffer.release();
         }
 
-        if (writeByteBuffer != null && writeByteBuffer.refCnt() > 0) {
-            writeByteBuffer.release();
-        }
-
-        if (channelFutureListener != null) {
-            channelFutureListener.operationComplete(this);
-        }
+        notifyCloseListeners();
 
         try {
             if (!bufferWriter.isClosed()) {
                 bufferWriter.close();
             }
-            bufferWriter = null;
         } catch (IOException e) {
             logger.error(e);
         }
+        //释放积压的写出数据，写操作进行中时由写回调释放，避免释放正在写出的缓冲区
+        releasePending();
 
         try {
             channel.shutdownInput();
@@ -224,7 +247,7 @@ public class AioChannel extends SocketChannel implements Function<BufferWriter,
             return;
         }
         //初始化读缓冲区
-        this.readByteBuffer = byteBufAllocator.ioBuffer(config.getReadBufferSize());
+        this.readByteBuffer = recvByteBufAllocator.allocate(byteBufAllocator);
         ByteBuffer readByteBuf = readByteBuffer.nioBuffer(readByteBuffer.writerIndex(), readByteBuffer.writableBytes());
         channel.read(readByteBuf, this, readCompletionHandler);
     }
@@ -242,23 +265,23 @@ public class AioChannel extends SocketChannel implements Function<BufferWriter,
             return;
         }
         readBuffer.writerIndex(readBuffer.getNioBuffer().flip().remaining());
+        //根据本次读取量调整下一次的读缓冲区大小
+        recvByteBufAllocator.record(readBuffer.readableBytes());
         //读取缓冲区数据到管道
-        //读取缓冲区数据，输送到责任链
-        while (readBuffer.isReadable()) {
-            byte[] bytes = new byte[readBuffer.readableBytes()];
-            readBuffer.readBytes(bytes, 0, bytes.length);
-            try {
-                readToPipeline(bytes);
-            } catch (Exception e) {
-                logger.error(e);
-                try {
-                    invokePipeline(ChannelState.INPUT_EXCEPTION);
-                } catch (Exception e1) {
-                    logger.error(e1);
-                }
-                close();
+        if (config.isByteBufInbound()) {
+            //零拷贝模式，池化缓冲区直接输送到责任链，由readCompleted释放通道持有的引用
+            if (readBuffer.isReadable() && !readToPipeline0(readBuffer)) {
                 return;
             }
+        } else {
+            //读取缓冲区数据，输送到责任链
+            while (readBuffer.isReadable()) {
+                byte[] bytes = new byte[readBuffer.readableBytes()];
+                readBuffer.readBytes(bytes, 0, bytes.length);
+                if (!readToPipeline0(bytes)) {
+                    return;
+                }
+            }
         }
         if (eof) {
             close();
@@ -268,6 +291,28 @@ public class AioChannel extends SocketChannel implements Function<BufferWriter,
         readCompleted(readBuffer);
     }
 
+    /**
+     * 输送数据到责任链，异常时关闭通道
+     *
+     * @param msg byte[]或ByteBuf
+     * @return 是否成功，失败时通道已关闭
+     */
+    private boolean readToPipeline0(Object msg) {
+        try {
+            readToPipeline(msg);
+            return true;
+        } catch (Exception e) {
+            logger.error(e);
+            try {
+                invokePipeline(ChannelState.INPUT_EXCEPTION);
+            } catch (Exception e1) {
+                logger.error(e1);
+            }
+            close();
+            return false;
+        }
+    }
+
     /**
      * socket读取完成
      *
@@ -294,14 +339,9 @@ public class AioChannel extends SocketChannel implements Function<BufferWriter,
     @Override
     public boolean writeAndFlush(Object obj) {
         try {
-            if (config.isFlowControl()) {
-                if (bufferWriter.getCount() >= config.getHighWaterMark()) {
-                    super.writeable = false;
-                    return false;
-                }
-                if (bufferWriter.getCount() <= config.getLowWaterMark()) {
-                    super.writeable = true;
-                }
+            if (config.isFlowControl() && !isWriteable()) {
+                //待写出字节数超过高水位，等待channelWritabilityChanged后再写
+                return false;
             }
             reverseInvokePipeline(ChannelState.CHANNEL_WRITE, obj);
         } catch (Exception e) {
@@ -318,38 +358,71 @@ public class AioChannel extends SocketChannel implements Function<BufferWriter,
     @Override
     public void writeToChannel(Object obj) {
         try {
-            bufferWriter.writeAndFlush((byte[]) obj);
+            writeToChannelChecked(obj);
         } catch (Exception e) {
             logger.error(e);
         }
     }
 
+    @Override
+    public void writeToChannelChecked(Object obj) throws IOException {
+        if (obj instanceof ByteBuf) {
+            //池化缓冲区直接入队，不再复制
+            ByteBuf byteBuf = (ByteBuf) obj;
+            int length = byteBuf.readableBytes();
+            incrementPendingBytes(length);
+            try {
+                bufferWriter.writeAndFlush(byteBuf);
+            } catch (IOException e) {
+                decrementPendingBytes(length);
+                throw e;
+            }
+            return;
+        }
+        byte[] bytes = (byte[]) obj;
+        incrementPendingBytes(bytes.length);
+        try {
+            bufferWriter.writeAndFlush(bytes);
+        } catch (IOException e) {
+            decrementPendingBytes(bytes.length);
+            throw e;
+        }
+    }
+
     /**
-     * 继续写
-     *
-     * @param writeBuffer 写入的缓冲区
+     * 继续写，把聚合缓冲中的多个缓冲区一次写出
      */
-    private void continueWrite(ByteBuffer writeBuffer) {
-        channel.write(writeBuffer, 0L, TimeUnit.MILLISECONDS, this, writeCompletionHandler);
+    private void continueWrite() {
+        ByteBuffer[] nioBuffers = gatheringBuffer.nioBuffers();
+        try {
+            channel.write(nioBuffers, 0, gatheringBuffer.nioBufferCount(), 0L, TimeUnit.MILLISECONDS, this, writeCompletionHandler);
+        } catch (RuntimeException e) {
+            //未能发起写操作，不会再有写回调
+            writeFailed(e);
+        }
     }
 
 
     /**
      * 写操作完成回调
      * 需要同步控制
+     *
+     * @param written 本次写出的字节数
      */
-    public void writeCompleted() {
-        writeByteBuffer.readerIndex(writeByteBuffer.getNioBuffer().position());
-        if (!writeByteBuffer.isReadable()) {
-            //写完及时释放内存
-            writeByteBuffer.release();
-            //继续循环写出
-            writeByteBuffer = bufferWriter.poll();
+    public void writeCompleted(long written) {
+        gatheringBuffer.removeBytes(written);
+        decrementPendingBytes(written);
+        if (bufferWriter.isClosed()) {
+            //写出期间通道已关闭，由写回调释放积压数据
+            semaphore.release();
+            releasePending();
+            return;
         }
-
-        if (writeByteBuffer != null && writeByteBuffer.isReadable()) {
+        //继续从输出队列补充数据
+        gatheringBuffer.fill(bufferWriter);
+        if (!gatheringBuffer.isEmpty()) {
             //再次写
-            continueWrite(writeByteBuffer.nioBuffer());
+            continueWrite();
             //这里return是为了确保这个线程可以完全写完需要输出的数据。因此不释放信号量
             return;
         }
@@ -357,6 +430,40 @@ public class AioChannel extends SocketChannel implements Function<BufferWriter,
         semaphore.release();
         if (!keepAlive) {
             this.close();
+            return;
+        }
+        //释放信号量期间可能有新数据写入或通道被关闭，需要再次检查
+        if (bufferWriter.isClosed() || bufferWriter.getCount() > 0) {
+            apply(bufferWriter);
+        }
+    }
+
+    /**
+     * 写操作失败回调，关闭通道并释放积压数据
+     *
+     * @param exc 异常
+     */
+    public void writeFailed(Throwable exc) {
+        logger.debug(exc.getMessage(), exc);
+        close();
+        semaphore.release();
+        releasePending();
+    }
+
+    /**
+     * 释放未写出的数据，只在持有信号量时执行。
+     * 信号量被进行中的写操作持有时直接返回，由写回调在完成后释放
+     */
+    private void releasePending() {
+        while (semaphore.tryAcquire()) {
+            gatheringBuffer.release();
+            bufferWriter.release();
+            resetPendingBytes();
+            semaphore.release();
+            //释放信号量期间可能有并发入队的数据
+            if (bufferWriter.getCount() == 0) {
+                return;
+            }
         }
     }
 
@@ -407,6 +514,34 @@ public class AioChannel extends SocketChannel implements Function<BufferWriter,
         return channel;
     }
 
+    /**
+     * 读回调，重连时可复用，避免重新创建worker线程池
+     *
+     * @return ReadCompletionHandler
+     */
+    public ReadCompletionHandler getReadCompletionHandler() {
+        return readCompletionHandler;
+    }
+
+    /**
+     * 通道所属的aio线程组，重连等需要在同一线程组中创建通道时使用
+     *
+     * @return AsynchronousChannelGroup，为null表示JVM默认线程组
+     */
+    public AsynchronousChannelGroup getAsynchronousChannelGroup() {
+        return asynchronousChannelGroup;
+    }
+
+    /**
+     * 在读回调的worker线程池中执行任务，与读事件处于同一组线程
+     *
+     * @param task 任务
+     */
+    @Override
+    public void execute(Runnable task) {
+        readCompletionHandler.execute(task);
+    }
+
     @Override
     public ChannelPipeline getChannelPipeline() {
         return channelPipeline;
@@ -441,11 +576,15 @@ public class AioChannel extends SocketChannel implements Function<BufferWriter,
     @Override
     public Void apply(BufferWriter input) {
 
+        if (input.isClosed()) {
+            //通道关闭后写入的数据直接释放
+            releasePending();
+            return null;
+        }
         //获取信息量
         if (semaphore.tryAcquire()) {
-            this.writeByteBuffer = input.poll();
-            if (null != writeByteBuffer && writeByteBuffer.isReadable()) {
-                this.continueWrite(writeByteBuffer.nioBuffer());
+            if (gatheringBuffer.fill(input) > 0) {
+                this.continueWrite();
             } else {
                 semaphore.release();
             }
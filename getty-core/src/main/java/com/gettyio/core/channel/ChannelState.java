@@ -64,6 +64,10 @@ public enum ChannelState {
     /**
      * 写数据
      */
-    CHANNEL_WRITE
+    CHANNEL_WRITE,
+    /**
+     * 可写状态变化
+     */
+    CHANNEL_WRITABILITY_CHANGED
 
 }
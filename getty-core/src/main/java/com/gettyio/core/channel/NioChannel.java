@@ -16,12 +16,14 @@
 package com.gettyio.core.channel;
 
 import com.gettyio.core.buffer.BufferWriter;
+import com.gettyio.core.buffer.GatheringBuffer;
 import com.gettyio.core.channel.config.BaseConfig;
 import com.gettyio.core.channel.loop.NioEventLoop;
 import com.gettyio.core.function.Function;
 import com.gettyio.core.handler.ssl.SslHandler;
 import com.gettyio.core.handler.ssl.sslfacade.IHandshakeCompletedListener;
 import com.gettyio.core.pipeline.ChannelPipeline;
+import com.gettyio.core.buffer.allocator.AdaptiveRecvByteBufAllocator;
 import com.gettyio.core.buffer.allocator.ByteBufAllocator;
 import com.gettyio.core.buffer.buffer.ByteBuf;
 import com.gettyio.core.util.ThreadPool;
@@ -31,7 +33,9 @@ import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectionKey;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * NioChannel.java
@@ -72,14 +76,52 @@ public class NioChannel extends SocketChannel implements Function<BufferWriter,
      */
     private final Semaphore semaphore = new Semaphore(1);
 
+    /**
+     * 聚合写出缓冲，只在事件循环线程中使用
+     */
+    private final GatheringBuffer gatheringBuffer;
+
+    /**
+     * 自适应读缓冲区分配，只在事件循环线程中使用
+     */
+    private final AdaptiveRecvByteBufAllocator recvByteBufAllocator;
+
+    /**
+     * 关闭标记，业务线程与事件循环线程可能同时关闭，保证关闭逻辑只执行一次
+     */
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * 提交到事件循环的写任务
+     */
+    private final Runnable writeTask = new Runnable() {
+        @Override
+        public void run() {
+            doWrite();
+        }
+    };
+
+    /**
+     * 提交到事件循环的释放任务
+     */
+    private final Runnable releaseTask = new Runnable() {
+        @Override
+        public void run() {
+            releasePending();
+        }
+    };
+
     public NioChannel(BaseConfig config, java.nio.channels.SocketChannel channel, NioEventLoop nioEventLoop, ByteBufAllocator byteBufAllocator, ThreadPool workerThreadPool, ChannelPipeline channelPipeline) {
         this.config = config;
         this.channel = channel;
         this.channelPipeline = channelPipeline;
         this.nioEventLoop = nioEventLoop;
         this.byteBufAllocator = byteBufAllocator;
-        this.nioBufferWriter = new BufferWriter(byteBufAllocator, this, config.getBufferWriterQueueSize());
+        this.nioBufferWriter = new BufferWriter(byteBufAllocator, this, config.getBufferWriterQueueBytes(), config.getWriteQueueTimeout());
+        this.gatheringBuffer = new GatheringBuffer(config.getGatheringWriteCount(), config.getGatheringWriteBytes());
+        this.recvByteBufAllocator = new AdaptiveRecvByteBufAllocator(config.getMinReadBufferSize(), config.getReadBufferSize(), config.getMaxReadBufferSize());
         this.workerThreadPool = workerThreadPool;
+        nioEventLoop.incrementChannelCount();
 
         try {
             //注意该方法可能抛异常
@@ -99,29 +141,63 @@ public class NioChannel extends SocketChannel implements Function<BufferWriter,
     }
 
     /**
-     * 注册事件
+     * 注册事件，注册动作在事件循环线程中执行
      *
      * @throws ClosedChannelException
      */
     public void register() throws ClosedChannelException {
+        if (!channel.isOpen()) {
+            throw new ClosedChannelException();
+        }
         if (NioChannel.this.sslHandler != null) {
             //若开启了SSL，则需要握手
             NioChannel.this.sslHandler.getSslService().beginHandshake(handshakeCompletedListener);
         }
-        //注册事件
-        nioEventLoop.getSelector().register(channel, SelectionKey.OP_READ, this);
+        if (nioEventLoop.inEventLoop()) {
+            register0();
+            return;
+        }
+        try {
+            nioEventLoop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    register0();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            //loop已关闭
+            close();
+            throw new ClosedChannelException();
+        }
+    }
+
+    /**
+     * 注册读事件，保留注册前因写缓冲区满而关注的OP_WRITE
+     */
+    private void register0() {
+        try {
+            int ops = SelectionKey.OP_READ;
+            SelectionKey key = channel.keyFor(nioEventLoop.getSelector().getSelector());
+            if (key != null && key.isValid()) {
+                ops |= key.interestOps();
+            }
+            nioEventLoop.getSelector().register(channel, ops, this);
+        } catch (ClosedChannelException e) {
+            logger.error(e.getMessage(), e);
+            close();
+        }
     }
 
     /**
      * 读取
      *
-     * @param bytes
+     * @param msg byte[]，零拷贝模式下为池化的ByteBuf
      */
-    public void doRead(byte[] bytes) {
+    public void doRead(Object msg) {
         initiateClose = false;
 
         try {
-            readToPipeline(bytes);
+            readToPipeline(msg);
         } catch (Exception e) {
             logger.error(e);
             close();
@@ -132,13 +208,19 @@ public class NioChannel extends SocketChannel implements Function<BufferWriter,
     @Override
     public void close() {
 
-        if (status == CHANNEL_STATUS_CLOSED) {
+        if (!closed.compareAndSet(false, true)) {
             logger.warn("Channel:{} is closed:", getChannelId());
             return;
         }
 
-        if (channelFutureListener != null) {
-            channelFutureListener.operationComplete(this);
+        notifyCloseListeners();
+
+        nioEventLoop.decrementChannelCount();
+        //积压的写出数据只在事件循环线程中释放
+        if (nioEventLoop.inEventLoop()) {
+            releasePending();
+        } else {
+            nioEventLoop.executeRelease(releaseTask);
         }
 
         try {
@@ -187,14 +269,9 @@ public class NioChannel extends SocketChannel implements Function<BufferWriter,
     @Override
     public boolean writeAndFlush(Object obj) {
         try {
-            if (config.isFlowControl()) {
-                if (nioBufferWriter.getCount() >= config.getHighWaterMark()) {
-                    super.writeable = false;
-                    return false;
-                }
-                if (nioBufferWriter.getCount() <= config.getLowWaterMark()) {
-                    super.writeable = true;
-                }
+            if (config.isFlowControl() && !isWriteable()) {
+                //待写出字节数超过高水位，等待channelWritabilityChanged后再写
+                return false;
             }
             reverseInvokePipeline(ChannelState.CHANNEL_WRITE, obj);
         } catch (Exception e) {
@@ -206,13 +283,62 @@ public class NioChannel extends SocketChannel implements Function<BufferWriter,
     @Override
     public void writeToChannel(Object obj) {
         try {
-            byte[] bytes = (byte[]) obj;
-            nioBufferWriter.writeAndFlush(bytes);
+            writeToChannelChecked(obj);
         } catch (Exception e) {
             logger.error(e);
         }
     }
 
+    @Override
+    public void writeToChannelChecked(Object obj) throws IOException {
+        //事件循环线程是输出队列唯一的消费者，在其中写入时队列满不能等待，直接失败
+        long timeout = nioEventLoop.inEventLoop() ? 0 : config.getWriteQueueTimeout();
+        if (obj instanceof ByteBuf) {
+            //池化缓冲区直接入队，不再复制
+            ByteBuf byteBuf = (ByteBuf) obj;
+            int length = byteBuf.readableBytes();
+            addPendingBytes(length);
+            try {
+                nioBufferWriter.writeAndFlush(byteBuf, timeout);
+            } catch (IOException e) {
+                addPendingBytes(-length);
+                throw e;
+            }
+            return;
+        }
+        byte[] bytes = (byte[]) obj;
+        addPendingBytes(bytes.length);
+        try {
+            nioBufferWriter.writeAndFlush(bytes, timeout);
+        } catch (IOException e) {
+            addPendingBytes(-bytes.length);
+            throw e;
+        }
+    }
+
+    /**
+     * 更新待写出字节数，同时计入所属loop的统计
+     *
+     * @param delta 变化量
+     */
+    private void addPendingBytes(long delta) {
+        if (delta > 0) {
+            incrementPendingBytes(delta);
+        } else {
+            decrementPendingBytes(-delta);
+        }
+        nioEventLoop.addPendingBytes(delta);
+    }
+
+    /**
+     * 释放未写出的数据，并从loop统计中扣除
+     */
+    private void releasePending() {
+        gatheringBuffer.release();
+        nioBufferWriter.release();
+        nioEventLoop.addPendingBytes(-resetPendingBytes());
+    }
+
 
     @Override
     public java.nio.channels.SocketChannel getSocketChannel() {
@@ -275,10 +401,24 @@ public class NioChannel extends SocketChannel implements Function<BufferWriter,
         return this.sslHandler;
     }
 
+    public AdaptiveRecvByteBufAllocator getRecvByteBufAllocator() {
+        return recvByteBufAllocator;
+    }
+
     public NioEventLoop getNioEventLoop() {
         return nioEventLoop;
     }
 
+    /**
+     * 提交到所属的事件循环执行
+     *
+     * @param task 任务
+     */
+    @Override
+    public void execute(Runnable task) {
+        nioEventLoop.execute(task);
+    }
+
     @Override
     public IHandshakeCompletedListener getSslHandshakeCompletedListener() {
         return this.handshakeCompletedListener;
@@ -292,43 +432,99 @@ public class NioChannel extends SocketChannel implements Function<BufferWriter,
     @Override
     public Void apply(BufferWriter input) {
 
-        //获取信息量
+        if (input.isClosed()) {
+            //通道关闭后写入的数据，同样在事件循环线程中释放
+            if (nioEventLoop.inEventLoop()) {
+                releasePending();
+            } else {
+                nioEventLoop.executeRelease(releaseTask);
+            }
+            return null;
+        }
+        //获取信息量，写出统一在事件循环线程中执行
         if (semaphore.tryAcquire()) {
-            workerThreadPool.execute(new Runnable() {
-                @Override
-                public void run() {
-
-                    ByteBuf byteBuf;
-                    while ((byteBuf = input.poll()) != null) {
-
-                        if (!byteBuf.isReadable()) {
-                            //写完及时释放
-                            byteBuf.release();
-                        }
-                        try {
-                            if (NioChannel.this.isInvalid()) {
-                                byteBuf.release();
-                                throw new IOException("NioChannel is Invalid");
-                            }
-                            while (byteBuf.isReadable()) {
-                                ByteBuffer buffer = byteBuf.getNioBuffer();
-                                NioChannel.this.getSocketChannel().write(buffer);
-                                byteBuf.readerIndex(buffer.position());
-                            }
-                        } catch (IOException e) {
-                            NioChannel.this.close();
-                        }
-                        byteBuf.release();
-                    }
-
-                    if (!NioChannel.this.isKeepAlive()) {
-                        NioChannel.this.close();
-                    }
-                    //flush完毕后释放信号量
+            if (nioEventLoop.inEventLoop()) {
+                doWrite();
+            } else {
+                try {
+                    nioEventLoop.execute(writeTask);
+                } catch (RejectedExecutionException e) {
+                    //loop已关闭，积压的数据随通道关闭释放
                     semaphore.release();
+                    close();
                 }
-            });
+            }
         }
         return null;
     }
+
+    /**
+     * 写出数据，只在事件循环线程中调用。
+     * socket发送缓冲区写满时关注OP_WRITE并保持信号量，待可写后由事件循环再次调用，不占用任何线程等待
+     */
+    public void doWrite() {
+        if (isInvalid()) {
+            releasePending();
+            semaphore.release();
+            return;
+        }
+        try {
+            //一次取出多个缓冲区，合并为一次写出，减少系统调用
+            while (gatheringBuffer.fill(nioBufferWriter) > 0) {
+                ByteBuffer[] nioBuffers = gatheringBuffer.nioBuffers();
+                long written = channel.write(nioBuffers, 0, gatheringBuffer.nioBufferCount());
+                gatheringBuffer.removeBytes(written);
+                addPendingBytes(-written);
+                if (!gatheringBuffer.isEmpty()) {
+                    //未能写完，说明发送缓冲区已满，等待可写事件
+                    setOpWrite();
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            logger.error(e.getMessage(), e);
+            releasePending();
+            semaphore.release();
+            close();
+            return;
+        }
+        clearOpWrite();
+
+        if (!isKeepAlive()) {
+            close();
+        }
+        //flush完毕后释放信号量
+        semaphore.release();
+        //释放信号量期间可能有新数据写入，需要再次检查
+        if (nioBufferWriter.getCount() > 0 && !isInvalid()) {
+            apply(nioBufferWriter);
+        }
+    }
+
+    /**
+     * 关注OP_WRITE事件
+     *
+     * @throws ClosedChannelException 异常
+     */
+    private void setOpWrite() throws ClosedChannelException {
+        SelectionKey key = channel.keyFor(nioEventLoop.getSelector().getSelector());
+        if (key == null) {
+            //尚未注册读事件，先只关注写事件，register()时会补充读事件
+            nioEventLoop.getSelector().register(channel, SelectionKey.OP_WRITE, this);
+            return;
+        }
+        if (key.isValid() && (key.interestOps() & SelectionKey.OP_WRITE) == 0) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * 取消关注OP_WRITE事件
+     */
+    private void clearOpWrite() {
+        SelectionKey key = channel.keyFor(nioEventLoop.getSelector().getSelector());
+        if (key != null && key.isValid() && (key.interestOps() & SelectionKey.OP_WRITE) != 0) {
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        }
+    }
 }
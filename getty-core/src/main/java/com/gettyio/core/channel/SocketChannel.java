@@ -22,12 +22,14 @@ import com.gettyio.core.handler.ssl.sslfacade.IHandshakeCompletedListener;
 import com.gettyio.core.logging.InternalLogger;
 import com.gettyio.core.logging.InternalLoggerFactory;
 import com.gettyio.core.pipeline.ChannelHandlerAdapter;
+import com.gettyio.core.pipeline.ChannelHandlerContext;
 import com.gettyio.core.pipeline.ChannelPipeline;
 import com.gettyio.core.pipeline.DefaultChannelPipeline;
 import com.gettyio.core.channel.group.ChannelFutureListener;
 import com.gettyio.core.pipeline.all.ChannelAllBoundHandlerAdapter;
 import com.gettyio.core.pipeline.out.ChannelOutboundHandlerAdapter;
 import com.gettyio.core.buffer.allocator.ByteBufAllocator;
+import com.gettyio.core.buffer.buffer.ByteBuf;
 import com.gettyio.core.util.ConcurrentSafeMap;
 import com.gettyio.core.util.LinkedBlockQueue;
 import com.gettyio.core.util.StringUtil;
@@ -36,6 +38,10 @@ import com.gettyio.core.util.ThreadPool;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.channels.AsynchronousSocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
@@ -73,9 +79,15 @@ public abstract class SocketChannel {
     protected boolean handShake = false;
 
     /**
-     * 当前通道是否可写入
+     * 当前通道是否可写入，待写出字节数超过高水位时为false，降到低水位后恢复。
+     * 子类通过{@link #isWriteable()}和{@link #setWriteable(boolean)}访问
      */
-    protected boolean writeable = true;
+    private final AtomicBoolean writeable = new AtomicBoolean(true);
+
+    /**
+     * 待写出的字节数，写入输出队列时增加，写出到socket后减少
+     */
+    private final AtomicLong pendingBytes = new AtomicLong();
 
 
     /**
@@ -102,6 +114,15 @@ public abstract class SocketChannel {
      */
     protected ChannelFutureListener channelFutureListener;
 
+    /**
+     * 关闭监听，与channelFutureListener互不影响，首次添加时创建，由this保护
+     */
+    private List<ChannelFutureListener> closeListeners;
+    /**
+     * 是否已回调关闭监听，由this保护
+     */
+    private boolean closeNotified;
+
     /**
      * 用于保存以及decode的消息
      */
@@ -112,15 +133,64 @@ public abstract class SocketChannel {
      */
     protected ConcurrentSafeMap<String, Object> channelAttribute = new ConcurrentSafeMap<>();
 
+    /**
+     * 通道id的字符串前缀
+     */
+    public static final String CHANNEL_ID_PREFIX = "channel-";
+    /**
+     * 通道id生成器，进程内单调递增
+     */
+    private static final AtomicLong ID_GENERATOR = new AtomicLong();
+    /**
+     * 通道id，创建时分配，进程内唯一
+     */
+    private final long id = ID_GENERATOR.incrementAndGet();
+    /**
+     * 字符串形式的id，首次使用时生成
+     */
+    private String channelId;
+
     //-------------------------------------------------------------------------------------
 
     /**
-     * 获取当前aioChannel的唯一标识
+     * 获取当前通道的唯一标识
+     *
+     * @return long
+     */
+    public final long getId() {
+        return id;
+    }
+
+    /**
+     * 获取当前通道唯一标识的字符串形式
      *
      * @return String
      */
     public final String getChannelId() {
-        return "aioChannel-" + System.identityHashCode(this);
+        String channelId = this.channelId;
+        if (channelId == null) {
+            //字符串不可变，并发时最多重复生成一次
+            channelId = CHANNEL_ID_PREFIX + id;
+            this.channelId = channelId;
+        }
+        return channelId;
+    }
+
+    /**
+     * 从字符串形式的标识中解析出通道id
+     *
+     * @param channelId 字符串形式的标识
+     * @return 通道id，格式不正确时返回-1
+     */
+    public static long parseChannelId(String channelId) {
+        if (channelId == null || !channelId.startsWith(CHANNEL_ID_PREFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(channelId.substring(CHANNEL_ID_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
     }
 
     /**
@@ -169,6 +239,26 @@ public abstract class SocketChannel {
      */
     public abstract void writeToChannel(Object obj);
 
+    /**
+     * 写到BufferWriter输出器，不经过责任链。与{@link #writeToChannel(Object)}不同，写入失败时抛出异常而不是只记录日志，
+     * 供需要获知写入结果的调用方使用
+     *
+     * @param obj 写入的数组
+     * @throws IOException 写入失败
+     */
+    public void writeToChannelChecked(Object obj) throws IOException {
+        writeToChannel(obj);
+    }
+
+    /**
+     * 在通道的IO线程中执行任务，默认在当前线程直接执行
+     *
+     * @param task 任务
+     */
+    public void execute(Runnable task) {
+        task.run();
+    }
+
 
     //-----------------------------------------------------------------------------------
 
@@ -195,11 +285,16 @@ public abstract class SocketChannel {
 
     /**
      * 消息读取到责任链管道
+     * 零拷贝模式下obj为池化的ByteBuf，调用方在本方法返回后释放，处理器如需继续持有须自行retain()
      *
      * @param obj 消息对象
      * @throws Exception 异常
      */
     public void readToPipeline(Object obj) throws Exception {
+        if (obj instanceof ByteBuf) {
+            //记录缓冲区进入责任链的位置，供泄漏检测报告使用
+            ((ByteBuf) obj).touch();
+        }
         invokePipeline(ChannelState.CHANNEL_READ, obj);
     }
 
@@ -227,32 +322,35 @@ public abstract class SocketChannel {
             return;
         }
 
-        ChannelHandlerAdapter channelHandlerAdapter = defaultChannelPipeline.inPipeFirst();
-        if (channelHandlerAdapter == null) {
+        ChannelHandlerContext ctx = defaultChannelPipeline.inFirstContext();
+        if (ctx == null) {
             return;
         }
 
         switch (channelState) {
             case NEW_CHANNEL:
-                channelHandlerAdapter.channelAdded(this);
+                ctx.invokeChannelAdded(this);
                 break;
             case CHANNEL_READ:
-                channelHandlerAdapter.decode(this, obj, outList);
+                ctx.invokeDecode(this, obj, outList);
                 break;
             case CHANNEL_CLOSED:
-                channelHandlerAdapter.channelClosed(this);
+                ctx.invokeChannelClosed(this);
+                break;
+            case CHANNEL_WRITABILITY_CHANGED:
+                ctx.invokeChannelWritabilityChanged(this);
                 break;
             case INPUT_SHUTDOWN:
-                channelHandlerAdapter.exceptionCaught(this, new RuntimeException("socket channel input shutdown exception"));
+                ctx.invokeExceptionCaught(this, new RuntimeException("socket channel input shutdown exception"));
                 break;
             case INPUT_EXCEPTION:
-                channelHandlerAdapter.exceptionCaught(this, new RuntimeException("socket channel input exception"));
+                ctx.invokeExceptionCaught(this, new RuntimeException("socket channel input exception"));
                 break;
             case OUTPUT_SHUTDOWN:
-                channelHandlerAdapter.exceptionCaught(this, new RuntimeException("socket channel output shutdown exception"));
+                ctx.invokeExceptionCaught(this, new RuntimeException("socket channel output shutdown exception"));
                 break;
             case OUTPUT_EXCEPTION:
-                channelHandlerAdapter.exceptionCaught(this, new RuntimeException("socket channel output exception"));
+                ctx.invokeExceptionCaught(this, new RuntimeException("socket channel output exception"));
                 break;
             default:
                 break;
@@ -270,19 +368,15 @@ public abstract class SocketChannel {
      * @throws Exception 异常
      */
     protected void reverseInvokePipeline(ChannelState channelState, Object obj) throws Exception {
-        ChannelHandlerAdapter channelHandlerAdapter = defaultChannelPipeline.outPipeFirst();
+        ChannelHandlerContext ctx = defaultChannelPipeline.outFirstContext();
 
-        if (channelHandlerAdapter instanceof ChannelOutboundHandlerAdapter) {
-            //channelHandlerAdapter.channelWrite(this, obj);
-            channelHandlerAdapter.encode(this, obj);
-            return;
-        } else if (channelHandlerAdapter instanceof ChannelAllBoundHandlerAdapter) {
+        if (ctx != null && (ctx.handler() instanceof ChannelOutboundHandlerAdapter || ctx.handler() instanceof ChannelAllBoundHandlerAdapter)) {
             //channelHandlerAdapter.channelWrite(this, obj);
-            channelHandlerAdapter.encode(this, obj);
+            ctx.invokeEncode(this, obj);
             return;
         }
         //如果没有对应的处理器，直接输出到wirter
-        writeToChannel(obj);
+        writeToChannelChecked(obj);
     }
 
 
@@ -349,6 +443,65 @@ public abstract class SocketChannel {
         this.channelFutureListener = channelFutureListener;
     }
 
+    /**
+     * 添加关闭监听，通道关闭时回调一次，已关闭时立即回调
+     *
+     * @param listener 监听
+     */
+    public void addCloseListener(ChannelFutureListener listener) {
+        if (listener == null) {
+            throw new NullPointerException("listener");
+        }
+        synchronized (this) {
+            if (!closeNotified) {
+                if (closeListeners == null) {
+                    closeListeners = new ArrayList<>(1);
+                }
+                closeListeners.add(listener);
+                return;
+            }
+        }
+        listener.operationComplete(this);
+    }
+
+    /**
+     * 移除关闭监听
+     *
+     * @param listener 监听
+     */
+    public synchronized void removeCloseListener(ChannelFutureListener listener) {
+        if (closeListeners != null) {
+            closeListeners.remove(listener);
+        }
+    }
+
+    /**
+     * 通道关闭时由子类调用，回调channelFutureListener和所有关闭监听
+     */
+    protected void notifyCloseListeners() {
+        if (channelFutureListener != null) {
+            channelFutureListener.operationComplete(this);
+        }
+        List<ChannelFutureListener> listeners;
+        synchronized (this) {
+            if (closeNotified) {
+                return;
+            }
+            closeNotified = true;
+            listeners = closeListeners;
+            closeListeners = null;
+        }
+        if (listeners != null) {
+            for (ChannelFutureListener listener : listeners) {
+                try {
+                    listener.operationComplete(this);
+                } catch (Exception e) {
+                    logger.error(e.getMessage(), e);
+                }
+            }
+        }
+    }
+
     public ConcurrentSafeMap<String, Object> getChannelAttribute() {
         return channelAttribute;
     }
@@ -392,6 +545,79 @@ public abstract class SocketChannel {
     }
 
     public boolean isWriteable() {
-        return writeable;
+        return writeable.get();
+    }
+
+    /**
+     * 获取当前通道待写出的字节数
+     *
+     * @return long
+     */
+    public long getPendingBytes() {
+        return pendingBytes.get();
+    }
+
+    /**
+     * 数据进入输出队列，超过高水位时标记为不可写
+     *
+     * @param size 字节数
+     */
+    protected void incrementPendingBytes(long size) {
+        long pending = pendingBytes.addAndGet(size);
+        if (config.isFlowControl() && pending >= config.getHighWaterMark()) {
+            setWriteable(false);
+        }
+    }
+
+    /**
+     * 数据已写出，降到低水位时恢复可写
+     *
+     * @param size 字节数
+     */
+    protected void decrementPendingBytes(long size) {
+        long pending = pendingBytes.addAndGet(-size);
+        if (!writeable.get() && pending <= config.getLowWaterMark()) {
+            setWriteable(true);
+        }
+    }
+
+    /**
+     * 通道关闭时清空待写出字节数
+     *
+     * @return 清空前的字节数
+     */
+    protected long resetPendingBytes() {
+        return pendingBytes.getAndSet(0);
+    }
+
+    /**
+     * 设置可写状态，状态变化时在通道的IO线程中触发channelWritabilityChanged。
+     * 字节数的更新与状态的翻转不是原子的，翻转后重新读取待写出字节数，若已不满足新状态则撤销翻转，
+     * 避免并发的增减各自错过判断，导致通道一直不可写
+     *
+     * @param value 是否可写
+     */
+    protected void setWriteable(boolean value) {
+        while (writeable.compareAndSet(!value, value)) {
+            fireWritabilityChanged();
+            long pending = pendingBytes.get();
+            if (value ? pending < config.getHighWaterMark() || !config.isFlowControl() : pending > config.getLowWaterMark()) {
+                return;
+            }
+            value = !value;
+        }
+    }
+
+    private void fireWritabilityChanged() {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    invokePipeline(ChannelState.CHANNEL_WRITABILITY_CHANGED);
+                } catch (Exception e) {
+                    logger.error(e);
+                }
+            }
+        });
     }
 }
@@ -17,8 +17,10 @@ package com.gettyio.core.channel;
 
 import com.gettyio.core.buffer.allocator.ByteBufAllocator;
 import com.gettyio.core.buffer.buffer.ByteBuf;
-import com.gettyio.core.util.LinkedBlockQueue;
+import com.gettyio.core.util.LinkedQueue;
+import com.gettyio.core.util.MpscByteBoundedQueue;
 import com.gettyio.core.channel.config.BaseConfig;
+import com.gettyio.core.function.Function;
 import com.gettyio.core.pipeline.ChannelPipeline;
 import com.gettyio.core.util.ThreadPool;
 
@@ -48,9 +50,19 @@ public class UdpChannel extends SocketChannel {
     private DatagramChannel datagramChannel;
     private Selector selector;
     /**
-     * 阻塞队列
+     * 按报文长度计算大小
      */
-    private LinkedBlockQueue<DatagramPacket> queue;
+    private static final Function<DatagramPacket, Integer> PACKET_WEIGHER = new Function<DatagramPacket, Integer>() {
+        @Override
+        public Integer apply(DatagramPacket input) {
+            return input.getLength();
+        }
+    };
+
+    /**
+     * 发送队列，无锁多生产者单消费者，按字节数限制容量
+     */
+    private LinkedQueue<DatagramPacket> queue;
     private ThreadPool workerThreadPool;
 
     public UdpChannel(DatagramChannel datagramChannel, Selector selector, BaseConfig config, ByteBufAllocator byteBufAllocator, ChannelPipeline channelPipeline, int workerThreadNum) {
@@ -59,7 +71,7 @@ public class UdpChannel extends SocketChannel {
         this.config = config;
         this.byteBufAllocator = byteBufAllocator;
         this.workerThreadPool = new ThreadPool(ThreadPool.FixedThread, workerThreadNum);
-        queue = new LinkedBlockQueue<>(config.getBufferWriterQueueSize());
+        queue = new MpscByteBoundedQueue<>(config.getBufferWriterQueueBytes(), PACKET_WEIGHER);
         try {
             //注意该方法可能抛异常
             channelPipeline.initChannel(this);
@@ -149,9 +161,7 @@ public class UdpChannel extends SocketChannel {
         } catch (IOException e) {
             logger.error(e);
         }
-        if (channelFutureListener != null) {
-            channelFutureListener.operationComplete(this);
-        }
+        notifyCloseListeners();
         //更新状态
         status = CHANNEL_STATUS_CLOSED;
 
@@ -37,31 +37,72 @@ public abstract class BaseConfig {
      */
     private int port;
     /**
-     * 消息读取缓存大小，默认64
+     * 消息读取缓存初始大小，默认64，之后根据实际读取的字节数在最小值与最大值之间自适应调整
      */
     private int readBufferSize = 64;
     /**
-     * 输出类队列大小,再大其实意义不大，因为实际写出速度还会收到机器配置已经带宽的限制，设置这个数，已经能满足绝大部分场景需要
+     * 消息读取缓存最小值
      */
-    private int bufferWriterQueueSize = 1024 * 1024 * 8;
+    private int minReadBufferSize = 64;
+    /**
+     * 消息读取缓存最大值
+     */
+    private int maxReadBufferSize = 64 * 1024;
+    /**
+     * NIO每次可读事件最多连续读取的次数，读到无数据时提前结束
+     */
+    private int maxReadsPerLoop = 16;
+    /**
+     * 输出队列的最大字节数,再大其实意义不大，因为实际写出速度还会收到机器配置已经带宽的限制，设置这个数，已经能满足绝大部分场景需要
+     */
+    private int bufferWriterQueueBytes = 1024 * 1024 * 8;
+    /**
+     * 输出队列已满时，非IO线程写入的最长等待时间（毫秒），超时后本次写入失败。
+     * 通道的IO线程（如NIO事件循环）中写入从不等待，队列满时直接失败，建议开启流控按channelWritabilityChanged控制写入
+     */
+    private long writeQueueTimeout = 3000;
 
     /**
      * 是否开启零拷贝,使用堆外内存
      */
     private final Boolean isDirect = true;
 
+    /**
+     * 入站零拷贝模式，开启后读取到的池化ByteBuf直接传入责任链，不再复制成byte[]。
+     * 通道持有该缓冲区的一个引用并在责任链返回后释放，处理器如需在decode之外继续持有，须自行retain()并在用完后release()。
+     * 默认关闭，以兼容按byte[]处理消息的自定义解码器
+     */
+    private boolean byteBufInbound = false;
+
+    /**
+     * 出站零拷贝模式，开启后WebSocket、HTTP响应、protobuf长度头等编码器输出组合ByteBuf，帧头与消息体分开写出，不再复制消息体。
+     * 此时编码器之后的出站处理器收到的是ByteBuf而不是byte[]，消息体数组在写出前不能再被修改。
+     * 默认关闭，以兼容按byte[]处理出站消息的自定义处理器
+     */
+    private boolean byteBufOutbound = false;
+
+    /**
+     * 聚合写出时单次最多合并的缓冲区数量
+     */
+    private int gatheringWriteCount = 64;
+    /**
+     * 聚合写出时单次最多合并的字节数
+     */
+    private int gatheringWriteBytes = 256 * 1024;
+
     /**
      * 流控开关，默认不打开
      */
     private boolean flowControl = false;
     /**
-     * 流控阈值(高水位线)，默认与输出队列一致，则表示不做限制
+     * 流控阈值(高水位线)，待写出的字节数，超过后通道不可写并触发channelWritabilityChanged。未设置时与输出队列一致，则表示不做限制
      */
-    private int highWaterMark = bufferWriterQueueSize;
+    private int highWaterMark = -1;
     /**
-     * 释放流控阈值(低水位线)，默认高水位的一半
+     * 释放流控阈值(低水位线)，待写出的字节数降到该值后恢复可写并触发channelWritabilityChanged。
+     * 未设置或不小于高水位线时取高水位的一半
      */
-    private int lowWaterMark = highWaterMark / 2;
+    private int lowWaterMark = -1;
 
 
     /**
@@ -112,12 +153,67 @@ public abstract class BaseConfig {
         this.readBufferSize = readBufferSize;
     }
 
+    public int getMinReadBufferSize() {
+        return minReadBufferSize;
+    }
+
+    public void setMinReadBufferSize(int minReadBufferSize) {
+        this.minReadBufferSize = minReadBufferSize;
+    }
+
+    public int getMaxReadBufferSize() {
+        return maxReadBufferSize;
+    }
+
+    public void setMaxReadBufferSize(int maxReadBufferSize) {
+        this.maxReadBufferSize = maxReadBufferSize;
+    }
+
+    public int getMaxReadsPerLoop() {
+        return maxReadsPerLoop;
+    }
+
+    public void setMaxReadsPerLoop(int maxReadsPerLoop) {
+        this.maxReadsPerLoop = maxReadsPerLoop;
+    }
+
+    public int getBufferWriterQueueBytes() {
+        return bufferWriterQueueBytes;
+    }
+
+    public void setBufferWriterQueueBytes(int bufferWriterQueueBytes) {
+        this.bufferWriterQueueBytes = bufferWriterQueueBytes;
+    }
+
+    /**
+     * 输出队列的最大字节数
+     *
+     * @return int
+     * @deprecated 输出队列已改为按字节数限制，使用{@link #getBufferWriterQueueBytes()}
+     */
+    @Deprecated
     public int getBufferWriterQueueSize() {
-        return bufferWriterQueueSize;
+        return bufferWriterQueueBytes;
     }
 
+    /**
+     * 以前是输出队列能容纳的消息个数，现在按字节数限制，传入的值作为字节数使用。
+     * 按消息个数设置过的（如1024 * 1024条）需要换算成字节数
+     *
+     * @param bufferWriterQueueSize 输出队列的最大字节数
+     * @deprecated 使用{@link #setBufferWriterQueueBytes(int)}
+     */
+    @Deprecated
     public void setBufferWriterQueueSize(int bufferWriterQueueSize) {
-        this.bufferWriterQueueSize = bufferWriterQueueSize;
+        this.bufferWriterQueueBytes = bufferWriterQueueSize;
+    }
+
+    public long getWriteQueueTimeout() {
+        return writeQueueTimeout;
+    }
+
+    public void setWriteQueueTimeout(long writeQueueTimeout) {
+        this.writeQueueTimeout = writeQueueTimeout;
     }
 
     public Map<SocketOption<Object>, Object> getSocketOptions() {
@@ -136,6 +232,38 @@ public abstract class BaseConfig {
     }
 
 
+    public boolean isByteBufInbound() {
+        return byteBufInbound;
+    }
+
+    public void setByteBufInbound(boolean byteBufInbound) {
+        this.byteBufInbound = byteBufInbound;
+    }
+
+    public boolean isByteBufOutbound() {
+        return byteBufOutbound;
+    }
+
+    public void setByteBufOutbound(boolean byteBufOutbound) {
+        this.byteBufOutbound = byteBufOutbound;
+    }
+
+    public int getGatheringWriteCount() {
+        return gatheringWriteCount;
+    }
+
+    public void setGatheringWriteCount(int gatheringWriteCount) {
+        this.gatheringWriteCount = gatheringWriteCount;
+    }
+
+    public int getGatheringWriteBytes() {
+        return gatheringWriteBytes;
+    }
+
+    public void setGatheringWriteBytes(int gatheringWriteBytes) {
+        this.gatheringWriteBytes = gatheringWriteBytes;
+    }
+
     public boolean isFlowControl() {
         return flowControl;
     }
@@ -145,7 +273,7 @@ public abstract class BaseConfig {
     }
 
     public int getHighWaterMark() {
-        return highWaterMark;
+        return highWaterMark < 0 ? bufferWriterQueueBytes : highWaterMark;
     }
 
     public void setHighWaterMark(int highWaterMark) {
@@ -153,6 +281,11 @@ public abstract class BaseConfig {
     }
 
     public int getLowWaterMark() {
+        int high = getHighWaterMark();
+        //低水位必须小于高水位，否则可写状态会来回抖动
+        if (lowWaterMark < 0 || lowWaterMark >= high) {
+            return high / 2;
+        }
         return lowWaterMark;
     }
 
@@ -166,12 +299,20 @@ public abstract class BaseConfig {
                 "host='" + (host == null ? "localhost" : host) + '\'' +
                 ", port=" + port +
                 ", readBufferSize=" + readBufferSize +
-                ", bufferWriterQueueSize=" + bufferWriterQueueSize +
+                ", minReadBufferSize=" + minReadBufferSize +
+                ", maxReadBufferSize=" + maxReadBufferSize +
+                ", maxReadsPerLoop=" + maxReadsPerLoop +
+                ", bufferWriterQueueBytes=" + bufferWriterQueueBytes +
+                ", writeQueueTimeout=" + writeQueueTimeout +
                 ", flowControl=" + flowControl +
-                ", highWaterMark=" + highWaterMark +
-                ", lowWaterMark=" + lowWaterMark +
+                ", highWaterMark=" + getHighWaterMark() +
+                ", lowWaterMark=" + getLowWaterMark() +
                 ", socketOptions=" + socketOptions +
                 ", isDirect=" + isDirect +
+                ", byteBufInbound=" + byteBufInbound +
+                ", byteBufOutbound=" + byteBufOutbound +
+                ", gatheringWriteCount=" + gatheringWriteCount +
+                ", gatheringWriteBytes=" + gatheringWriteBytes +
                 '}';
     }
 }
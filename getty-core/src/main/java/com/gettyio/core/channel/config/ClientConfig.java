@@ -24,4 +24,17 @@ package com.gettyio.core.channel.config;
  */
 public final class ClientConfig extends BaseConfig {
 
+    /**
+     * 连接超时时间，毫秒，小于等于0表示不限制。目前NIO客户端生效，超时后连接失败并回调
+     */
+    private int connectTimeout = 30 * 1000;
+
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
 }
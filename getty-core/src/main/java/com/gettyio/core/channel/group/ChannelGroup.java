@@ -43,4 +43,33 @@ public interface ChannelGroup extends Set<SocketChannel>, Comparable<ChannelGrou
      * @return
      */
     SocketChannel find(String id);
+
+    /**
+     * 按通道id查找通道
+     *
+     * @param id 通道id，见{@link SocketChannel#getId()}
+     * @return 不存在时返回null
+     */
+    SocketChannel find(long id);
+
+    /**
+     * 向组内所有通道广播消息
+     *
+     * @param msg 消息
+     * @return 汇总结果
+     * @see #writeAndFlush(Object, ChannelMatcher)
+     */
+    ChannelGroupFuture writeAndFlush(Object msg);
+
+    /**
+     * 向组内匹配的通道广播消息。出栈链以相同的共享编码器({@link com.gettyio.core.pipeline.Sharable})开头、
+     * 且各编码器的共享编码键({@link com.gettyio.core.pipeline.ChannelHandlerAdapter#sharedEncodingKey(SocketChannel)})相等的通道，
+     * 消息只编码一次，编码结果以引用计数的方式由这些通道共用；共享编码器之后还有通道私有的处理器(如SslHandler)时，
+     * 从该处理器开始逐个通道处理。消息为ByteBuf时，所有权转交给组
+     *
+     * @param msg     消息
+     * @param matcher 通道匹配器
+     * @return 汇总结果，各通道的共享编码结果写出到网络或被丢弃后才完成
+     */
+    ChannelGroupFuture writeAndFlush(Object msg, ChannelMatcher matcher);
 }
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.channel.group;
+
+import com.gettyio.core.channel.SocketChannel;
+import com.gettyio.core.logging.InternalLogger;
+import com.gettyio.core.logging.InternalLoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ChannelGroupFuture.java
+ *
+ * @description:组操作的汇总结果，记录每个通道是否成功。
+ * 写出时成功表示共享的编码结果已由该通道写出到网络，或已交给该通道私有的处理器（如SslHandler）；
+ * 通道在写出前关闭或写入失败则记为失败。所有通道都有结果后完成并回调监听，回调可能在通道的IO线程中执行
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public final class ChannelGroupFuture {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(ChannelGroupFuture.class);
+
+    private final ChannelGroup group;
+    /**
+     * 参与本次操作的通道数
+     */
+    private final int size;
+    private int successCount;
+    private final Map<SocketChannel, Throwable> failures = new LinkedHashMap<>();
+    private boolean done;
+    private List<ChannelGroupFutureListener> listeners;
+
+    ChannelGroupFuture(ChannelGroup group, int size) {
+        this.group = group;
+        this.size = size;
+    }
+
+    void setSuccess(SocketChannel socketChannel) {
+        boolean last;
+        synchronized (this) {
+            successCount++;
+            last = successCount + failures.size() == size;
+        }
+        if (last) {
+            complete();
+        }
+    }
+
+    void setFailure(SocketChannel socketChannel, Throwable cause) {
+        boolean last;
+        synchronized (this) {
+            failures.put(socketChannel, cause);
+            last = successCount + failures.size() == size;
+        }
+        if (last) {
+            complete();
+        }
+    }
+
+    /**
+     * 标记完成并回调监听，所有通道都有结果时自动调用，没有通道参与时由调用方直接调用
+     */
+    void complete() {
+        List<ChannelGroupFutureListener> listeners;
+        synchronized (this) {
+            if (done) {
+                return;
+            }
+            done = true;
+            listeners = this.listeners;
+            this.listeners = null;
+        }
+        if (listeners != null) {
+            for (ChannelGroupFutureListener listener : listeners) {
+                notifyListener(listener);
+            }
+        }
+    }
+
+    /**
+     * 添加完成监听，已完成时立即回调
+     *
+     * @param listener 监听
+     * @return ChannelGroupFuture
+     */
+    public ChannelGroupFuture addListener(ChannelGroupFutureListener listener) {
+        if (listener == null) {
+            throw new NullPointerException("listener");
+        }
+        synchronized (this) {
+            if (!done) {
+                if (listeners == null) {
+                    listeners = new ArrayList<>(1);
+                }
+                listeners.add(listener);
+                return this;
+            }
+        }
+        notifyListener(listener);
+        return this;
+    }
+
+    private void notifyListener(ChannelGroupFutureListener listener) {
+        try {
+            listener.operationComplete(this);
+        } catch (Throwable t) {
+            logger.error("An exception was thrown by " + listener.getClass().getName() + ".operationComplete()", t);
+        }
+    }
+
+    public ChannelGroup getGroup() {
+        return group;
+    }
+
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    /**
+     * 所有通道都成功
+     *
+     * @return boolean
+     */
+    public synchronized boolean isSuccess() {
+        return done && failures.isEmpty();
+    }
+
+    /**
+     * 至少有一个通道成功，但不是全部
+     *
+     * @return boolean
+     */
+    public synchronized boolean isPartialSuccess() {
+        return successCount != 0 && successCount != size;
+    }
+
+    /**
+     * 至少有一个通道失败，但不是全部
+     *
+     * @return boolean
+     */
+    public synchronized boolean isPartialFailure() {
+        return !failures.isEmpty() && failures.size() != size;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public synchronized int getSuccessCount() {
+        return successCount;
+    }
+
+    public synchronized int getFailureCount() {
+        return failures.size();
+    }
+
+    /**
+     * 获取指定通道的失败原因
+     *
+     * @param socketChannel 通道
+     * @return 成功或不在本次操作中返回null
+     */
+    public synchronized Throwable getCause(SocketChannel socketChannel) {
+        return failures.get(socketChannel);
+    }
+
+    /**
+     * 获取所有失败的通道及原因
+     *
+     * @return Map
+     */
+    public synchronized Map<SocketChannel, Throwable> getFailures() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ChannelGroupFuture(group: " + group.name() + ", size: " + size + ", success: " + successCount + ", failure: " + failures.size() + ", done: " + done + ')';
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.channel.group;
+
+/**
+ * ChannelGroupFutureListener.java
+ *
+ * @description:组操作完成监听
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public interface ChannelGroupFutureListener {
+
+    /**
+     * 所有通道都有结果后回调
+     *
+     * @param future 组操作结果
+     */
+    void operationComplete(ChannelGroupFuture future);
+
+}
@@ -15,14 +15,19 @@
  */
 package com.gettyio.core.channel.group;
 
+import com.gettyio.core.buffer.buffer.ByteBuf;
+import com.gettyio.core.buffer.pool.buffer.UnpooledHeapByteBuf;
 import com.gettyio.core.channel.SocketChannel;
+import com.gettyio.core.pipeline.ChannelHandlerAdapter;
+import com.gettyio.core.pipeline.ChannelHandlerContext;
+import com.gettyio.core.pipeline.DefaultChannelPipeline;
+import com.gettyio.core.util.ConcurrentLongHashMap;
 
+import java.nio.channels.ClosedChannelException;
 import java.util.AbstractSet;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Iterator;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.List;
 
 
 /**
@@ -39,9 +44,9 @@ public class DefaultChannelGroup extends AbstractSet<SocketChannel> implements C
      */
     private final String name;
     /**
-     * 用于保存连接的map
+     * 用于保存连接的map，以通道的long型id为键
      */
-    private final ConcurrentMap<String, SocketChannel> serverChannels = new ConcurrentHashMap<>();
+    private final ConcurrentLongHashMap<SocketChannel> serverChannels = new ConcurrentLongHashMap<>();
 
 
     /**
@@ -71,11 +76,13 @@ public class DefaultChannelGroup extends AbstractSet<SocketChannel> implements C
 
     @Override
     public SocketChannel find(String id) {
-        SocketChannel socketChannel = serverChannels.get(id);
-        if (socketChannel != null) {
-            return socketChannel;
-        }
-        return null;
+        long channelId = SocketChannel.parseChannelId(id);
+        return channelId < 0 ? null : serverChannels.get(channelId);
+    }
+
+    @Override
+    public SocketChannel find(long id) {
+        return serverChannels.get(id);
     }
 
 
@@ -88,14 +95,14 @@ public class DefaultChannelGroup extends AbstractSet<SocketChannel> implements C
     @Override
     public boolean contains(Object o) {
         if (o instanceof SocketChannel) {
-            return serverChannels.containsValue(o);
+            return serverChannels.get(((SocketChannel) o).getId()) == o;
         }
         return false;
     }
 
     @Override
     public boolean add(SocketChannel socketChannel) {
-        boolean added = serverChannels.putIfAbsent(socketChannel.getChannelId(), socketChannel) == null;
+        boolean added = serverChannels.putIfAbsent(socketChannel.getId(), socketChannel) == null;
         if (added) {
             //这里要添加个关闭监听，当连接关闭时，自动清理
             socketChannel.setChannelFutureListener(remover);
@@ -108,11 +115,15 @@ public class DefaultChannelGroup extends AbstractSet<SocketChannel> implements C
     public boolean remove(Object o) {
         SocketChannel c = null;
         if (o instanceof String) {
-            c = serverChannels.remove(o);
+            long channelId = SocketChannel.parseChannelId((String) o);
+            if (channelId >= 0) {
+                c = serverChannels.remove(channelId);
+            }
         } else if (o instanceof SocketChannel) {
             c = (SocketChannel) o;
-            c = serverChannels.remove(c.getChannelId());
-
+            if (!serverChannels.remove(c.getId(), c)) {
+                c = null;
+            }
         }
         if (c == null) {
             return false;
@@ -129,9 +140,276 @@ public class DefaultChannelGroup extends AbstractSet<SocketChannel> implements C
 
     @Override
     public <T> T[] toArray(T[] a) {
-        Collection<SocketChannel> channels = new ArrayList<SocketChannel>(size());
-        channels.addAll(serverChannels.values());
-        return channels.toArray(a);
+        return serverChannels.values().toArray(a);
+    }
+
+    @Override
+    public ChannelGroupFuture writeAndFlush(Object msg) {
+        return writeAndFlush(msg, ChannelMatcher.ALL);
+    }
+
+    @Override
+    public ChannelGroupFuture writeAndFlush(Object msg, ChannelMatcher matcher) {
+        if (msg == null) {
+            throw new NullPointerException("msg");
+        }
+        if (matcher == null) {
+            throw new NullPointerException("matcher");
+        }
+        List<SocketChannel> remaining = new ArrayList<>();
+        for (SocketChannel socketChannel : serverChannels.values()) {
+            if (matcher.matches(socketChannel)) {
+                remaining.add(socketChannel);
+            }
+        }
+        ChannelGroupFuture future = new ChannelGroupFuture(this, remaining.size());
+        if (remaining.isEmpty()) {
+            future.complete();
+        }
+        ByteBuf msgBuf = msg instanceof ByteBuf ? (ByteBuf) msg : null;
+        int msgIndex = msgBuf != null ? msgBuf.readerIndex() : 0;
+        int msgLength = msgBuf != null ? msgBuf.readableBytes() : 0;
+        try {
+            //按共享编码阶段及其编码键把通道分批，同一批只编码一次，通常所有通道同属一批
+            while (!remaining.isEmpty()) {
+                SocketChannel template = remaining.get(0);
+                List<ChannelHandlerAdapter> sharedStage = sharedStage(template);
+                List<Object> sharedKeys = sharedKeys(template, sharedStage);
+                List<SocketChannel> recipients = new ArrayList<>(remaining.size());
+                List<SocketChannel> others = new ArrayList<>();
+                for (SocketChannel socketChannel : remaining) {
+                    if (startsWith(socketChannel, sharedStage, sharedKeys)) {
+                        recipients.add(socketChannel);
+                    } else {
+                        others.add(socketChannel);
+                    }
+                }
+                //每批使用消息的一个切片，编码器消费切片不影响其他批次
+                Object batchMsg = msgBuf != null ? msgBuf.retainedSlice(msgIndex, msgLength) : msg;
+                broadcast(template, sharedStage, batchMsg, recipients, future);
+                remaining = others;
+            }
+        } finally {
+            if (msgBuf != null) {
+                msgBuf.release();
+            }
+        }
+        return future;
+    }
+
+    /**
+     * 执行一次共享编码，并把结果分发给同一批的通道
+     *
+     * @param template    模板通道
+     * @param sharedStage 共享编码阶段
+     * @param msg         消息
+     * @param recipients  接收的通道
+     * @param future      汇总结果
+     */
+    private void broadcast(SocketChannel template, List<ChannelHandlerAdapter> sharedStage, Object msg, List<SocketChannel> recipients, ChannelGroupFuture future) {
+        List<Object> encoded;
+        if (sharedStage.isEmpty()) {
+            encoded = new ArrayList<>(1);
+            encoded.add(msg);
+        } else {
+            try {
+                encoded = new EncodeOnceChannel(template, sharedStage).encode(msg);
+            } catch (Exception e) {
+                for (SocketChannel socketChannel : recipients) {
+                    future.setFailure(socketChannel, e);
+                }
+                return;
+            }
+        }
+
+        //编码结果转为可共享的引用计数缓冲区，直接写出的通道各自持有一个切片
+        Object[] parts = encoded.toArray();
+        Object[] sharedParts = new Object[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            sharedParts[i] = toSharedBuffer(template, parts[i]);
+        }
+        try {
+            for (SocketChannel socketChannel : recipients) {
+                if (socketChannel.isInvalid()) {
+                    future.setFailure(socketChannel, new ClosedChannelException());
+                    continue;
+                }
+                if (socketChannel.getConfig() != null && socketChannel.getConfig().isFlowControl() && !socketChannel.isWriteable()) {
+                    future.setFailure(socketChannel, new IllegalStateException("channel is not writable"));
+                    continue;
+                }
+                DefaultChannelPipeline pipeline = socketChannel.getDefaultChannelPipeline();
+                //共享编码阶段之后的第一个处理器，为null时直接写出
+                ChannelHandlerContext next = pipeline.outFirstContext();
+                for (int i = 0; i < sharedStage.size() && next != null; i++) {
+                    next = next.prev();
+                }
+                Delivery delivery = new Delivery(socketChannel, future);
+                try {
+                    for (int i = 0; i < parts.length; i++) {
+                        if (next == null) {
+                            socketChannel.writeToChannelChecked(delivery.track(sharedParts[i]));
+                        } else {
+                            //交给通道私有处理器时保持编码器原本的输出类型
+                            next.invokeEncode(socketChannel, delivery.track(parts[i] instanceof byte[] ? parts[i] : sharedParts[i]));
+                        }
+                    }
+                } catch (Exception e) {
+                    delivery.fail(e);
+                } finally {
+                    delivery.submitted();
+                }
+            }
+        } finally {
+            for (Object part : sharedParts) {
+                if (part instanceof ByteBuf) {
+                    ((ByteBuf) part).release();
+                }
+            }
+        }
+    }
+
+    /**
+     * 单个通道的投递结果。交给通道的每个切片都被释放（写出到网络或被丢弃）后才有结果，
+     * 此时通道已关闭说明数据未能写出。写入抛出异常时立即记为失败，不再等待切片释放
+     */
+    private static final class Delivery implements Runnable {
+
+        private final SocketChannel socketChannel;
+        private final ChannelGroupFuture future;
+        /**
+         * 未释放的切片数，加上尚未提交完的1
+         */
+        private int pending = 1;
+        private Throwable cause;
+        private boolean reported;
+
+        Delivery(SocketChannel socketChannel, ChannelGroupFuture future) {
+            this.socketChannel = socketChannel;
+            this.future = future;
+        }
+
+        /**
+         * 为共享缓冲区生成该通道专用的切片，其他类型的编码结果不跟踪
+         */
+        Object track(Object part) {
+            if (!(part instanceof ByteBuf)) {
+                return part;
+            }
+            synchronized (this) {
+                pending++;
+            }
+            return new TrackedByteBuf((ByteBuf) part, this);
+        }
+
+        synchronized void fail(Throwable cause) {
+            if (this.cause == null) {
+                this.cause = cause;
+            }
+        }
+
+        /**
+         * 所有切片都已交给通道
+         */
+        void submitted() {
+            release(true);
+        }
+
+        @Override
+        public void run() {
+            release(false);
+        }
+
+        private void release(boolean submitted) {
+            Throwable cause;
+            synchronized (this) {
+                //提交时已失败则立即报告，切片可能已不会再被释放
+                if (--pending != 0 && !(submitted && this.cause != null)) {
+                    return;
+                }
+                cause = this.cause;
+            }
+            report(cause);
+        }
+
+        private void report(Throwable cause) {
+            synchronized (this) {
+                if (reported) {
+                    return;
+                }
+                reported = true;
+            }
+            if (cause == null && socketChannel.isInvalid()) {
+                cause = new ClosedChannelException();
+            }
+            if (cause != null) {
+                future.setFailure(socketChannel, cause);
+            } else {
+                future.setSuccess(socketChannel);
+            }
+        }
+    }
+
+    /**
+     * 通道出栈链开头连续的、声明了共享编码键的共享处理器，即可以在编码键相同的通道间只执行一次的编码阶段
+     *
+     * @param socketChannel 通道
+     * @return 按出栈顺序排列的处理器
+     */
+    private static List<ChannelHandlerAdapter> sharedStage(SocketChannel socketChannel) {
+        List<ChannelHandlerAdapter> sharedStage = new ArrayList<>(4);
+        DefaultChannelPipeline pipeline = socketChannel.getDefaultChannelPipeline();
+        ChannelHandlerContext ctx = pipeline.outFirstContext();
+        while (ctx != null && sharedKey(socketChannel, ctx.handler()) != null) {
+            sharedStage.add(ctx.handler());
+            ctx = ctx.prev();
+        }
+        return sharedStage;
+    }
+
+    /**
+     * 共享编码阶段中各处理器在指定通道上的编码键
+     */
+    private static List<Object> sharedKeys(SocketChannel socketChannel, List<ChannelHandlerAdapter> sharedStage) {
+        List<Object> sharedKeys = new ArrayList<>(sharedStage.size());
+        for (ChannelHandlerAdapter stage : sharedStage) {
+            sharedKeys.add(sharedKey(socketChannel, stage));
+        }
+        return sharedKeys;
+    }
+
+    /**
+     * 处理器在指定通道上的共享编码键，非共享处理器或输出依赖通道时为null
+     */
+    private static Object sharedKey(SocketChannel socketChannel, ChannelHandlerAdapter channelHandlerAdapter) {
+        return channelHandlerAdapter.isSharable() ? channelHandlerAdapter.sharedEncodingKey(socketChannel) : null;
+    }
+
+    /**
+     * 通道的出栈链是否以指定的共享编码阶段开头，且各处理器的编码键都相同
+     */
+    private static boolean startsWith(SocketChannel socketChannel, List<ChannelHandlerAdapter> sharedStage, List<Object> sharedKeys) {
+        DefaultChannelPipeline pipeline = socketChannel.getDefaultChannelPipeline();
+        ChannelHandlerContext ctx = pipeline.outFirstContext();
+        for (int i = 0; i < sharedStage.size(); i++) {
+            if (ctx == null || ctx.handler() != sharedStage.get(i) || !sharedKeys.get(i).equals(sharedKey(socketChannel, ctx.handler()))) {
+                return false;
+            }
+            ctx = ctx.prev();
+        }
+        //共享阶段之后紧跟的可共享处理器也必须一致，否则应属于另一批
+        return ctx == null || sharedKey(socketChannel, ctx.handler()) == null;
+    }
+
+    /**
+     * byte[]包装为堆缓冲区，不复制数据，以便各通道共用同一份编码结果
+     */
+    private static Object toSharedBuffer(SocketChannel template, Object encoded) {
+        if (encoded instanceof byte[] && template.getByteBufAllocator() != null) {
+            byte[] bytes = (byte[]) encoded;
+            return new UnpooledHeapByteBuf(template.getByteBufAllocator(), bytes, bytes.length);
+        }
+        return encoded;
     }
 
     @Override
@@ -151,7 +429,31 @@ public class DefaultChannelGroup extends AbstractSet<SocketChannel> implements C
 
     @Override
     public Iterator<SocketChannel> iterator() {
-        return serverChannels.values().iterator();
+        //遍历的是快照，remove时同步从组中移除
+        final Iterator<SocketChannel> iterator = serverChannels.values().iterator();
+        return new Iterator<SocketChannel>() {
+            private SocketChannel current;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public SocketChannel next() {
+                current = iterator.next();
+                return current;
+            }
+
+            @Override
+            public void remove() {
+                if (current == null) {
+                    throw new IllegalStateException();
+                }
+                DefaultChannelGroup.this.remove(current);
+                current = null;
+            }
+        };
     }
 
     @Override
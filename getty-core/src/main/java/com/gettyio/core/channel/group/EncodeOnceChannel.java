@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.channel.group;
+
+import com.gettyio.core.channel.ChannelState;
+import com.gettyio.core.channel.SocketChannel;
+import com.gettyio.core.pipeline.ChannelHandlerAdapter;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * EncodeOnceChannel.java
+ *
+ * @description:广播时用于执行共享编码阶段的通道，不对应真实连接。
+ * 责任链中只包含共享的编码器，编码结果在到达通道输出时被截获，供组内所有通道共用。
+ * 分配器、配置和属性取自模板通道，保证编码器看到的通道状态与真实通道一致
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+final class EncodeOnceChannel extends SocketChannel {
+
+    private final SocketChannel template;
+    /**
+     * 编码结果，一条消息可能被编码为多段输出
+     */
+    private final List<Object> encoded = new ArrayList<>(1);
+
+    /**
+     * 构造方法
+     *
+     * @param template    模板通道
+     * @param sharedStage 共享编码阶段，按出栈顺序排列
+     */
+    EncodeOnceChannel(SocketChannel template, List<ChannelHandlerAdapter> sharedStage) {
+        this.template = template;
+        this.byteBufAllocator = template.getByteBufAllocator();
+        this.config = template.getConfig();
+        this.channelAttribute = template.getChannelAttribute();
+        //出栈从链尾开始，倒序加入才能保持与模板通道相同的顺序
+        for (int i = sharedStage.size() - 1; i >= 0; i--) {
+            getDefaultChannelPipeline().addLast(sharedStage.get(i));
+        }
+    }
+
+    /**
+     * 执行共享编码阶段
+     *
+     * @param obj 消息
+     * @return 按顺序排列的编码结果，编码器没有输出时为空
+     * @throws Exception 异常
+     */
+    List<Object> encode(Object obj) throws Exception {
+        encoded.clear();
+        reverseInvokePipeline(ChannelState.CHANNEL_WRITE, obj);
+        List<Object> result = new ArrayList<>(encoded);
+        encoded.clear();
+        return result;
+    }
+
+    @Override
+    public void writeToChannel(Object obj) {
+        encoded.add(obj);
+    }
+
+    /**
+     * 编码器直接调用writeAndFlush写出的数据同样作为编码结果，由各通道按顺序写出
+     */
+    @Override
+    public boolean writeAndFlush(Object obj) {
+        encoded.add(obj);
+        return true;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void close(boolean initiateClose) {
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() throws IOException {
+        return template.getLocalAddress();
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() throws IOException {
+        return template.getRemoteAddress();
+    }
+}
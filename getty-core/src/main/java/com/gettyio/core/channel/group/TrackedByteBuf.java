@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.channel.group;
+
+import com.gettyio.core.buffer.IllegalReferenceCountException;
+import com.gettyio.core.buffer.buffer.ByteBuf;
+import com.gettyio.core.buffer.buffer.SlicedByteBuf;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TrackedByteBuf.java
+ *
+ * @description:广播时交给单个通道的编码结果切片。切片有独立的引用计数，
+ * 通道写出或丢弃后释放到0时，归还对共享编码结果的引用并通知该通道的投递结果
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+final class TrackedByteBuf extends SlicedByteBuf {
+
+    private final AtomicInteger refCnt = new AtomicInteger(1);
+    private final Runnable onRelease;
+
+    /**
+     * 构造方法，会增加共享编码结果的引用计数
+     *
+     * @param buffer    共享的编码结果
+     * @param onRelease 切片释放到0时的回调
+     */
+    TrackedByteBuf(ByteBuf buffer, Runnable onRelease) {
+        super(buffer.retain(), buffer.readerIndex(), buffer.readableBytes());
+        this.onRelease = onRelease;
+    }
+
+    @Override
+    public int refCnt() {
+        return refCnt.get();
+    }
+
+    @Override
+    public ByteBuf retain() {
+        return retain(1);
+    }
+
+    @Override
+    public ByteBuf retain(int increment) {
+        for (; ; ) {
+            int current = refCnt.get();
+            if (current <= 0 || current > Integer.MAX_VALUE - increment) {
+                throw new IllegalReferenceCountException(current, increment);
+            }
+            if (refCnt.compareAndSet(current, current + increment)) {
+                return this;
+            }
+        }
+    }
+
+    @Override
+    public boolean release() {
+        return release(1);
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        for (; ; ) {
+            int current = refCnt.get();
+            if (current < decrement) {
+                throw new IllegalReferenceCountException(current, -decrement);
+            }
+            if (refCnt.compareAndSet(current, current - decrement)) {
+                if (current != decrement) {
+                    return false;
+                }
+                try {
+                    unwrap().release();
+                } finally {
+                    onRelease.run();
+                }
+                return true;
+            }
+        }
+    }
+}
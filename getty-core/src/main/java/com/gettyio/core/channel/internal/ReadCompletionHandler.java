@@ -40,6 +40,15 @@ public class ReadCompletionHandler implements CompletionHandler<Integer, AioChan
         this.workerExecutorService = executorService;
     }
 
+    /**
+     * 在读回调所用的worker线程池中执行任务
+     *
+     * @param task 任务
+     */
+    public void execute(Runnable task) {
+        workerExecutorService.execute(task);
+    }
+
     @Override
     public void completed(final Integer result, final AioChannel aioChannel) {
         //通过多线程形式读取，提高处理效率
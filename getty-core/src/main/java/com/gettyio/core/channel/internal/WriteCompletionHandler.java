@@ -29,15 +29,16 @@ import java.nio.channels.CompletionHandler;
  * @date:2020/4/8
  * @copyright: Copyright by gettyio.com
  */
-public class WriteCompletionHandler implements CompletionHandler<Integer, AioChannel> {
+public class WriteCompletionHandler implements CompletionHandler<Long, AioChannel> {
     private static final InternalLogger LOGGER = InternalLoggerFactory.getInstance(WriteCompletionHandler.class);
 
     @Override
-    public void completed(final Integer result, final AioChannel aioChannel) {
+    public void completed(final Long result, final AioChannel aioChannel) {
         try {
-            aioChannel.writeCompleted();
+            aioChannel.writeCompleted(result);
         } catch (Exception e) {
-            failed(e, aioChannel);
+            LOGGER.error(e.getMessage(), e);
+            aioChannel.close();
         }
 
     }
@@ -45,7 +46,7 @@ public class WriteCompletionHandler implements CompletionHandler<Integer, AioCha
     @Override
     public void failed(Throwable exc, AioChannel aioChannel) {
         try {
-            aioChannel.close();
+            aioChannel.writeFailed(exc);
         } catch (Exception e) {
             LOGGER.error(e.getMessage(), e);
         }
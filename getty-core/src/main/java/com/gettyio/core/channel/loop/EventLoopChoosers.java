@@ -0,0 +1,121 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.channel.loop;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * EventLoopChoosers.java
+ *
+ * @description:内置的事件循环选择策略
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public final class EventLoopChoosers {
+
+    private EventLoopChoosers() {
+    }
+
+    /**
+     * 轮询，连接生命周期相近时最均匀
+     *
+     * @return EventLoopChooser
+     */
+    public static EventLoopChooser roundRobin() {
+        return new RoundRobinChooser();
+    }
+
+    /**
+     * 选择当前连接数最少的loop，适合长短连接混杂的场景
+     *
+     * @return EventLoopChooser
+     */
+    public static EventLoopChooser leastConnections() {
+        return new LeastConnectionsChooser();
+    }
+
+    /**
+     * 选择当前待写出字节数最少的loop，字节数相同时比较连接数
+     *
+     * @return EventLoopChooser
+     */
+    public static EventLoopChooser leastPendingBytes() {
+        return new LeastPendingBytesChooser();
+    }
+
+
+    private static final class RoundRobinChooser implements EventLoopChooser {
+
+        private final AtomicInteger index = new AtomicInteger();
+
+        @Override
+        public NioEventLoop choose(NioEventLoop[] eventLoops) {
+            return eventLoops[Math.abs(index.getAndIncrement() % eventLoops.length)];
+        }
+    }
+
+    private static final class LeastConnectionsChooser implements EventLoopChooser {
+
+        /**
+         * 扫描起点，负载相同时轮流选择，避免总落在第一个loop
+         */
+        private final AtomicInteger index = new AtomicInteger();
+
+        @Override
+        public NioEventLoop choose(NioEventLoop[] eventLoops) {
+            int start = Math.abs(index.getAndIncrement() % eventLoops.length);
+            NioEventLoop selected = eventLoops[start];
+            int min = selected.getChannelCount();
+            for (int i = 1; i < eventLoops.length; i++) {
+                NioEventLoop eventLoop = eventLoops[(start + i) % eventLoops.length];
+                int count = eventLoop.getChannelCount();
+                if (count < min) {
+                    min = count;
+                    selected = eventLoop;
+                }
+            }
+            return selected;
+        }
+    }
+
+    private static final class LeastPendingBytesChooser implements EventLoopChooser {
+
+        /**
+         * 扫描起点，负载相同时轮流选择，避免总落在第一个loop
+         */
+        private final AtomicInteger index = new AtomicInteger();
+
+        @Override
+        public NioEventLoop choose(NioEventLoop[] eventLoops) {
+            int start = Math.abs(index.getAndIncrement() % eventLoops.length);
+            NioEventLoop selected = eventLoops[start];
+            long minBytes = selected.getPendingBytes();
+            int minCount = selected.getChannelCount();
+            for (int i = 1; i < eventLoops.length; i++) {
+                NioEventLoop eventLoop = eventLoops[(start + i) % eventLoops.length];
+                long bytes = eventLoop.getPendingBytes();
+                int count = eventLoop.getChannelCount();
+                if (bytes < minBytes || (bytes == minBytes && count < minCount)) {
+                    minBytes = bytes;
+                    minCount = count;
+                    selected = eventLoop;
+                }
+            }
+            return selected;
+        }
+    }
+}
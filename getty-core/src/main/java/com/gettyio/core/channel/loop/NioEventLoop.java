@@ -19,15 +19,31 @@ import com.gettyio.core.channel.NioChannel;
 import com.gettyio.core.channel.config.BaseConfig;
 import com.gettyio.core.logging.InternalLogger;
 import com.gettyio.core.logging.InternalLoggerFactory;
+import com.gettyio.core.buffer.allocator.AdaptiveRecvByteBufAllocator;
 import com.gettyio.core.buffer.allocator.ByteBufAllocator;
 import com.gettyio.core.buffer.buffer.ByteBuf;
+import com.gettyio.core.util.MpscLinkedQueue;
 import com.gettyio.core.util.ThreadPool;
+import com.gettyio.core.util.timer.HashedWheelTimer;
+import com.gettyio.core.util.timer.Timeout;
+import com.gettyio.core.util.timer.TimerTask;
 
 import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
@@ -45,7 +61,12 @@ public class NioEventLoop implements EventLoop {
     /**
      * 是否已经关闭
      */
-    private boolean shutdown = false;
+    private volatile boolean shutdown = false;
+
+    /**
+     * 循环线程是否已退出，退出后提交的任务由提交线程执行
+     */
+    private volatile boolean terminated = false;
 
     /**
      * 配置
@@ -66,6 +87,26 @@ public class NioEventLoop implements EventLoop {
      */
     protected ByteBufAllocator byteBufAllocator;
 
+    /**
+     * 事件循环线程
+     */
+    private volatile Thread thread;
+
+    /**
+     * 需要在事件循环线程中执行的任务，如通道注册、写出等，多线程提交，事件循环线程消费
+     */
+    private final Queue<Runnable> taskQueue = new MpscLinkedQueue<>();
+
+    /**
+     * 当前loop负责的连接数
+     */
+    private final AtomicInteger channelCount = new AtomicInteger();
+
+    /**
+     * 当前loop所有连接待写出的字节数
+     */
+    private final AtomicLong pendingBytes = new AtomicLong();
+
 
     /**
      * 构造方法
@@ -91,80 +132,548 @@ public class NioEventLoop implements EventLoop {
         workerThreadPool.execute(new Runnable() {
             @Override
             public void run() {
-                while (!shutdown) {
-                    try {
-                        selector.select();
-                    } catch (IOException e) {
-                        LOGGER.error(e);
-                    }
-                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
-                    while (it.hasNext()) {
-                        SelectionKey sk = it.next();
-                        Object obj = sk.attachment();
-                        if (obj instanceof NioChannel) {
-                            NioChannel nioChannel = (NioChannel) obj;
-
-                            java.nio.channels.SocketChannel channel = (java.nio.channels.SocketChannel) sk.channel();
-                            if (sk.isConnectable()) {
-                                //during connecting, finish the connect
-                                if (channel.isConnectionPending()) {
-                                    try {
-                                        channel.finishConnect();
-                                    } catch (IOException e) {
-                                        LOGGER.error(e);
-                                        nioChannel.close();
-                                        break;
-                                    }
-                                }
-                            } else if (sk.isReadable()) {
-
-                                ByteBuf readBuffer = null;
-                                //接收数据
-                                try {
-                                    readBuffer = byteBufAllocator.ioBuffer(config.getReadBufferSize());
-                                    ByteBuffer readByteBuf = readBuffer.nioBuffer(readBuffer.writerIndex(), readBuffer.writableBytes());
-                                    int recCount = channel.read(readByteBuf);
-                                    readBuffer.writerIndex(readBuffer.getNioBuffer().flip().remaining());
-
-                                    if (recCount == -1) {
-                                        readBuffer.release();
-                                        nioChannel.close();
-                                        break;
-                                    }
-                                } catch (Exception e) {
-                                    LOGGER.error(e);
-                                    if (null != readBuffer) {
-                                        readBuffer.release();
-                                    }
-                                    nioChannel.close();
-                                    break;
-                                }
-
-                                //读取缓冲区数据，输送到责任链
-                                while (readBuffer.isReadable()) {
-                                    byte[] bytes = new byte[readBuffer.readableBytes()];
-                                    readBuffer.readBytes(bytes, 0, bytes.length);
-                                    nioChannel.doRead(bytes);
-                                }
-                                //触发读取完成，清理缓冲区
-                                readBuffer.release();
+                thread = Thread.currentThread();
+                try {
+                    while (!shutdown) {
+                        try {
+                            selector.resetWakeup();
+                            if (taskQueue.isEmpty()) {
+                                selector.select();
+                            } else {
+                                //有待执行任务时不阻塞
+                                selector.selectNow();
                             }
+                        } catch (IOException e) {
+                            LOGGER.error(e);
+                        }
+                        SelectedSelectionKeySet selectedKeySet = selector.selectedKeySet();
+                        if (selectedKeySet != null) {
+                            processSelectedKeysOptimized(selectedKeySet);
+                        } else {
+                            processSelectedKeysPlain(selector.selectedKeys());
                         }
+                        runAllTasks();
                     }
-                    it.remove();
+                } finally {
+                    closeAll();
                 }
             }
         });
     }
 
+    /**
+     * 循环线程退出前执行：跑完已提交的任务，关闭所有注册在selector上的通道，
+     * 未完成的连接回调失败，最后关闭selector
+     */
+    private void closeAll() {
+        runAllTasks();
+        for (SelectionKey sk : selector.keys()) {
+            Object obj = sk.attachment();
+            if (obj instanceof PendingConnect) {
+                ((PendingConnect) obj).complete(new ClosedChannelException());
+            } else if (obj instanceof NioTask) {
+                sk.cancel();
+                @SuppressWarnings("unchecked")
+                NioTask<SelectableChannel> task = (NioTask<SelectableChannel>) obj;
+                invokeChannelUnregistered(task, sk, null);
+            } else if (obj instanceof NioChannel) {
+                ((NioChannel) obj).close();
+            } else {
+                sk.cancel();
+                try {
+                    sk.channel().close();
+                } catch (IOException e) {
+                    LOGGER.debug(e.getMessage(), e);
+                }
+            }
+        }
+        //关闭通道时提交的释放任务
+        runAllTasks();
+        synchronized (this) {
+            terminated = true;
+            runAllTasks();
+            try {
+                selector.close();
+            } catch (IOException e) {
+                LOGGER.error("selector close exception", e);
+            }
+        }
+    }
+
+    /**
+     * 按下标处理数组集合中的key，处理完即置空以便GC，最后O(1)重置
+     *
+     * @param selectedKeySet 就绪key集合
+     */
+    private void processSelectedKeysOptimized(SelectedSelectionKeySet selectedKeySet) {
+        for (int i = 0; i < selectedKeySet.size; ++i) {
+            SelectionKey sk = selectedKeySet.keys[i];
+            selectedKeySet.keys[i] = null;
+            processSelectedKey(sk);
+        }
+        selectedKeySet.reset();
+    }
+
+    /**
+     * 遍历JDK默认的就绪key集合，逐个移除
+     *
+     * @param selectedKeys 就绪key集合
+     */
+    private void processSelectedKeysPlain(Set<SelectionKey> selectedKeys) {
+        if (selectedKeys.isEmpty()) {
+            return;
+        }
+        Iterator<SelectionKey> it = selectedKeys.iterator();
+        while (it.hasNext()) {
+            SelectionKey sk = it.next();
+            it.remove();
+            processSelectedKey(sk);
+        }
+    }
+
+    /**
+     * 处理就绪的key
+     *
+     * @param sk SelectionKey
+     */
+    private void processSelectedKey(SelectionKey sk) {
+        Object obj = sk.attachment();
+        if (obj instanceof PendingConnect) {
+            //连接中的通道，OP_CONNECT就绪
+            ((PendingConnect) obj).finishConnect(sk);
+            return;
+        }
+        if (obj instanceof NioTask) {
+            @SuppressWarnings("unchecked")
+            NioTask<SelectableChannel> task = (NioTask<SelectableChannel>) obj;
+            processSelectedKey(sk, task);
+            return;
+        }
+        if (!(obj instanceof NioChannel)) {
+            return;
+        }
+        NioChannel nioChannel = (NioChannel) obj;
+        if (!sk.isValid()) {
+            nioChannel.close();
+            return;
+        }
+
+        //OP_CONNECT只在连接阶段由PendingConnect关注，通道创建后只会有读写事件
+        java.nio.channels.SocketChannel channel = (java.nio.channels.SocketChannel) sk.channel();
+        if (sk.isWritable()) {
+            //socket恢复可写，继续写出积压的数据
+            nioChannel.doWrite();
+            if (!sk.isValid()) {
+                return;
+            }
+        }
+
+        if (sk.isReadable()) {
+            read(nioChannel, channel);
+        }
+    }
+
+    /**
+     * 处理注册的任务，回调异常或通道已失效时取消注册
+     *
+     * @param sk   SelectionKey
+     * @param task 任务
+     */
+    private void processSelectedKey(SelectionKey sk, NioTask<SelectableChannel> task) {
+        Throwable cause = null;
+        try {
+            if (sk.isValid()) {
+                task.channelReady(sk.channel(), sk);
+            }
+        } catch (Throwable t) {
+            sk.cancel();
+            cause = t;
+        }
+        if (!sk.isValid()) {
+            invokeChannelUnregistered(task, sk, cause);
+        }
+    }
+
+    private static void invokeChannelUnregistered(NioTask<SelectableChannel> task, SelectionKey sk, Throwable cause) {
+        try {
+            task.channelUnregistered(sk.channel(), cause);
+        } catch (Throwable t) {
+            LOGGER.error("nio task unregistered exception", t);
+        }
+    }
+
+    /**
+     * 把通道注册到本loop的selector上，事件就绪时在事件循环线程中回调任务。
+     * 用于服务端accept等不由{@link NioChannel}处理的通道
+     *
+     * @param ch          通道，须为非阻塞模式
+     * @param interestOps 关注的事件
+     * @param task        任务
+     * @param <C>         通道类型
+     */
+    public <C extends SelectableChannel> void register(final C ch, final int interestOps, final NioTask<C> task) {
+        if (ch == null) {
+            throw new NullPointerException("ch");
+        }
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        if ((interestOps & ~ch.validOps()) != 0) {
+            throw new IllegalArgumentException("invalid interestOps: " + interestOps + " (validOps: " + ch.validOps() + ')');
+        }
+        if (inEventLoop()) {
+            register0(ch, interestOps, task);
+            return;
+        }
+        try {
+            execute(new Runnable() {
+                @Override
+                public void run() {
+                    register0(ch, interestOps, task);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            try {
+                task.channelUnregistered(ch, e);
+            } catch (Throwable t) {
+                LOGGER.error("nio task unregistered exception", t);
+            }
+        }
+    }
+
+    private <C extends SelectableChannel> void register0(C ch, int interestOps, NioTask<C> task) {
+        try {
+            selector.register(ch, interestOps, task);
+        } catch (Throwable t) {
+            try {
+                task.channelUnregistered(ch, t);
+            } catch (Throwable e) {
+                LOGGER.error("nio task unregistered exception", e);
+            }
+        }
+    }
+
+    /**
+     * 读取数据，直到socket无数据可读或达到单次最大读取次数，读缓冲区大小按实际读取量自适应调整
+     *
+     * @param nioChannel 通道
+     * @param channel    socket通道
+     */
+    private void read(NioChannel nioChannel, java.nio.channels.SocketChannel channel) {
+        AdaptiveRecvByteBufAllocator recvByteBufAllocator = nioChannel.getRecvByteBufAllocator();
+        //按通道自身的配置读取，共享loop上的连接可能来自不同配置的客户端
+        BaseConfig config = nioChannel.getConfig();
+        int maxReads = Math.max(1, config.getMaxReadsPerLoop());
+        for (int i = 0; i < maxReads; i++) {
+            ByteBuf readBuffer = null;
+            int recCount;
+            //接收数据
+            try {
+                readBuffer = recvByteBufAllocator.allocate(byteBufAllocator);
+                ByteBuffer readByteBuf = readBuffer.nioBuffer(readBuffer.writerIndex(), readBuffer.writableBytes());
+                recCount = channel.read(readByteBuf);
+            } catch (Exception e) {
+                LOGGER.error(e);
+                if (null != readBuffer) {
+                    readBuffer.release();
+                }
+                nioChannel.close();
+                return;
+            }
+
+            if (recCount == -1) {
+                readBuffer.release();
+                nioChannel.close();
+                return;
+            }
+            if (recCount == 0) {
+                //已无数据可读
+                readBuffer.release();
+                return;
+            }
+            readBuffer.writerIndex(readBuffer.writerIndex() + recCount);
+            int capacity = readBuffer.capacity();
+            recvByteBufAllocator.record(recCount);
+
+            if (config.isByteBufInbound()) {
+                //零拷贝模式，池化缓冲区直接输送到责任链
+                nioChannel.doRead(readBuffer);
+            } else {
+                //读取缓冲区数据，输送到责任链
+                while (readBuffer.isReadable()) {
+                    byte[] bytes = new byte[readBuffer.readableBytes()];
+                    readBuffer.readBytes(bytes, 0, bytes.length);
+                    nioChannel.doRead(bytes);
+                }
+            }
+            //触发读取完成，释放通道持有的引用
+            readBuffer.release();
+
+            if (nioChannel.isInvalid() || recCount < capacity) {
+                //通道已关闭，或未读满说明socket缓冲区已读空
+                return;
+            }
+        }
+    }
+
+    /**
+     * 发起非阻塞连接，在本loop的selector上关注OP_CONNECT，连接完成、失败或超时后回调。
+     * 成功时通道已取消关注所有事件，由调用方创建NioChannel并注册读事件；失败时通道已关闭。
+     * 回调在事件循环线程中执行，不能阻塞
+     *
+     * @param channel        socket通道
+     * @param remoteAddress  远程地址
+     * @param connectTimeout 连接超时时间，毫秒，小于等于0表示不限制，超时由共享时间轮检测
+     * @param handler        回调
+     */
+    public void connect(final java.nio.channels.SocketChannel channel, final SocketAddress remoteAddress, final long connectTimeout, final CompletionHandler<Void, java.nio.channels.SocketChannel> handler) {
+        if (handler == null) {
+            throw new NullPointerException("handler");
+        }
+        if (inEventLoop()) {
+            connect0(channel, remoteAddress, connectTimeout, handler);
+            return;
+        }
+        try {
+            execute(new Runnable() {
+                @Override
+                public void run() {
+                    connect0(channel, remoteAddress, connectTimeout, handler);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            //loop已关闭，连接直接失败
+            new PendingConnect(channel, handler).complete(e);
+        }
+    }
+
+    private void connect0(java.nio.channels.SocketChannel channel, final SocketAddress remoteAddress, long connectTimeout, CompletionHandler<Void, java.nio.channels.SocketChannel> handler) {
+        final PendingConnect pendingConnect = new PendingConnect(channel, handler);
+        try {
+            channel.configureBlocking(false);
+            if (channel.connect(remoteAddress)) {
+                //本地连接可能立即完成
+                pendingConnect.complete(null);
+                return;
+            }
+            selector.register(channel, SelectionKey.OP_CONNECT, pendingConnect);
+        } catch (Throwable t) {
+            pendingConnect.complete(t);
+            return;
+        }
+        if (connectTimeout > 0) {
+            pendingConnect.timeout = HashedWheelTimer.sharedTimer().newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout timeout) throws Exception {
+                    try {
+                        execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                pendingConnect.complete(new ConnectException("connection timed out: " + remoteAddress));
+                            }
+                        });
+                    } catch (RejectedExecutionException e) {
+                        //loop关闭时未完成的连接已在循环线程退出前回调失败
+                        LOGGER.debug(e.getMessage(), e);
+                    }
+                }
+            }, connectTimeout, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 等待OP_CONNECT的连接，只在事件循环线程中访问
+     */
+    private final class PendingConnect {
+
+        private final java.nio.channels.SocketChannel channel;
+        private final CompletionHandler<Void, java.nio.channels.SocketChannel> handler;
+        /**
+         * 超时检测
+         */
+        private Timeout timeout;
+        private boolean done;
+
+        PendingConnect(java.nio.channels.SocketChannel channel, CompletionHandler<Void, java.nio.channels.SocketChannel> handler) {
+            this.channel = channel;
+            this.handler = handler;
+        }
+
+        void finishConnect(SelectionKey sk) {
+            if (!sk.isValid()) {
+                complete(new ClosedChannelException());
+                return;
+            }
+            try {
+                if (!channel.finishConnect()) {
+                    return;
+                }
+            } catch (Throwable t) {
+                complete(t);
+                return;
+            }
+            complete(null);
+        }
+
+        /**
+         * 完成连接，只回调一次
+         *
+         * @param cause 失败原因，成功为null
+         */
+        void complete(Throwable cause) {
+            if (done) {
+                return;
+            }
+            done = true;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+            if (cause == null) {
+                SelectionKey key = channel.keyFor(selector.getSelector());
+                if (key != null && key.isValid()) {
+                    //连接已建立，不再关注OP_CONNECT，后续由NioChannel注册读事件
+                    key.interestOps(0);
+                }
+            } else {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    LOGGER.debug(e.getMessage(), e);
+                }
+            }
+            try {
+                if (cause == null) {
+                    handler.completed(null, channel);
+                } else {
+                    handler.failed(cause, channel);
+                }
+            } catch (Throwable t) {
+                LOGGER.error("connect handler exception", t);
+            }
+        }
+    }
+
+    /**
+     * 执行队列中的任务
+     */
+    private void runAllTasks() {
+        Runnable task;
+        while ((task = taskQueue.poll()) != null) {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                LOGGER.error("event loop task exception", t);
+            }
+        }
+    }
+
+    /**
+     * 当前线程是否为事件循环线程
+     *
+     * @return boolean
+     */
+    public boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * 提交任务到事件循环线程执行，loop关闭后拒绝
+     *
+     * @param task 任务
+     * @throws RejectedExecutionException loop已关闭
+     */
+    public void execute(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        if (shutdown) {
+            throw new RejectedExecutionException("event loop has been shutdown");
+        }
+        addTask(task);
+    }
+
+    /**
+     * 提交释放资源的任务。与{@link #execute(Runnable)}不同，loop关闭后不拒绝：
+     * 循环线程退出前执行，循环线程已退出时在当前线程执行
+     *
+     * @param task 任务
+     */
+    public void executeRelease(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        addTask(task);
+    }
+
+    private void addTask(Runnable task) {
+        taskQueue.offer(task);
+        if (terminated) {
+            //循环线程已退出，不会再消费队列
+            synchronized (this) {
+                runAllTasks();
+            }
+        } else if (!inEventLoop()) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * 连接数+1
+     */
+    public void incrementChannelCount() {
+        channelCount.incrementAndGet();
+    }
+
+    /**
+     * 连接数-1
+     */
+    public void decrementChannelCount() {
+        channelCount.decrementAndGet();
+    }
+
+    /**
+     * 累加待写出字节数，写出后传入负数
+     *
+     * @param delta 变化量
+     */
+    public void addPendingBytes(long delta) {
+        pendingBytes.addAndGet(delta);
+    }
+
+    public int getChannelCount() {
+        return channelCount.get();
+    }
+
+    public long getPendingBytes() {
+        return pendingBytes.get();
+    }
+
     @Override
     public void shutdown() {
         shutdown = true;
+        //唤醒阻塞中的select，使循环线程及时退出并关闭所有通道
+        selector.wakeup();
         if (!workerThreadPool.isShutDown()) {
             workerThreadPool.shutdown();
         }
     }
 
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * 等待循环线程退出，即所有通道已关闭、selector已关闭
+     *
+     * @param timeout 超时时间
+     * @param unit    时间单位
+     * @return 是否已退出
+     * @throws InterruptedException 等待被中断
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return workerThreadPool.awaitTermination(timeout, unit);
+    }
+
     @Override
     public SelectedSelector getSelector() {
         return selector;
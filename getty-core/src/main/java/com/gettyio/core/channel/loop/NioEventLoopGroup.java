@@ -0,0 +1,163 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.channel.loop;
+
+import com.gettyio.core.buffer.allocator.ByteBufAllocator;
+import com.gettyio.core.channel.config.BaseConfig;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NioEventLoopGroup.java
+ *
+ * @description:nio事件循环组，每个loop拥有独立的selector和线程，新连接按选择策略分配到某个loop
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public class NioEventLoopGroup {
+
+    /**
+     * loop集合
+     */
+    private final NioEventLoop[] eventLoops;
+
+    /**
+     * 选择策略
+     */
+    private final EventLoopChooser chooser;
+
+    /**
+     * 构造方法，默认轮询
+     *
+     * @param nThreads         loop数量
+     * @param config           配置
+     * @param byteBufAllocator 内存池
+     */
+    public NioEventLoopGroup(int nThreads, BaseConfig config, ByteBufAllocator byteBufAllocator) {
+        this(nThreads, config, byteBufAllocator, EventLoopChoosers.roundRobin());
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param nThreads         loop数量
+     * @param config           配置
+     * @param byteBufAllocator 内存池
+     * @param chooser          选择策略
+     */
+    public NioEventLoopGroup(int nThreads, BaseConfig config, ByteBufAllocator byteBufAllocator, EventLoopChooser chooser) {
+        if (nThreads <= 0) {
+            throw new IllegalArgumentException("nThreads: " + nThreads + " (expected: > 0)");
+        }
+        if (chooser == null) {
+            throw new NullPointerException("chooser");
+        }
+        this.chooser = chooser;
+        this.eventLoops = new NioEventLoop[nThreads];
+        for (int i = 0; i < nThreads; i++) {
+            eventLoops[i] = new NioEventLoop(config, byteBufAllocator);
+        }
+    }
+
+    /**
+     * 启动所有loop
+     */
+    public void run() {
+        for (NioEventLoop eventLoop : eventLoops) {
+            eventLoop.run();
+        }
+    }
+
+    /**
+     * 按选择策略获取下一个loop
+     *
+     * @return NioEventLoop
+     */
+    public NioEventLoop next() {
+        if (eventLoops.length == 1) {
+            return eventLoops[0];
+        }
+        return chooser.choose(eventLoops);
+    }
+
+    /**
+     * 关闭所有loop
+     */
+    public void shutdown() {
+        for (NioEventLoop eventLoop : eventLoops) {
+            eventLoop.shutdown();
+        }
+    }
+
+    /**
+     * 等待所有loop退出，在loop线程中调用时跳过当前loop
+     *
+     * @param timeout 超时时间
+     * @param unit    时间单位
+     * @return 是否全部已退出
+     * @throws InterruptedException 等待被中断
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean terminated = true;
+        for (NioEventLoop eventLoop : eventLoops) {
+            if (eventLoop.inEventLoop()) {
+                terminated = false;
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || !eventLoop.awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return terminated;
+    }
+
+    /**
+     * 所有loop的连接总数
+     *
+     * @return int
+     */
+    public int getChannelCount() {
+        int count = 0;
+        for (NioEventLoop eventLoop : eventLoops) {
+            count += eventLoop.getChannelCount();
+        }
+        return count;
+    }
+
+    /**
+     * 所有loop的待写出字节总数
+     *
+     * @return long
+     */
+    public long getPendingBytes() {
+        long bytes = 0;
+        for (NioEventLoop eventLoop : eventLoops) {
+            bytes += eventLoop.getPendingBytes();
+        }
+        return bytes;
+    }
+
+    public NioEventLoop[] getEventLoops() {
+        return eventLoops.clone();
+    }
+
+    public EventLoopChooser getChooser() {
+        return chooser;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.channel.loop;
+
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+
+/**
+ * NioTask.java
+ *
+ * @description:注册到事件循环上的非连接通道的事件处理，如服务端的accept，所有回调都在事件循环线程中执行，不能阻塞
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public interface NioTask<C extends SelectableChannel> {
+
+    /**
+     * 关注的事件就绪
+     *
+     * @param ch  通道
+     * @param key SelectionKey
+     * @throws Exception 异常，抛出后通道从事件循环上取消注册
+     */
+    void channelReady(C ch, SelectionKey key) throws Exception;
+
+    /**
+     * 通道已从事件循环上取消注册，事件循环关闭时同样会回调
+     *
+     * @param ch    通道
+     * @param cause 原因，正常取消时为null
+     * @throws Exception 异常
+     */
+    void channelUnregistered(C ch, Throwable cause) throws Exception;
+}
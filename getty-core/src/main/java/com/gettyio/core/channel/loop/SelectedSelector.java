@@ -17,8 +17,11 @@ package com.gettyio.core.channel.loop;
 
 import com.gettyio.core.logging.InternalLogger;
 import com.gettyio.core.logging.InternalLoggerFactory;
+import com.gettyio.core.util.PlatformDependent;
+import com.gettyio.core.util.SystemPropertyUtil;
 
 import java.io.IOException;
+import java.lang.reflect.Field;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
@@ -26,6 +29,7 @@ import java.nio.channels.Selector;
 import java.nio.channels.spi.SelectorProvider;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 类名：SelectorHelper
@@ -40,9 +44,15 @@ public class SelectedSelector extends Selector {
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(SelectedSelector.class);
 
     /**
-     * 线程同步标志
+     * 是否关闭就绪key集合优化，通过-Dgetty.noKeySetOptimization=true关闭
      */
-    private volatile boolean mark = false;
+    private static final boolean DISABLE_KEY_SET_OPTIMIZATION = SystemPropertyUtil.getBoolean("getty.noKeySetOptimization", false);
+
+    /**
+     * 是否被主动唤醒，唤醒后select()需要立即返回，以便事件循环执行任务。
+     * 多个线程同时唤醒时只调用一次selector.wakeup()
+     */
+    private final AtomicBoolean wakenUp = new AtomicBoolean();
 
     /**
      * 如果空轮询的次数超过了512次，就认为其触发了空轮询bug
@@ -64,8 +74,53 @@ public class SelectedSelector extends Selector {
      */
     private Selector selector;
 
+    /**
+     * 注入到selector中的就绪key集合，为null表示未能优化，使用JDK默认的HashSet
+     */
+    private SelectedSelectionKeySet selectedKeySet;
+
     public SelectedSelector(Selector selector) {
         this.selector = selector;
+        this.selectedKeySet = optimize(selector);
+    }
+
+    /**
+     * 用数组实现的集合替换JDK selector内部的selectedKeys，反射不可用时(如JDK9+未开放sun.nio.ch)返回null
+     *
+     * @param selector 多路复用器
+     * @return SelectedSelectionKeySet
+     */
+    private static SelectedSelectionKeySet optimize(Selector selector) {
+        if (DISABLE_KEY_SET_OPTIMIZATION) {
+            return null;
+        }
+        try {
+            Class<?> selectorImplClass = Class.forName("sun.nio.ch.SelectorImpl", false, PlatformDependent.getSystemClassLoader());
+            if (!selectorImplClass.isAssignableFrom(selector.getClass())) {
+                return null;
+            }
+            Field selectedKeysField = selectorImplClass.getDeclaredField("selectedKeys");
+            Field publicSelectedKeysField = selectorImplClass.getDeclaredField("publicSelectedKeys");
+            selectedKeysField.setAccessible(true);
+            publicSelectedKeysField.setAccessible(true);
+
+            SelectedSelectionKeySet keySet = new SelectedSelectionKeySet();
+            selectedKeysField.set(selector, keySet);
+            publicSelectedKeysField.set(selector, keySet);
+            return keySet;
+        } catch (Throwable t) {
+            logger.debug("failed to instrument a special java.util.Set into: " + selector, t);
+            return null;
+        }
+    }
+
+    /**
+     * 获取优化后的就绪key集合
+     *
+     * @return 未优化时返回null
+     */
+    SelectedSelectionKeySet selectedKeySet() {
+        return selectedKeySet;
     }
 
     public Selector getSelector() {
@@ -73,27 +128,19 @@ public class SelectedSelector extends Selector {
     }
 
     /**
-     * 同步， 保证多个线程调用register不会出现问题
+     * 注册通道，只允许在事件循环线程中调用，其他线程请通过{@link NioEventLoop#execute(Runnable)}提交
      *
      * @param channel
      * @param op
      * @return
      * @throws ClosedChannelException
      */
-    public synchronized SelectionKey register(SelectableChannel channel, int op) throws ClosedChannelException {
-        mark = true;
-        selector.wakeup();
-        SelectionKey register = channel.register(selector, op);
-        mark = false;
-        return register;
+    public SelectionKey register(SelectableChannel channel, int op) throws ClosedChannelException {
+        return channel.register(selector, op);
     }
 
-    public synchronized SelectionKey register(SelectableChannel channel, int op, Object att) throws ClosedChannelException {
-        mark = true;
-        selector.wakeup();
-        SelectionKey register = channel.register(selector, op, att);
-        mark = false;
-        return register;
+    public SelectionKey register(SelectableChannel channel, int op, Object att) throws ClosedChannelException {
+        return channel.register(selector, op, att);
     }
 
     @Override
@@ -132,13 +179,14 @@ public class SelectedSelector extends Selector {
         long currentTimeNanos = System.nanoTime();
 
         for (; ; ) {
-            if (mark) {
-                continue;
-            }
             int select = selector.select(timeoutMillis);
             if (select >= 1) {
                 return select;
             }
+            if (wakenUp.get()) {
+                //主动唤醒，不计入空轮询
+                return select;
+            }
             //计数器+1
             selectCnt++;
             long time = System.nanoTime();
@@ -157,7 +205,18 @@ public class SelectedSelector extends Selector {
 
     @Override
     public Selector wakeup() {
-        return selector.wakeup();
+        if (wakenUp.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+        return this;
+    }
+
+    /**
+     * 重置唤醒标志，由事件循环在检查任务队列之前调用，
+     * 保证之后提交的任务一定会再次唤醒selector
+     */
+    public void resetWakeup() {
+        wakenUp.set(false);
     }
 
     @Override
@@ -208,6 +267,7 @@ public class SelectedSelector extends Selector {
         }
 
         selector = newSelectorTuple;
+        selectedKeySet = optimize(newSelectorTuple);
         //关掉旧的selector
         try {
             oldSelector.close();
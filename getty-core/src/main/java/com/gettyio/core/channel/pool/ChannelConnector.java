@@ -0,0 +1,36 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.channel.pool;
+
+import com.gettyio.core.channel.starter.ConnectHandler;
+
+/**
+ * ChannelConnector.java
+ *
+ * @description:连接池建立新连接的方式，内置实现见{@link ChannelConnectors}
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public interface ChannelConnector {
+
+    /**
+     * 建立一个新连接，成功或失败都必须回调，开启了SSL时应在握手完成后才回调成功
+     *
+     * @param connectHandler 回调
+     */
+    void connect(ConnectHandler connectHandler);
+}
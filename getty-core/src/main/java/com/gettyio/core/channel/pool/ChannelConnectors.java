@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.channel.pool;
+
+import com.gettyio.core.channel.config.ClientConfig;
+import com.gettyio.core.channel.starter.AioClientStarter;
+import com.gettyio.core.channel.starter.ClientResources;
+import com.gettyio.core.channel.starter.ConnectHandler;
+import com.gettyio.core.channel.starter.NioClientStarter;
+import com.gettyio.core.pipeline.ChannelPipeline;
+
+/**
+ * ChannelConnectors.java
+ *
+ * @description:内置的连接方式，每个连接由一个共用{@link ClientResources}的客户端建立，连接再多也不会额外创建线程和内存池
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public final class ChannelConnectors {
+
+    private ChannelConnectors() {
+    }
+
+    /**
+     * 通过NioClientStarter建立连接
+     *
+     * @param clientConfig    客户端配置
+     * @param channelPipeline 责任链
+     * @param clientResources 共享资源
+     * @return ChannelConnector
+     */
+    public static ChannelConnector nio(final ClientConfig clientConfig, final ChannelPipeline channelPipeline, final ClientResources clientResources) {
+        checkArgs(clientConfig, channelPipeline, clientResources);
+        return new ChannelConnector() {
+            @Override
+            public void connect(ConnectHandler connectHandler) {
+                new NioClientStarter(clientConfig).channelInitializer(channelPipeline).clientResources(clientResources).start(connectHandler);
+            }
+        };
+    }
+
+    /**
+     * 通过AioClientStarter建立连接
+     *
+     * @param clientConfig    客户端配置
+     * @param channelPipeline 责任链
+     * @param clientResources 共享资源
+     * @return ChannelConnector
+     */
+    public static ChannelConnector aio(final ClientConfig clientConfig, final ChannelPipeline channelPipeline, final ClientResources clientResources) {
+        checkArgs(clientConfig, channelPipeline, clientResources);
+        return new ChannelConnector() {
+            @Override
+            public void connect(ConnectHandler connectHandler) {
+                new AioClientStarter(clientConfig).channelInitializer(channelPipeline).clientResources(clientResources).start(connectHandler);
+            }
+        };
+    }
+
+    private static void checkArgs(ClientConfig clientConfig, ChannelPipeline channelPipeline, ClientResources clientResources) {
+        if (clientConfig == null) {
+            throw new NullPointerException("clientConfig");
+        }
+        if (channelPipeline == null) {
+            throw new NullPointerException("channelPipeline");
+        }
+        if (clientResources == null) {
+            throw new NullPointerException("clientResources");
+        }
+    }
+}
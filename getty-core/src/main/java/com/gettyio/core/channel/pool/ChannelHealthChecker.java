@@ -0,0 +1,49 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.channel.pool;
+
+import com.gettyio.core.channel.SocketChannel;
+
+/**
+ * ChannelHealthChecker.java
+ *
+ * @description:连接健康检查，可在实现中发送心跳(ping)并根据响应判断连接是否可用。
+ * 定期检查在连接池的健康检查线程池中执行，不占用定时器线程；testOnAcquire和testOnRelease的检查在调用acquire、release的线程中执行
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public interface ChannelHealthChecker {
+
+    /**
+     * 只检查通道是否仍然打开
+     */
+    ChannelHealthChecker ACTIVE = new ChannelHealthChecker() {
+        @Override
+        public boolean isHealthy(SocketChannel channel) {
+            return !channel.isInvalid();
+        }
+    };
+
+    /**
+     * 连接是否健康，返回false或抛出异常的连接会被关闭并移出连接池
+     *
+     * @param channel 通道
+     * @return boolean
+     * @throws Exception 异常
+     */
+    boolean isHealthy(SocketChannel channel) throws Exception;
+}
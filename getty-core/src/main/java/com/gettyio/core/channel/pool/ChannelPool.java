@@ -0,0 +1,759 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.channel.pool;
+
+import com.gettyio.core.channel.SocketChannel;
+import com.gettyio.core.channel.starter.ConnectHandler;
+import com.gettyio.core.logging.InternalLogger;
+import com.gettyio.core.logging.InternalLoggerFactory;
+import com.gettyio.core.util.ConcurrentLongHashMap;
+import com.gettyio.core.util.timer.HashedWheelTimer;
+import com.gettyio.core.util.timer.Timeout;
+import com.gettyio.core.util.timer.Timer;
+import com.gettyio.core.util.timer.TimerTask;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ChannelPool.java
+ *
+ * @description:客户端连接池。连接由{@link ChannelConnector}建立，借出时优先复用最近归还的连接，开启SSL时复用的是已完成握手的连接。
+ * 借出的连接用完后必须调用{@link #release(SocketChannel)}归还，即使连接已经关闭，否则占用的名额不会释放
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public class ChannelPool {
+
+    private static final InternalLogger LOGGER = InternalLoggerFactory.getInstance(ChannelPool.class);
+
+    /**
+     * 连接方式
+     */
+    private final ChannelConnector channelConnector;
+    /**
+     * 配置
+     */
+    private final ChannelPoolConfig config;
+    /**
+     * 健康检查
+     */
+    private final ChannelHealthChecker healthChecker;
+    /**
+     * 维护任务定时器
+     */
+    private final Timer timer;
+    /**
+     * 定期健康检查的执行线程池，定时器只负责调度，检查可能阻塞，不能占用定时器线程
+     */
+    private final Executor healthCheckExecutor;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * 有连接归还或名额释放时通知等待者
+     */
+    private final Condition available = lock.newCondition();
+    /**
+     * 空闲连接，头部为最近归还的连接，由lock保护
+     */
+    private final ArrayDeque<PooledEntry> idleEntries = new ArrayDeque<>();
+    /**
+     * 池中所有已建立的连接，按通道id索引
+     */
+    private final ConcurrentLongHashMap<PooledEntry> entries = new ConcurrentLongHashMap<>();
+    /**
+     * 连接总数，包含已借出、空闲和正在建立的连接，由lock保护
+     */
+    private int totalCount;
+    /**
+     * 后台补充中的连接数，由lock保护
+     */
+    private int pendingCount;
+    /**
+     * 移出空闲队列正在做健康检查的连接数，补充空闲连接时视同空闲，由lock保护
+     */
+    private int checkingCount;
+
+    /**
+     * 是否已关闭
+     */
+    private volatile boolean closed;
+
+    private volatile Timeout maintenanceTimeout;
+
+    /**
+     * 构造方法，只检查通道是否打开
+     *
+     * @param channelConnector 连接方式
+     * @param config           配置
+     */
+    public ChannelPool(ChannelConnector channelConnector, ChannelPoolConfig config) {
+        this(channelConnector, config, ChannelHealthChecker.ACTIVE);
+    }
+
+    /**
+     * 构造方法，维护任务使用共享时间轮
+     *
+     * @param channelConnector 连接方式
+     * @param config           配置
+     * @param healthChecker    健康检查
+     */
+    public ChannelPool(ChannelConnector channelConnector, ChannelPoolConfig config, ChannelHealthChecker healthChecker) {
+        this(channelConnector, config, healthChecker, HashedWheelTimer.sharedTimer());
+    }
+
+    /**
+     * 构造方法，定期健康检查在进程内共享的线程池中执行
+     *
+     * @param channelConnector 连接方式
+     * @param config           配置
+     * @param healthChecker    健康检查
+     * @param timer            维护任务定时器
+     */
+    public ChannelPool(ChannelConnector channelConnector, ChannelPoolConfig config, ChannelHealthChecker healthChecker, Timer timer) {
+        this(channelConnector, config, healthChecker, timer, sharedHealthCheckExecutor());
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param channelConnector    连接方式
+     * @param config              配置
+     * @param healthChecker       健康检查
+     * @param timer               维护任务定时器
+     * @param healthCheckExecutor 定期健康检查的执行线程池
+     */
+    public ChannelPool(ChannelConnector channelConnector, ChannelPoolConfig config, ChannelHealthChecker healthChecker, Timer timer, Executor healthCheckExecutor) {
+        if (channelConnector == null) {
+            throw new NullPointerException("channelConnector");
+        }
+        if (config == null) {
+            throw new NullPointerException("config");
+        }
+        if (healthChecker == null) {
+            throw new NullPointerException("healthChecker");
+        }
+        if (timer == null) {
+            throw new NullPointerException("timer");
+        }
+        if (healthCheckExecutor == null) {
+            throw new NullPointerException("healthCheckExecutor");
+        }
+        if (config.getMaxTotal() <= 0) {
+            throw new IllegalArgumentException("maxTotal: " + config.getMaxTotal() + " (expected: > 0)");
+        }
+        if (config.getMinIdle() < 0 || config.getMinIdle() > config.getMaxTotal()) {
+            throw new IllegalArgumentException("minIdle: " + config.getMinIdle() + " (expected: 0-" + config.getMaxTotal() + ")");
+        }
+        this.channelConnector = channelConnector;
+        this.config = config;
+        this.healthChecker = healthChecker;
+        this.timer = timer;
+        this.healthCheckExecutor = healthCheckExecutor;
+        //预先建立最小空闲连接
+        fillIdle();
+        scheduleMaintenance();
+    }
+
+    /**
+     * 进程内共享的健康检查线程池，守护线程，空闲时回收
+     *
+     * @return Executor
+     */
+    public static Executor sharedHealthCheckExecutor() {
+        return SharedExecutorHolder.INSTANCE;
+    }
+
+    private static final class SharedExecutorHolder {
+        static final Executor INSTANCE = newHealthCheckExecutor(Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+
+    private static ExecutorService newHealthCheckExecutor(int threads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger index = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "getty-pool-health-check-" + index.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 借出连接，使用配置的默认超时时间
+     *
+     * @return SocketChannel
+     * @throws Exception 超时或建立连接失败
+     */
+    public SocketChannel acquire() throws Exception {
+        return acquire(config.getAcquireTimeout());
+    }
+
+    /**
+     * 借出连接。有空闲连接时直接复用，否则在未达到最大连接数时建立新连接，达到上限则等待其他连接归还
+     *
+     * @param timeoutMillis 超时时间，毫秒
+     * @return SocketChannel
+     * @throws TimeoutException 等待超时
+     * @throws Exception        建立连接失败等异常
+     */
+    public SocketChannel acquire(long timeoutMillis) throws Exception {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (; ; ) {
+            PooledEntry entry = null;
+            lock.lockInterruptibly();
+            try {
+                long nanos = deadline - System.nanoTime();
+                for (; ; ) {
+                    checkClosed();
+                    entry = idleEntries.pollFirst();
+                    if (entry != null) {
+                        entry.borrowed = true;
+                        break;
+                    }
+                    if (totalCount < config.getMaxTotal()) {
+                        //先占用名额，再在锁外建立连接
+                        totalCount++;
+                        break;
+                    }
+                    if (nanos <= 0) {
+                        throw new TimeoutException("Acquire channel timeout after " + timeoutMillis + "ms");
+                    }
+                    nanos = available.awaitNanos(nanos);
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (entry == null) {
+                return connect(deadline).channel;
+            }
+            if (isUsable(entry, System.currentTimeMillis(), config.isTestOnAcquire())) {
+                return entry.channel;
+            }
+            //不可用的连接直接关闭，继续尝试下一个
+            destroy(entry);
+        }
+    }
+
+    /**
+     * 归还连接，已关闭、超过最大存活时间或健康检查不通过的连接会被关闭
+     *
+     * @param channel 通道
+     */
+    public void release(SocketChannel channel) {
+        if (channel == null) {
+            throw new NullPointerException("channel");
+        }
+        PooledEntry entry = entries.get(channel.getId());
+        if (entry == null || entry.channel != channel) {
+            throw new IllegalArgumentException("Channel " + channel.getChannelId() + " does not belong to this pool");
+        }
+        lock.lock();
+        try {
+            if (!entry.borrowed) {
+                throw new IllegalStateException("Channel " + channel.getChannelId() + " has already been released");
+            }
+            entry.borrowed = false;
+        } finally {
+            lock.unlock();
+        }
+
+        long now = System.currentTimeMillis();
+        entry.lastUsedTime = now;
+        if (!closed && isUsable(entry, now, config.isTestOnRelease())) {
+            offerIdle(entry, true);
+        } else {
+            destroy(entry);
+        }
+    }
+
+    /**
+     * 关闭连接池，空闲连接立即关闭，已借出的连接在归还时关闭，等待中的acquire会抛出异常
+     */
+    public void close() {
+        List<PooledEntry> idle;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            idle = new ArrayList<>(idleEntries);
+            idleEntries.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        Timeout timeout = maintenanceTimeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        for (PooledEntry entry : idle) {
+            destroy(entry);
+        }
+    }
+
+    /**
+     * 连接总数，包含已借出、空闲和正在建立的连接
+     *
+     * @return int
+     */
+    public int getTotalCount() {
+        lock.lock();
+        try {
+            return totalCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 空闲连接数
+     *
+     * @return int
+     */
+    public int getIdleCount() {
+        lock.lock();
+        try {
+            return idleEntries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public ChannelPoolConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * 在已占用的名额上建立新连接，并等待到截止时间
+     *
+     * @param deadline 截止时间，System.nanoTime()
+     * @return PooledEntry
+     * @throws Exception 异常
+     */
+    private PooledEntry connect(long deadline) throws Exception {
+        ConnectWaiter waiter = new ConnectWaiter();
+        try {
+            channelConnector.connect(waiter);
+        } catch (Throwable t) {
+            waiter.onFailed(t);
+        }
+        return waiter.await(deadline);
+    }
+
+    /**
+     * 补充空闲连接至minIdle，在后台建立，不超过最大连接数
+     */
+    private void fillIdle() {
+        int count;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            count = Math.min(config.getMinIdle() - idleEntries.size() - pendingCount - checkingCount, config.getMaxTotal() - totalCount);
+            if (count <= 0) {
+                return;
+            }
+            totalCount += count;
+            pendingCount += count;
+        } finally {
+            lock.unlock();
+        }
+        for (int i = 0; i < count; i++) {
+            FillHandler fillHandler = new FillHandler();
+            try {
+                channelConnector.connect(fillHandler);
+            } catch (Throwable t) {
+                fillHandler.onFailed(t);
+            }
+        }
+    }
+
+    /**
+     * 定时执行维护任务
+     */
+    private void scheduleMaintenance() {
+        if (closed || config.getMaintenanceInterval() <= 0) {
+            return;
+        }
+        maintenanceTimeout = timer.newTimeout(new TimerTask() {
+            @Override
+            public void run(Timeout timeout) throws Exception {
+                try {
+                    maintain();
+                } catch (Throwable t) {
+                    LOGGER.error("channel pool maintenance exception", t);
+                }
+                scheduleMaintenance();
+            }
+        }, config.getMaintenanceInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 在定时器线程中执行：回收失效、超过最大存活时间和空闲超时的连接并补充最小空闲连接，
+     * 到期的空闲连接移出空闲队列，交给健康检查线程池检查
+     */
+    private void maintain() {
+        long now = System.currentTimeMillis();
+        List<PooledEntry> expired = new ArrayList<>();
+        List<PooledEntry> checking = new ArrayList<>();
+        lock.lock();
+        try {
+            int idleCount = idleEntries.size();
+            //从尾部，即最久未使用的连接开始
+            Iterator<PooledEntry> it = idleEntries.descendingIterator();
+            while (it.hasNext()) {
+                PooledEntry entry = it.next();
+                if (entry.channel.isInvalid() || isLifetimeExpired(entry, now) || isIdleExpired(entry, now, idleCount)) {
+                    it.remove();
+                    idleCount--;
+                    expired.add(entry);
+                } else if (config.getHealthCheckInterval() > 0 && now - entry.lastCheckTime >= config.getHealthCheckInterval()) {
+                    //检查期间移出空闲队列，避免被借出
+                    it.remove();
+                    checkingCount++;
+                    checking.add(entry);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (PooledEntry entry : expired) {
+            destroy(entry);
+        }
+        fillIdle();
+        if (!checking.isEmpty()) {
+            checkHealth(checking, now);
+        }
+    }
+
+    /**
+     * 在健康检查线程池中检查移出空闲队列的连接，通过的放回空闲队列，不通过的关闭后补充最小空闲连接
+     *
+     * @param checking 待检查的连接
+     * @param now      当前时间
+     */
+    private void checkHealth(final List<PooledEntry> checking, final long now) {
+        try {
+            healthCheckExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (PooledEntry entry : checking) {
+                        if (checkHealth(entry, now)) {
+                            offerIdle(entry, false);
+                        } else {
+                            destroy(entry);
+                        }
+                        checkDone();
+                    }
+                    fillIdle();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            //线程池不可用时本轮不检查，放回空闲队列等待下一轮
+            LOGGER.warn("channel pool health check rejected", e);
+            for (PooledEntry entry : checking) {
+                offerIdle(entry, false);
+                checkDone();
+            }
+        }
+    }
+
+    /**
+     * 连接已放回空闲队列或已关闭后再扣减，期间补充的空闲连接宁少勿多，由检查结束后的fillIdle补齐
+     */
+    private void checkDone() {
+        lock.lock();
+        try {
+            checkingCount--;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 连接是否可用
+     *
+     * @param entry 连接
+     * @param now   当前时间
+     * @param test  是否做健康检查
+     * @return boolean
+     */
+    private boolean isUsable(PooledEntry entry, long now, boolean test) {
+        if (entry.channel.isInvalid() || isLifetimeExpired(entry, now)) {
+            return false;
+        }
+        return !test || checkHealth(entry, now);
+    }
+
+    private boolean isLifetimeExpired(PooledEntry entry, long now) {
+        return config.getMaxLifetime() > 0 && now - entry.createTime >= config.getMaxLifetime();
+    }
+
+    private boolean isIdleExpired(PooledEntry entry, long now, int idleCount) {
+        return config.getIdleTimeout() > 0 && idleCount > config.getMinIdle() && now - entry.lastUsedTime >= config.getIdleTimeout();
+    }
+
+    private boolean checkHealth(PooledEntry entry, long now) {
+        entry.lastCheckTime = now;
+        try {
+            return healthChecker.isHealthy(entry.channel);
+        } catch (Throwable t) {
+            LOGGER.warn("Channel " + entry.channel.getChannelId() + " health check failed", t);
+            return false;
+        }
+    }
+
+    /**
+     * 登记新建立的连接
+     *
+     * @param channel 通道
+     * @return PooledEntry
+     */
+    private PooledEntry register(SocketChannel channel) {
+        PooledEntry entry = new PooledEntry(channel, System.currentTimeMillis());
+        entries.put(channel.getId(), entry);
+        return entry;
+    }
+
+    /**
+     * 放入空闲队列，连接池已关闭时直接关闭连接
+     *
+     * @param entry 连接
+     * @param first 是否放在头部(最先被借出)
+     */
+    private void offerIdle(PooledEntry entry, boolean first) {
+        lock.lock();
+        try {
+            if (!closed) {
+                entry.borrowed = false;
+                if (first) {
+                    idleEntries.offerFirst(entry);
+                } else {
+                    idleEntries.offerLast(entry);
+                }
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        destroy(entry);
+    }
+
+    /**
+     * 关闭连接并释放名额
+     *
+     * @param entry 连接
+     */
+    private void destroy(PooledEntry entry) {
+        entries.remove(entry.channel.getId(), entry);
+        releaseSlot();
+        if (!entry.channel.isInvalid()) {
+            entry.channel.close();
+        }
+    }
+
+    /**
+     * 释放名额，唤醒一个等待者
+     */
+    private void releaseSlot() {
+        lock.lock();
+        try {
+            totalCount--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkClosed() {
+        if (closed) {
+            throw new IllegalStateException("ChannelPool has been closed");
+        }
+    }
+
+    /**
+     * 池中的连接
+     */
+    private static final class PooledEntry {
+        final SocketChannel channel;
+        final long createTime;
+        volatile long lastUsedTime;
+        volatile long lastCheckTime;
+        /**
+         * 是否已借出，由lock保护
+         */
+        volatile boolean borrowed;
+
+        PooledEntry(SocketChannel channel, long createTime) {
+            this.channel = channel;
+            this.createTime = createTime;
+            this.lastUsedTime = createTime;
+            this.lastCheckTime = createTime;
+        }
+    }
+
+    /**
+     * acquire时建立连接的回调，等待超时后建立成功的连接放入空闲队列
+     */
+    private final class ConnectWaiter implements ConnectHandler {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+        /**
+         * 只处理第一次回调
+         */
+        private final AtomicBoolean done = new AtomicBoolean();
+        private PooledEntry entry;
+        private Throwable cause;
+        /**
+         * 等待者已放弃，由this保护
+         */
+        private boolean abandoned;
+
+        @Override
+        public void onCompleted(SocketChannel channel) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            PooledEntry newEntry = register(channel);
+            synchronized (this) {
+                if (!abandoned) {
+                    newEntry.borrowed = true;
+                    entry = newEntry;
+                    latch.countDown();
+                    return;
+                }
+            }
+            offerIdle(newEntry, true);
+        }
+
+        @Override
+        public void onFailed(Throwable exc) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            releaseSlot();
+            synchronized (this) {
+                cause = exc;
+                latch.countDown();
+            }
+        }
+
+        PooledEntry await(long deadline) throws Exception {
+            try {
+                latch.await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                abandon();
+                throw e;
+            }
+            synchronized (this) {
+                if (entry != null) {
+                    return entry;
+                }
+                if (cause != null) {
+                    if (cause instanceof Exception) {
+                        throw (Exception) cause;
+                    }
+                    throw new Exception(cause);
+                }
+                abandoned = true;
+            }
+            throw new TimeoutException("Connect timeout while acquiring channel");
+        }
+
+        private void abandon() {
+            PooledEntry completed;
+            synchronized (this) {
+                abandoned = true;
+                completed = entry;
+                entry = null;
+            }
+            if (completed != null) {
+                offerIdle(completed, true);
+            }
+        }
+    }
+
+    /**
+     * 后台补充空闲连接的回调
+     */
+    private final class FillHandler implements ConnectHandler {
+
+        /**
+         * 只处理第一次回调
+         */
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        @Override
+        public void onCompleted(SocketChannel channel) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            PooledEntry entry = register(channel);
+            decrementPending();
+            offerIdle(entry, true);
+        }
+
+        @Override
+        public void onFailed(Throwable exc) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            LOGGER.warn("channel pool connect failed", exc);
+            decrementPending();
+            releaseSlot();
+        }
+
+        private void decrementPending() {
+            lock.lock();
+            try {
+                pendingCount--;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.channel.pool;
+
+/**
+ * ChannelPoolConfig.java
+ *
+ * @description:连接池配置。minIdle与maxTotal相等时为固定大小的连接池，启动后预先建立全部连接；
+ * minIdle小于maxTotal时为弹性连接池，按需建立连接，超出minIdle的空闲连接在idleTimeout后回收。时间单位均为毫秒，0表示不限制
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public class ChannelPoolConfig {
+
+    /**
+     * 最大连接数，包含已借出、空闲和正在建立的连接
+     */
+    private int maxTotal = 8;
+    /**
+     * 最小空闲连接数，不足时在后台补充
+     */
+    private int minIdle = 0;
+    /**
+     * 获取连接的默认超时时间
+     */
+    private long acquireTimeout = 3000;
+    /**
+     * 空闲超时时间，超出minIdle部分的空闲连接超时后关闭
+     */
+    private long idleTimeout = 60 * 1000;
+    /**
+     * 连接最大存活时间，到期的连接在空闲或归还时关闭
+     */
+    private long maxLifetime = 0;
+    /**
+     * 空闲连接健康检查间隔
+     */
+    private long healthCheckInterval = 30 * 1000;
+    /**
+     * 维护任务执行周期，负责空闲回收、存活检查、健康检查和补充最小空闲连接
+     */
+    private long maintenanceInterval = 1000;
+    /**
+     * 借出前是否做健康检查
+     */
+    private boolean testOnAcquire = false;
+    /**
+     * 归还时是否做健康检查
+     */
+    private boolean testOnRelease = false;
+
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    public void setMaxTotal(int maxTotal) {
+        this.maxTotal = maxTotal;
+    }
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    public void setMinIdle(int minIdle) {
+        this.minIdle = minIdle;
+    }
+
+    public long getAcquireTimeout() {
+        return acquireTimeout;
+    }
+
+    public void setAcquireTimeout(long acquireTimeout) {
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public long getMaxLifetime() {
+        return maxLifetime;
+    }
+
+    public void setMaxLifetime(long maxLifetime) {
+        this.maxLifetime = maxLifetime;
+    }
+
+    public long getHealthCheckInterval() {
+        return healthCheckInterval;
+    }
+
+    public void setHealthCheckInterval(long healthCheckInterval) {
+        this.healthCheckInterval = healthCheckInterval;
+    }
+
+    public long getMaintenanceInterval() {
+        return maintenanceInterval;
+    }
+
+    public void setMaintenanceInterval(long maintenanceInterval) {
+        this.maintenanceInterval = maintenanceInterval;
+    }
+
+    public boolean isTestOnAcquire() {
+        return testOnAcquire;
+    }
+
+    public void setTestOnAcquire(boolean testOnAcquire) {
+        this.testOnAcquire = testOnAcquire;
+    }
+
+    public boolean isTestOnRelease() {
+        return testOnRelease;
+    }
+
+    public void setTestOnRelease(boolean testOnRelease) {
+        this.testOnRelease = testOnRelease;
+    }
+}
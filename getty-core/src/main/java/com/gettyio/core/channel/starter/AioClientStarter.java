@@ -20,6 +20,7 @@ import com.gettyio.core.util.PlatformDependent;
 import com.gettyio.core.channel.SocketChannel;
 import com.gettyio.core.channel.AioChannel;
 import com.gettyio.core.channel.config.ClientConfig;
+import com.gettyio.core.channel.group.ChannelFutureListener;
 import com.gettyio.core.channel.internal.ReadCompletionHandler;
 import com.gettyio.core.channel.internal.WriteCompletionHandler;
 import com.gettyio.core.handler.ssl.sslfacade.IHandshakeCompletedListener;
@@ -27,13 +28,21 @@ import com.gettyio.core.logging.InternalLogger;
 import com.gettyio.core.logging.InternalLoggerFactory;
 import com.gettyio.core.pipeline.ChannelPipeline;
 import com.gettyio.core.util.ThreadPool;
+import com.gettyio.core.util.timer.HashedWheelTimer;
+import com.gettyio.core.util.timer.Timeout;
+import com.gettyio.core.util.timer.TimerTask;
 
+import java.net.ConnectException;
 import java.net.InetSocketAddress;
 import java.net.SocketOption;
 import java.nio.channels.*;
 import java.util.Date;
 import java.util.Map;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.net.ssl.SSLHandshakeException;
 
 
 /**
@@ -57,6 +66,11 @@ public class AioClientStarter extends AioStarter {
      */
     private SocketChannel aioChannel;
 
+    /**
+     * 共享资源，为空时客户端自行创建并在shutdown时关闭
+     */
+    private ClientResources clientResources;
+
     /**
      * 简单启动
      *
@@ -90,6 +104,17 @@ public class AioClientStarter extends AioStarter {
         return this;
     }
 
+    /**
+     * 使用共享资源，连接共用aio线程组、worker线程池和内存池
+     *
+     * @param clientResources 共享资源
+     * @return AioClientStarter
+     */
+    public AioClientStarter clientResources(ClientResources clientResources) {
+        this.clientResources = clientResources;
+        return this;
+    }
+
 
     /**
      * 启动客户端
@@ -128,17 +153,24 @@ public class AioClientStarter extends AioStarter {
      */
     private void start0(ConnectHandler connectHandler) throws Exception {
         startCheck();
-        //初始化worker线程池
-        workerThreadPool = new ThreadPool(ThreadPool.FixedThread, 1);
-        //初始化内存池
-        byteBufAllocator = new PooledByteBufAllocator(PlatformDependent.directBufferPreferred() && clientConfig.isDirect());
+        if (clientResources != null) {
+            //使用共享资源
+            workerThreadPool = clientResources.getWorkerThreadPool();
+            byteBufAllocator = clientResources.getByteBufAllocator();
+            this.asynchronousChannelGroup = clientResources.getAsynchronousChannelGroup();
+        } else {
+            //初始化worker线程池
+            workerThreadPool = new ThreadPool(ThreadPool.FixedThread, 1);
+            //初始化内存池
+            byteBufAllocator = new PooledByteBufAllocator(PlatformDependent.directBufferPreferred() && clientConfig.isDirect());
 
-        this.asynchronousChannelGroup = AsynchronousChannelGroup.withFixedThreadPool(1, new ThreadFactory() {
-            @Override
-            public Thread newThread(Runnable target) {
-                return new Thread(target);
-            }
-        });
+            this.asynchronousChannelGroup = AsynchronousChannelGroup.withFixedThreadPool(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable target) {
+                    return new Thread(target);
+                }
+            });
+        }
         //调用内部启动
         startTcp(asynchronousChannelGroup, connectHandler);
     }
@@ -161,29 +193,19 @@ public class AioClientStarter extends AioStarter {
         /**
          * 非阻塞连接
          */
+        final long connectStartTime = System.currentTimeMillis();
         socketChannel.connect(new InetSocketAddress(clientConfig.getHost(), clientConfig.getPort()), socketChannel, new CompletionHandler<Void, AsynchronousSocketChannel>() {
             @Override
             public void completed(Void result, AsynchronousSocketChannel attachment) {
                 LOGGER.info("connect aio server success");
                 //连接成功则构造AIOSession对象
-                aioChannel = new AioChannel(socketChannel, clientConfig, new ReadCompletionHandler(workerThreadPool), new WriteCompletionHandler(), byteBufAllocator, channelPipeline);
+                aioChannel = new AioChannel(socketChannel, clientConfig, new ReadCompletionHandler(workerThreadPool), new WriteCompletionHandler(), byteBufAllocator, channelPipeline, asynchronousChannelGroup);
                 //开始读
                 aioChannel.starRead();
 
                 if (connectHandler != null) {
                     if (aioChannel.getSslHandler() != null) {
-                        aioChannel.setSslHandshakeCompletedListener(new IHandshakeCompletedListener() {
-                            @Override
-                            public void onComplete() {
-                                LOGGER.info("ssl Handshake Completed");
-                                new Thread(new Runnable() {
-                                    @Override
-                                    public void run() {
-                                        connectHandler.onCompleted(aioChannel);
-                                    }
-                                }).start();
-                            }
-                        });
+                        watchHandshake(aioChannel, connectHandler, connectStartTime);
                     } else {
                         new Thread(new Runnable() {
                             @Override
@@ -206,6 +228,73 @@ public class AioClientStarter extends AioStarter {
     }
 
 
+    /**
+     * 开启SSL时连接在握手完成后才算成功。握手前通道关闭（包括握手失败）或握手超时，回调失败，
+     * 连接与握手的总耗时不超过connectTimeout
+     *
+     * @param channel          通道
+     * @param connectHandler   回调
+     * @param connectStartTime 开始连接的时间
+     */
+    private void watchHandshake(final SocketChannel channel, final ConnectHandler connectHandler, long connectStartTime) {
+        //握手完成、关闭和超时只有第一个生效
+        final AtomicBoolean done = new AtomicBoolean();
+        final Timeout handshakeTimeout;
+        if (clientConfig.getConnectTimeout() > 0) {
+            long remaining = clientConfig.getConnectTimeout() - (System.currentTimeMillis() - connectStartTime);
+            handshakeTimeout = HashedWheelTimer.sharedTimer().newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout timeout) throws Exception {
+                    if (done.compareAndSet(false, true)) {
+                        notifyFailed(connectHandler, new ConnectException("ssl handshake timed out: " + clientConfig.getHost() + ":" + clientConfig.getPort()));
+                        channel.close();
+                    }
+                }
+            }, Math.max(1, remaining), TimeUnit.MILLISECONDS);
+        } else {
+            handshakeTimeout = null;
+        }
+        final ChannelFutureListener closeListener = new ChannelFutureListener() {
+            @Override
+            public void operationComplete(SocketChannel socketChannel) {
+                if (handshakeTimeout != null) {
+                    handshakeTimeout.cancel();
+                }
+                if (done.compareAndSet(false, true)) {
+                    notifyFailed(connectHandler, new SSLHandshakeException("channel closed before ssl handshake completed"));
+                }
+            }
+        };
+        channel.setSslHandshakeCompletedListener(new IHandshakeCompletedListener() {
+            @Override
+            public void onComplete() {
+                LOGGER.info("ssl Handshake Completed");
+                if (handshakeTimeout != null) {
+                    handshakeTimeout.cancel();
+                }
+                channel.removeCloseListener(closeListener);
+                if (done.compareAndSet(false, true)) {
+                    new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            connectHandler.onCompleted(channel);
+                        }
+                    }).start();
+                }
+            }
+        });
+        channel.addCloseListener(closeListener);
+    }
+
+    private void notifyFailed(final ConnectHandler connectHandler, final Throwable cause) {
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                connectHandler.onFailed(cause);
+            }
+        }).start();
+    }
+
     /**
      * 停止客户端
      */
@@ -215,10 +304,10 @@ public class AioClientStarter extends AioStarter {
             aioChannel = null;
         }
         //仅Client内部创建的ChannelGroup需要shutdown
-        if (asynchronousChannelGroup != null) {
+        if (asynchronousChannelGroup != null && clientResources == null) {
             asynchronousChannelGroup.shutdown();
-            asynchronousChannelGroup = null;
         }
+        asynchronousChannelGroup = null;
         LOGGER.info("getty shutdown at " + new Date());
     }
 
@@ -260,8 +349,8 @@ public class AioClientStarter extends AioStarter {
             if (clientConfig.getLowWaterMark() >= clientConfig.getHighWaterMark()) {
                 throw new RuntimeException("lowWaterMark must be small than highWaterMark");
             }
-            if (clientConfig.getHighWaterMark() >= clientConfig.getBufferWriterQueueSize()) {
-                LOGGER.warn("HighWaterMark is meaningless if it is greater than BufferWriterQueueSize");
+            if (clientConfig.getHighWaterMark() >= clientConfig.getBufferWriterQueueBytes()) {
+                LOGGER.warn("HighWaterMark is meaningless if it is greater than BufferWriterQueueBytes");
             }
         }
     }
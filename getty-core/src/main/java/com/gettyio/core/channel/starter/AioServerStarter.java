@@ -287,7 +287,7 @@ public class AioServerStarter extends AioStarter {
     private void createTcpChannel(AsynchronousSocketChannel channel) {
         SocketChannel aioChannel = null;
         try {
-            aioChannel = new AioChannel(channel, config, readCompletionHandler, writeCompletionHandler, byteBufAllocator, channelPipeline);
+            aioChannel = new AioChannel(channel, config, readCompletionHandler, writeCompletionHandler, byteBufAllocator, channelPipeline, asynchronousChannelGroup);
             //创建成功立即开始读
             aioChannel.starRead();
         } catch (Exception e) {
@@ -340,8 +340,8 @@ public class AioServerStarter extends AioStarter {
             if (config.getLowWaterMark() >= config.getHighWaterMark()) {
                 throw new RuntimeException("lowWaterMark must be small than highWaterMark");
             }
-            if (config.getHighWaterMark() >= config.getBufferWriterQueueSize()) {
-                LOGGER.warn("HighWaterMark is meaningless if it is greater than BufferWriterQueueSize");
+            if (config.getHighWaterMark() >= config.getBufferWriterQueueBytes()) {
+                LOGGER.warn("HighWaterMark is meaningless if it is greater than BufferWriterQueueBytes");
             }
         }
     }
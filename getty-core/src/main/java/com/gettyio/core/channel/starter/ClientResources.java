@@ -0,0 +1,200 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.channel.starter;
+
+import com.gettyio.core.buffer.allocator.ByteBufAllocator;
+import com.gettyio.core.buffer.pool.PooledByteBufAllocator;
+import com.gettyio.core.channel.config.ClientConfig;
+import com.gettyio.core.channel.loop.NioEventLoopGroup;
+import com.gettyio.core.logging.InternalLogger;
+import com.gettyio.core.logging.InternalLoggerFactory;
+import com.gettyio.core.util.PlatformDependent;
+import com.gettyio.core.util.ThreadPool;
+
+import java.io.IOException;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ClientResources.java
+ *
+ * @description:客户端共享资源，包含事件循环组、worker线程池和内存池。
+ * 多个客户端通过{@link NioClientStarter#clientResources(ClientResources)}或{@link AioClientStarter#clientResources(ClientResources)}
+ * 共用同一份资源，连接数再多线程数和内存池也只有一份。客户端shutdown时不会关闭共享资源，需由创建者调用{@link #shutdown()}
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public class ClientResources {
+
+    private static final InternalLogger LOGGER = InternalLoggerFactory.getInstance(ClientResources.class);
+
+    /**
+     * 关闭时等待事件循环退出的最长时间
+     */
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * 线程数
+     */
+    private final int nThreads;
+
+    /**
+     * 内存池
+     */
+    private final ByteBufAllocator byteBufAllocator;
+
+    /**
+     * worker线程池
+     */
+    private final ThreadPool workerThreadPool;
+
+    /**
+     * nio事件循环组，首次使用时创建
+     */
+    private NioEventLoopGroup nioEventLoopGroup;
+
+    /**
+     * aio线程组，首次使用时创建
+     */
+    private AsynchronousChannelGroup asynchronousChannelGroup;
+
+    /**
+     * 是否已经关闭
+     */
+    private volatile boolean shutdown;
+
+    /**
+     * 构造方法，线程数与cpu核心数一致
+     */
+    public ClientResources() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param nThreads 事件循环线程数，worker线程数与之相同
+     */
+    public ClientResources(int nThreads) {
+        this(nThreads, new PooledByteBufAllocator(PlatformDependent.directBufferPreferred()));
+    }
+
+    /**
+     * 构造方法，内存池由外部传入，可与服务端共用
+     *
+     * @param nThreads         事件循环线程数，worker线程数与之相同
+     * @param byteBufAllocator 内存池
+     */
+    public ClientResources(int nThreads, ByteBufAllocator byteBufAllocator) {
+        if (nThreads <= 0) {
+            throw new IllegalArgumentException("nThreads: " + nThreads + " (expected: > 0)");
+        }
+        if (byteBufAllocator == null) {
+            throw new NullPointerException("byteBufAllocator");
+        }
+        this.nThreads = nThreads;
+        this.byteBufAllocator = byteBufAllocator;
+        this.workerThreadPool = new ThreadPool(ThreadPool.FixedThread, nThreads);
+    }
+
+    /**
+     * 获取nio事件循环组，首次调用时创建并启动。
+     * 读取相关的配置由各通道自身的配置决定，loop不区分连接来自哪个客户端
+     *
+     * @return NioEventLoopGroup
+     */
+    public synchronized NioEventLoopGroup getNioEventLoopGroup() {
+        checkShutdown();
+        if (nioEventLoopGroup == null) {
+            nioEventLoopGroup = new NioEventLoopGroup(nThreads, new ClientConfig(), byteBufAllocator);
+            nioEventLoopGroup.run();
+        }
+        return nioEventLoopGroup;
+    }
+
+    /**
+     * 获取aio线程组，首次调用时创建
+     *
+     * @return AsynchronousChannelGroup
+     * @throws IOException 创建异常
+     */
+    public synchronized AsynchronousChannelGroup getAsynchronousChannelGroup() throws IOException {
+        checkShutdown();
+        if (asynchronousChannelGroup == null) {
+            asynchronousChannelGroup = AsynchronousChannelGroup.withFixedThreadPool(nThreads, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable target) {
+                    return new Thread(target);
+                }
+            });
+        }
+        return asynchronousChannelGroup;
+    }
+
+    public ThreadPool getWorkerThreadPool() {
+        checkShutdown();
+        return workerThreadPool;
+    }
+
+    public ByteBufAllocator getByteBufAllocator() {
+        return byteBufAllocator;
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * 关闭共享资源，使用这些资源的连接随之关闭，未完成的连接回调失败
+     */
+    public synchronized void shutdown() {
+        if (shutdown) {
+            return;
+        }
+        shutdown = true;
+        if (nioEventLoopGroup != null) {
+            nioEventLoopGroup.shutdown();
+            try {
+                //loop退出前关闭所有通道，等待其完成后再关闭worker线程池，关闭通知中提交的任务才不会被拒绝
+                if (!nioEventLoopGroup.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    LOGGER.warn("event loops did not terminate in " + SHUTDOWN_TIMEOUT_MILLIS + "ms");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            nioEventLoopGroup = null;
+        }
+        if (asynchronousChannelGroup != null) {
+            try {
+                asynchronousChannelGroup.shutdownNow();
+            } catch (IOException e) {
+                LOGGER.error(e);
+            }
+            asynchronousChannelGroup = null;
+        }
+        if (!workerThreadPool.isShutDown()) {
+            workerThreadPool.shutdown();
+        }
+    }
+
+    private void checkShutdown() {
+        if (shutdown) {
+            throw new IllegalStateException("ClientResources has been shutdown");
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.channel.starter;
+
+import com.gettyio.core.channel.SocketChannel;
+import com.gettyio.core.logging.InternalLogger;
+import com.gettyio.core.logging.InternalLoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ConnectFuture.java
+ *
+ * @description:客户端连接结果，连接成功(开启SSL时为握手完成)、失败或超时后完成并回调监听
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public final class ConnectFuture {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(ConnectFuture.class);
+
+    private SocketChannel channel;
+    private Throwable cause;
+    private boolean done;
+    private List<ConnectHandler> listeners;
+
+    ConnectFuture() {
+    }
+
+    void setSuccess(SocketChannel channel) {
+        complete(channel, null);
+    }
+
+    void setFailure(Throwable cause) {
+        complete(null, cause);
+    }
+
+    private void complete(SocketChannel channel, Throwable cause) {
+        List<ConnectHandler> listeners;
+        synchronized (this) {
+            if (done) {
+                return;
+            }
+            done = true;
+            this.channel = channel;
+            this.cause = cause;
+            listeners = this.listeners;
+            this.listeners = null;
+            notifyAll();
+        }
+        if (listeners != null) {
+            for (ConnectHandler listener : listeners) {
+                notifyListener(listener);
+            }
+        }
+    }
+
+    /**
+     * 添加完成监听，已完成时立即回调
+     *
+     * @param listener 监听
+     * @return ConnectFuture
+     */
+    public ConnectFuture addListener(ConnectHandler listener) {
+        if (listener == null) {
+            throw new NullPointerException("listener");
+        }
+        synchronized (this) {
+            if (!done) {
+                if (listeners == null) {
+                    listeners = new ArrayList<>(1);
+                }
+                listeners.add(listener);
+                return this;
+            }
+        }
+        notifyListener(listener);
+        return this;
+    }
+
+    private void notifyListener(ConnectHandler listener) {
+        try {
+            if (cause == null) {
+                listener.onCompleted(channel);
+            } else {
+                listener.onFailed(cause);
+            }
+        } catch (Throwable t) {
+            logger.error("An exception was thrown by " + listener.getClass().getName(), t);
+        }
+    }
+
+    /**
+     * 等待完成
+     *
+     * @throws InterruptedException 中断
+     */
+    public synchronized void await() throws InterruptedException {
+        while (!done) {
+            wait();
+        }
+    }
+
+    /**
+     * 等待完成
+     *
+     * @param timeout 超时时间
+     * @param unit    单位
+     * @return 是否已完成
+     * @throws InterruptedException 中断
+     */
+    public synchronized boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        long deadline = System.nanoTime() + nanos;
+        while (!done && nanos > 0) {
+            TimeUnit.NANOSECONDS.timedWait(this, nanos);
+            nanos = deadline - System.nanoTime();
+        }
+        return done;
+    }
+
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    public synchronized boolean isSuccess() {
+        return done && cause == null;
+    }
+
+    /**
+     * 获取连接成功的通道
+     *
+     * @return 未完成或失败时返回null
+     */
+    public synchronized SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * 获取失败原因
+     *
+     * @return 未完成或成功时返回null
+     */
+    public synchronized Throwable getCause() {
+        return cause;
+    }
+}
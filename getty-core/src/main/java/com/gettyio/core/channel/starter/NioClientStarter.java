@@ -20,19 +20,26 @@ import com.gettyio.core.util.PlatformDependent;
 import com.gettyio.core.channel.*;
 import com.gettyio.core.channel.SocketChannel;
 import com.gettyio.core.channel.config.ClientConfig;
+import com.gettyio.core.channel.group.ChannelFutureListener;
 import com.gettyio.core.channel.loop.NioEventLoop;
 import com.gettyio.core.handler.ssl.sslfacade.IHandshakeCompletedListener;
 import com.gettyio.core.logging.InternalLogger;
 import com.gettyio.core.logging.InternalLoggerFactory;
 import com.gettyio.core.pipeline.ChannelPipeline;
 import com.gettyio.core.util.ThreadPool;
+import com.gettyio.core.util.timer.HashedWheelTimer;
+import com.gettyio.core.util.timer.Timeout;
+import com.gettyio.core.util.timer.TimerTask;
 
 import java.io.IOException;
+import java.net.ConnectException;
 import java.net.InetSocketAddress;
 import java.net.SocketOption;
 import java.nio.channels.*;
-import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLHandshakeException;
 
 /**
  * NioClientStarter.java
@@ -53,7 +60,7 @@ public class NioClientStarter extends NioStarter {
     /**
      * channel通道
      */
-    private SocketChannel nioChannel;
+    private volatile SocketChannel nioChannel;
 
     /**
      * loop
@@ -61,9 +68,9 @@ public class NioClientStarter extends NioStarter {
     private NioEventLoop nioEventLoop;
 
     /**
-     * 多路复用
+     * 共享资源，为空时客户端自行创建并在shutdown时关闭
      */
-    Selector selector;
+    private ClientResources clientResources;
 
     /**
      * 简单启动
@@ -110,34 +117,88 @@ public class NioClientStarter extends NioStarter {
         return this;
     }
 
+    /**
+     * 使用共享资源，连接分配到共享事件循环组中的某个loop，并共用worker线程池和内存池
+     *
+     * @param clientResources 共享资源
+     * @return NioClientStarter
+     */
+    public NioClientStarter clientResources(ClientResources clientResources) {
+        this.clientResources = clientResources;
+        return this;
+    }
+
 
     /**
-     * 启动客户端。
+     * 启动客户端，阻塞直到连接成功(开启SSL时为握手完成)、失败或超时
      *
      * @throws Exception 异常
      */
     public final void start() throws Exception {
+        ConnectFuture connectFuture;
         try {
-            start0(null);
+            connectFuture = start0();
+            connectFuture.await();
         } catch (Exception e) {
             LOGGER.error(e.getMessage(), e);
             throw new Exception(e);
         }
+        if (!connectFuture.isSuccess()) {
+            throw new Exception(connectFuture.getCause());
+        }
     }
 
     /**
-     * 启动客户端,并且回调
+     * 启动客户端,并且回调。连接为非阻塞，回调在worker线程池中执行
      *
-     * @throws Exception 异常
+     * @param connectHandler 回调
      */
-    public final void start(ConnectHandler connectHandler) {
+    public final void start(final ConnectHandler connectHandler) {
+        ConnectFuture connectFuture;
         try {
-            start0(connectHandler);
+            connectFuture = start0();
         } catch (Exception e) {
             LOGGER.error(e.getMessage(), e);
             connectHandler.onFailed(e);
             return;
         }
+        connectFuture.addListener(new ConnectHandler() {
+            @Override
+            public void onCompleted(final SocketChannel channel) {
+                workerThreadPool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        connectHandler.onCompleted(channel);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailed(final Throwable exc) {
+                workerThreadPool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        connectHandler.onFailed(exc);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 非阻塞启动客户端，通过返回的ConnectFuture获取连接结果。
+     * 监听在事件循环线程中回调，不能阻塞
+     *
+     * @return ConnectFuture
+     * @throws Exception 启动异常
+     */
+    public final ConnectFuture startAsync() throws Exception {
+        try {
+            return start0();
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(), e);
+            throw new Exception(e);
+        }
     }
 
     /**
@@ -145,99 +206,133 @@ public class NioClientStarter extends NioStarter {
      *
      * @throws Exception
      */
-    private void start0(ConnectHandler connectHandler) throws Exception {
+    private ConnectFuture start0() throws Exception {
         startCheck();
-        //初始化worker线程池
-        workerThreadPool = new ThreadPool(ThreadPool.FixedThread, 1);
-        //初始化内存池
-        byteBufAllocator = new PooledByteBufAllocator(PlatformDependent.directBufferPreferred() && clientConfig.isDirect());
-        //调用内部启动
-        nioEventLoop = new NioEventLoop(clientConfig, byteBufAllocator);
-        nioEventLoop.run();
+        if (clientResources != null) {
+            //使用共享资源
+            workerThreadPool = clientResources.getWorkerThreadPool();
+            byteBufAllocator = clientResources.getByteBufAllocator();
+            nioEventLoop = clientResources.getNioEventLoopGroup().next();
+        } else {
+            //初始化worker线程池
+            workerThreadPool = new ThreadPool(ThreadPool.FixedThread, 1);
+            //初始化内存池
+            byteBufAllocator = new PooledByteBufAllocator(PlatformDependent.directBufferPreferred() && clientConfig.isDirect());
+            //调用内部启动
+            nioEventLoop = new NioEventLoop(clientConfig, byteBufAllocator);
+            nioEventLoop.run();
+        }
+        ConnectFuture connectFuture = new ConnectFuture();
         if (socketMode == SocketMode.TCP) {
-            startTcp(connectHandler);
+            startTcp(connectFuture);
         } else {
-            startUdp(connectHandler);
+            startUdp(connectFuture);
         }
+        return connectFuture;
     }
 
 
     /**
-     * 该方法为非阻塞连接。连接成功与否，会回调
+     * 非阻塞连接，在事件循环中关注OP_CONNECT，连接完成后创建通道并注册读事件，超时由时间轮检测
+     *
+     * @param connectFuture 连接结果
      */
-    private void startTcp(final ConnectHandler connectHandler) throws Exception {
+    private void startTcp(final ConnectFuture connectFuture) throws IOException {
 
         final java.nio.channels.SocketChannel socketChannel = java.nio.channels.SocketChannel.open();
-        if (clientConfig.getSocketOptions() != null) {
-            for (Map.Entry<SocketOption<Object>, Object> entry : clientConfig.getSocketOptions().entrySet()) {
-                socketChannel.setOption(entry.getKey(), entry.getValue());
+        try {
+            if (clientConfig.getSocketOptions() != null) {
+                for (Map.Entry<SocketOption<Object>, Object> entry : clientConfig.getSocketOptions().entrySet()) {
+                    socketChannel.setOption(entry.getKey(), entry.getValue());
+                }
             }
+        } catch (IOException e) {
+            closeChannel(socketChannel);
+            throw e;
         }
-        //设为非阻塞
-        socketChannel.configureBlocking(false);
-        /*
-         * 连接到指定的服务地址
-         */
-        socketChannel.connect(new InetSocketAddress(clientConfig.getHost(), clientConfig.getPort()));
-
-        /*
-         * 创建一个事件选择器Selector
-         */
-        selector = Selector.open();
-        /*
-         * 将创建的SocketChannel注册到指定的Selector上，并指定关注的事件类型为OP_CONNECT
-         */
-        socketChannel.register(selector, SelectionKey.OP_CONNECT);
-
-        while (selector.select() > 0) {
-            Iterator<SelectionKey> it = selector.selectedKeys().iterator();
-            while (it.hasNext()) {
-                SelectionKey sk = it.next();
-                if (sk.isConnectable()) {
-                    java.nio.channels.SocketChannel channel = (java.nio.channels.SocketChannel) sk.channel();
-                    //during connecting, finish the connect
-                    if (channel.isConnectionPending()) {
-                        channel.finishConnect();
-                        try {
-                            nioChannel = new NioChannel(clientConfig, socketChannel, nioEventLoop, byteBufAllocator, workerThreadPool, channelPipeline);
-                            if (connectHandler != null) {
-                                if (null != nioChannel.getSslHandler()) {
-                                    nioChannel.setSslHandshakeCompletedListener(new IHandshakeCompletedListener() {
-                                        @Override
-                                        public void onComplete() {
-                                            LOGGER.info("Ssl Handshake Completed");
-                                            connectHandler.onCompleted(nioChannel);
-                                        }
-                                    });
-                                } else {
-                                    connectHandler.onCompleted(nioChannel);
-                                }
-                            }
-                            //创建成功注册
-                            ((NioChannel) nioChannel).register();
-                        } catch (Exception e) {
-                            LOGGER.error(e.getMessage(), e);
-                            if (nioChannel != null) {
-                                closeChannel(socketChannel);
-                            }
-                            if (null != connectHandler) {
-                                connectHandler.onFailed(e);
-                            }
-                        }
+
+        final long connectStartTime = System.currentTimeMillis();
+        nioEventLoop.connect(socketChannel, new InetSocketAddress(clientConfig.getHost(), clientConfig.getPort()), clientConfig.getConnectTimeout(), new CompletionHandler<Void, java.nio.channels.SocketChannel>() {
+            @Override
+            public void completed(Void result, java.nio.channels.SocketChannel attachment) {
+                try {
+                    final SocketChannel channel = new NioChannel(clientConfig, socketChannel, nioEventLoop, byteBufAllocator, workerThreadPool, channelPipeline);
+                    nioChannel = channel;
+                    if (null != channel.getSslHandler()) {
+                        watchHandshake(channel, connectFuture, connectStartTime);
                     }
+                    //创建成功注册
+                    ((NioChannel) channel).register();
+                    if (null == channel.getSslHandler()) {
+                        connectFuture.setSuccess(channel);
+                    }
+                } catch (Exception e) {
+                    LOGGER.error(e.getMessage(), e);
+                    closeChannel(socketChannel);
+                    connectFuture.setFailure(e);
                 }
             }
-            it.remove();
+
+            @Override
+            public void failed(Throwable exc, java.nio.channels.SocketChannel attachment) {
+                LOGGER.error("connect nio server error", exc);
+                connectFuture.setFailure(exc);
+            }
+        });
+    }
+
+    /**
+     * 开启SSL时连接在握手完成后才算成功。握手前通道关闭（包括握手失败）或握手超时，连接失败，
+     * 连接与握手的总耗时不超过connectTimeout
+     *
+     * @param channel          通道
+     * @param connectFuture    连接结果
+     * @param connectStartTime 开始连接的时间
+     */
+    private void watchHandshake(final SocketChannel channel, final ConnectFuture connectFuture, long connectStartTime) {
+        final Timeout handshakeTimeout;
+        if (clientConfig.getConnectTimeout() > 0) {
+            long remaining = clientConfig.getConnectTimeout() - (System.currentTimeMillis() - connectStartTime);
+            handshakeTimeout = HashedWheelTimer.sharedTimer().newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout timeout) throws Exception {
+                    connectFuture.setFailure(new ConnectException("ssl handshake timed out: " + clientConfig.getHost() + ":" + clientConfig.getPort()));
+                    channel.close();
+                }
+            }, Math.max(1, remaining), TimeUnit.MILLISECONDS);
+        } else {
+            handshakeTimeout = null;
         }
+        final ChannelFutureListener closeListener = new ChannelFutureListener() {
+            @Override
+            public void operationComplete(SocketChannel socketChannel) {
+                if (handshakeTimeout != null) {
+                    handshakeTimeout.cancel();
+                }
+                connectFuture.setFailure(new SSLHandshakeException("channel closed before ssl handshake completed"));
+            }
+        };
+        channel.setSslHandshakeCompletedListener(new IHandshakeCompletedListener() {
+            @Override
+            public void onComplete() {
+                LOGGER.info("Ssl Handshake Completed");
+                if (handshakeTimeout != null) {
+                    handshakeTimeout.cancel();
+                }
+                channel.removeCloseListener(closeListener);
+                connectFuture.setSuccess(channel);
+            }
+        });
+        channel.addCloseListener(closeListener);
     }
 
     /**
      * 启动udp
      *
-     * @param connectHandler
+     * @param connectFuture 连接结果
      * @throws IOException
      */
-    private final void startUdp(ConnectHandler connectHandler) throws IOException {
+    private final void startUdp(ConnectFuture connectFuture) throws IOException {
 
         DatagramChannel datagramChannel = DatagramChannel.open();
         datagramChannel.configureBlocking(false);
@@ -245,9 +340,7 @@ public class NioClientStarter extends NioStarter {
         datagramChannel.register(selector, SelectionKey.OP_READ);
         nioChannel = new UdpChannel(datagramChannel, selector, clientConfig, byteBufAllocator, channelPipeline, 3);
         nioChannel.starRead();
-        if (null != connectHandler) {
-            connectHandler.onCompleted(nioChannel);
-        }
+        connectFuture.setSuccess(nioChannel);
     }
 
 
@@ -260,17 +353,11 @@ public class NioClientStarter extends NioStarter {
             nioChannel = null;
         }
 
-        if (selector != null && selector.isOpen()) {
-            try {
-                selector.close();
-            } catch (IOException e) {
-                LOGGER.error(e);
-            }
-        }
-
-        if (nioEventLoop != null) {
+        //仅客户端自行创建的loop需要shutdown，共享资源由创建者关闭
+        if (nioEventLoop != null && clientResources == null) {
             nioEventLoop.shutdown();
         }
+        nioEventLoop = null;
     }
 
 
@@ -314,8 +401,8 @@ public class NioClientStarter extends NioStarter {
             if (clientConfig.getLowWaterMark() >= clientConfig.getHighWaterMark()) {
                 throw new RuntimeException("lowWaterMark must be small than highWaterMark");
             }
-            if (clientConfig.getHighWaterMark() >= clientConfig.getBufferWriterQueueSize()) {
-                LOGGER.warn("HighWaterMark is meaningless if it is greater than BufferWriterQueueSize");
+            if (clientConfig.getHighWaterMark() >= clientConfig.getBufferWriterQueueBytes()) {
+                LOGGER.warn("HighWaterMark is meaningless if it is greater than BufferWriterQueueBytes");
             }
         }
     }
@@ -24,11 +24,14 @@ import com.gettyio.core.channel.NioChannel;
 import com.gettyio.core.channel.SocketMode;
 import com.gettyio.core.channel.UdpChannel;
 import com.gettyio.core.channel.config.ServerConfig;
+import com.gettyio.core.channel.loop.EventLoopChooser;
+import com.gettyio.core.channel.loop.EventLoopChoosers;
 import com.gettyio.core.channel.loop.NioEventLoop;
+import com.gettyio.core.channel.loop.NioEventLoopGroup;
+import com.gettyio.core.channel.loop.NioTask;
 import com.gettyio.core.logging.InternalLogger;
 import com.gettyio.core.logging.InternalLoggerFactory;
 import com.gettyio.core.pipeline.ChannelPipeline;
-import com.gettyio.core.util.FastArrayList;
 import com.gettyio.core.util.ThreadPool;
 
 import java.io.IOException;
@@ -36,7 +39,6 @@ import java.net.InetSocketAddress;
 import java.net.SocketOption;
 import java.nio.channels.*;
 import java.util.Date;
-import java.util.Iterator;
 import java.util.Map;
 
 
@@ -57,11 +59,6 @@ public class NioServerStarter extends NioStarter {
      */
     protected ServerConfig serverConfig = new ServerConfig();
 
-    /**
-     * 服务线程运行标志
-     */
-    private volatile boolean running = true;
-
     /**
      * socket对象
      */
@@ -73,14 +70,24 @@ public class NioServerStarter extends NioStarter {
     private DatagramChannel datagramChannel;
 
     /**
-     * 多路复用选择器
+     * UDP通道的多路复用选择器，由UdpChannel轮询
      */
     private Selector selector;
 
     /**
-     * loop集合
+     * boss loop组，负责accept新连接
+     */
+    private NioEventLoopGroup bossGroup;
+
+    /**
+     * worker loop组
+     */
+    private NioEventLoopGroup workerGroup;
+
+    /**
+     * 新连接分配loop的策略，默认轮询
      */
-    private final FastArrayList<NioEventLoop> nioEventLoopFastArrayList = new FastArrayList<>(NioEventLoop.class);
+    private EventLoopChooser eventLoopChooser = EventLoopChoosers.roundRobin();
 
     /**
      * 简单启动
@@ -149,6 +156,19 @@ public class NioServerStarter extends NioStarter {
         return this;
     }
 
+    /**
+     * 设置新连接分配loop的策略，见{@link EventLoopChoosers}
+     *
+     * @param eventLoopChooser 选择策略
+     * @return NioServerStarter
+     */
+    public NioServerStarter eventLoopChooser(EventLoopChooser eventLoopChooser) {
+        if (eventLoopChooser != null) {
+            this.eventLoopChooser = eventLoopChooser;
+        }
+        return this;
+    }
+
     /**
      * 设置socket类型
      *
@@ -173,17 +193,12 @@ public class NioServerStarter extends NioStarter {
         //实例化内存池
         this.byteBufAllocator = new PooledByteBufAllocator(PlatformDependent.directBufferPreferred() && serverConfig.isDirect());
 
-        //初始化boss线程池
-        bossThreadPool = new ThreadPool(ThreadPool.FixedThread, bossThreadNum);
         //初始化worker线程池
         workerThreadPool = new ThreadPool(ThreadPool.FixedThread, workerThreadNum);
 
-        //创建loop集合
-        for (int i = 0; i < workerThreadNum; i++) {
-            NioEventLoop nioEventLoop = new NioEventLoop(serverConfig, byteBufAllocator);
-            nioEventLoop.run();
-            nioEventLoopFastArrayList.add(nioEventLoop);
-        }
+        //创建loop组，每个loop独立的selector和线程
+        workerGroup = new NioEventLoopGroup(workerThreadNum, serverConfig, byteBufAllocator, eventLoopChooser);
+        workerGroup.run();
 
         if (socketMode == SocketMode.TCP) {
             startTcp();
@@ -214,40 +229,40 @@ public class NioServerStarter extends NioStarter {
         }
 
 
-        //创建一个selector
-        selector = Selector.open();
-        //将创建的serverChannel注册到selector选择器上，指定这个channel只关心OP_ACCEPT事件
-        serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
-
-        //开启线程，开始接收客户端的连接
-        bossThreadPool.execute(new Runnable() {
+        //只有一个服务端通道，boss组一个loop即可，accept后按选择策略把连接交给worker loop
+        bossGroup = new NioEventLoopGroup(1, serverConfig, byteBufAllocator);
+        bossGroup.run();
+        bossGroup.next().register(serverSocketChannel, SelectionKey.OP_ACCEPT, new NioTask<ServerSocketChannel>() {
             @Override
-            public void run() {
-                //循环监听客户端的连接
-                while (running) {
+            public void channelReady(ServerSocketChannel ch, SelectionKey key) {
+                //单次最多接收maxReadsPerLoop个连接，避免积压的连接长时间占用boss loop
+                int maxAccepts = Math.max(1, serverConfig.getMaxReadsPerLoop());
+                for (int i = 0; i < maxAccepts; i++) {
+                    java.nio.channels.SocketChannel socketChannel;
                     try {
-                        //select()操作，默认是阻塞模式的，即，当没有accept或者read时间到来时，将一直阻塞不往下面继续执行。
-                        int readyChannels = selector.select();
-                        if (readyChannels <= 0) {
-                            continue;
-                        }
-                        //从selector上获取到了IO事件，可能是accept，也有可能是read，这里只关注可能是accept
-                        Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
-
-                        while (iterator.hasNext()) {
-                            SelectionKey key = iterator.next();
-                            if (key.isAcceptable()) {
-                                //处理OP_ACCEPT事件
-                                final java.nio.channels.SocketChannel socketChannel = ((ServerSocketChannel) key.channel()).accept();
-                                socketChannel.configureBlocking(false);
-                                //通过线程池创建客户端连接通道
-                                createTcpChannel(socketChannel);
-                            }
-                            iterator.remove();
+                        socketChannel = ch.accept();
+                        if (socketChannel == null) {
+                            return;
                         }
                     } catch (IOException e) {
                         LOGGER.error("socketChannel accept Exception", e);
+                        return;
+                    }
+                    try {
+                        socketChannel.configureBlocking(false);
+                    } catch (IOException e) {
+                        LOGGER.error(e.getMessage(), e);
+                        closeChannel(socketChannel);
+                        continue;
                     }
+                    createTcpChannel(socketChannel);
+                }
+            }
+
+            @Override
+            public void channelUnregistered(ServerSocketChannel ch, Throwable cause) {
+                if (cause != null) {
+                    LOGGER.error("server channel unregistered", cause);
                 }
             }
         });
@@ -288,7 +303,7 @@ public class NioServerStarter extends NioStarter {
         SocketChannel socketChannel = null;
         try {
             //获取loop
-            NioEventLoop nioEventLoop = nioEventLoopFastArrayList.round();
+            NioEventLoop nioEventLoop = workerGroup.next();
             socketChannel = new NioChannel(serverConfig, channel, nioEventLoop, byteBufAllocator, workerThreadPool, channelPipeline);
             //注册事件
             ((NioChannel) socketChannel).register();
@@ -340,8 +355,6 @@ public class NioServerStarter extends NioStarter {
      * 停止服务
      */
     public final void shutdown() {
-        //接收线程标志置为false
-        running = false;
         try {
             if (serverSocketChannel != null) {
                 serverSocketChannel.close();
@@ -370,13 +383,25 @@ public class NioServerStarter extends NioStarter {
             selector = null;
         }
 
-        for (NioEventLoop nioEventLoop : nioEventLoopFastArrayList) {
-            nioEventLoop.shutdown();
+        if (bossGroup != null) {
+            bossGroup.shutdown();
+        }
+        if (workerGroup != null) {
+            workerGroup.shutdown();
         }
         LOGGER.info("getty server is shutdown in " + new Date());
     }
 
 
+    /**
+     * 获取worker loop组，可用于查看各loop的连接数与待写出字节数
+     *
+     * @return NioEventLoopGroup
+     */
+    public NioEventLoopGroup getWorkerGroup() {
+        return workerGroup;
+    }
+
     /**
      * 启动检查
      */
@@ -394,8 +419,8 @@ public class NioServerStarter extends NioStarter {
             if (serverConfig.getLowWaterMark() >= serverConfig.getHighWaterMark()) {
                 throw new RuntimeException("lowWaterMark must be small than highWaterMark");
             }
-            if (serverConfig.getHighWaterMark() >= serverConfig.getBufferWriterQueueSize()) {
-                LOGGER.warn("HighWaterMark is meaningless if it is greater than BufferWriterQueueSize");
+            if (serverConfig.getHighWaterMark() >= serverConfig.getBufferWriterQueueBytes()) {
+                LOGGER.warn("HighWaterMark is meaningless if it is greater than BufferWriterQueueBytes");
             }
         }
     }
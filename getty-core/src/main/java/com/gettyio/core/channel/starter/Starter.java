@@ -61,4 +61,14 @@ public abstract class Starter {
      */
     protected ChannelPipeline channelPipeline;
 
+
+    /**
+     * 获取内存池构造器，池化时可通过PooledByteBufAllocator#metric()查看内存池统计
+     *
+     * @return ByteBufAllocator
+     */
+    public ByteBufAllocator getByteBufAllocator() {
+        return byteBufAllocator;
+    }
+
 }
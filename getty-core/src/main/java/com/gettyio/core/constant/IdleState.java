@@ -31,4 +31,8 @@ public enum IdleState {
      * No data was sent for a while.
      */
     WRITER_IDLE,
+    /**
+     * No data was either received or sent for a while.
+     */
+    ALL_IDLE
 }
@@ -0,0 +1,29 @@
+package com.gettyio.core.handler.codec;
+
+/**
+ * TooLongFrameException.java
+ *
+ * @description:帧长度超过解码器允许的最大长度
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public class TooLongFrameException extends DecoderException {
+
+    private static final long serialVersionUID = -1995801950698951640L;
+
+    public TooLongFrameException() {
+    }
+
+    public TooLongFrameException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public TooLongFrameException(String message) {
+        super(message);
+    }
+
+    public TooLongFrameException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -15,8 +15,11 @@
  */
 package com.gettyio.core.handler.codec.bytes;
 
+import com.gettyio.core.buffer.buffer.ByteBuf;
+import com.gettyio.core.buffer.buffer.ByteBufUtil;
 import com.gettyio.core.channel.SocketChannel;
 import com.gettyio.core.handler.codec.ObjectToMessageDecoder;
+import com.gettyio.core.pipeline.Sharable;
 import com.gettyio.core.util.LinkedBlockQueue;
 
 
@@ -28,11 +31,18 @@ import com.gettyio.core.util.LinkedBlockQueue;
  * @date:2020/4/9
  * @copyright: Copyright by gettyio.com
  */
+@Sharable
 public class BytesDecoder extends ObjectToMessageDecoder {
 
+    /**
+     * 无状态，所有通道共用同一个实例即可
+     */
+    public static final BytesDecoder INSTANCE = new BytesDecoder();
+
     @Override
     public void decode(SocketChannel socketChannel, Object obj, LinkedBlockQueue<Object> out) throws Exception {
-        byte[] bytes = (byte[]) obj;
+        //零拷贝模式下复制出可读字节，避免业务持有已释放的缓冲区
+        byte[] bytes = obj instanceof ByteBuf ? ByteBufUtil.getBytes((ByteBuf) obj) : (byte[]) obj;
         out.put(bytes);
         super.decode(socketChannel, obj, out);
     }
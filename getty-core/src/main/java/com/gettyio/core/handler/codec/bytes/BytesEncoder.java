@@ -17,6 +17,7 @@ package com.gettyio.core.handler.codec.bytes;
 
 import com.gettyio.core.channel.SocketChannel;
 import com.gettyio.core.handler.codec.MessageToByteEncoder;
+import com.gettyio.core.pipeline.Sharable;
 import com.gettyio.core.util.ObjectUtil;
 
 
@@ -28,13 +29,25 @@ import com.gettyio.core.util.ObjectUtil;
  * @date:2020/4/9
  * @copyright: Copyright by gettyio.com
  */
+@Sharable
 public class BytesEncoder extends MessageToByteEncoder {
 
+    /**
+     * 无状态，所有通道共用同一个实例即可
+     */
+    public static final BytesEncoder INSTANCE = new BytesEncoder();
+
     @Override
     public void encode(SocketChannel socketChannel, Object obj) throws Exception {
         obj = ObjectUtil.ObjToByteArray(obj);
         super.encode(socketChannel, obj);
     }
 
+    @Override
+    public Object sharedEncodingKey(SocketChannel socketChannel) {
+        //输出只取决于消息本身
+        return CHANNEL_INDEPENDENT;
+    }
+
 
 }
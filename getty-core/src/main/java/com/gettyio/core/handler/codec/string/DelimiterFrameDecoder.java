@@ -15,8 +15,11 @@
  */
 package com.gettyio.core.handler.codec.string;
 
-import com.gettyio.core.buffer.AutoByteBuffer;
+import com.gettyio.core.buffer.allocator.ByteBufAllocator;
+import com.gettyio.core.buffer.buffer.ByteBuf;
+import com.gettyio.core.buffer.pool.buffer.UnpooledHeapByteBuf;
 import com.gettyio.core.channel.SocketChannel;
+import com.gettyio.core.handler.codec.TooLongFrameException;
 import com.gettyio.core.pipeline.in.ChannelInboundHandlerAdapter;
 import com.gettyio.core.util.LinkedBlockQueue;
 
@@ -24,7 +27,10 @@ import com.gettyio.core.util.LinkedBlockQueue;
 /**
  * DelimiterFrameDecoder.java
  *
- * @description:按标识符分割消息，目前默认\r\n
+ * @description:按分隔符分割消息，支持多个分隔符和最大帧长度。
+ * 对整段可读数据批量查找分隔符，半包保留在累积缓冲区中，跨两次读取的分隔符也能正确识别。
+ * 零拷贝模式下帧以累积缓冲区切片的形式传给下一个解码器，不复制数据，下一个解码器如需在decode之外持有须自行retain()；
+ * 否则按byte[]传递
  * @author:gogym
  * @date:2020/4/9
  * @copyright: Copyright by gettyio.com
@@ -35,39 +41,265 @@ public class DelimiterFrameDecoder extends ChannelInboundHandlerAdapter {
      * 默认分隔符
      */
     public static byte[] lineDelimiter = new byte[]{'\r', '\n'};
-    AutoByteBuffer preBuffer = AutoByteBuffer.newByteBuffer();
 
     /**
-     * 消息结束标志
+     * 消息结束标志，同一位置匹配多个分隔符时取先声明的
      */
-    private byte[] endFLag;
+    private final byte[][] delimiters;
     /**
-     * 本次校验的结束标索引位
+     * 最长分隔符的长度
      */
-    private int exceptIndex;
+    private final int maxDelimiterLength;
+    /**
+     * 允许的最大帧长度，不含分隔符
+     */
+    private final int maxFrameLength;
+    /**
+     * 传递的帧是否去掉分隔符
+     */
+    private final boolean stripDelimiter;
+    /**
+     * 为true时一旦超过最大长度立即报错，否则读到分隔符、丢弃完整个超长帧后再报错
+     */
+    private final boolean failFast;
+
+    /**
+     * 未组成完整帧的累积数据
+     */
+    private ByteBuf cumulation;
+    /**
+     * 相对读下标已确认不含分隔符起始位置的字节数，下次从这里继续查找
+     */
+    private int scannedBytes;
+    /**
+     * 是否正在丢弃超长帧
+     */
+    private boolean discardingTooLongFrame;
+    /**
+     * 已丢弃的超长帧字节数
+     */
+    private long tooLongFrameLength;
 
     public DelimiterFrameDecoder(byte[] endFLag) {
-        this.endFLag = endFLag;
+        this(Integer.MAX_VALUE, endFLag);
+    }
+
+    public DelimiterFrameDecoder(int maxFrameLength, byte[]... delimiters) {
+        this(maxFrameLength, true, true, delimiters);
+    }
+
+    public DelimiterFrameDecoder(int maxFrameLength, boolean stripDelimiter, boolean failFast, byte[]... delimiters) {
+        if (maxFrameLength <= 0) {
+            throw new IllegalArgumentException("maxFrameLength must be a positive integer: " + maxFrameLength);
+        }
+        if (delimiters == null || delimiters.length == 0) {
+            throw new IllegalArgumentException("empty delimiters");
+        }
+        this.delimiters = new byte[delimiters.length][];
+        int maxDelimiterLength = 0;
+        for (int i = 0; i < delimiters.length; i++) {
+            byte[] delimiter = delimiters[i];
+            if (delimiter == null || delimiter.length == 0) {
+                throw new IllegalArgumentException("empty delimiter");
+            }
+            this.delimiters[i] = delimiter.clone();
+            maxDelimiterLength = Math.max(maxDelimiterLength, delimiter.length);
+        }
+        this.maxDelimiterLength = maxDelimiterLength;
+        this.maxFrameLength = maxFrameLength;
+        this.stripDelimiter = stripDelimiter;
+        this.failFast = failFast;
+    }
+
+    /**
+     * 行分隔符，同时支持\r\n和\n
+     *
+     * @return byte[][]
+     */
+    public static byte[][] lineDelimiters() {
+        return new byte[][]{{'\r', '\n'}, {'\n'}};
     }
 
     @Override
     public void decode(SocketChannel socketChannel, Object obj, LinkedBlockQueue<Object> out) throws Exception {
 
-        byte[] bytes = (byte[]) obj;
-        int index = 0;
-        while (index < bytes.length) {
-            byte data = bytes[index];
-            if (data != endFLag[exceptIndex]) {
-                preBuffer.writeByte(data);
-                exceptIndex = 0;
-            } else if (++exceptIndex == endFLag.length) {
-                //传递到下一个解码器
-                super.decode(socketChannel, preBuffer.allWriteBytesArray(), out);
-                preBuffer.clear();
-                exceptIndex = 0;
+        boolean byteBufMode = obj instanceof ByteBuf;
+        //零拷贝模式直接在池化缓冲区上查找，输入缓冲区在本方法返回后由通道释放
+        ByteBuf in = byteBufMode ? (ByteBuf) obj : new UnpooledHeapByteBuf(socketChannel.getByteBufAllocator(), (byte[]) obj, ((byte[]) obj).length);
+        ByteBuf buffer = cumulation == null ? in : cumulate(socketChannel.getByteBufAllocator(), in);
+        try {
+            decodeFrames(socketChannel, buffer, byteBufMode, out);
+        } finally {
+            if (buffer == cumulation) {
+                if (!cumulation.isReadable()) {
+                    cumulation.release();
+                    cumulation = null;
+                }
+            } else if (buffer.isReadable()) {
+                //剩余的半包复制到累积缓冲区
+                cumulation = socketChannel.getByteBufAllocator().buffer(buffer.readableBytes());
+                cumulation.writeBytes(buffer);
+            }
+            if (!byteBufMode) {
+                in.release();
+            }
+        }
+    }
+
+    /**
+     * 从缓冲区中解出所有完整的帧
+     *
+     * @param socketChannel 通道
+     * @param buffer        数据
+     * @param byteBufMode   是否按ByteBuf切片传递
+     * @param out           消息队列
+     * @throws Exception 异常
+     */
+    private void decodeFrames(SocketChannel socketChannel, ByteBuf buffer, boolean byteBufMode, LinkedBlockQueue<Object> out) throws Exception {
+        while (buffer.isReadable()) {
+            int readerIndex = buffer.readerIndex();
+            //查找最近的分隔符，已找到的位置之后不用再找
+            int frameLength = -1;
+            byte[] delimiter = null;
+            int fromIndex = readerIndex + scannedBytes;
+            for (byte[] delim : delimiters) {
+                int toIndex = delimiter == null ? buffer.writerIndex() : readerIndex + frameLength;
+                int index = indexOf(buffer, fromIndex, toIndex, delim);
+                if (index >= 0) {
+                    frameLength = index - readerIndex;
+                    delimiter = delim;
+                }
+            }
+
+            if (delimiter == null) {
+                discardOrWait(socketChannel, buffer);
+                return;
+            }
+
+            scannedBytes = 0;
+            buffer.readerIndex(readerIndex + frameLength + delimiter.length);
+            if (discardingTooLongFrame) {
+                //超长帧到此结束
+                long tooLongFrameLength = this.tooLongFrameLength + frameLength;
+                this.tooLongFrameLength = 0;
+                discardingTooLongFrame = false;
+                if (!failFast) {
+                    fail(socketChannel, tooLongFrameLength);
+                }
+                continue;
+            }
+            if (frameLength > maxFrameLength) {
+                fail(socketChannel, frameLength);
+                continue;
+            }
+
+            if (!stripDelimiter) {
+                frameLength += delimiter.length;
+            }
+            Object frame;
+            if (byteBufMode) {
+                frame = buffer.slice(readerIndex, frameLength);
+            } else {
+                byte[] bytes = new byte[frameLength];
+                buffer.getBytes(readerIndex, bytes);
+                frame = bytes;
             }
-            index++;
+            //传递到下一个解码器
+            super.decode(socketChannel, frame, out);
         }
+    }
+
+    /**
+     * 没有找到分隔符，数据超过最大长度时进入丢弃模式，否则等待更多数据。
+     * 末尾可能是分隔符的前半部分，始终保留maxDelimiterLength - 1个字节
+     *
+     * @param socketChannel 通道
+     * @param buffer        数据
+     * @throws Exception 异常
+     */
+    private void discardOrWait(SocketChannel socketChannel, ByteBuf buffer) throws Exception {
+        int readable = buffer.readableBytes();
+        int candidates = Math.max(0, readable - (maxDelimiterLength - 1));
+        if (discardingTooLongFrame || candidates > maxFrameLength) {
+            buffer.readerIndex(buffer.readerIndex() + candidates);
+            tooLongFrameLength += candidates;
+            scannedBytes = 0;
+            if (!discardingTooLongFrame) {
+                discardingTooLongFrame = true;
+                if (failFast) {
+                    fail(socketChannel, tooLongFrameLength);
+                }
+            }
+            return;
+        }
+        scannedBytes = candidates;
+    }
 
+    /**
+     * 把新数据追加到累积缓冲区。下一个解码器仍持有切片或空间不足时换一个新的累积缓冲区，只复制未读部分
+     *
+     * @param allocator 分配器
+     * @param in        新数据
+     * @return ByteBuf
+     */
+    private ByteBuf cumulate(ByteBufAllocator allocator, ByteBuf in) {
+        int readable = cumulation.readableBytes();
+        int required = readable + in.readableBytes();
+        if (cumulation.refCnt() > 1 || cumulation.writableBytes() < in.readableBytes()) {
+            int capacity = cumulation.capacity();
+            int newCapacity = required <= capacity ? capacity : Math.max(required, capacity << 1 < 0 ? Integer.MAX_VALUE : capacity << 1);
+            ByteBuf newCumulation = allocator.buffer(newCapacity);
+            newCumulation.writeBytes(cumulation, cumulation.readerIndex(), readable);
+            cumulation.release();
+            cumulation = newCumulation;
+        }
+        cumulation.writeBytes(in);
+        return cumulation;
+    }
+
+    /**
+     * 在[fromIndex, toIndex)范围内查找分隔符的起始位置，分隔符须完整落在可读范围内
+     *
+     * @param buffer    数据
+     * @param fromIndex 起始下标
+     * @param toIndex   分隔符起始位置的上限
+     * @param delimiter 分隔符
+     * @return 分隔符起始下标，找不到返回-1
+     */
+    private static int indexOf(ByteBuf buffer, int fromIndex, int toIndex, byte[] delimiter) {
+        toIndex = Math.min(toIndex, buffer.writerIndex() - delimiter.length + 1);
+        byte first = delimiter[0];
+        while (fromIndex < toIndex) {
+            int index = buffer.indexOf(fromIndex, toIndex, first);
+            if (index < 0) {
+                return -1;
+            }
+            int i = 1;
+            while (i < delimiter.length && buffer.getByte(index + i) == delimiter[i]) {
+                i++;
+            }
+            if (i == delimiter.length) {
+                return index;
+            }
+            fromIndex = index + 1;
+        }
+        return -1;
+    }
+
+    private void fail(SocketChannel socketChannel, long frameLength) throws Exception {
+        super.exceptionCaught(socketChannel, new TooLongFrameException("frame length exceeds " + maxFrameLength + ": " + frameLength + " - discarded"));
+    }
+
+    @Override
+    public void channelClosed(SocketChannel socketChannel) throws Exception {
+        if (cumulation != null) {
+            cumulation.release();
+            cumulation = null;
+        }
+        //查找进度和丢弃状态只对已释放的累积数据有效
+        scannedBytes = 0;
+        discardingTooLongFrame = false;
+        tooLongFrameLength = 0;
+        super.channelClosed(socketChannel);
     }
 }
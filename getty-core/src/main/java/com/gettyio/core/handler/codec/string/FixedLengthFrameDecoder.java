@@ -15,6 +15,8 @@
  */
 package com.gettyio.core.handler.codec.string;
 
+import com.gettyio.core.buffer.buffer.ByteBuf;
+import com.gettyio.core.buffer.buffer.ByteBufUtil;
 import com.gettyio.core.channel.SocketChannel;
 import com.gettyio.core.pipeline.in.ChannelInboundHandlerAdapter;
 import com.gettyio.core.util.LinkedBlockQueue;
@@ -43,7 +45,7 @@ public class FixedLengthFrameDecoder extends ChannelInboundHandlerAdapter {
     @Override
     public void decode(SocketChannel socketChannel, Object obj, LinkedBlockQueue<Object> out) throws Exception {
 
-        byte[] bytes = (byte[]) obj;
+        byte[] bytes = obj instanceof ByteBuf ? ByteBufUtil.getBytes((ByteBuf) obj) : (byte[]) obj;
         int index = 0;
         while (index < bytes.length) {
             byte[] byte2;
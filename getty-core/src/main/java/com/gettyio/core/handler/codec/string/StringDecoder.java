@@ -15,8 +15,11 @@
  */
 package com.gettyio.core.handler.codec.string;
 
+import com.gettyio.core.buffer.buffer.ByteBuf;
+import com.gettyio.core.buffer.buffer.ByteBufUtil;
 import com.gettyio.core.channel.SocketChannel;
 import com.gettyio.core.handler.codec.ObjectToMessageDecoder;
+import com.gettyio.core.pipeline.Sharable;
 import com.gettyio.core.util.CharsetUtil;
 import com.gettyio.core.util.LinkedBlockQueue;
 
@@ -29,12 +32,19 @@ import com.gettyio.core.util.LinkedBlockQueue;
  * @date:2020/4/9
  * @copyright: Copyright by gettyio.com
  */
+@Sharable
 public class StringDecoder extends ObjectToMessageDecoder {
 
+    /**
+     * 无状态，所有通道共用同一个实例即可
+     */
+    public static final StringDecoder INSTANCE = new StringDecoder();
+
     @Override
     public void decode(SocketChannel socketChannel, Object obj, LinkedBlockQueue<Object> out) throws Exception {
 
-        String str = new String((byte[]) obj, CharsetUtil.UTF_8);
+        byte[] bytes = obj instanceof ByteBuf ? ByteBufUtil.getBytes((ByteBuf) obj) : (byte[]) obj;
+        String str = new String(bytes, CharsetUtil.UTF_8);
         out.put(str);
         super.decode(socketChannel, obj, out);
     }
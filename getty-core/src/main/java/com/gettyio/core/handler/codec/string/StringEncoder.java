@@ -17,6 +17,7 @@ package com.gettyio.core.handler.codec.string;
 
 import com.gettyio.core.channel.SocketChannel;
 import com.gettyio.core.handler.codec.MessageToByteEncoder;
+import com.gettyio.core.pipeline.Sharable;
 import com.gettyio.core.util.CharsetUtil;
 import com.gettyio.core.util.ObjectUtil;
 
@@ -29,8 +30,14 @@ import com.gettyio.core.util.ObjectUtil;
  * @date:2020/4/9
  * @copyright: Copyright by gettyio.com
  */
+@Sharable
 public class StringEncoder extends MessageToByteEncoder {
 
+    /**
+     * 无状态，所有通道共用同一个实例即可
+     */
+    public static final StringEncoder INSTANCE = new StringEncoder();
+
     @Override
     public void encode(SocketChannel socketChannel, Object obj) throws Exception {
         if (obj instanceof String) {
@@ -39,5 +46,11 @@ public class StringEncoder extends MessageToByteEncoder {
         super.encode(socketChannel, obj);
     }
 
+    @Override
+    public Object sharedEncodingKey(SocketChannel socketChannel) {
+        //输出只取决于消息本身
+        return CHANNEL_INDEPENDENT;
+    }
+
 
 }
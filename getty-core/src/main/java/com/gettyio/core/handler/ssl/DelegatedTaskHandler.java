@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.handler.ssl;
+
+import com.gettyio.core.channel.SocketChannel;
+import com.gettyio.core.handler.ssl.sslfacade.ITaskHandler;
+import com.gettyio.core.handler.ssl.sslfacade.ITasks;
+import com.gettyio.core.logging.InternalLogger;
+import com.gettyio.core.logging.InternalLoggerFactory;
+
+import javax.net.ssl.SSLException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * DelegatedTaskHandler.java
+ *
+ * @description:把SSLEngine的委托任务（证书校验、密钥交换等耗时计算）交给线程池执行，不再阻塞IO线程，完成后回到通道的IO线程继续握手
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public class DelegatedTaskHandler implements ITaskHandler {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(DelegatedTaskHandler.class);
+
+    private final Executor executor;
+    private final SocketChannel socketChannel;
+
+    public DelegatedTaskHandler(Executor executor, SocketChannel socketChannel) {
+        this.executor = executor;
+        this.socketChannel = socketChannel;
+    }
+
+    @Override
+    public void process(final ITasks tasks) throws SSLException {
+        final Runnable runTasks = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Runnable task;
+                    while ((task = tasks.next()) != null) {
+                        task.run();
+                    }
+                } catch (Throwable e) {
+                    logger.error(e.getMessage(), e);
+                }
+                //回到通道的IO线程继续握手
+                try {
+                    socketChannel.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                tasks.done();
+                            } catch (Exception e) {
+                                logger.error(e.getMessage(), e);
+                                socketChannel.close();
+                            }
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    //通道的IO线程已关闭
+                    socketChannel.close();
+                }
+            }
+        };
+        try {
+            executor.execute(runTasks);
+        } catch (RejectedExecutionException e) {
+            //线程池不可用时在当前线程执行
+            runTasks.run();
+        }
+    }
+}
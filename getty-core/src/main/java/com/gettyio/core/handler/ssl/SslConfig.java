@@ -24,6 +24,12 @@ package com.gettyio.core.handler.ssl;
  * @copyright: Copyright by gettyio.com
  */
 public class SslConfig {
+
+    /**
+     * 使用共享的委托任务线程池
+     */
+    public static final int SHARED_DELEGATED_TASK_THREADS = -1;
+
     /**
      * 配置引擎在握手时使用客户端（或服务器）模式
      */
@@ -50,6 +56,24 @@ public class SslConfig {
     private String trustPassword;
 
     private boolean clientAuth = ClientAuth.NONE;
+    /**
+     * 会话缓存数量，0表示不限制
+     */
+    private int sessionCacheSize = 20480;
+    /**
+     * 会话缓存超时时间（秒），0表示不超时
+     */
+    private int sessionTimeout = 86400;
+    /**
+     * 执行握手委托任务的线程数。
+     * 小于0（默认）表示使用进程内共享的委托任务线程池，0表示在IO线程中直接执行，
+     * 大于0表示提供者独占一个线程池，首次使用时创建，由{@link SslContextProvider#shutdown()}关闭
+     */
+    private int delegatedTaskThreads = SHARED_DELEGATED_TASK_THREADS;
+    /**
+     * 委托任务队列大小，队列满时由提交任务的线程执行
+     */
+    private int delegatedTaskQueueSize = 1024;
 
     public String getKeyFile() {
         return keyFile;
@@ -106,4 +130,36 @@ public class SslConfig {
     public void setClientAuth(boolean clientAuth) {
         this.clientAuth = clientAuth;
     }
+
+    public int getSessionCacheSize() {
+        return sessionCacheSize;
+    }
+
+    public void setSessionCacheSize(int sessionCacheSize) {
+        this.sessionCacheSize = sessionCacheSize;
+    }
+
+    public int getSessionTimeout() {
+        return sessionTimeout;
+    }
+
+    public void setSessionTimeout(int sessionTimeout) {
+        this.sessionTimeout = sessionTimeout;
+    }
+
+    public int getDelegatedTaskThreads() {
+        return delegatedTaskThreads;
+    }
+
+    public void setDelegatedTaskThreads(int delegatedTaskThreads) {
+        this.delegatedTaskThreads = delegatedTaskThreads;
+    }
+
+    public int getDelegatedTaskQueueSize() {
+        return delegatedTaskQueueSize;
+    }
+
+    public void setDelegatedTaskQueueSize(int delegatedTaskQueueSize) {
+        this.delegatedTaskQueueSize = delegatedTaskQueueSize;
+    }
 }
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.handler.ssl;
+
+import com.gettyio.core.channel.SocketChannel;
+import com.gettyio.core.handler.ssl.sslfacade.DefaultTaskHandler;
+import com.gettyio.core.handler.ssl.sslfacade.ITaskHandler;
+
+import javax.net.ssl.*;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * SslContextProvider.java
+ *
+ * @description:SSL上下文提供者，每个启动器构建一次，密钥库只加载一次，为每个通道创建独立的SSLEngine，并配置会话缓存以支持会话复用。
+ * 握手的委托任务交给共享线程池执行，并统计握手情况
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public class SslContextProvider {
+
+    /**
+     * 默认protocolVersion
+     */
+    public static final String DEFAULT_PROTOCOL = "TLSv1.2";
+
+    /**
+     * 配置文件
+     */
+    private final SslConfig config;
+    /**
+     * 协议版本
+     */
+    private final String protocol;
+    /**
+     * SSL上下文，所有通道共享
+     */
+    private final SSLContext sslContext;
+    /**
+     * 握手委托任务线程池，为null时在IO线程中执行
+     */
+    private volatile Executor delegatedTaskExecutor;
+    /**
+     * 是否使用本对象独占的线程池，首次使用时创建，关闭时需要销毁
+     */
+    private boolean ownExecutor;
+    /**
+     * 是否已关闭
+     */
+    private volatile boolean shutdown;
+    /**
+     * 握手统计
+     */
+    private final SslHandshakeMetrics handshakeMetrics = new SslHandshakeMetrics();
+
+    public SslContextProvider(SslConfig config) {
+        this(config, DEFAULT_PROTOCOL);
+    }
+
+    public SslContextProvider(SslConfig config, String protocol) {
+        if (config == null) {
+            throw new NullPointerException("config");
+        }
+        this.config = config;
+        this.protocol = protocol == null ? DEFAULT_PROTOCOL : protocol;
+        try {
+            this.sslContext = SSLContext.getInstance(this.protocol);
+            sslContext.init(keyManagers(config), trustManagers(config), new SecureRandom());
+        } catch (GeneralSecurityException | IOException e) {
+            throw new IllegalStateException("ssl context init failure", e);
+        }
+        configureSessionContext(sslContext.getServerSessionContext());
+        configureSessionContext(sslContext.getClientSessionContext());
+        if (config.getDelegatedTaskThreads() < 0) {
+            this.delegatedTaskExecutor = sharedDelegatedTaskExecutor();
+        } else if (config.getDelegatedTaskThreads() > 0) {
+            this.ownExecutor = true;
+        }
+    }
+
+    /**
+     * 进程内共享的握手委托任务线程池，首次使用时创建，线程空闲后自动回收
+     *
+     * @return Executor
+     */
+    public static Executor sharedDelegatedTaskExecutor() {
+        return SharedExecutorHolder.INSTANCE;
+    }
+
+    private static final class SharedExecutorHolder {
+        static final ExecutorService INSTANCE = newDelegatedTaskExecutor(Runtime.getRuntime().availableProcessors(), 1024, "getty-ssl-shared-task-");
+    }
+
+
+    /**
+     * 使用外部线程池执行握手委托任务，多个提供者可共用一个线程池。传入null表示在IO线程中执行
+     *
+     * @param executor 线程池
+     * @return SslContextProvider
+     */
+    public synchronized SslContextProvider delegatedTaskExecutor(Executor executor) {
+        Executor old = this.delegatedTaskExecutor;
+        this.delegatedTaskExecutor = executor;
+        if (ownExecutor) {
+            ownExecutor = false;
+            if (old != null) {
+                ((ExecutorService) old).shutdown();
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 创建通道的委托任务处理器
+     *
+     * @param socketChannel 通道，为null时在当前线程执行
+     * @return ITaskHandler
+     */
+    public ITaskHandler newTaskHandler(SocketChannel socketChannel) {
+        Executor executor = getDelegatedTaskExecutor();
+        if (executor == null || socketChannel == null) {
+            return new DefaultTaskHandler();
+        }
+        return new DelegatedTaskHandler(executor, socketChannel);
+    }
+
+    /**
+     * 关闭自己创建的委托任务线程池，共享线程池和外部传入的线程池不受影响
+     */
+    public synchronized void shutdown() {
+        shutdown = true;
+        if (ownExecutor && delegatedTaskExecutor != null) {
+            ((ExecutorService) delegatedTaskExecutor).shutdown();
+        }
+    }
+
+    private static ExecutorService newDelegatedTaskExecutor(int threads, int queueSize, final String namePrefix) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(Math.max(queueSize, 1)), new ThreadFactory() {
+            private final AtomicInteger index = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, namePrefix + index.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                //队列满时在调用线程执行；已关闭时抛出异常，由调用方改在IO线程中执行，不能像CallerRunsPolicy一样静默丢弃
+                if (executor.isShutdown()) {
+                    throw new RejectedExecutionException("delegated task executor has been shut down");
+                }
+                r.run();
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+
+    /**
+     * 创建新的SSLEngine，服务端使用
+     *
+     * @return SSLEngine
+     */
+    public SSLEngine newEngine() {
+        return initEngine(sslContext.createSSLEngine());
+    }
+
+    /**
+     * 创建新的SSLEngine，客户端传入对端地址后可复用之前的会话，避免完整握手
+     *
+     * @param peerHost 对端地址
+     * @param peerPort 对端端口
+     * @return SSLEngine
+     */
+    public SSLEngine newEngine(String peerHost, int peerPort) {
+        if (peerHost == null) {
+            return newEngine();
+        }
+        return initEngine(sslContext.createSSLEngine(peerHost, peerPort));
+    }
+
+    private SSLEngine initEngine(SSLEngine engine) {
+        engine.setUseClientMode(config.isClientMode());
+        engine.setNeedClientAuth(config.isClientAuth());
+        engine.setEnabledProtocols(new String[]{protocol});
+        return engine;
+    }
+
+    /**
+     * 配置会话缓存
+     *
+     * @param sessionContext 会话上下文
+     */
+    private void configureSessionContext(SSLSessionContext sessionContext) {
+        if (sessionContext == null) {
+            return;
+        }
+        sessionContext.setSessionCacheSize(config.getSessionCacheSize());
+        sessionContext.setSessionTimeout(config.getSessionTimeout());
+    }
+
+
+    private static KeyManager[] keyManagers(SslConfig config) throws GeneralSecurityException, IOException {
+        if (config.getKeyFile() == null) {
+            return null;
+        }
+        // 加载服务端的KeyStore，用于检查密钥库完整性的密码
+        KeyStore ks = loadKeyStore(config.getKeyFile(), config.getKeystorePassword());
+        // 初始化密钥管理器
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance("SunX509");
+        kmf.init(ks, config.getKeyPassword().toCharArray());
+        return kmf.getKeyManagers();
+    }
+
+    private static TrustManager[] trustManagers(SslConfig config) throws GeneralSecurityException, IOException {
+        if (config.getTrustFile() != null) {
+            // 加载信任库
+            KeyStore ts = loadKeyStore(config.getTrustFile(), config.getTrustPassword());
+            TrustManagerFactory tmf = TrustManagerFactory.getInstance("SunX509");
+            tmf.init(ts);
+            return tmf.getTrustManagers();
+        }
+        return new TrustManager[]{new X509TrustManager() {
+            @Override
+            public void checkClientTrusted(X509Certificate[] x509Certificates, String s) throws CertificateException {
+            }
+
+            @Override
+            public void checkServerTrusted(X509Certificate[] x509Certificates, String s) throws CertificateException {
+            }
+
+            @Override
+            public X509Certificate[] getAcceptedIssuers() {
+                return new X509Certificate[0];
+            }
+        }};
+    }
+
+    private static KeyStore loadKeyStore(String file, String password) throws GeneralSecurityException, IOException {
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        try (InputStream in = new FileInputStream(file)) {
+            keyStore.load(in, password == null ? null : password.toCharArray());
+        }
+        return keyStore;
+    }
+
+
+    public SSLContext getSslContext() {
+        return sslContext;
+    }
+
+    public SslConfig getConfig() {
+        return config;
+    }
+
+    public String getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * 获取握手委托任务线程池，独占线程池在首次调用时创建，关闭后返回null，委托任务改在IO线程中执行
+     *
+     * @return Executor
+     */
+    public Executor getDelegatedTaskExecutor() {
+        Executor executor = delegatedTaskExecutor;
+        if (!shutdown && (executor != null || !ownExecutor)) {
+            return executor;
+        }
+        synchronized (this) {
+            if (shutdown && ownExecutor) {
+                //独占线程池已关闭
+                return null;
+            }
+            if (delegatedTaskExecutor == null && ownExecutor && !shutdown) {
+                delegatedTaskExecutor = newDelegatedTaskExecutor(config.getDelegatedTaskThreads(), config.getDelegatedTaskQueueSize(), "getty-ssl-task-");
+            }
+            return delegatedTaskExecutor;
+        }
+    }
+
+    public SslHandshakeMetrics getHandshakeMetrics() {
+        return handshakeMetrics;
+    }
+}
@@ -15,6 +15,8 @@
  */
 package com.gettyio.core.handler.ssl;
 
+import com.gettyio.core.buffer.allocator.ByteBufAllocator;
+import com.gettyio.core.buffer.buffer.ByteBuf;
 import com.gettyio.core.channel.SocketChannel;
 import com.gettyio.core.handler.ssl.sslfacade.IHandshakeCompletedListener;
 import com.gettyio.core.handler.ssl.sslfacade.ISSLListener;
@@ -24,6 +26,8 @@ import com.gettyio.core.logging.InternalLoggerFactory;
 import com.gettyio.core.pipeline.all.ChannelAllBoundHandlerAdapter;
 import com.gettyio.core.util.LinkedBlockQueue;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 
 /**
@@ -46,7 +50,26 @@ public class SslHandler extends ChannelAllBoundHandlerAdapter {
         this.socketChannel = socketChannel;
         this.sslService = sslService;
         this.socketChannel.setSslHandler(this);
-        sslService.createSSLFacade(new handshakeCompletedListener(), new SSLListener(), new sessionClosedListener());
+        String peerHost = null;
+        int peerPort = -1;
+        if (sslService.getConfig().isClientMode()) {
+            //客户端带上对端地址，重连时可复用之前的会话
+            try {
+                InetSocketAddress remoteAddress = socketChannel.getRemoteAddress();
+                if (remoteAddress != null) {
+                    peerHost = remoteAddress.getHostString();
+                    peerPort = remoteAddress.getPort();
+                }
+            } catch (IOException e) {
+                logger.warn(e.getMessage(), e);
+            }
+        }
+        sslService.createSSLFacade(peerHost, peerPort, socketChannel.getByteBufAllocator(),
+                sslService.getSslContextProvider().newTaskHandler(socketChannel), new handshakeCompletedListener(), new SSLListener(), new sessionClosedListener());
+    }
+
+    public SslHandler(SocketChannel socketChannel, SslContextProvider sslContextProvider) {
+        this(socketChannel, new SslService(sslContextProvider));
     }
 
 
@@ -56,48 +79,66 @@ public class SslHandler extends ChannelAllBoundHandlerAdapter {
 
     @Override
     public void encode(SocketChannel socketChannel, Object obj) throws Exception {
-        byte[] bytes = (byte[]) obj;
-        if (!sslService.getSsl().isHandshakeCompleted() && obj != null) {
-            //握手
-            ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-            try {
-                sslService.getSsl().decrypt(byteBuffer);
-                byte[] b = new byte[byteBuffer.remaining()];
-                byteBuffer.get(bytes, 0, b.length);
-                socketChannel.writeToChannel(b);
-            } catch (Exception e) {
-                logger.error(e.getMessage(), e);
-                sslService.getSsl().close();
+        if (obj == null) {
+            return;
+        }
+        ByteBuf byteBuf = obj instanceof ByteBuf ? (ByteBuf) obj : null;
+        //组合缓冲区逐个组件处理，避免nioBuffer()把各组件合并复制成一个缓冲区
+        ByteBuffer[] byteBuffers = byteBuf != null ? byteBuf.nioBuffers() : new ByteBuffer[]{ByteBuffer.wrap((byte[]) obj)};
+        try {
+            if (!sslService.getSsl().isHandshakeCompleted()) {
+                //握手
+                try {
+                    for (ByteBuffer byteBuffer : byteBuffers) {
+                        sslService.getSsl().decrypt(byteBuffer);
+                    }
+                } catch (Exception e) {
+                    logger.error(e.getMessage(), e);
+                    sslService.getSsl().close();
+                }
+            } else {
+                //SSL doUnWard，直接从源缓冲区加密，多个组件由SSLEngine聚合到同一批TLS记录中
+                if (byteBuffers.length == 1) {
+                    sslService.getSsl().encrypt(byteBuffers[0]);
+                } else {
+                    sslService.getSsl().encrypt(byteBuffers);
+                }
+            }
+        } finally {
+            if (byteBuf != null) {
+                byteBuf.release();
             }
-        } else if (bytes != null) {
-            ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-            //SSL doUnWard
-            sslService.getSsl().encrypt(byteBuffer);
         }
     }
 
     @Override
     public void decode(SocketChannel socketChannel, Object obj, LinkedBlockQueue<Object> out) throws Exception {
         this.out = out;
-        byte[] bytes = (byte[]) obj;
-        if (!sslService.getSsl().isHandshakeCompleted() && obj != null) {
+        if (obj == null) {
+            return;
+        }
+        //零拷贝模式下直接使用池化缓冲区对应的nio缓冲区，不再复制
+        ByteBuffer byteBuffer = obj instanceof ByteBuf ? ((ByteBuf) obj).nioBuffer() : ByteBuffer.wrap((byte[]) obj);
+        if (!sslService.getSsl().isHandshakeCompleted()) {
             //握手
-            ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
             try {
                 sslService.getSsl().decrypt(byteBuffer);
-                byte[] b = new byte[byteBuffer.remaining()];
-                byteBuffer.get(bytes, 0, b.length);
-                socketChannel.writeToChannel(b);
             } catch (Exception e) {
                 sslService.getSsl().close();
             }
-        } else if (bytes != null) {
-            ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+        } else {
             //SSL doUnWard
             sslService.getSsl().decrypt(byteBuffer);
         }
     }
 
+    @Override
+    public void channelClosed(SocketChannel socketChannel) throws Exception {
+        //归还SSL缓冲区
+        sslService.release();
+        super.channelClosed(socketChannel);
+    }
+
 
     /**
      * 握手成功回调
@@ -129,17 +170,25 @@ public class SslHandler extends ChannelAllBoundHandlerAdapter {
 
 
     /**
-     * 消息回调
+     * 消息回调，回调中的缓冲区为SSL内部缓冲区，只在回调期间有效
      */
     class SSLListener implements ISSLListener {
 
         @Override
         public void onWrappedData(ByteBuffer wrappedBytes) {
             try {
-                byte[] b = new byte[wrappedBytes.remaining()];
-                wrappedBytes.get(b, 0, b.length);
+                ByteBufAllocator byteBufAllocator = socketChannel.getByteBufAllocator();
+                if (byteBufAllocator == null) {
+                    byte[] b = new byte[wrappedBytes.remaining()];
+                    wrappedBytes.get(b, 0, b.length);
+                    SslHandler.super.encode(socketChannel, b);
+                    return;
+                }
+                //密文写入池化缓冲区，直接交给通道输出
+                ByteBuf byteBuf = byteBufAllocator.ioBuffer(wrappedBytes.remaining());
+                byteBuf.writeBytes(wrappedBytes);
                 //回调父类方法
-                SslHandler.super.encode(socketChannel, b);
+                SslHandler.super.encode(socketChannel, byteBuf);
             } catch (Exception e) {
                 logger.error(e.getMessage(), e);
             }
@@ -147,6 +196,20 @@ public class SslHandler extends ChannelAllBoundHandlerAdapter {
 
         @Override
         public void onPlainData(ByteBuffer plainBytes) {
+            ByteBufAllocator byteBufAllocator = socketChannel.getByteBufAllocator();
+            if (socketChannel.getConfig().isByteBufInbound() && byteBufAllocator != null) {
+                //零拷贝模式，明文以池化缓冲区交给下一个解码器，返回后释放
+                ByteBuf byteBuf = byteBufAllocator.buffer(plainBytes.remaining());
+                byteBuf.writeBytes(plainBytes);
+                try {
+                    SslHandler.super.decode(socketChannel, byteBuf, out);
+                } catch (Exception e) {
+                    logger.error(e.getMessage(), e);
+                } finally {
+                    byteBuf.release();
+                }
+                return;
+            }
             //消息解码
             byte[] b = new byte[plainBytes.remaining()];
             plainBytes.get(b, 0, b.length);
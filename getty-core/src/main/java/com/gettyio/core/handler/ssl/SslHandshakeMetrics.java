@@ -0,0 +1,133 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.handler.ssl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * SslHandshakeMetrics.java
+ *
+ * @description:SSL握手统计，由同一个SslContextProvider创建的所有通道共享，包括进行中的握手数、握手耗时分布和失败数
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public class SslHandshakeMetrics {
+
+    /**
+     * 耗时分布的桶上限（毫秒），最后一个桶统计超出上限的握手
+     */
+    private static final long[] LATENCY_BUCKETS_MILLIS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000};
+
+    /**
+     * 进行中的握手数
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    /**
+     * 成功握手的总耗时（纳秒）
+     */
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLongArray latencyHistogram = new AtomicLongArray(LATENCY_BUCKETS_MILLIS.length + 1);
+
+
+    void handshakeStarted() {
+        started.incrementAndGet();
+        inFlight.incrementAndGet();
+    }
+
+    void handshakeCompleted(long latencyNanos) {
+        inFlight.decrementAndGet();
+        completed.incrementAndGet();
+        totalLatencyNanos.addAndGet(latencyNanos);
+        long millis = TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+        int i = 0;
+        while (i < LATENCY_BUCKETS_MILLIS.length && millis > LATENCY_BUCKETS_MILLIS[i]) {
+            i++;
+        }
+        latencyHistogram.incrementAndGet(i);
+    }
+
+    void handshakeFailed() {
+        inFlight.decrementAndGet();
+        failed.incrementAndGet();
+    }
+
+
+    public int getHandshakesInFlight() {
+        return inFlight.get();
+    }
+
+    public long getHandshakesStarted() {
+        return started.get();
+    }
+
+    public long getHandshakesCompleted() {
+        return completed.get();
+    }
+
+    public long getHandshakesFailed() {
+        return failed.get();
+    }
+
+    /**
+     * 成功握手的平均耗时（毫秒）
+     *
+     * @return double
+     */
+    public double getAverageLatencyMillis() {
+        long count = completed.get();
+        return count == 0 ? 0 : totalLatencyNanos.get() / 1000000D / count;
+    }
+
+    /**
+     * 耗时分布的桶上限（毫秒）
+     *
+     * @return long[]
+     */
+    public long[] getLatencyBucketsMillis() {
+        return LATENCY_BUCKETS_MILLIS.clone();
+    }
+
+    /**
+     * 耗时分布，下标i为耗时不超过getLatencyBucketsMillis()[i]的握手数，最后一位为超出所有上限的握手数
+     *
+     * @return long[]
+     */
+    public long[] getLatencyHistogram() {
+        long[] histogram = new long[latencyHistogram.length()];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = latencyHistogram.get(i);
+        }
+        return histogram;
+    }
+
+    @Override
+    public String toString() {
+        return "SslHandshakeMetrics{" +
+                "inFlight=" + inFlight.get() +
+                ", started=" + started.get() +
+                ", completed=" + completed.get() +
+                ", failed=" + failed.get() +
+                ", averageLatencyMillis=" + getAverageLatencyMillis() +
+                '}';
+    }
+}
@@ -15,21 +15,17 @@
  */
 package com.gettyio.core.handler.ssl;
 
+import com.gettyio.core.buffer.allocator.ByteBufAllocator;
 import com.gettyio.core.handler.ssl.sslfacade.*;
 
-import javax.net.ssl.*;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.security.KeyStore;
-import java.security.SecureRandom;
-import java.security.cert.CertificateException;
-import java.security.cert.X509Certificate;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 /**
  * SslService.java
  *
- * @description:ssl服务
+ * @description:ssl服务，每个通道一个实例，SSL上下文由{@link SslContextProvider}共享
  * @author:gogym
  * @date:2020/4/9
  * @copyright: Copyright by gettyio.com
@@ -37,13 +33,13 @@ import java.security.cert.X509Certificate;
 public class SslService {
 
     /**
-     * 默认protocolVersion
+     * SSL上下文提供者
      */
-    private static String PROTOCOL = "TLSv1.2";
+    private final SslContextProvider sslContextProvider;
     /**
-     * SSL上下文
+     * 提供者是否由本服务创建，释放时一并关闭
      */
-    private SSLContext sslContext;
+    private final boolean ownProvider;
     /**
      * 配置文件
      */
@@ -51,77 +47,56 @@ public class SslService {
 
     private ISSLFacade ssl;
 
-    public SslService(SslConfig config) {
-        this.config = config;
-        init(config);
-    }
-
-    public SslService(SslConfig config, String protocolVersion) {
-        this.PROTOCOL = protocolVersion;
-        this.config = config;
-        init(config);
-    }
+    /**
+     * 握手开始时间
+     */
+    private long handshakeStartNanos;
+    /**
+     * 握手结果是否已统计
+     */
+    private final AtomicBoolean handshakeRecorded = new AtomicBoolean();
 
     /**
-     * 初始化
+     * 每次都会重新加载密钥库，建议在启动器中构建一个{@link SslContextProvider}并使用{@link #SslService(SslContextProvider)}
      *
-     * @param config
+     * @param config 配置
      */
-    private void init(SslConfig config) {
-        try {
-
-            KeyManager[] keyManagers = null;
-            if (config.getKeyFile() != null) {
-                // 密钥库KeyStore
-                KeyStore ks = KeyStore.getInstance("JKS");
-                // 加载服务端的KeyStore，用于检查密钥库完整性的密码
-                ks.load(new FileInputStream(config.getKeyFile()), config.getKeystorePassword().toCharArray());
-                // 初始化密钥管理器
-                KeyManagerFactory kmf = KeyManagerFactory.getInstance("SunX509");
-                kmf.init(ks, config.getKeyPassword().toCharArray());
-                keyManagers = kmf.getKeyManagers();
-            }
+    public SslService(SslConfig config) {
+        this(new SslContextProvider(config), true);
+    }
 
-            //初始化签名证书管理器
-            TrustManager[] trustManagers;
-            if (config.getTrustFile() != null) {
-                // 密钥库KeyStore
-                KeyStore ts = KeyStore.getInstance("JKS");
-                // 加载信任库
-                ts.load(new FileInputStream(config.getTrustFile()), config.getTrustPassword().toCharArray());
-                TrustManagerFactory tmf = TrustManagerFactory.getInstance("SunX509");
-                tmf.init(ts);
-                trustManagers = tmf.getTrustManagers();
-            } else {
-                trustManagers = new TrustManager[]{new X509TrustManager() {
-                    @Override
-                    public void checkClientTrusted(X509Certificate[] x509Certificates, String s) throws CertificateException {
-                    }
-
-                    @Override
-                    public void checkServerTrusted(X509Certificate[] x509Certificates, String s) throws CertificateException {
-                    }
-
-                    @Override
-                    public X509Certificate[] getAcceptedIssuers() {
-                        return new X509Certificate[0];
-                    }
-                }};
-            }
+    public SslService(SslConfig config, String protocolVersion) {
+        this(new SslContextProvider(config, protocolVersion), true);
+    }
 
-            //初始化上下文
-            sslContext = SSLContext.getInstance(PROTOCOL);
-            sslContext.init(keyManagers, trustManagers, new SecureRandom());
+    public SslService(SslContextProvider sslContextProvider) {
+        this(sslContextProvider, false);
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    private SslService(SslContextProvider sslContextProvider, boolean ownProvider) {
+        this.sslContextProvider = sslContextProvider;
+        this.config = sslContextProvider.getConfig();
+        this.ownProvider = ownProvider;
     }
 
 
     public void createSSLFacade(IHandshakeCompletedListener handshakeCompletedListener, ISSLListener SSLListener, ISessionClosedListener sessionClosedListener) {
-        ssl = new SSLFacade(sslContext, config.isClientMode(), config.isClientAuth(), new DefaultTaskHandler());
-        ssl.setHandshakeCompletedListener(handshakeCompletedListener);
+        createSSLFacade(null, -1, null, new DefaultTaskHandler(), handshakeCompletedListener, SSLListener, sessionClosedListener);
+    }
+
+    /**
+     * 创建SSL处理器，客户端传入对端地址以便复用会话
+     *
+     * @param peerHost         对端地址，可为null
+     * @param peerPort         对端端口
+     * @param byteBufAllocator 内存池，不为null时SSL缓冲区从池中申请，通道关闭后需调用{@link #release()}
+     * @param taskHandler      握手委托任务处理器
+     */
+    public void createSSLFacade(String peerHost, int peerPort, ByteBufAllocator byteBufAllocator, ITaskHandler taskHandler, IHandshakeCompletedListener handshakeCompletedListener, ISSLListener SSLListener, ISessionClosedListener sessionClosedListener) {
+        ssl = new SSLFacade(sslContextProvider.newEngine(peerHost, peerPort), taskHandler, byteBufAllocator);
+        handshakeStartNanos = System.nanoTime();
+        sslContextProvider.getHandshakeMetrics().handshakeStarted();
+        ssl.setHandshakeCompletedListener(recordHandshake(handshakeCompletedListener));
         ssl.setSSLListener(SSLListener);
         ssl.setCloseListener(sessionClosedListener);
     }
@@ -133,7 +108,7 @@ public class SslService {
     public void beginHandshake(IHandshakeCompletedListener handshakeCompletedListener) {
         try {
             if (null != handshakeCompletedListener) {
-                ssl.setHandshakeCompletedListener(handshakeCompletedListener);
+                ssl.setHandshakeCompletedListener(recordHandshake(handshakeCompletedListener));
             }
             ssl.beginHandshake();
         } catch (IOException e) {
@@ -149,7 +124,62 @@ public class SslService {
         }
     }
 
+    /**
+     * 释放SSL缓冲区，握手未完成的记为失败。提供者由本服务创建时一并关闭
+     */
+    public void release() {
+        if (ssl != null) {
+            handshakeFinished(false);
+            ssl.release();
+        }
+        if (ownProvider) {
+            sslContextProvider.shutdown();
+        }
+    }
+
+    /**
+     * 包装握手完成回调，用于统计握手耗时
+     *
+     * @param handshakeCompletedListener 回调
+     * @return IHandshakeCompletedListener
+     */
+    private IHandshakeCompletedListener recordHandshake(final IHandshakeCompletedListener handshakeCompletedListener) {
+        return new IHandshakeCompletedListener() {
+            @Override
+            public void onComplete() {
+                handshakeFinished(true);
+                if (handshakeCompletedListener != null) {
+                    handshakeCompletedListener.onComplete();
+                }
+            }
+        };
+    }
+
+    /**
+     * 统计握手结果，每个通道只统计一次
+     *
+     * @param success 是否成功
+     */
+    private void handshakeFinished(boolean success) {
+        if (!handshakeRecorded.compareAndSet(false, true)) {
+            return;
+        }
+        if (success) {
+            sslContextProvider.getHandshakeMetrics().handshakeCompleted(System.nanoTime() - handshakeStartNanos);
+        } else {
+            sslContextProvider.getHandshakeMetrics().handshakeFailed();
+        }
+    }
+
     public ISSLFacade getSsl() {
         return ssl;
     }
+
+    public SslContextProvider getSslContextProvider() {
+        return sslContextProvider;
+    }
+
+    public SslConfig getConfig() {
+        return config;
+    }
 }
@@ -1,6 +1,8 @@
 package com.gettyio.core.handler.ssl.sslfacade;
 
-import java.nio.BufferOverflowException;
+import com.gettyio.core.buffer.allocator.ByteBufAllocator;
+import com.gettyio.core.buffer.buffer.ByteBuf;
+
 import javax.net.ssl.SSLSession;
 import java.nio.ByteBuffer;
 
@@ -8,10 +10,7 @@ class Buffers
 {
   /*
    Buffers is a simple abstraction that encapsulates the 4 SSL
-   buffers and an unwrap caching buffer.
-
-   The unwrap caching buffer is required to cache previously received
-   partial TLS packet which could not be unwrapped.
+   buffers.
 
    The four ByteBuffers required to operate an SSLEngine. One way to look
    at the role of these buffers is that two of these buffers are used to
@@ -28,7 +27,16 @@ class Buffers
    unwrap is never put in the IN_PLAIN buffer after unwrapping,
    only application data is available here when applicable.
 
-   In order to create an instance of Buffers all we need is a SSLSession.
+   The IN_CIPHER buffer doubles as the unwrap cache: it is kept in read mode
+   between unwraps, so a partial TLS record that could not be unwrapped
+   stays at its position and new data is appended behind it.
+
+   OUT_PLAIN is only used for wraps without application data (handshake
+   and close_notify), application data is wrapped straight from the
+   caller's buffer.
+
+   When a ByteBufAllocator is given the buffers are pooled direct ByteBufs
+   and must be returned with release() once the session is done.
 
    These buffers should not be reused by the host application for any
    other purpose as SSLEngine might modify the source buffer during an
@@ -38,48 +46,40 @@ class Buffers
    In short, leave these buffers alone!
    */
 
-  private ByteBuffer _peerApp;
-  private ByteBuffer _myApp;
-  private ByteBuffer _peerNet;
-  private ByteBuffer _myNet;
-  private final AppendableBuffer _unwrapCache;
+  private static final BufferType[] TYPES = BufferType.values();
+
+  private final ByteBuf[] _pooled = new ByteBuf[TYPES.length];
+  private final ByteBuffer[] _buffers = new ByteBuffer[TYPES.length];
   private final SSLSession _session;
+  private final ByteBufAllocator _allocator;
+  private boolean _released;
 
   public Buffers(SSLSession session)
+  {
+    this(session, null);
+  }
+
+  public Buffers(SSLSession session, ByteBufAllocator allocator)
   {
     /*
      The SSLSession needs to be saved as a private field because it is
      required when growing buffers.
      */
     _session = session;
-    allocate();
-    _unwrapCache = new AppendableBuffer();
-  }
-
-  private void debug(final String msg)
-  {
-    System.out.println("[Buffers]" + msg);
-    System.out.flush();
+    _allocator = allocator;
+    int applicationBufferSize = _session.getApplicationBufferSize();
+    int packetBufferSize = _session.getPacketBufferSize();
+    assign(BufferType.IN_PLAIN, applicationBufferSize);
+    assign(BufferType.IN_CIPHER, packetBufferSize);
+    assign(BufferType.OUT_PLAIN, 0);
+    assign(BufferType.OUT_CIPHER, packetBufferSize);
+    //IN_CIPHER starts empty, in read mode
+    get(BufferType.IN_CIPHER).limit(0);
   }
 
   ByteBuffer get(BufferType t)
   {
-    ByteBuffer result = null;
-    switch (t) {
-      case IN_PLAIN:
-        result = _peerApp;
-        break;
-      case IN_CIPHER:
-        result = _peerNet;
-        break;
-      case OUT_PLAIN:
-        result = _myApp;
-        break;
-      case OUT_CIPHER:
-        result = _myNet;
-        break;
-    }
-    return result;
+    return _buffers[t.ordinal()];
   }
 
   void grow(BufferType t)
@@ -87,142 +87,113 @@ class Buffers
     /* Grows buffer to recommended SSL sizes */
     switch (t) {
       case IN_PLAIN:
-        assign(t, grow(t, _session.getApplicationBufferSize()));
+        //Nothing was produced on overflow, the content can be dropped
+        if (get(t).capacity() < _session.getApplicationBufferSize()) {
+          assign(t, _session.getApplicationBufferSize());
+        } else {
+          assign(t, get(t).capacity() << 1);
+        }
         break;
       case IN_CIPHER:
-        assign(t, grow(t, _session.getPacketBufferSize()));
+        growCipherIn(_session.getPacketBufferSize());
         break;
       case OUT_PLAIN:
         //No known reason for this case to occur
         break;
       case OUT_CIPHER:
-        assign(t, grow(t, _session.getPacketBufferSize()));
+        if (get(t).capacity() < _session.getPacketBufferSize()) {
+          assign(t, _session.getPacketBufferSize());
+        } else {
+          assign(t, get(t).capacity() << 1);
+        }
         break;
     }
-
-  }
-
-  ByteBuffer grow(BufferType b, int recommendedBufferSize)
-  {
-    ByteBuffer originalBuffer = get(b);
-    ByteBuffer newBuffer = ByteBuffer.allocate(recommendedBufferSize);
-
-    try {
-      debug("grow buffer " + originalBuffer + " to " + newBuffer);
-      BufferUtils.copy(originalBuffer, newBuffer);
-    } catch (BufferOverflowException e) {
-      throw e;
-    }
-    return newBuffer;
   }
 
   void prepareForUnwrap(ByteBuffer data)
   {
-    clear(BufferType.IN_CIPHER, BufferType.IN_PLAIN);
-    if (data != null) {      
-      ByteBuffer newBuffer = growIfNecessary(BufferType.IN_CIPHER, data.limit());
-      newBuffer.put(data);
-      newBuffer.flip();
+    get(BufferType.IN_PLAIN).clear();
+    if (data != null && data.hasRemaining()) {
+      ByteBuffer cipher = get(BufferType.IN_CIPHER);
+      if (cipher.capacity() - cipher.remaining() < data.remaining()) {
+        growCipherIn(cipher.remaining() + data.remaining());
+        cipher = get(BufferType.IN_CIPHER);
+      }
+      //Append behind the unconsumed bytes of the previous unwrap
+      cipher.compact();
+      cipher.put(data);
+      cipher.flip();
     }
   }
 
-  void prepareForWrap(ByteBuffer data)
+  ByteBuffer prepareForWrap()
   {
-    //Avoid buffer overflow when loading plain data and clear buffers
-    clear(BufferType.OUT_PLAIN, BufferType.OUT_CIPHER);
-    if (data != null) {
-      ByteBuffer newBuffer = growIfNecessary(BufferType.OUT_PLAIN, data.limit());
-      newBuffer.put(data);
-      newBuffer.flip();
-    }
+    get(BufferType.OUT_CIPHER).clear();
+    ByteBuffer plain = get(BufferType.OUT_PLAIN);
+    plain.clear();
+    plain.flip();
+    return plain;
   }
 
-  /* AppendableBuffer - Unwrap cache ops */
-  ByteBuffer prependCached(ByteBuffer data)
+  boolean isCacheEmpty()
   {
-    if (data == null) {
-      return _unwrapCache.get();
-    } else {
-      ByteBuffer result = _unwrapCache.append(data);
-      result.rewind();
-      return result;
-    }
+    return !get(BufferType.IN_CIPHER).hasRemaining();
   }
 
-  void cache(ByteBuffer data)
+  /**
+   * Returns the pooled buffers, must be called exactly once when the session
+   * is closed and no more wrap/unwrap calls can happen.
+   */
+  void release()
   {
-    if (data != null) {
-      _unwrapCache.set(data);
+    if (_released) {
+      return;
+    }
+    _released = true;
+    for (int i = 0; i < _pooled.length; i++) {
+      if (_pooled[i] != null) {
+        _pooled[i].release();
+        _pooled[i] = null;
+      }
     }
   }
 
-  void clearCache()
-  {
-    _unwrapCache.clear();
-  }
-
-  boolean isCacheEmpty()
+  boolean isReleased()
   {
-    return !_unwrapCache.hasRemaining();
+    return _released;
   }
 
 
   /* private */
-  private void allocate()
-  {
-    int applicationBufferSize = _session.getApplicationBufferSize();
-    int packetBufferSize = _session.getPacketBufferSize();
-    _peerApp = ByteBuffer.allocate(applicationBufferSize);
-    _myApp = ByteBuffer.allocate(applicationBufferSize);
-    _peerNet = ByteBuffer.allocate(packetBufferSize);
-    _myNet = ByteBuffer.allocate(packetBufferSize);
-  }
-
-  private void clear(BufferType source, BufferType destination)
-  {
-    get(source).clear();
-    get(destination).clear();
-  }
 
-  private void assign(BufferType t, ByteBuffer b)
-  {
-    switch (t) {
-
-      case IN_PLAIN:
-        _peerApp = b;
-        break;
-      case IN_CIPHER:
-        _peerNet = b;
-        break;
-      case OUT_PLAIN:
-        _myApp = b;
-        break;
-      case OUT_CIPHER:
-        _myNet = b;
-        break;
+  private void growCipherIn(int size)
+  {
+    //Keeps the unconsumed bytes, the buffer stays in read mode
+    ByteBuffer old = get(BufferType.IN_CIPHER);
+    ByteBuf oldPooled = _pooled[BufferType.IN_CIPHER.ordinal()];
+    _pooled[BufferType.IN_CIPHER.ordinal()] = null;
+    assign(BufferType.IN_CIPHER, Math.max(size, old.capacity()));
+    ByteBuffer newBuffer = get(BufferType.IN_CIPHER);
+    newBuffer.put(old);
+    newBuffer.flip();
+    if (oldPooled != null) {
+      oldPooled.release();
     }
   }
 
-  private void resetSize(BufferType t, int size)
+  private void assign(BufferType t, int size)
   {
-    ByteBuffer newBuffer = ByteBuffer.allocate(size);
-    try {
-      BufferUtils.copy(get(t), newBuffer);
-      assign(t, newBuffer);
-    } catch (BufferOverflowException e) {
-      throw e;
+    int i = t.ordinal();
+    if (_pooled[i] != null) {
+      _pooled[i].release();
+      _pooled[i] = null;
     }
-  }
-
-  private ByteBuffer growIfNecessary(BufferType t, int size)
-  {
-    //grow if not enough space
-    ByteBuffer b = get(t);
-    //  System.out.println("Grow " + t + " : " + b + " size=" + size);
-    if (b.position() + size > b.capacity()) {
-    //  System.out.println("Grow");
-      resetSize(t, b.limit() + size);
+    if (_allocator == null || size == 0) {
+      _buffers[i] = ByteBuffer.allocate(size);
+    } else {
+      ByteBuf byteBuf = _allocator.directBuffer(size);
+      _pooled[i] = byteBuf;
+      _buffers[i] = byteBuf.nioBuffer(0, byteBuf.capacity());
     }
-    return get(t);
   }
 }
@@ -22,6 +22,9 @@ class Handshaker
   private IHandshakeCompletedListener _hscl;
   private ISessionClosedListener _sessionClosedListener;
   private boolean _client;
+  /* Set while delegated tasks run, an asynchronous ITaskHandler must not be
+   handed the same tasks again by an unwrap that arrives in the meantime */
+  private volatile boolean _taskPending;
 
   public Handshaker(boolean client, Worker worker, ITaskHandler taskHandler)
   {
@@ -45,6 +48,7 @@ class Handshaker
   void carryOn() throws SSLException
   {
     debug("carryOn");
+    _taskPending = false;
     shakehands();
   }
 
@@ -86,7 +90,10 @@ class Handshaker
         handshakeFinished();
         break;
       case NEED_TASK:
-        _taskHandler.process(new Tasks(_worker, this));
+        if (!_taskPending) {
+          _taskPending = true;
+          _taskHandler.process(new Tasks(_worker, this));
+        }
         break;
       case NEED_WRAP:
         SSLEngineResult w_result = _worker.wrap(null);
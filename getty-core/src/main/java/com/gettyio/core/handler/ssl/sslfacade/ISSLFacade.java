@@ -18,6 +18,8 @@ public interface ISSLFacade
 
     void encrypt(ByteBuffer plainData) throws SSLException;
 
+    void encrypt(ByteBuffer[] plainData) throws SSLException;
+
     void decrypt(ByteBuffer encryptedData) throws SSLException;
 
     void close();
@@ -27,4 +29,6 @@ public interface ISSLFacade
     boolean isClientMode();
 
     void terminate();
+
+    void release();
 }
@@ -2,6 +2,8 @@ package com.gettyio.core.handler.ssl.sslfacade;
 
 import java.nio.ByteBuffer;
 
+/* The buffers passed to the callbacks are the internal SSL buffers, they are
+ only valid until the callback returns and must be consumed or copied. */
 public interface ISSLListener
 {
     public void onWrappedData(ByteBuffer wrappedBytes);
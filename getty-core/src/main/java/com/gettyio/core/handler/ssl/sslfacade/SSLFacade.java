@@ -1,5 +1,7 @@
 package com.gettyio.core.handler.ssl.sslfacade;
 
+import com.gettyio.core.buffer.allocator.ByteBufAllocator;
+
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLException;
@@ -15,13 +17,25 @@ public class SSLFacade implements ISSLFacade {
     private boolean _clientMode;
 
     public SSLFacade(SSLContext context, boolean client, boolean clientAuthRequired, ITaskHandler taskHandler) {
-        //Currently there is no support for SSL session reuse,
-        // so no need to take a peerHost or port from the host application
+        this(makeSSLEngine(context, client, clientAuthRequired), taskHandler);
+    }
+
+    /**
+     * Wraps an engine created by the host application, e.g. one created with a
+     * peer host and port so that the session context can resume a session.
+     */
+    public SSLFacade(SSLEngine engine, ITaskHandler taskHandler) {
+        this(engine, taskHandler, null);
+    }
+
+    /**
+     * With an allocator the SSL buffers are pooled direct buffers, call
+     * {@link #release()} once the transport is closed to return them.
+     */
+    public SSLFacade(SSLEngine engine, ITaskHandler taskHandler, ByteBufAllocator allocator) {
+        final boolean client = engine.getUseClientMode();
         final String who = client ? "client" : "server";
-        SSLEngine engine = makeSSLEngine(context, client, clientAuthRequired);
-        engine.setEnabledProtocols(new String[]{context.getProtocol()});
-        //engine.setEnabledProtocols(new String[]{"TLSv1", "TLSv1.1", "TLSv1.2"});
-        Buffers buffers = new Buffers(engine.getSession());
+        Buffers buffers = new Buffers(engine.getSession(), allocator);
         _worker = new Worker(who, engine, buffers);
         _handshaker = new Handshaker(client, _worker, taskHandler);
         _clientMode = client;
@@ -67,6 +81,11 @@ public class SSLFacade implements ISSLFacade {
         _worker.wrap(plainData);
     }
 
+    @Override
+    public void encrypt(ByteBuffer[] plainData) throws SSLException {
+        _worker.gatheringWrap(plainData);
+    }
+
     @Override
     public void decrypt(ByteBuffer encryptedData) throws SSLException {
         SSLEngineResult result = _worker.unwrap(encryptedData);
@@ -95,6 +114,12 @@ public class SSLFacade implements ISSLFacade {
         _worker.close(false);
     }
 
+    @Override
+    public void release() {
+        /* Called once the underlying transport is closed */
+        _worker.release();
+    }
+
     /* Privates */
     private void attachCompletionListener() {
         _handshaker.addCompletedListener(new IHandshakeCompletedListener() {
@@ -109,10 +134,11 @@ public class SSLFacade implements ISSLFacade {
         });
     }
 
-    private SSLEngine makeSSLEngine(SSLContext context, boolean client, boolean clientAuthRequired) {
+    private static SSLEngine makeSSLEngine(SSLContext context, boolean client, boolean clientAuthRequired) {
         SSLEngine engine = context.createSSLEngine();
         engine.setUseClientMode(client);
         engine.setNeedClientAuth(clientAuthRequired);
+        engine.setEnabledProtocols(new String[]{context.getProtocol()});
         return engine;
     }
 
@@ -18,6 +18,10 @@ class Worker
   private ISSLListener _sslListener;
   private ISessionClosedListener _sessionClosedListener = new DefaultOnCloseListener();
   private String who;
+  /* Wrap uses the OUT buffers and unwrap the IN buffers, an unwrap may wrap
+   during a handshake so the lock order is always unwrap then wrap */
+  private final Object _wrapLock = new Object();
+  private final Object _unwrapLock = new Object();
 
   Worker(final String debugTag, SSLEngine engine, Buffers buffers)
   {
@@ -52,73 +56,122 @@ class Worker
 
   SSLEngineResult wrap(ByteBuffer plainData) throws SSLException
   {
-    _buffers.prepareForWrap(plainData);
-    SSLEngineResult result = doWrap();
+    synchronized (_wrapLock) {
+      checkReleased();
+      SSLEngineResult result;
+      ByteBuffer plainText = plainData;
+      while (true) {
+        ByteBuffer emptyPlain = _buffers.prepareForWrap();
+        if (plainText == null) {
+          plainText = emptyPlain;
+        }
+        result = doWrap(plainText);
 
-    emitWrappedData(result);
+        emitWrappedData(result);
 
-    switch (result.getStatus()) {
-      case BUFFER_UNDERFLOW:
-        throw new RuntimeException("BUFFER_UNDERFLOW while wrapping!");
-      case BUFFER_OVERFLOW:
-        _buffers.grow(BufferType.OUT_CIPHER);
-        if (plainData != null && plainData.hasRemaining()) {
-          plainData.position(result.bytesConsumed());
-          ByteBuffer remainingData = BufferUtils.slice(plainData);
-          wrap(remainingData);
+        switch (result.getStatus()) {
+          case BUFFER_UNDERFLOW:
+            throw new RuntimeException("BUFFER_UNDERFLOW while wrapping!");
+          case BUFFER_OVERFLOW:
+            //Nothing consumed, retry the same data with a larger buffer
+            _buffers.grow(BufferType.OUT_CIPHER);
+            continue;
+          case OK:
+            break;
+          case CLOSED:
+            _sessionClosedListener.onSessionClosed();
+            return result;
+        }
+        //One record per wrap, loop until all plain data is consumed
+        if (plainData == null || !plainText.hasRemaining() || result.bytesConsumed() == 0) {
+          return result;
         }
-        break;
-      case OK:
-        break;
-      case CLOSED:
-        _sessionClosedListener.onSessionClosed();
-        break;
+      }
     }
-    return result;
   }
 
-  SSLEngineResult unwrap(ByteBuffer encryptedData) throws SSLException
+  /* Gathering variant for application data spread over several buffers, e.g.
+   the components of a composite buffer. SSLEngine fills each record from the
+   buffers in order, so no plain text is copied into a single buffer first */
+  SSLEngineResult gatheringWrap(ByteBuffer[] plainData) throws SSLException
   {
-    ByteBuffer allEncryptedData = _buffers.prependCached(encryptedData);
-    _buffers.prepareForUnwrap(allEncryptedData);
-    SSLEngineResult result = doUnwrap();
-    debug("unwrap: doUnwrap result: " + result);
-    allEncryptedData.position(result.bytesConsumed());
-    ByteBuffer unprocessedEncryptedData = BufferUtils.slice(allEncryptedData);
-
-    emitPlainData(result);
-
-    switch (result.getStatus()) {
-      case BUFFER_UNDERFLOW:
-        _buffers.cache(unprocessedEncryptedData);
-        break;
-      case BUFFER_OVERFLOW:
-        _buffers.grow(BufferType.IN_PLAIN);
-        if (unprocessedEncryptedData == null) {
-          throw new RuntimeException("Worker.unwrap had "
-                  + "buffer_overflow but all data was consumed!!");
-        } else {
-          unwrap(unprocessedEncryptedData);
+    synchronized (_wrapLock) {
+      checkReleased();
+      SSLEngineResult result;
+      while (true) {
+        _buffers.prepareForWrap();
+        result = doWrap(plainData);
+
+        emitWrappedData(result);
+
+        switch (result.getStatus()) {
+          case BUFFER_UNDERFLOW:
+            throw new RuntimeException("BUFFER_UNDERFLOW while wrapping!");
+          case BUFFER_OVERFLOW:
+            //Nothing consumed, retry the same data with a larger buffer
+            _buffers.grow(BufferType.OUT_CIPHER);
+            continue;
+          case OK:
+            break;
+          case CLOSED:
+            _sessionClosedListener.onSessionClosed();
+            return result;
         }
-        break;
-      case OK:
-        if (unprocessedEncryptedData == null) {
-          _buffers.clearCache();
-        } else {
-          _buffers.cache(unprocessedEncryptedData);
+        //One record per wrap, loop until all plain data is consumed
+        if (!hasRemaining(plainData) || result.bytesConsumed() == 0) {
+          return result;
         }
-        break;
-      case CLOSED:
+      }
+    }
+  }
 
-        break;
+  private static boolean hasRemaining(ByteBuffer[] buffers)
+  {
+    for (ByteBuffer buffer : buffers) {
+      if (buffer.hasRemaining()) {
+        return true;
+      }
     }
-    if (_buffers.isCacheEmpty() == false 
-            && result.getStatus() == SSLEngineResult.Status.OK
-            && result.bytesConsumed() > 0) {
-      debug("Still data in cahce");
-      result = unwrap(ByteBuffer.allocate(0));
+    return false;
+  }
+
+  SSLEngineResult unwrap(ByteBuffer encryptedData) throws SSLException
+  {
+    synchronized (_unwrapLock) {
+      checkReleased();
+      _buffers.prepareForUnwrap(encryptedData);
+      SSLEngineResult result = doUnwrap();
+      debug("unwrap: doUnwrap result: " + result);
+
+      emitPlainData(result);
+
+      switch (result.getStatus()) {
+        case BUFFER_UNDERFLOW:
+          //Partial record, stays in the IN_CIPHER buffer until more data arrives
+          break;
+        case BUFFER_OVERFLOW:
+          _buffers.grow(BufferType.IN_PLAIN);
+          if (_buffers.isCacheEmpty()) {
+            throw new RuntimeException("Worker.unwrap had "
+                    + "buffer_overflow but all data was consumed!!");
+          } else {
+            result = unwrap(null);
+          }
+          break;
+        case OK:
+          break;
+        case CLOSED:
+
+          break;
+      }
+      if (_buffers.isCacheEmpty() == false
+              && result.getStatus() == SSLEngineResult.Status.OK
+              && result.bytesConsumed() > 0) {
+        debug("Still data in cahce");
+        result = unwrap(null);
+      }
+      return result;
     }
-    return result;
   }
 
   void setSSLListener(ISSLListener SSLListener)
@@ -153,15 +206,29 @@ class Worker
 
   boolean pendingUnwrap()
   {
-    return !_buffers.isCacheEmpty();
+    synchronized (_unwrapLock) {
+      return !_buffers.isReleased() && !_buffers.isCacheEmpty();
+    }
+  }
+
+  void release()
+  {
+    synchronized (_unwrapLock) {
+      synchronized (_wrapLock) {
+        _buffers.release();
+      }
+    }
   }
   /* Private */
 
+  /* The internal buffers are handed out as they are, without copying. The
+   listener must consume them before returning. */
   private void emitWrappedData(SSLEngineResult result)
   {
     if (result.bytesProduced() > 0) {
       ByteBuffer internalCipherBuffer = _buffers.get(BufferType.OUT_CIPHER);
-      _sslListener.onWrappedData(makeExternalBuffer(internalCipherBuffer));
+      internalCipherBuffer.flip();
+      _sslListener.onWrappedData(internalCipherBuffer);
     }
   }
 
@@ -169,19 +236,33 @@ class Worker
   {
     if (result.bytesProduced() > 0) {
       ByteBuffer internalPlainBuffer = _buffers.get(BufferType.IN_PLAIN);
-      _sslListener.onPlainData(makeExternalBuffer(internalPlainBuffer));
+      internalPlainBuffer.flip();
+      _sslListener.onPlainData(internalPlainBuffer);
     }
 
   }
 
-  private SSLEngineResult doWrap() throws SSLException
+  private void checkReleased() throws SSLException
+  {
+    if (_buffers.isReleased()) {
+      throw new SSLException("SSL buffers already released");
+    }
+  }
+
+  private SSLEngineResult doWrap(ByteBuffer plainText) throws SSLException
   {
-    ByteBuffer plainText = _buffers.get(BufferType.OUT_PLAIN);
     ByteBuffer cipherText = _buffers.get(BufferType.OUT_CIPHER);
     debug("Wrap buffer: " + plainText + " into buffer: " + cipherText);
     return _engine.wrap(plainText, cipherText);
   }
 
+  private SSLEngineResult doWrap(ByteBuffer[] plainText) throws SSLException
+  {
+    ByteBuffer cipherText = _buffers.get(BufferType.OUT_CIPHER);
+    debug("Wrap " + plainText.length + " buffers into buffer: " + cipherText);
+    return _engine.wrap(plainText, cipherText);
+  }
+
   private SSLEngineResult doUnwrap() throws SSLException
   {
     ByteBuffer cipherText = _buffers.get(BufferType.IN_CIPHER);
@@ -190,12 +271,5 @@ class Worker
     return _engine.unwrap(cipherText, plainText);
   }
 
-  private static ByteBuffer makeExternalBuffer(ByteBuffer internalBuffer)
-  {
-    ByteBuffer newBuffer = ByteBuffer.allocate(internalBuffer.position());
-    internalBuffer.flip();
-    BufferUtils.copy(internalBuffer, newBuffer);
-    return newBuffer;
-  }
 
 }
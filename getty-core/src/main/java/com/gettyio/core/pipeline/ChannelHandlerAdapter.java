@@ -20,6 +20,9 @@ import com.gettyio.core.channel.SocketChannel;
 import com.gettyio.core.constant.IdleState;
 import com.gettyio.core.util.LinkedBlockQueue;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 
 /**
  * ChannelHandlerAdapter.java
@@ -31,80 +34,125 @@ import com.gettyio.core.util.LinkedBlockQueue;
  */
 public abstract class ChannelHandlerAdapter implements ChannelBoundHandler {
 
+    /**
+     * 各处理器类是否标记了{@link Sharable}的缓存
+     */
+    private static final Map<Class<?>, Boolean> SHARABLE_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * 非共享处理器所在的责任链及在其中出现的次数，用于校验，由处理器自身加锁保护
+     */
+    DefaultChannelPipeline addedTo;
+    int addedCount;
+
+    /**
+     * 编码结果与通道无关时使用的共享编码键
+     */
+    public static final Object CHANNEL_INDEPENDENT = new Object();
+
+    /**
+     * 是否可在多个通道间共享，由{@link Sharable}注解决定
+     *
+     * @return boolean
+     */
+    public boolean isSharable() {
+        Class<?> clazz = getClass();
+        Boolean sharable = SHARABLE_CACHE.get(clazz);
+        if (sharable == null) {
+            sharable = clazz.isAnnotationPresent(Sharable.class);
+            SHARABLE_CACHE.put(clazz, sharable);
+        }
+        return sharable;
+    }
+
+    /**
+     * 广播时的共享编码键。返回null表示编码结果依赖通道状态（属性、配置等），广播时不能在通道间共用；
+     * 返回非null时，键相等（equals）的通道对同一条消息的编码结果完全一致，组广播只编码一次。
+     * 只对标记了{@link Sharable}的处理器生效，默认返回null，编码器需自行声明
+     *
+     * @param socketChannel 通道
+     * @return 编码键，输出与通道无关时返回{@link #CHANNEL_INDEPENDENT}
+     */
+    public Object sharedEncodingKey(SocketChannel socketChannel) {
+        return null;
+    }
+
     @Override
     public void channelAdded(SocketChannel socketChannel) throws Exception {
-        ChannelHandlerAdapter channelHandlerAdapter = socketChannel.getDefaultChannelPipeline().nextInPipe(this);
-        if (channelHandlerAdapter == null) {
-            return;
+        ChannelHandlerContext next = socketChannel.getDefaultChannelPipeline().nextInContext(this);
+        if (next != null) {
+            next.invokeChannelAdded(socketChannel);
         }
-        channelHandlerAdapter.channelAdded(socketChannel);
     }
 
     @Override
     public void channelClosed(SocketChannel socketChannel) throws Exception {
-        ChannelHandlerAdapter channelHandlerAdapter = socketChannel.getDefaultChannelPipeline().nextInPipe(this);
-        if (channelHandlerAdapter == null) {
-            return;
+        ChannelHandlerContext next = socketChannel.getDefaultChannelPipeline().nextInContext(this);
+        if (next != null) {
+            next.invokeChannelClosed(socketChannel);
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(SocketChannel socketChannel) throws Exception {
+        ChannelHandlerContext next = socketChannel.getDefaultChannelPipeline().nextInContext(this);
+        if (next != null) {
+            next.invokeChannelWritabilityChanged(socketChannel);
         }
-        channelHandlerAdapter.channelClosed(socketChannel);
     }
 
     @Override
     public void channelRead(SocketChannel socketChannel, Object obj) throws Exception {
-        ChannelHandlerAdapter channelHandlerAdapter = socketChannel.getDefaultChannelPipeline().nextInPipe(this);
-        if (channelHandlerAdapter == null) {
-            return;
+        ChannelHandlerContext next = socketChannel.getDefaultChannelPipeline().nextInContext(this);
+        if (next != null) {
+            next.invokeChannelRead(socketChannel, obj);
         }
-        channelHandlerAdapter.channelRead(socketChannel, obj);
     }
 
     @Override
     public void channelWrite(SocketChannel socketChannel, Object obj) throws Exception {
-        ChannelHandlerAdapter channelHandlerAdapter = socketChannel.getDefaultChannelPipeline().nextOutPipe(this);
-        if (channelHandlerAdapter == null) {
-            return;
+        ChannelHandlerContext next = socketChannel.getDefaultChannelPipeline().nextOutContext(this);
+        if (next != null) {
+            next.invokeChannelWrite(socketChannel, obj);
         }
-        channelHandlerAdapter.channelWrite(socketChannel, obj);
     }
 
 
     @Override
     public void exceptionCaught(SocketChannel socketChannel, Throwable cause) throws Exception {
-        ChannelHandlerAdapter channelHandlerAdapter = socketChannel.getDefaultChannelPipeline().nextInPipe(this);
-        if (channelHandlerAdapter == null) {
-            return;
+        ChannelHandlerContext next = socketChannel.getDefaultChannelPipeline().nextInContext(this);
+        if (next != null) {
+            next.invokeExceptionCaught(socketChannel, cause);
         }
-        channelHandlerAdapter.exceptionCaught(socketChannel, cause);
     }
 
 
     @Override
     public void decode(SocketChannel socketChannel, Object obj, LinkedBlockQueue<Object> out) throws Exception {
-        ChannelHandlerAdapter channelHandlerAdapter = socketChannel.getDefaultChannelPipeline().nextInPipe(this);
-        if (channelHandlerAdapter == null) {
-            return;
+        ChannelHandlerContext next = socketChannel.getDefaultChannelPipeline().nextInContext(this);
+        if (next != null) {
+            next.invokeDecode(socketChannel, obj, out);
         }
-        channelHandlerAdapter.decode(socketChannel, obj, out);
     }
 
 
     @Override
     public void encode(SocketChannel socketChannel, Object obj) throws Exception {
-        ChannelHandlerAdapter channelHandlerAdapter = socketChannel.getDefaultChannelPipeline().nextOutPipe(this);
-        if (channelHandlerAdapter == null) {
-            //注意，encode是在输出链。如果是最后一个处理器，要把数据输出到socket
-            socketChannel.writeToChannel(obj);
+        ChannelHandlerContext next = socketChannel.getDefaultChannelPipeline().nextOutContext(this);
+        if (next == null) {
+            //注意，encode是在输出链。如果是最后一个处理器，要把数据输出到socket，写入失败时抛给调用方
+            socketChannel.writeToChannelChecked(obj);
             return;
         }
-        channelHandlerAdapter.encode(socketChannel, obj);
+        next.invokeEncode(socketChannel, obj);
     }
 
 
     @Override
     public void userEventTriggered(SocketChannel socketChannel, IdleState evt) throws Exception {
-        ChannelHandlerAdapter channelHandlerAdapter = socketChannel.getDefaultChannelPipeline().nextInPipe(this);
-        if (channelHandlerAdapter != null) {
-            channelHandlerAdapter.userEventTriggered(socketChannel, evt);
+        ChannelHandlerContext next = socketChannel.getDefaultChannelPipeline().nextInContext(this);
+        if (next != null) {
+            next.invokeUserEventTriggered(socketChannel, evt);
         }
     }
 
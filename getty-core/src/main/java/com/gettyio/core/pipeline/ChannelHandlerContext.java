@@ -0,0 +1,198 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.pipeline;
+
+import com.gettyio.core.channel.SocketChannel;
+import com.gettyio.core.constant.IdleState;
+import com.gettyio.core.util.LinkedBlockQueue;
+
+/**
+ * ChannelHandlerContext.java
+ *
+ * @description:处理器上下文，责任链中的一个节点，持有前后节点的引用。
+ * 消息经由上下文调用处理器，调用期间当前线程记住所在节点，处理器向后传递时直接取该节点的前后节点，
+ * 同一个处理器实例在链中出现多次也能准确定位
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public final class ChannelHandlerContext {
+
+    /**
+     * 当前线程正在调用的入栈、出栈节点，下标见{@link #INBOUND}、{@link #OUTBOUND}
+     */
+    private static final ThreadLocal<ChannelHandlerContext[]> CURRENT = new ThreadLocal<ChannelHandlerContext[]>() {
+        @Override
+        protected ChannelHandlerContext[] initialValue() {
+            return new ChannelHandlerContext[2];
+        }
+    };
+    private static final int INBOUND = 0;
+    private static final int OUTBOUND = 1;
+
+    /**
+     * 所属责任链
+     */
+    private final DefaultChannelPipeline pipeline;
+    /**
+     * 当前处理器
+     */
+    private final ChannelHandlerAdapter handler;
+    /**
+     * 所在的链，入栈或出栈
+     */
+    private final int direction;
+
+    /**
+     * 后一个节点
+     */
+    volatile ChannelHandlerContext next;
+    /**
+     * 前一个节点
+     */
+    volatile ChannelHandlerContext prev;
+
+    ChannelHandlerContext(DefaultChannelPipeline pipeline, ChannelHandlerAdapter handler, boolean inbound) {
+        this.pipeline = pipeline;
+        this.handler = handler;
+        this.direction = inbound ? INBOUND : OUTBOUND;
+    }
+
+    /**
+     * 当前线程正在调用的节点，不在传递过程中时为null
+     *
+     * @param inbound 入栈或出栈
+     * @return ChannelHandlerContext
+     */
+    static ChannelHandlerContext current(boolean inbound) {
+        return CURRENT.get()[inbound ? INBOUND : OUTBOUND];
+    }
+
+    public DefaultChannelPipeline pipeline() {
+        return pipeline;
+    }
+
+    public ChannelHandlerAdapter handler() {
+        return handler;
+    }
+
+    public ChannelHandlerContext next() {
+        return next;
+    }
+
+    public ChannelHandlerContext prev() {
+        return prev;
+    }
+
+    public void invokeChannelAdded(SocketChannel socketChannel) throws Exception {
+        ChannelHandlerContext[] current = CURRENT.get();
+        ChannelHandlerContext caller = current[direction];
+        current[direction] = this;
+        try {
+            handler.channelAdded(socketChannel);
+        } finally {
+            current[direction] = caller;
+        }
+    }
+
+    public void invokeChannelClosed(SocketChannel socketChannel) throws Exception {
+        ChannelHandlerContext[] current = CURRENT.get();
+        ChannelHandlerContext caller = current[direction];
+        current[direction] = this;
+        try {
+            handler.channelClosed(socketChannel);
+        } finally {
+            current[direction] = caller;
+        }
+    }
+
+    public void invokeChannelWritabilityChanged(SocketChannel socketChannel) throws Exception {
+        ChannelHandlerContext[] current = CURRENT.get();
+        ChannelHandlerContext caller = current[direction];
+        current[direction] = this;
+        try {
+            handler.channelWritabilityChanged(socketChannel);
+        } finally {
+            current[direction] = caller;
+        }
+    }
+
+    public void invokeChannelRead(SocketChannel socketChannel, Object obj) throws Exception {
+        ChannelHandlerContext[] current = CURRENT.get();
+        ChannelHandlerContext caller = current[direction];
+        current[direction] = this;
+        try {
+            handler.channelRead(socketChannel, obj);
+        } finally {
+            current[direction] = caller;
+        }
+    }
+
+    public void invokeChannelWrite(SocketChannel socketChannel, Object obj) throws Exception {
+        ChannelHandlerContext[] current = CURRENT.get();
+        ChannelHandlerContext caller = current[direction];
+        current[direction] = this;
+        try {
+            handler.channelWrite(socketChannel, obj);
+        } finally {
+            current[direction] = caller;
+        }
+    }
+
+    public void invokeExceptionCaught(SocketChannel socketChannel, Throwable cause) throws Exception {
+        ChannelHandlerContext[] current = CURRENT.get();
+        ChannelHandlerContext caller = current[direction];
+        current[direction] = this;
+        try {
+            handler.exceptionCaught(socketChannel, cause);
+        } finally {
+            current[direction] = caller;
+        }
+    }
+
+    public void invokeDecode(SocketChannel socketChannel, Object obj, LinkedBlockQueue<Object> out) throws Exception {
+        ChannelHandlerContext[] current = CURRENT.get();
+        ChannelHandlerContext caller = current[direction];
+        current[direction] = this;
+        try {
+            handler.decode(socketChannel, obj, out);
+        } finally {
+            current[direction] = caller;
+        }
+    }
+
+    public void invokeEncode(SocketChannel socketChannel, Object obj) throws Exception {
+        ChannelHandlerContext[] current = CURRENT.get();
+        ChannelHandlerContext caller = current[direction];
+        current[direction] = this;
+        try {
+            handler.encode(socketChannel, obj);
+        } finally {
+            current[direction] = caller;
+        }
+    }
+
+    public void invokeUserEventTriggered(SocketChannel socketChannel, IdleState evt) throws Exception {
+        ChannelHandlerContext[] current = CURRENT.get();
+        ChannelHandlerContext caller = current[direction];
+        current[direction] = this;
+        try {
+            handler.userEventTriggered(socketChannel, evt);
+        } finally {
+            current[direction] = caller;
+        }
+    }
+}
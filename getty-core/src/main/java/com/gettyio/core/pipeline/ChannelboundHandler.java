@@ -47,6 +47,14 @@ public interface ChannelBoundHandler {
      */
     void channelClosed(SocketChannel socketChannel) throws Exception;
 
+    /**
+     * 可写状态变化，待写出字节数超过高水位或降到低水位时触发，通过{@link SocketChannel#isWriteable()}获取当前状态
+     *
+     * @param socketChannel 通道
+     * @throws Exception 异常
+     */
+    void channelWritabilityChanged(SocketChannel socketChannel) throws Exception;
+
     /**
      * 消息读取
      *
@@ -21,12 +21,15 @@ import com.gettyio.core.channel.UdpChannel;
 import com.gettyio.core.pipeline.all.ChannelAllBoundHandlerAdapter;
 import com.gettyio.core.pipeline.in.ChannelInboundHandlerAdapter;
 import com.gettyio.core.pipeline.out.ChannelOutboundHandlerAdapter;
-import com.gettyio.core.util.FastCopyOnWriteArrayList;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 /**
  * DefaultChannelPipeline.java
  *
- * @description:默认责任链对象
+ * @description:默认责任链对象。处理器包装为上下文节点组成双向链表，消息经由上下文逐个节点传递，
+ * 每一步直接取当前节点的前后节点，为O(1)，同一个处理器实例可以在链中出现多次；增删处理器时加锁，读取无锁
  * @author:gogym
  * @date:2020/4/9
  * @copyright: Copyright by gettyio.com
@@ -34,13 +37,15 @@ import com.gettyio.core.util.FastCopyOnWriteArrayList;
 public class DefaultChannelPipeline {
 
     /**
-     * 入栈链
+     * 入栈链首尾
      */
-    FastCopyOnWriteArrayList<ChannelHandlerAdapter> inPipeList = new FastCopyOnWriteArrayList<>();
+    private volatile ChannelHandlerContext inHead;
+    private volatile ChannelHandlerContext inTail;
     /**
-     * 出栈链
+     * 出栈链首尾，出栈从尾部开始向前传递
      */
-    FastCopyOnWriteArrayList<ChannelHandlerAdapter> outPipeList = new FastCopyOnWriteArrayList<>();
+    private volatile ChannelHandlerContext outHead;
+    private volatile ChannelHandlerContext outTail;
 
     /**
      * channel
@@ -63,10 +68,8 @@ public class DefaultChannelPipeline {
      * @return ChannelHandlerAdapter
      */
     public ChannelHandlerAdapter inPipeFirst() {
-        if (inPipeList.size() > 0) {
-            return inPipeList.getFirst();
-        }
-        return null;
+        ChannelHandlerContext head = inHead;
+        return head == null ? null : head.handler();
     }
 
     /**
@@ -75,10 +78,26 @@ public class DefaultChannelPipeline {
      * @return ChannelHandlerAdapter
      */
     public ChannelHandlerAdapter outPipeFirst() {
-        if (outPipeList.size() > 0) {
-            return outPipeList.getLast();
-        }
-        return null;
+        ChannelHandlerContext tail = outTail;
+        return tail == null ? null : tail.handler();
+    }
+
+    /**
+     * 入栈链的第一个节点
+     *
+     * @return ChannelHandlerContext，链为空时为null
+     */
+    public ChannelHandlerContext inFirstContext() {
+        return inHead;
+    }
+
+    /**
+     * 出栈链的第一个节点，出栈从链尾开始
+     *
+     * @return ChannelHandlerContext，链为空时为null
+     */
+    public ChannelHandlerContext outFirstContext() {
+        return outTail;
     }
 
 
@@ -89,12 +108,8 @@ public class DefaultChannelPipeline {
      * @return ChannelHandlerAdapter
      */
     public ChannelHandlerAdapter nextInPipe(ChannelHandlerAdapter channelHandlerAdapter) {
-        int index = inPipeList.indexOf(channelHandlerAdapter);
-        index++;
-        if (inPipeList.size() > index) {
-            return inPipeList.get(index);
-        }
-        return null;
+        ChannelHandlerContext next = nextInContext(channelHandlerAdapter);
+        return next == null ? null : next.handler();
     }
 
 
@@ -106,10 +121,69 @@ public class DefaultChannelPipeline {
      * @return ChannelHandlerAdapter
      */
     public ChannelHandlerAdapter nextOutPipe(ChannelHandlerAdapter channelHandlerAdapter) {
-        int index = outPipeList.indexOf(channelHandlerAdapter);
-        index--;
-        if (index >= 0) {
-            return outPipeList.get(index);
+        ChannelHandlerContext next = nextOutContext(channelHandlerAdapter);
+        return next == null ? null : next.handler();
+    }
+
+    /**
+     * 当前处理器之后的入栈节点
+     *
+     * @param channelHandlerAdapter 当前处理器
+     * @return ChannelHandlerContext，没有下一个节点时为null
+     */
+    public ChannelHandlerContext nextInContext(ChannelHandlerAdapter channelHandlerAdapter) {
+        ChannelHandlerContext ctx = inContext(channelHandlerAdapter);
+        return ctx == null ? null : ctx.next;
+    }
+
+    /**
+     * 当前处理器之后的出栈节点
+     *
+     * @param channelHandlerAdapter 当前处理器
+     * @return ChannelHandlerContext，没有下一个节点时为null
+     */
+    public ChannelHandlerContext nextOutContext(ChannelHandlerAdapter channelHandlerAdapter) {
+        ChannelHandlerContext ctx = outContext(channelHandlerAdapter);
+        return ctx == null ? null : ctx.prev;
+    }
+
+    /**
+     * 获取处理器在入栈链中的上下文。处理器正在经由本链的上下文被调用时返回该上下文，
+     * 否则(如在其他线程中异步传递)返回处理器第一次出现的位置
+     *
+     * @param channelHandlerAdapter 处理器
+     * @return 不在链中时返回null
+     */
+    public ChannelHandlerContext inContext(ChannelHandlerAdapter channelHandlerAdapter) {
+        ChannelHandlerContext current = ChannelHandlerContext.current(true);
+        if (current != null && current.pipeline() == this && current.handler() == channelHandlerAdapter) {
+            return current;
+        }
+        return find(inHead, channelHandlerAdapter, true);
+    }
+
+    /**
+     * 获取处理器在出栈链中的上下文，规则同{@link #inContext(ChannelHandlerAdapter)}
+     *
+     * @param channelHandlerAdapter 处理器
+     * @return 不在链中时返回null
+     */
+    public ChannelHandlerContext outContext(ChannelHandlerAdapter channelHandlerAdapter) {
+        ChannelHandlerContext current = ChannelHandlerContext.current(false);
+        if (current != null && current.pipeline() == this && current.handler() == channelHandlerAdapter) {
+            return current;
+        }
+        return find(outTail, channelHandlerAdapter, false);
+    }
+
+    /**
+     * 从出栈链尾或入栈链头开始按传递顺序查找
+     */
+    private static ChannelHandlerContext find(ChannelHandlerContext first, ChannelHandlerAdapter channelHandlerAdapter, boolean inbound) {
+        for (ChannelHandlerContext ctx = first; ctx != null; ctx = inbound ? ctx.next : ctx.prev) {
+            if (ctx.handler() == channelHandlerAdapter) {
+                return ctx;
+            }
         }
         return null;
     }
@@ -119,18 +193,19 @@ public class DefaultChannelPipeline {
      *
      * @param channelHandlerAdapter 当前处理器
      */
-    public void addLast(ChannelHandlerAdapter channelHandlerAdapter) {
+    public synchronized void addLast(ChannelHandlerAdapter channelHandlerAdapter) {
         if (socketChannel instanceof UdpChannel && !(channelHandlerAdapter instanceof DatagramPacketHandler)) {
             //如果是udp模式，则有些处理器是不适合udp使用的，不加入
             return;
         }
+        checkMultiplicity(channelHandlerAdapter);
         if (channelHandlerAdapter instanceof ChannelInboundHandlerAdapter) {
-            inPipeList.addLast(channelHandlerAdapter);
+            addInLast(channelHandlerAdapter);
         } else if (channelHandlerAdapter instanceof ChannelOutboundHandlerAdapter) {
-            outPipeList.addLast(channelHandlerAdapter);
+            addOutLast(channelHandlerAdapter);
         } else if (channelHandlerAdapter instanceof ChannelAllBoundHandlerAdapter) {
-            inPipeList.addLast(channelHandlerAdapter);
-            outPipeList.addLast(channelHandlerAdapter);
+            addInLast(channelHandlerAdapter);
+            addOutLast(channelHandlerAdapter);
         }
     }
 
@@ -139,29 +214,183 @@ public class DefaultChannelPipeline {
      *
      * @param channelHandlerAdapter 当前处理器
      */
-    public void addFirst(ChannelHandlerAdapter channelHandlerAdapter) {
+    public synchronized void addFirst(ChannelHandlerAdapter channelHandlerAdapter) {
         if (socketChannel instanceof UdpChannel && !(channelHandlerAdapter instanceof DatagramPacketHandler)) {
             //如果是udp模式，则有些处理器是不适合udp使用的，不加入
             return;
         }
-
+        checkMultiplicity(channelHandlerAdapter);
         if (channelHandlerAdapter instanceof ChannelInboundHandlerAdapter) {
-            inPipeList.addFirst(channelHandlerAdapter);
+            addInFirst(channelHandlerAdapter);
         } else if (channelHandlerAdapter instanceof ChannelOutboundHandlerAdapter) {
-            outPipeList.addFirst(channelHandlerAdapter);
+            addOutFirst(channelHandlerAdapter);
         } else if (channelHandlerAdapter instanceof ChannelAllBoundHandlerAdapter) {
-            inPipeList.addFirst(channelHandlerAdapter);
-            outPipeList.addFirst(channelHandlerAdapter);
+            addInFirst(channelHandlerAdapter);
+            addOutFirst(channelHandlerAdapter);
         }
 
     }
 
+    /**
+     * 移除处理器，正在传递中的消息会沿被移除节点原有的链接继续传递。
+     * 处理器在链中出现多次时，移除正在调用的那一个，不在调用中则移除第一个
+     *
+     * @param channelHandlerAdapter 处理器
+     * @return 是否移除成功
+     */
+    public synchronized boolean remove(ChannelHandlerAdapter channelHandlerAdapter) {
+        boolean removed = false;
+        ChannelHandlerContext ctx = inContext(channelHandlerAdapter);
+        if (ctx != null) {
+            if (ctx.prev == null) {
+                inHead = ctx.next;
+            } else {
+                ctx.prev.next = ctx.next;
+            }
+            if (ctx.next == null) {
+                inTail = ctx.prev;
+            } else {
+                ctx.next.prev = ctx.prev;
+            }
+            removed = true;
+        }
+        ctx = outContext(channelHandlerAdapter);
+        if (ctx != null) {
+            if (ctx.prev == null) {
+                outHead = ctx.next;
+            } else {
+                ctx.prev.next = ctx.next;
+            }
+            if (ctx.next == null) {
+                outTail = ctx.prev;
+            } else {
+                ctx.next.prev = ctx.prev;
+            }
+            removed = true;
+        }
+        if (removed) {
+            release(channelHandlerAdapter);
+        }
+        return removed;
+    }
+
     /**
      * 清理责任链
      */
-    public void clean() {
-        inPipeList.clear();
-        outPipeList.clear();
+    public synchronized void clean() {
+        //通道关闭后释放非共享处理器，允许其被重新加入新的通道(如断线重连)
+        Map<ChannelHandlerAdapter, Boolean> handlers = new IdentityHashMap<>();
+        for (ChannelHandlerContext ctx = inHead; ctx != null; ctx = ctx.next) {
+            handlers.put(ctx.handler(), Boolean.TRUE);
+        }
+        for (ChannelHandlerContext ctx = outHead; ctx != null; ctx = ctx.next) {
+            handlers.put(ctx.handler(), Boolean.TRUE);
+        }
+        for (ChannelHandlerAdapter channelHandlerAdapter : handlers.keySet()) {
+            releaseAll(channelHandlerAdapter);
+        }
+        inHead = inTail = null;
+        outHead = outTail = null;
+    }
+
+    /**
+     * 未标记{@link Sharable}的处理器同一时刻只能属于一条责任链，在同一条链中可以出现多次
+     *
+     * @param channelHandlerAdapter 处理器
+     */
+    private void checkMultiplicity(ChannelHandlerAdapter channelHandlerAdapter) {
+        if (channelHandlerAdapter.isSharable()) {
+            return;
+        }
+        synchronized (channelHandlerAdapter) {
+            if (channelHandlerAdapter.addedTo != null && channelHandlerAdapter.addedTo != this) {
+                throw new IllegalStateException(channelHandlerAdapter.getClass().getName() + " is not a @Sharable handler, so can't be added to multiple pipelines.");
+            }
+            channelHandlerAdapter.addedTo = this;
+            channelHandlerAdapter.addedCount++;
+        }
+    }
+
+    /**
+     * 处理器的一次加入离开责任链
+     *
+     * @param channelHandlerAdapter 处理器
+     */
+    private void release(ChannelHandlerAdapter channelHandlerAdapter) {
+        if (channelHandlerAdapter.isSharable()) {
+            return;
+        }
+        synchronized (channelHandlerAdapter) {
+            if (channelHandlerAdapter.addedTo == this && --channelHandlerAdapter.addedCount <= 0) {
+                channelHandlerAdapter.addedTo = null;
+                channelHandlerAdapter.addedCount = 0;
+            }
+        }
+    }
+
+    /**
+     * 处理器完全离开责任链
+     *
+     * @param channelHandlerAdapter 处理器
+     */
+    private void releaseAll(ChannelHandlerAdapter channelHandlerAdapter) {
+        if (channelHandlerAdapter.isSharable()) {
+            return;
+        }
+        synchronized (channelHandlerAdapter) {
+            if (channelHandlerAdapter.addedTo == this) {
+                channelHandlerAdapter.addedTo = null;
+                channelHandlerAdapter.addedCount = 0;
+            }
+        }
+    }
+
+    private void addInLast(ChannelHandlerAdapter channelHandlerAdapter) {
+        ChannelHandlerContext ctx = new ChannelHandlerContext(this, channelHandlerAdapter, true);
+        ChannelHandlerContext tail = inTail;
+        ctx.prev = tail;
+        if (tail == null) {
+            inHead = ctx;
+        } else {
+            tail.next = ctx;
+        }
+        inTail = ctx;
+    }
+
+    private void addInFirst(ChannelHandlerAdapter channelHandlerAdapter) {
+        ChannelHandlerContext ctx = new ChannelHandlerContext(this, channelHandlerAdapter, true);
+        ChannelHandlerContext head = inHead;
+        ctx.next = head;
+        if (head == null) {
+            inTail = ctx;
+        } else {
+            head.prev = ctx;
+        }
+        inHead = ctx;
+    }
+
+    private void addOutLast(ChannelHandlerAdapter channelHandlerAdapter) {
+        ChannelHandlerContext ctx = new ChannelHandlerContext(this, channelHandlerAdapter, false);
+        ChannelHandlerContext tail = outTail;
+        ctx.prev = tail;
+        if (tail == null) {
+            outHead = ctx;
+        } else {
+            tail.next = ctx;
+        }
+        outTail = ctx;
+    }
+
+    private void addOutFirst(ChannelHandlerAdapter channelHandlerAdapter) {
+        ChannelHandlerContext ctx = new ChannelHandlerContext(this, channelHandlerAdapter, false);
+        ChannelHandlerContext head = outHead;
+        ctx.next = head;
+        if (head == null) {
+            outTail = ctx;
+        } else {
+            head.prev = ctx;
+        }
+        outHead = ctx;
     }
 
 }
@@ -0,0 +1,387 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * ConcurrentLongHashMap.java
+ *
+ * @description:以long为键的并发map，键不装箱。
+ * 按键的哈希分段，每段是一个线性探测的开放寻址表，写操作持有段的写锁，读操作先乐观读，被写操作打断时再加读锁重试。
+ * 删除时把后续元素前移填补空位，不留墓碑；元素数量降到容量的1/4以下时收缩。值不能为null
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public class ConcurrentLongHashMap<V> {
+
+    private static final int DEFAULT_EXPECTED_ITEMS = 256;
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+    /**
+     * 装载因子，超过后扩容
+     */
+    private static final float MAP_FILL_FACTOR = 0.66f;
+
+    private final List<Section<V>> sections;
+    private final int sectionMask;
+
+    public ConcurrentLongHashMap() {
+        this(DEFAULT_EXPECTED_ITEMS, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param expectedItems    预计元素数量
+     * @param concurrencyLevel 分段数，会调整为2的幂
+     */
+    public ConcurrentLongHashMap(int expectedItems, int concurrencyLevel) {
+        if (expectedItems <= 0) {
+            throw new IllegalArgumentException("expectedItems: " + expectedItems + " (expected: > 0)");
+        }
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("concurrencyLevel: " + concurrencyLevel + " (expected: > 0)");
+        }
+        int numSections = MathUtil.safeFindNextPositivePowerOfTwo(concurrencyLevel);
+        int perSectionExpectedItems = Math.max(1, expectedItems / numSections);
+        int perSectionCapacity = MathUtil.safeFindNextPositivePowerOfTwo((int) (perSectionExpectedItems / MAP_FILL_FACTOR) + 1);
+        //泛型数组只能以原始类型创建，分段数固定，用列表保存即可
+        List<Section<V>> sections = new ArrayList<>(numSections);
+        for (int i = 0; i < numSections; i++) {
+            sections.add(new Section<V>(perSectionCapacity));
+        }
+        this.sections = sections;
+        this.sectionMask = numSections - 1;
+    }
+
+    /**
+     * 元素数量
+     *
+     * @return int
+     */
+    public int size() {
+        int size = 0;
+        for (Section<V> section : sections) {
+            size += section.size;
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        for (Section<V> section : sections) {
+            if (section.size != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public V get(long key) {
+        long h = hash(key);
+        return getSection(h).get(key, (int) h);
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * 放入元素
+     *
+     * @param key   键
+     * @param value 值
+     * @return 原来的值，不存在时返回null
+     */
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        long h = hash(key);
+        return getSection(h).put(key, value, (int) h, false);
+    }
+
+    /**
+     * 键不存在时放入元素
+     *
+     * @param key   键
+     * @param value 值
+     * @return 已存在的值，放入成功时返回null
+     */
+    public V putIfAbsent(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        long h = hash(key);
+        return getSection(h).put(key, value, (int) h, true);
+    }
+
+    /**
+     * 移除元素
+     *
+     * @param key 键
+     * @return 被移除的值，不存在时返回null
+     */
+    public V remove(long key) {
+        long h = hash(key);
+        return getSection(h).remove(key, null, (int) h);
+    }
+
+    /**
+     * 键对应的值等于指定值时才移除
+     *
+     * @param key   键
+     * @param value 值
+     * @return 是否移除
+     */
+    public boolean remove(long key, Object value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        long h = hash(key);
+        return getSection(h).remove(key, value, (int) h) != null;
+    }
+
+    public void clear() {
+        for (Section<V> section : sections) {
+            section.clear();
+        }
+    }
+
+    /**
+     * 所有值的快照，逐段加读锁复制，不阻塞其他段的写入
+     *
+     * @return List
+     */
+    public List<V> values() {
+        List<V> values = new ArrayList<>(size());
+        for (Section<V> section : sections) {
+            section.values(values);
+        }
+        return values;
+    }
+
+    private Section<V> getSection(long hash) {
+        //高位选段，低位选槽，两者互不相关
+        return sections.get((int) (hash >>> 32) & sectionMask);
+    }
+
+    /**
+     * 打散键的分布，顺序分配的id也能均匀落到各段各槽
+     */
+    private static long hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    private static int signSafeMod(int hash, int capacity) {
+        return hash & (capacity - 1);
+    }
+
+    /**
+     * 分段，自身即为该段的锁
+     */
+    @SuppressWarnings("serial")
+    private static final class Section<V> extends StampedLock {
+
+        private final int initialCapacity;
+        private long[] keys;
+        private V[] values;
+        private int capacity;
+        private volatile int size;
+        private int resizeThreshold;
+        private int shrinkThreshold;
+
+        Section(int capacity) {
+            this.initialCapacity = capacity;
+            allocate(capacity);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void allocate(int capacity) {
+            this.capacity = capacity;
+            this.keys = new long[capacity];
+            this.values = (V[]) new Object[capacity];
+            this.resizeThreshold = (int) (capacity * MAP_FILL_FACTOR);
+            this.shrinkThreshold = capacity > initialCapacity ? capacity >>> 2 : -1;
+        }
+
+        V get(long key, int hash) {
+            long stamp = tryOptimisticRead();
+            if (stamp != 0) {
+                long[] keys = this.keys;
+                V[] values = this.values;
+                //两个数组可能来自不同代，长度取较小者，结果由validate保证
+                int capacity = Math.min(keys.length, values.length);
+                V value = probe(keys, values, capacity, key, hash);
+                if (validate(stamp)) {
+                    return value;
+                }
+            }
+            stamp = readLock();
+            try {
+                return probe(this.keys, this.values, this.capacity, key, hash);
+            } finally {
+                unlockRead(stamp);
+            }
+        }
+
+        private static <V> V probe(long[] keys, V[] values, int capacity, long key, int hash) {
+            int bucket = signSafeMod(hash, capacity);
+            //乐观读时数据可能不一致，最多探测一轮
+            for (int i = 0; i < capacity; i++) {
+                V value = values[bucket];
+                if (value == null) {
+                    return null;
+                }
+                if (keys[bucket] == key) {
+                    return value;
+                }
+                bucket = signSafeMod(bucket + 1, capacity);
+            }
+            return null;
+        }
+
+        V put(long key, V value, int hash, boolean onlyIfAbsent) {
+            long stamp = writeLock();
+            try {
+                int bucket = signSafeMod(hash, capacity);
+                while (true) {
+                    V storedValue = values[bucket];
+                    if (storedValue == null) {
+                        keys[bucket] = key;
+                        values[bucket] = value;
+                        size++;
+                        if (size > resizeThreshold) {
+                            rehash(capacity << 1);
+                        }
+                        return null;
+                    }
+                    if (keys[bucket] == key) {
+                        if (!onlyIfAbsent) {
+                            values[bucket] = value;
+                        }
+                        return storedValue;
+                    }
+                    bucket = signSafeMod(bucket + 1, capacity);
+                }
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        V remove(long key, Object expectedValue, int hash) {
+            long stamp = writeLock();
+            try {
+                int bucket = signSafeMod(hash, capacity);
+                while (true) {
+                    V storedValue = values[bucket];
+                    if (storedValue == null) {
+                        return null;
+                    }
+                    if (keys[bucket] == key) {
+                        if (expectedValue != null && !expectedValue.equals(storedValue)) {
+                            return null;
+                        }
+                        removeAt(bucket);
+                        size--;
+                        if (size < shrinkThreshold) {
+                            rehash(capacity >>> 1);
+                        }
+                        return storedValue;
+                    }
+                    bucket = signSafeMod(bucket + 1, capacity);
+                }
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * 删除槽位，后续探测链上的元素前移填补空位
+         */
+        private void removeAt(int bucket) {
+            int hole = bucket;
+            int next = bucket;
+            while (true) {
+                next = signSafeMod(next + 1, capacity);
+                V value = values[next];
+                if (value == null) {
+                    break;
+                }
+                int ideal = signSafeMod((int) hash(keys[next]), capacity);
+                //ideal不在(hole, next]的循环区间内时，元素可以前移到hole
+                boolean movable = hole <= next ? (ideal <= hole || ideal > next) : (ideal <= hole && ideal > next);
+                if (movable) {
+                    keys[hole] = keys[next];
+                    values[hole] = value;
+                    hole = next;
+                }
+            }
+            values[hole] = null;
+            keys[hole] = 0;
+        }
+
+        private void rehash(int newCapacity) {
+            long[] oldKeys = keys;
+            V[] oldValues = values;
+            allocate(newCapacity);
+            for (int i = 0; i < oldValues.length; i++) {
+                V value = oldValues[i];
+                if (value != null) {
+                    long key = oldKeys[i];
+                    int bucket = signSafeMod((int) hash(key), capacity);
+                    while (values[bucket] != null) {
+                        bucket = signSafeMod(bucket + 1, capacity);
+                    }
+                    keys[bucket] = key;
+                    values[bucket] = value;
+                }
+            }
+        }
+
+        void clear() {
+            long stamp = writeLock();
+            try {
+                if (capacity > initialCapacity) {
+                    allocate(initialCapacity);
+                } else {
+                    Arrays.fill(keys, 0);
+                    Arrays.fill(values, null);
+                }
+                size = 0;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        void values(List<V> out) {
+            long stamp = readLock();
+            try {
+                for (V value : values) {
+                    if (value != null) {
+                        out.add(value);
+                    }
+                }
+            } finally {
+                unlockRead(stamp);
+            }
+        }
+    }
+}
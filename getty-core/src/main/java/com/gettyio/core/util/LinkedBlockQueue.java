@@ -22,7 +22,8 @@ import java.util.concurrent.locks.ReentrantLock;
 /**
  * LinkedBlockQueue.java
  *
- * @description:读写mq,元素满时阻塞
+ * @description:读写mq,元素满时阻塞。底层数组从小容量开始按需扩容到初始大小，
+ * 连续多次清空时使用量都低于数组长度的1/4才收缩一半，避免负载波动时反复扩容收缩
  * @author:gogym
  * @date:2020/4/9
  * @copyright: Copyright by gettyio.com
@@ -39,6 +40,31 @@ public class LinkedBlockQueue<T> implements LinkedQueue<T> {
      */
     int capacity;
 
+    /**
+     * 底层数组的初始长度
+     */
+    private static final int INITIAL_ARRAY_LENGTH = 16;
+
+    /**
+     * 底层数组当前的最小长度，收缩不会低于该长度
+     */
+    private final int minArrayLength;
+
+    /**
+     * 连续低使用量清空多少次后收缩
+     */
+    private static final int SHRINK_THRESHOLD = 16;
+
+    /**
+     * 上次清空以来的最大元素个数
+     */
+    private int peakCount;
+
+    /**
+     * 连续低使用量清空的次数
+     */
+    private int lowUsageDrains;
+
     /**
      * 元素个数
      */
@@ -69,8 +95,12 @@ public class LinkedBlockQueue<T> implements LinkedQueue<T> {
     }
 
     public LinkedBlockQueue(int capacity) {
-        items = (T[]) new Object[capacity];
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity: " + capacity + " (expected: > 0)");
+        }
         this.capacity = capacity;
+        this.minArrayLength = Math.min(capacity, INITIAL_ARRAY_LENGTH);
+        items = (T[]) new Object[minArrayLength];
     }
 
     @Override
@@ -92,15 +122,22 @@ public class LinkedBlockQueue<T> implements LinkedQueue<T> {
         //获取锁
         lock.lock();
         try {
-            //已经满了 则发生阻塞 无法继续插入
             while (items.length == count) {
-                notFull.await();
+                if (count < capacity) {
+                    //数组已满但未达到容量上限时扩容
+                    grow();
+                } else {
+                    //已经满了 则发生阻塞 无法继续插入
+                    notFull.await();
+                }
             }
             items[putIndex] = t;
             if (++putIndex == items.length) {
                 putIndex = 0;
             }
-            count++;
+            if (++count > peakCount) {
+                peakCount = count;
+            }
             notEmpty.signal();
         } finally {
             lock.unlock();
@@ -148,10 +185,44 @@ public class LinkedBlockQueue<T> implements LinkedQueue<T> {
             removeIndex = 0;
         }
         count--;
+        if (count == 0) {
+            drained();
+        }
         notFull.signal();
         return t;
     }
 
+    /**
+     * 队列清空时统计使用量，连续多次低于数组长度的1/4才收缩一半
+     */
+    private void drained() {
+        if (items.length > minArrayLength && peakCount < (items.length >> 2)) {
+            if (++lowUsageDrains >= SHRINK_THRESHOLD) {
+                items = (T[]) new Object[Math.max(items.length >> 1, minArrayLength)];
+                putIndex = 0;
+                removeIndex = 0;
+                lowUsageDrains = 0;
+            }
+        } else {
+            lowUsageDrains = 0;
+        }
+        peakCount = 0;
+    }
+
+    /**
+     * 扩容为原来的两倍，不超过容量上限，元素按顺序移到新数组头部
+     */
+    private void grow() {
+        int newLength = (int) Math.min((long) items.length << 1, capacity);
+        T[] newItems = (T[]) new Object[newLength];
+        for (int i = 0; i < count; i++) {
+            newItems[i] = items[(removeIndex + i) % items.length];
+        }
+        items = newItems;
+        removeIndex = 0;
+        putIndex = count == newLength ? 0 : count;
+    }
+
 
     private void checkNull(T t) {
         if (t == null) {
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.util;
+
+import com.gettyio.core.function.Function;
+
+import java.lang.reflect.Array;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * MpscByteBoundedQueue.java
+ *
+ * @description:无锁多生产者单消费者队列，按字节数而不是元素个数限制容量。
+ * 生产者只竞争一次CAS，超过上限时offer直接返回false，offer(t, timeout, unit)自旋后短暂休眠等待消费，最多等待指定时间；
+ * poll/take只允许在同一个消费线程调用。元素在队列中时其字节数不能改变
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public class MpscByteBoundedQueue<T> implements LinkedQueue<T> {
+
+    /**
+     * 队列满时自旋次数，超过后休眠
+     */
+    private static final int MAX_SPINS = 64;
+    /**
+     * 队列满时每次休眠时间
+     */
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * 队列实现
+     */
+    private final MpscLinkedQueue<T> queue = new MpscLinkedQueue<>();
+    /**
+     * 计算元素字节数
+     */
+    private final Function<T, Integer> weigher;
+    /**
+     * 最大字节数
+     */
+    private final int maxBytes;
+    /**
+     * 当前字节数
+     */
+    private final AtomicLong pendingBytes = new AtomicLong();
+    /**
+     * 元素个数
+     */
+    private final AtomicInteger count = new AtomicInteger();
+    /**
+     * 阻塞在take上的消费线程
+     */
+    private volatile Thread waiter;
+
+
+    /**
+     * 构造方法
+     *
+     * @param maxBytes 最大字节数，队列为空时允许放入超过上限的单个元素
+     * @param weigher  计算元素字节数
+     */
+    public MpscByteBoundedQueue(int maxBytes, Function<T, Integer> weigher) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes: " + maxBytes + " (expected: > 0)");
+        }
+        if (weigher == null) {
+            throw new NullPointerException("weigher");
+        }
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <E> E[] getArray(Class<E> componentType, int length) {
+        return (E[]) Array.newInstance(componentType, length);
+    }
+
+    /**
+     * 进队，超过字节上限时一直等待直到有空间。
+     * 等待依赖消费线程取走数据，不能在消费线程（如通道的事件循环线程）中调用，否则会死锁，这种场景应使用{@link #offer(Object)}
+     *
+     * @param t 泛型
+     * @throws InterruptedException 等待时被中断
+     */
+    @Override
+    public T put(T t) throws InterruptedException {
+        offer(t, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        return t;
+    }
+
+    /**
+     * 进队，超过字节上限时最多等待指定时间
+     *
+     * @param t       泛型
+     * @param timeout 最长等待时间
+     * @param unit    时间单位
+     * @return 超时仍未进队时返回false
+     * @throws InterruptedException 等待时被中断
+     */
+    public boolean offer(T t, long timeout, TimeUnit unit) throws InterruptedException {
+        checkNull(t);
+        int bytes = weigher.apply(t);
+        long remaining = unit.toNanos(timeout);
+        long deadline = System.nanoTime() + remaining;
+        int spins = 0;
+        while (!tryReserve(bytes)) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (remaining <= 0) {
+                return false;
+            }
+            if (++spins < MAX_SPINS) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(this, Math.min(PARK_NANOS, remaining));
+            }
+            remaining = deadline - System.nanoTime();
+        }
+        enqueue(t);
+        return true;
+    }
+
+    /**
+     * 进队，超过字节上限时直接返回false
+     *
+     * @param t 泛型
+     * @return boolean
+     */
+    public boolean offer(T t) {
+        checkNull(t);
+        if (!tryReserve(weigher.apply(t))) {
+            return false;
+        }
+        enqueue(t);
+        return true;
+    }
+
+    @Override
+    public T poll() throws InterruptedException {
+        T t = queue.poll();
+        if (t != null) {
+            count.decrementAndGet();
+            pendingBytes.addAndGet(-weigher.apply(t));
+        }
+        return t;
+    }
+
+    @Override
+    public T take() throws InterruptedException {
+        T t;
+        while ((t = poll()) == null) {
+            waiter = Thread.currentThread();
+            try {
+                //登记后再检查一次，避免错过生产者的唤醒
+                if ((t = poll()) != null) {
+                    return t;
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                LockSupport.park(this);
+            } finally {
+                waiter = null;
+            }
+        }
+        return t;
+    }
+
+    private boolean tryReserve(int bytes) {
+        for (; ; ) {
+            long current = pendingBytes.get();
+            if (current != 0 && current + bytes > maxBytes) {
+                return false;
+            }
+            if (pendingBytes.compareAndSet(current, current + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    private void enqueue(T t) {
+        queue.offer(t);
+        count.incrementAndGet();
+        Thread w = waiter;
+        if (w != null) {
+            LockSupport.unpark(w);
+        }
+    }
+
+    private void checkNull(T t) {
+        if (t == null) {
+            throw new NullPointerException();
+        }
+    }
+
+    /**
+     * 当前队列中的字节数
+     *
+     * @return long
+     */
+    public long getPendingBytes() {
+        return pendingBytes.get();
+    }
+
+    /**
+     * 最大字节数
+     *
+     * @return int
+     */
+    @Override
+    public int getCapacity() {
+        return maxBytes;
+    }
+
+    @Override
+    public int getCount() {
+        return count.get();
+    }
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.util;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * MpscLinkedQueue.java
+ *
+ * @description:无锁多生产者单消费者队列，生产者只竞争一次getAndSet，消费者无需同步。
+ * offer可在任意线程调用，poll/peek只允许在同一个消费线程调用
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public class MpscLinkedQueue<E> extends AbstractQueue<E> {
+
+    /**
+     * 队尾，生产者竞争
+     */
+    private final AtomicReference<Node<E>> tail;
+
+    /**
+     * 队头哨兵，只由消费者访问
+     */
+    private Node<E> head;
+
+    public MpscLinkedQueue() {
+        Node<E> stub = new Node<>(null);
+        head = stub;
+        tail = new AtomicReference<>(stub);
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        Node<E> node = new Node<>(e);
+        Node<E> prev = tail.getAndSet(node);
+        prev.lazySetNext(node);
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        Node<E> next = nextNode();
+        if (next == null) {
+            return null;
+        }
+        E value = next.value;
+        //新的头节点作为哨兵，不再持有元素
+        next.value = null;
+        head = next;
+        return value;
+    }
+
+    @Override
+    public E peek() {
+        Node<E> next = nextNode();
+        return next == null ? null : next.value;
+    }
+
+    /**
+     * 获取头节点的下一个节点。生产者已交换队尾但尚未链接时短暂自旋等待
+     *
+     * @return Node
+     */
+    private Node<E> nextNode() {
+        Node<E> next = head.next;
+        if (next == null && head != tail.get()) {
+            while ((next = head.next) == null) {
+                Thread.yield();
+            }
+        }
+        return next;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return head == tail.get();
+    }
+
+    /**
+     * 遍历计算元素数量，复杂度O(n)，仅用于统计
+     *
+     * @return int
+     */
+    @Override
+    public int size() {
+        int size = 0;
+        Node<E> node = head.next;
+        while (node != null && size < Integer.MAX_VALUE) {
+            size++;
+            node = node.next;
+        }
+        return size;
+    }
+
+    /**
+     * 弱一致性迭代器，不会抛出ConcurrentModificationException，
+     * 只反映迭代过程中某一时刻的队列内容，可在任意线程调用，不支持remove
+     *
+     * @return Iterator
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    private final class Itr implements Iterator<E> {
+
+        /**
+         * 下一个要返回的节点及其元素，提前取出元素，避免hasNext之后被消费者置空
+         */
+        private Node<E> nextNode;
+        private E nextValue;
+
+        Itr() {
+            advance(head);
+        }
+
+        /**
+         * 从指定节点向后查找下一个仍持有元素的节点，已被消费的节点元素为null，直接跳过
+         *
+         * @param node 起始节点
+         */
+        private void advance(Node<E> node) {
+            Node<E> next = node.next;
+            while (next != null) {
+                E value = next.value;
+                if (value != null) {
+                    nextNode = next;
+                    nextValue = value;
+                    return;
+                }
+                next = next.next;
+            }
+            nextNode = null;
+            nextValue = null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextNode != null;
+        }
+
+        @Override
+        public E next() {
+            if (nextNode == null) {
+                throw new NoSuchElementException();
+            }
+            E value = nextValue;
+            advance(nextNode);
+            return value;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+
+    private static final class Node<E> {
+
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<Node, Node> NEXT_UPDATER = AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+
+        E value;
+        volatile Node<E> next;
+
+        Node(E value) {
+            this.value = value;
+        }
+
+        @SuppressWarnings("unchecked")
+        void lazySetNext(Node<E> node) {
+            NEXT_UPDATER.lazySet(this, node);
+        }
+    }
+}
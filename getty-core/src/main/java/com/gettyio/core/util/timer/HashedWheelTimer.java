@@ -17,11 +17,12 @@ package com.gettyio.core.util.timer;
 
 import com.gettyio.core.logging.InternalLogger;
 import com.gettyio.core.logging.InternalLoggerFactory;
-import com.gettyio.core.util.LinkedBlockQueue;
+import com.gettyio.core.util.MpscLinkedQueue;
 import com.gettyio.core.util.PlatformDependent;
 
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -72,13 +73,14 @@ public class HashedWheelTimer implements Timer {
      */
     private final CountDownLatch startTimeInitialized = new CountDownLatch(1);
     /**
-     * 待执行任务队列
+     * 待执行任务队列，任意线程添加，只由worker线程取出。不能使用阻塞队列，
+     * 否则worker在队列为空时会阻塞而停止转动，在worker线程内重新调度任务时队列满还会死锁
      */
-    private final LinkedBlockQueue<HashedWheelTimeout> timeouts = new LinkedBlockQueue<>();
+    private final Queue<HashedWheelTimeout> timeouts = new MpscLinkedQueue<>();
     /**
      * 待取消任务队列
      */
-    private final LinkedBlockQueue<HashedWheelTimeout> cancelledTimeouts = new LinkedBlockQueue<>();
+    private final Queue<HashedWheelTimeout> cancelledTimeouts = new MpscLinkedQueue<>();
     /**
      * 等待处理计数器
      */
@@ -189,6 +191,27 @@ public class HashedWheelTimer implements Timer {
         }
     }
 
+    /**
+     * 进程内共享的时间轮，worker为守护线程，不阻止JVM退出。
+     * 供空闲检测、连接超时等大量短小的定时任务共用，不要对其调用stop()
+     *
+     * @return HashedWheelTimer
+     */
+    public static HashedWheelTimer sharedTimer() {
+        return SharedTimerHolder.INSTANCE;
+    }
+
+    private static final class SharedTimerHolder {
+        static final HashedWheelTimer INSTANCE = new HashedWheelTimer(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "getty-shared-timer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, 100, TimeUnit.MILLISECONDS, 512, false);
+    }
+
     /**
      * 创建时间轮 - 使用默认线程工厂，100ms 转一格， 512格 ，启用内存溢出检测，不设置最大等待处理次数
      */
@@ -280,11 +303,7 @@ public class HashedWheelTimer implements Timer {
         //而是先加入到一个待执行任务队列里，然后等到下一个tick的时候，会从队列里取出最多10w个任务加入到指定的格子中
 
         HashedWheelTimeout timeout = new HashedWheelTimeout(this, task, deadline);
-        try {
-            timeouts.put(timeout);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        timeouts.offer(timeout);
         return timeout;
     }
 
@@ -531,12 +550,7 @@ public class HashedWheelTimer implements Timer {
             // 将还没有加入到格子中的待处理定时任务队列中的任务取出，
             // 如果是未取消的任务，则加入到未处理任务队列中，以供stop()方法返回
             for (; ; ) {
-                HashedWheelTimeout timeout = null;
-                try {
-                    timeout = timeouts.take();
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
+                HashedWheelTimeout timeout = timeouts.poll();
                 if (timeout == null) {
                     break;
                 }
@@ -559,12 +573,7 @@ public class HashedWheelTimer implements Timer {
         private void transferTimeoutsToBuckets() {
             //每次 tick 只处理 10w个任务，以免阻塞 worker 线程
             for (int i = 0; i < 100000; i++) {
-                HashedWheelTimeout timeout = null;
-                try {
-                    timeout = timeouts.take();
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
+                HashedWheelTimeout timeout = timeouts.poll();
                 //如果没有任务了，直接跳出循环
                 if (timeout == null) {
                     break;
@@ -599,12 +608,7 @@ public class HashedWheelTimer implements Timer {
         //将取消的任务取出，并从格子中移除
         private void processCancelledTasks() {
             for (; ; ) {
-                HashedWheelTimeout timeout = null;
-                try {
-                    timeout = cancelledTimeouts.take();
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
+                HashedWheelTimeout timeout = cancelledTimeouts.poll();
                 if (timeout == null) {
                     break;
                 }
@@ -856,11 +860,7 @@ public class HashedWheelTimer implements Timer {
             }
             //加入到时间轮的待取消队列，并在每次 tick 的时候，从相应格子中移除
             //因此，这意味着我们将有最大的 GC 延迟。1 tick 时间足够好。这样我们可以再次使用我们的 MpscLinkedQueue 队列，尽可能减少锁定/开销。
-            try {
-                timer.cancelledTimeouts.put(this);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+            timer.cancelledTimeouts.offer(this);
 
             return true;
         }
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.buffer;
+
+import com.gettyio.core.buffer.buffer.ByteBuf;
+import com.gettyio.core.buffer.pool.PooledByteBufAllocator;
+import com.gettyio.core.function.Function;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * BufferWriterTest.java
+ *
+ * @description:BufferWriter测试
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public class BufferWriterTest {
+
+    private final PooledByteBufAllocator allocator = new PooledByteBufAllocator(false);
+
+    private static final Function<BufferWriter, Void> NO_FLUSH = new Function<BufferWriter, Void>() {
+        @Override
+        public Void apply(BufferWriter input) {
+            return null;
+        }
+    };
+
+    private ByteBuf buffer(int length) {
+        ByteBuf byteBuf = allocator.heapBuffer(length);
+        byteBuf.writeBytes(new byte[length]);
+        return byteBuf;
+    }
+
+    @Test
+    public void fullQueueFailsFastWithoutTimeout() throws Exception {
+        BufferWriter writer = new BufferWriter(allocator, NO_FLUSH, 16, 0);
+        writer.writeAndFlush(buffer(16));
+        ByteBuf rejected = buffer(1);
+        long start = System.nanoTime();
+        try {
+            //消费线程中写入时不能等待，队列满直接失败
+            writer.writeAndFlush(rejected, 0);
+            fail();
+        } catch (IOException expected) {
+        }
+        assertTrue(System.nanoTime() - start < 1000000000L);
+        assertEquals(0, rejected.refCnt());
+        assertEquals(1, writer.getCount());
+    }
+
+    @Test
+    public void fullQueueWaitsForTimeout() throws Exception {
+        BufferWriter writer = new BufferWriter(allocator, NO_FLUSH, 16, 30);
+        writer.writeAndFlush(buffer(16));
+        long start = System.nanoTime();
+        try {
+            writer.writeAndFlush(buffer(1));
+            fail();
+        } catch (IOException expected) {
+        }
+        assertTrue(System.nanoTime() - start >= 30000000L);
+    }
+
+    @Test
+    public void releaseDrainsQueuedBuffers() throws Exception {
+        BufferWriter writer = new BufferWriter(allocator, NO_FLUSH, 1024, 0);
+        ByteBuf first = buffer(8);
+        ByteBuf second = buffer(8);
+        writer.writeAndFlush(first);
+        writer.writeAndFlush(second);
+        writer.release();
+        assertTrue(writer.isClosed());
+        assertEquals(0, writer.getCount());
+        assertEquals(0, first.refCnt());
+        assertEquals(0, second.refCnt());
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.buffer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ResourceLeakDetectorTest.java
+ *
+ * @description:ResourceLeakDetector测试
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public class ResourceLeakDetectorTest {
+
+    private ResourceLeakDetector.Level originalLevel;
+
+    /**
+     * 把报告的泄漏收集起来，不输出日志
+     */
+    private static class CollectingDetector extends ResourceLeakDetector<Object> {
+        final List<String> leaks = new CopyOnWriteArrayList<>();
+
+        CollectingDetector() {
+            super("TestResource", 1);
+        }
+
+        @Override
+        protected boolean needReport() {
+            return true;
+        }
+
+        @Override
+        protected void reportTracedLeak(String resourceType, String records) {
+            leaks.add(records);
+        }
+
+        @Override
+        protected void reportUntracedLeak(String resourceType) {
+            leaks.add("");
+        }
+    }
+
+    @Before
+    public void setUp() {
+        originalLevel = ResourceLeakDetector.getLevel();
+    }
+
+    @After
+    public void tearDown() {
+        ResourceLeakDetector.setLevel(originalLevel);
+    }
+
+    /**
+     * 在单独的方法中创建对象，返回后对象不再可达
+     */
+    private static void leak(CollectingDetector detector, boolean close) {
+        Object resource = new Object();
+        ResourceLeakTracker<Object> tracker = detector.track(resource);
+        tracker.record("touched");
+        if (close) {
+            tracker.close(resource);
+        }
+    }
+
+    /**
+     * 触发GC，并通过新的分配让检测器处理引用队列，直到报告了泄漏或超时
+     */
+    private static void collect(CollectingDetector detector, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (detector.leaks.isEmpty() && System.currentTimeMillis() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+            Object probe = new Object();
+            detector.track(probe).close(probe);
+        }
+    }
+
+    @Test
+    public void disabledLevelDoesNotTrack() {
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.DISABLED);
+        assertNull(new CollectingDetector().track(new Object()));
+    }
+
+    @Test
+    public void closeOnlySucceedsOnce() {
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+        Object resource = new Object();
+        ResourceLeakTracker<Object> tracker = new CollectingDetector().track(resource);
+        assertNotNull(tracker);
+        assertTrue(tracker.close(resource));
+        assertFalse(tracker.close(resource));
+    }
+
+    @Test
+    public void reportsLeakWithAccessRecords() throws Exception {
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+        CollectingDetector detector = new CollectingDetector();
+        leak(detector, false);
+        collect(detector, 10000);
+
+        assertEquals(1, detector.leaks.size());
+        String records = detector.leaks.get(0);
+        assertTrue(records, records.contains("Created at:"));
+        assertTrue(records, records.contains("touched"));
+        assertTrue(records, records.contains("reportsLeakWithAccessRecords"));
+    }
+
+    @Test
+    public void simpleLevelReportsCreationOnly() throws Exception {
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.SIMPLE);
+        CollectingDetector detector = new CollectingDetector();
+        leak(detector, false);
+        collect(detector, 10000);
+
+        assertEquals(1, detector.leaks.size());
+        String records = detector.leaks.get(0);
+        assertTrue(records, records.contains("Created at:"));
+        assertFalse(records, records.contains("touched"));
+    }
+
+    @Test
+    public void closedResourceIsNotReported() throws Exception {
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+        CollectingDetector detector = new CollectingDetector();
+        leak(detector, true);
+        collect(detector, 500);
+        assertTrue(detector.leaks.isEmpty());
+    }
+
+    @Test
+    public void parseLevel() {
+        assertEquals(ResourceLeakDetector.Level.ADVANCED, ResourceLeakDetector.Level.parse(" advanced "));
+        assertEquals(ResourceLeakDetector.Level.PARANOID, ResourceLeakDetector.Level.parse("3"));
+    }
+}
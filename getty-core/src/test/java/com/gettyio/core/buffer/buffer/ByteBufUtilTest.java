@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.buffer.buffer;
+
+import com.gettyio.core.buffer.pool.PooledByteBufAllocator;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * ByteBufUtilTest.java
+ *
+ * @description:ByteBufUtil测试
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public class ByteBufUtilTest {
+
+    private final PooledByteBufAllocator allocator = new PooledByteBufAllocator(false);
+
+    private static int naiveIndexOf(byte[] bytes, int fromIndex, int toIndex, byte value) {
+        for (int i = Math.max(fromIndex, 0); i < toIndex; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 各种起止位置和匹配位置都与逐字节查找一致，包括非4字节对齐的首尾
+     */
+    private void checkIndexOf(ByteBuf buffer) {
+        byte[] values = {0x00, 0x01, 0x7F, (byte) 0x80, (byte) 0xFF};
+        int length = buffer.capacity();
+        for (byte value : values) {
+            for (int match = -1; match < length; match++) {
+                byte[] bytes = new byte[length];
+                for (int i = 0; i < length; i++) {
+                    //填充的字节与目标只差最高位或最低位，容易触发误判
+                    bytes[i] = (byte) (value ^ (i % 2 == 0 ? 0x80 : 0x01));
+                }
+                if (match >= 0) {
+                    bytes[match] = value;
+                }
+                buffer.setBytes(0, bytes);
+                for (int from = 0; from <= length; from++) {
+                    for (int to = from; to <= length; to++) {
+                        assertEquals("from=" + from + " to=" + to + " match=" + match + " value=" + value,
+                                naiveIndexOf(bytes, from, to, value), ByteBufUtil.indexOf(buffer, from, to, value));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void swarIndexOfHeap() {
+        ByteBuf buffer = allocator.heapBuffer(19);
+        buffer.writerIndex(19);
+        checkIndexOf(buffer);
+        buffer.release();
+    }
+
+    @Test
+    public void swarIndexOfDirect() {
+        ByteBuf buffer = allocator.directBuffer(19);
+        buffer.writerIndex(19);
+        checkIndexOf(buffer);
+        buffer.release();
+    }
+
+    @Test
+    public void multipleMatchesReturnFirst() {
+        ByteBuf buffer = allocator.heapBuffer(16);
+        buffer.writeBytes(new byte[]{0, 0, 0, 0, 0, 7, 7, 0, 7, 0, 0, 0, 0, 0, 0, 7});
+        assertEquals(5, ByteBufUtil.indexOf(buffer, 0, 16, (byte) 7));
+        assertEquals(6, ByteBufUtil.indexOf(buffer, 6, 16, (byte) 7));
+        assertEquals(8, ByteBufUtil.indexOf(buffer, 7, 16, (byte) 7));
+        assertEquals(15, ByteBufUtil.indexOf(buffer, 9, 16, (byte) 7));
+        assertEquals(-1, ByteBufUtil.indexOf(buffer, 9, 15, (byte) 7));
+        buffer.release();
+    }
+
+    @Test
+    public void reverseIndexOf() {
+        ByteBuf buffer = allocator.heapBuffer(8);
+        buffer.writeBytes(new byte[]{7, 0, 7, 0, 0, 0, 0, 0});
+        //fromIndex大于toIndex时从fromIndex - 1向前查找到toIndex
+        assertEquals(2, ByteBufUtil.indexOf(buffer, 8, 0, (byte) 7));
+        assertEquals(0, ByteBufUtil.indexOf(buffer, 2, 0, (byte) 7));
+        assertEquals(-1, ByteBufUtil.indexOf(buffer, 8, 3, (byte) 7));
+        buffer.release();
+    }
+}
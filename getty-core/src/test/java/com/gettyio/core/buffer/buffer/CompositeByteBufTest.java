@@ -0,0 +1,183 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.buffer.buffer;
+
+import com.gettyio.core.buffer.IllegalReferenceCountException;
+import com.gettyio.core.buffer.pool.PooledByteBufAllocator;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * CompositeByteBufTest.java
+ *
+ * @description:CompositeByteBuf测试
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public class CompositeByteBufTest {
+
+    private final PooledByteBufAllocator allocator = new PooledByteBufAllocator(false);
+
+    private ByteBuf buffer(int... bytes) {
+        ByteBuf byteBuf = allocator.heapBuffer(bytes.length);
+        for (int b : bytes) {
+            byteBuf.writeByte(b);
+        }
+        return byteBuf;
+    }
+
+    @Test
+    public void readAcrossComponents() {
+        CompositeByteBuf composite = allocator.compositeBuffer();
+        ByteBuf first = buffer(1, 2, 3);
+        ByteBuf second = buffer(4, 5);
+        ByteBuf third = buffer(6, 7, 8);
+        composite.addComponents(first, second, third);
+
+        assertEquals(3, composite.numComponents());
+        assertEquals(8, composite.readableBytes());
+        //跨组件读取int
+        assertEquals(0x02030405, composite.getInt(1));
+        byte[] all = new byte[8];
+        composite.getBytes(0, all);
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}, all);
+        assertEquals(5, composite.indexOf(0, 8, (byte) 6));
+
+        composite.release();
+        assertEquals(0, first.refCnt());
+        assertEquals(0, second.refCnt());
+        assertEquals(0, third.refCnt());
+    }
+
+    @Test
+    public void componentReaderIndexIsRespected() {
+        CompositeByteBuf composite = allocator.compositeBuffer();
+        ByteBuf partlyRead = buffer(9, 9, 1, 2);
+        partlyRead.readerIndex(2);
+        composite.addComponents(partlyRead, buffer(3));
+
+        byte[] all = new byte[composite.readableBytes()];
+        composite.readBytes(all);
+        assertArrayEquals(new byte[]{1, 2, 3}, all);
+        composite.release();
+    }
+
+    @Test
+    public void emptyComponentIsReleasedAndSkipped() {
+        CompositeByteBuf composite = allocator.compositeBuffer();
+        ByteBuf empty = allocator.heapBuffer(4);
+        composite.addComponents(buffer(1), empty, buffer(2));
+
+        assertEquals(0, empty.refCnt());
+        assertEquals(2, composite.numComponents());
+        composite.release();
+    }
+
+    @Test
+    public void consolidateWhenExceedingMaxComponents() {
+        CompositeByteBuf composite = allocator.compositeBuffer(2);
+        ByteBuf first = buffer(1, 2);
+        ByteBuf second = buffer(3);
+        ByteBuf third = buffer(4, 5);
+        composite.addComponents(first, second, third);
+
+        assertEquals(1, composite.numComponents());
+        assertEquals(0, first.refCnt());
+        assertEquals(0, second.refCnt());
+        assertEquals(0, third.refCnt());
+        byte[] all = new byte[5];
+        composite.getBytes(0, all);
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5}, all);
+        composite.release();
+    }
+
+    @Test
+    public void discardReadComponentsReleasesAndShifts() {
+        CompositeByteBuf composite = allocator.compositeBuffer();
+        ByteBuf first = buffer(1, 2);
+        ByteBuf second = buffer(3, 4);
+        composite.addComponents(first, second);
+        composite.readerIndex(3);
+
+        composite.discardReadComponents();
+        assertEquals(0, first.refCnt());
+        assertEquals(1, composite.numComponents());
+        assertEquals(1, composite.readerIndex());
+        assertEquals(2, composite.writerIndex());
+        assertEquals(4, composite.readByte());
+        composite.release();
+        assertEquals(0, second.refCnt());
+    }
+
+    @Test
+    public void nioBuffersPerComponent() {
+        CompositeByteBuf composite = allocator.compositeBuffer();
+        composite.addComponents(buffer(1, 2), buffer(3, 4, 5));
+
+        ByteBuffer[] buffers = composite.nioBuffers(1, 3);
+        assertEquals(2, buffers.length);
+        assertEquals(1, buffers[0].remaining());
+        assertEquals(2, buffers[1].remaining());
+        assertEquals(2, buffers[0].get());
+        assertEquals(3, buffers[1].get());
+
+        //跨组件时合并为一个缓冲区
+        ByteBuffer merged = composite.nioBuffer(1, 3);
+        assertEquals(3, merged.remaining());
+        assertEquals(2, merged.get());
+        assertEquals(3, merged.get());
+        assertEquals(4, merged.get());
+        composite.release();
+    }
+
+    @Test
+    public void shrinkCapacityTrimsComponents() {
+        CompositeByteBuf composite = allocator.compositeBuffer();
+        ByteBuf first = buffer(1, 2);
+        ByteBuf second = buffer(3, 4);
+        composite.addComponents(first, second);
+
+        composite.capacity(3);
+        assertEquals(3, composite.capacity());
+        assertEquals(3, composite.writerIndex());
+        assertEquals(2, composite.numComponents());
+
+        composite.capacity(1);
+        assertEquals(0, second.refCnt());
+        assertEquals(1, composite.numComponents());
+        assertEquals(1, composite.getByte(0));
+        composite.release();
+    }
+
+    @Test
+    public void addAfterReleaseReleasesComponent() {
+        CompositeByteBuf composite = allocator.compositeBuffer();
+        composite.release();
+        ByteBuf late = buffer(1);
+        try {
+            composite.addComponent(late);
+            fail();
+        } catch (IllegalReferenceCountException expected) {
+        }
+        assertEquals(0, late.refCnt());
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.buffer.buffer;
+
+import com.gettyio.core.buffer.pool.PooledByteBufAllocator;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * SlicedByteBufTest.java
+ *
+ * @description:SlicedByteBuf测试
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public class SlicedByteBufTest {
+
+    private final PooledByteBufAllocator allocator = new PooledByteBufAllocator(false);
+
+    private ByteBuf buffer(int length) {
+        ByteBuf buffer = allocator.heapBuffer(length);
+        for (int i = 0; i < length; i++) {
+            buffer.writeByte(i);
+        }
+        return buffer;
+    }
+
+    @Test
+    public void readsAreOffset() {
+        ByteBuf parent = buffer(16);
+        ByteBuf slice = parent.slice(4, 8);
+        assertEquals(8, slice.capacity());
+        assertEquals(8, slice.readableBytes());
+        assertEquals(4, slice.getByte(0));
+        assertEquals(0x05060708, slice.getInt(1));
+
+        slice.setByte(0, 100);
+        assertEquals(100, parent.getByte(4));
+        parent.release();
+    }
+
+    @Test
+    public void sliceOfSliceUnwrapsToRoot() {
+        ByteBuf parent = buffer(16);
+        ByteBuf slice = parent.slice(2, 12).slice(3, 4);
+        assertSame(parent, slice.unwrap());
+        assertEquals(5, slice.getByte(0));
+        assertEquals(8, slice.getByte(3));
+        parent.release();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectOutOfRangeSlice() {
+        ByteBuf parent = buffer(8);
+        try {
+            parent.slice(4, 5);
+        } finally {
+            parent.release();
+        }
+    }
+
+    @Test
+    public void indexOfStaysWithinSlice() {
+        ByteBuf parent = buffer(32);
+        ByteBuf slice = parent.slice(8, 16);
+        //目标字节在切片之前和之后都存在，但不在切片内
+        assertEquals(-1, slice.indexOf(0, 16, (byte) 2));
+        assertEquals(-1, slice.indexOf(0, 16, (byte) 30));
+        assertEquals(4, slice.indexOf(0, 16, (byte) 12));
+        //超出切片范围的下标被截断
+        assertEquals(4, slice.indexOf(-5, 100, (byte) 12));
+        assertEquals(-1, slice.indexOf(5, 16, (byte) 12));
+        //反向查找
+        assertEquals(4, slice.indexOf(16, 0, (byte) 12));
+        assertEquals(-1, slice.indexOf(4, 0, (byte) 12));
+        assertEquals(15, slice.indexOf(100, -5, (byte) 23));
+        parent.release();
+    }
+
+    @Test
+    public void referenceCountIsShared() {
+        ByteBuf parent = buffer(8);
+        ByteBuf slice = parent.slice(0, 4);
+        slice.retain();
+        assertEquals(2, parent.refCnt());
+        slice.release();
+        assertEquals(1, slice.refCnt());
+        parent.release();
+        assertEquals(0, slice.refCnt());
+    }
+}
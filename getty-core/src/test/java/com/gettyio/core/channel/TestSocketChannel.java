@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.channel;
+
+import com.gettyio.core.buffer.allocator.ByteBufAllocator;
+import com.gettyio.core.pipeline.DefaultChannelPipeline;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TestSocketChannel.java
+ *
+ * @description:不连接网络的通道，用于测试处理器和连接池
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public class TestSocketChannel extends SocketChannel {
+
+    /**
+     * 写出的消息
+     */
+    public final List<Object> written = new ArrayList<>();
+
+    public TestSocketChannel(ByteBufAllocator byteBufAllocator) {
+        this.byteBufAllocator = byteBufAllocator;
+        this.defaultChannelPipeline = new DefaultChannelPipeline(this);
+    }
+
+    @Override
+    public void close() {
+        if (isInvalid()) {
+            return;
+        }
+        status = CHANNEL_STATUS_CLOSED;
+        notifyCloseListeners();
+    }
+
+    @Override
+    public void close(boolean initiateClose) {
+        this.initiateClose = initiateClose;
+        close();
+    }
+
+    @Override
+    public boolean writeAndFlush(Object obj) {
+        writeToChannel(obj);
+        return true;
+    }
+
+    @Override
+    public void writeToChannel(Object obj) {
+        written.add(obj);
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return null;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.channel.loop;
+
+import com.gettyio.core.buffer.pool.PooledByteBufAllocator;
+import com.gettyio.core.channel.NioChannel;
+import com.gettyio.core.channel.SocketChannel;
+import com.gettyio.core.channel.config.ClientConfig;
+import com.gettyio.core.pipeline.ChannelInitializer;
+import com.gettyio.core.util.ThreadPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * NioEventLoopTest.java
+ *
+ * @description:NioEventLoop关闭测试
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public class NioEventLoopTest {
+
+    private final ClientConfig config = new ClientConfig();
+    private final PooledByteBufAllocator allocator = new PooledByteBufAllocator(false);
+    private NioEventLoop loop;
+    private ThreadPool workerThreadPool;
+    private ServerSocketChannel server;
+
+    @Before
+    public void setUp() throws Exception {
+        loop = new NioEventLoop(config, allocator);
+        loop.run();
+        workerThreadPool = new ThreadPool(ThreadPool.FixedThread, 1);
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.configureBlocking(false);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        loop.shutdown();
+        workerThreadPool.shutdown();
+        server.close();
+    }
+
+    @Test
+    public void shutdownClosesRegisteredChannels() throws Exception {
+        final CountDownLatch unregistered = new CountDownLatch(1);
+        loop.register(server, SelectionKey.OP_ACCEPT, new NioTask<ServerSocketChannel>() {
+            @Override
+            public void channelReady(ServerSocketChannel ch, SelectionKey key) throws Exception {
+                java.nio.channels.SocketChannel accepted = ch.accept();
+                if (accepted != null) {
+                    accepted.close();
+                }
+            }
+
+            @Override
+            public void channelUnregistered(ServerSocketChannel ch, Throwable cause) throws Exception {
+                ch.close();
+                unregistered.countDown();
+            }
+        });
+
+        final java.nio.channels.SocketChannel socket = java.nio.channels.SocketChannel.open();
+        final CountDownLatch connected = new CountDownLatch(1);
+        loop.connect(socket, server.getLocalAddress(), 0, new CompletionHandler<Void, java.nio.channels.SocketChannel>() {
+            @Override
+            public void completed(Void result, java.nio.channels.SocketChannel attachment) {
+                connected.countDown();
+            }
+
+            @Override
+            public void failed(Throwable exc, java.nio.channels.SocketChannel attachment) {
+            }
+        });
+        assertTrue(connected.await(5, TimeUnit.SECONDS));
+        NioChannel channel = new NioChannel(config, socket, loop, allocator, workerThreadPool, new ChannelInitializer() {
+            @Override
+            public void initChannel(SocketChannel socketChannel) {
+            }
+        });
+        channel.register();
+
+        loop.shutdown();
+        assertTrue(loop.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertTrue(channel.isInvalid());
+        assertFalse(socket.isOpen());
+        assertTrue(unregistered.await(0, TimeUnit.SECONDS));
+        assertFalse(server.isOpen());
+        assertFalse(loop.getSelector().isOpen());
+        assertEquals(0, loop.getChannelCount());
+    }
+
+    @Test
+    public void shutdownFailsPendingConnect() throws Exception {
+        //不可路由的地址，连接仍在进行时由loop关闭回调失败，网络不可达时则直接失败
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        final java.nio.channels.SocketChannel socket = java.nio.channels.SocketChannel.open();
+        loop.connect(socket, new InetSocketAddress("10.255.255.1", 9), 0, new CompletionHandler<Void, java.nio.channels.SocketChannel>() {
+            @Override
+            public void completed(Void result, java.nio.channels.SocketChannel attachment) {
+                done.countDown();
+            }
+
+            @Override
+            public void failed(Throwable exc, java.nio.channels.SocketChannel attachment) {
+                failure.set(exc);
+                done.countDown();
+            }
+        });
+        loop.shutdown();
+        assertTrue(loop.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(done.await(0, TimeUnit.SECONDS));
+        assertTrue(failure.get() != null);
+        assertFalse(socket.isOpen());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void executeAfterShutdownRejected() {
+        loop.shutdown();
+        loop.execute(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+    }
+
+    @Test
+    public void executeReleaseAfterTerminationRunsInline() throws Exception {
+        loop.shutdown();
+        assertTrue(loop.awaitTermination(5, TimeUnit.SECONDS));
+        final AtomicBoolean ran = new AtomicBoolean();
+        loop.executeRelease(new Runnable() {
+            @Override
+            public void run() {
+                ran.set(true);
+            }
+        });
+        assertTrue(ran.get());
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.channel.pool;
+
+import com.gettyio.core.channel.SocketChannel;
+import com.gettyio.core.channel.TestSocketChannel;
+import com.gettyio.core.channel.starter.ConnectHandler;
+import com.gettyio.core.util.timer.Timeout;
+import com.gettyio.core.util.timer.Timer;
+import com.gettyio.core.util.timer.TimerTask;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * ChannelPoolTest.java
+ *
+ * @description:ChannelPool测试
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public class ChannelPoolTest {
+
+    private ManualTimer timer;
+    private ManualExecutor executor;
+    private TestConnector connector;
+    private ChannelPoolConfig config;
+
+    /**
+     * 同步建立连接，可以指定下一次连接失败
+     */
+    private static class TestConnector implements ChannelConnector {
+        final List<TestSocketChannel> created = new ArrayList<>();
+        IOException failNext;
+
+        @Override
+        public void connect(ConnectHandler connectHandler) {
+            if (failNext != null) {
+                IOException cause = failNext;
+                failNext = null;
+                connectHandler.onFailed(cause);
+                return;
+            }
+            TestSocketChannel channel = new TestSocketChannel(null);
+            created.add(channel);
+            connectHandler.onCompleted(channel);
+        }
+    }
+
+    /**
+     * 手动触发的定时器，维护任务只在调用runPending时执行
+     */
+    private static class ManualTimer implements Timer {
+        private TimerTask pending;
+
+        void runPending() throws Exception {
+            TimerTask task = pending;
+            pending = null;
+            task.run(null);
+        }
+
+        @Override
+        public Timeout newTimeout(final TimerTask task, long delay, TimeUnit unit) {
+            pending = task;
+            return new Timeout() {
+                private boolean cancelled;
+
+                @Override
+                public Timer timer() {
+                    return ManualTimer.this;
+                }
+
+                @Override
+                public TimerTask task() {
+                    return task;
+                }
+
+                @Override
+                public boolean isExpired() {
+                    return false;
+                }
+
+                @Override
+                public boolean isCancelled() {
+                    return cancelled;
+                }
+
+                @Override
+                public boolean cancel() {
+                    cancelled = true;
+                    if (pending == task) {
+                        pending = null;
+                    }
+                    return true;
+                }
+            };
+        }
+
+        @Override
+        public Set<Timeout> stop() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public void openSwitch() {
+        }
+
+        @Override
+        public void closeSwitch() {
+        }
+    }
+
+    /**
+     * 健康检查线程池，任务由测试手动执行
+     */
+    private static class ManualExecutor implements Executor {
+        final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runPending() {
+            List<Runnable> pending = new ArrayList<>(tasks);
+            tasks.clear();
+            for (Runnable task : pending) {
+                task.run();
+            }
+        }
+    }
+
+    @Before
+    public void setUp() {
+        timer = new ManualTimer();
+        executor = new ManualExecutor();
+        connector = new TestConnector();
+        config = new ChannelPoolConfig();
+        config.setMaxTotal(2);
+        config.setAcquireTimeout(50);
+        config.setHealthCheckInterval(0);
+    }
+
+    private ChannelPool newPool(ChannelHealthChecker healthChecker) {
+        return new ChannelPool(connector, config, healthChecker, timer, executor);
+    }
+
+    private ChannelPool newPool() {
+        return newPool(ChannelHealthChecker.ACTIVE);
+    }
+
+    private static void sleepPastTimeout() throws InterruptedException {
+        Thread.sleep(20);
+    }
+
+    @Test
+    public void releasedChannelIsReused() throws Exception {
+        ChannelPool pool = newPool();
+        SocketChannel first = pool.acquire();
+        SocketChannel second = pool.acquire();
+        assertNotSame(first, second);
+        assertEquals(2, pool.getTotalCount());
+
+        pool.release(first);
+        pool.release(second);
+        assertEquals(2, pool.getIdleCount());
+        //最近归还的连接最先被借出
+        assertSame(second, pool.acquire());
+        assertEquals(2, connector.created.size());
+    }
+
+    @Test
+    public void acquireWaitsForMaxTotal() throws Exception {
+        final ChannelPool pool = newPool();
+        final SocketChannel first = pool.acquire();
+        pool.acquire();
+        try {
+            pool.acquire(20);
+            fail();
+        } catch (TimeoutException expected) {
+        }
+
+        Thread releaser = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException ignored) {
+                }
+                pool.release(first);
+            }
+        });
+        releaser.start();
+        assertSame(first, pool.acquire(5000));
+        releaser.join();
+    }
+
+    @Test
+    public void closedChannelIsNotReturnedToPool() throws Exception {
+        ChannelPool pool = newPool();
+        SocketChannel channel = pool.acquire();
+        channel.close();
+        pool.release(channel);
+        assertEquals(0, pool.getTotalCount());
+        assertEquals(0, pool.getIdleCount());
+        assertNotSame(channel, pool.acquire());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void doubleReleaseIsRejected() throws Exception {
+        ChannelPool pool = newPool();
+        SocketChannel channel = pool.acquire();
+        pool.release(channel);
+        pool.release(channel);
+    }
+
+    @Test
+    public void connectFailureReleasesSlot() throws Exception {
+        ChannelPool pool = newPool();
+        connector.failNext = new ConnectException("refused");
+        try {
+            pool.acquire();
+            fail();
+        } catch (ConnectException expected) {
+        }
+        assertEquals(0, pool.getTotalCount());
+        pool.acquire();
+        assertEquals(1, pool.getTotalCount());
+    }
+
+    @Test
+    public void idleTimeoutEvictsDownToMinIdle() throws Exception {
+        config.setMinIdle(1);
+        config.setIdleTimeout(1);
+        ChannelPool pool = newPool();
+        //构造时预先建立最小空闲连接
+        assertEquals(1, pool.getIdleCount());
+        SocketChannel first = pool.acquire();
+        SocketChannel second = pool.acquire();
+        pool.release(first);
+        pool.release(second);
+
+        sleepPastTimeout();
+        timer.runPending();
+        assertEquals(1, pool.getIdleCount());
+        assertEquals(1, pool.getTotalCount());
+        //最久未使用的连接先被回收
+        assertTrue(first.isInvalid());
+        assertFalse(second.isInvalid());
+    }
+
+    @Test
+    public void maxLifetimeClosesOnRelease() throws Exception {
+        config.setMaxLifetime(1);
+        ChannelPool pool = newPool();
+        SocketChannel channel = pool.acquire();
+        sleepPastTimeout();
+        pool.release(channel);
+        assertTrue(channel.isInvalid());
+        assertEquals(0, pool.getTotalCount());
+    }
+
+    @Test
+    public void maintenanceReplacesUnhealthyChannel() throws Exception {
+        config.setMinIdle(1);
+        config.setIdleTimeout(0);
+        config.setHealthCheckInterval(1);
+        final Set<SocketChannel> unhealthy = new HashSet<>();
+        ChannelPool pool = newPool(new ChannelHealthChecker() {
+            @Override
+            public boolean isHealthy(SocketChannel channel) {
+                return !unhealthy.contains(channel);
+            }
+        });
+        TestSocketChannel original = connector.created.get(0);
+        unhealthy.add(original);
+
+        sleepPastTimeout();
+        timer.runPending();
+        //定时器只调度，检查在健康检查线程池中执行，检查期间不借出也不额外补充
+        assertFalse(original.isInvalid());
+        assertEquals(0, pool.getIdleCount());
+        assertEquals(1, connector.created.size());
+        assertEquals(1, executor.tasks.size());
+
+        executor.runPending();
+        assertTrue(original.isInvalid());
+        //检查后补充最小空闲连接
+        assertEquals(2, connector.created.size());
+        assertEquals(1, pool.getIdleCount());
+        assertEquals(1, pool.getTotalCount());
+        assertSame(connector.created.get(1), pool.acquire());
+    }
+
+    @Test
+    public void testOnAcquireSkipsUnhealthyChannel() throws Exception {
+        config.setTestOnAcquire(true);
+        final AtomicReference<SocketChannel> unhealthy = new AtomicReference<>();
+        ChannelPool pool = newPool(new ChannelHealthChecker() {
+            @Override
+            public boolean isHealthy(SocketChannel channel) throws Exception {
+                if (channel == unhealthy.get()) {
+                    throw new IOException("ping failed");
+                }
+                return true;
+            }
+        });
+        SocketChannel channel = pool.acquire();
+        pool.release(channel);
+        unhealthy.set(channel);
+
+        SocketChannel replacement = pool.acquire();
+        assertNotSame(channel, replacement);
+        assertTrue(channel.isInvalid());
+        assertEquals(1, pool.getTotalCount());
+    }
+
+    @Test
+    public void closeClosesIdleAndLaterReleasedChannels() throws Exception {
+        ChannelPool pool = newPool();
+        SocketChannel idle = pool.acquire();
+        SocketChannel borrowed = pool.acquire();
+        pool.release(idle);
+
+        pool.close();
+        assertTrue(idle.isInvalid());
+        assertFalse(borrowed.isInvalid());
+        pool.release(borrowed);
+        assertTrue(borrowed.isInvalid());
+        assertEquals(0, pool.getTotalCount());
+        try {
+            pool.acquire();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.handler.codec.string;
+
+import com.gettyio.core.buffer.buffer.ByteBuf;
+import com.gettyio.core.buffer.buffer.ByteBufUtil;
+import com.gettyio.core.buffer.pool.PooledByteBufAllocator;
+import com.gettyio.core.channel.SocketChannel;
+import com.gettyio.core.channel.TestSocketChannel;
+import com.gettyio.core.handler.codec.TooLongFrameException;
+import com.gettyio.core.pipeline.in.ChannelInboundHandlerAdapter;
+import com.gettyio.core.util.LinkedBlockQueue;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * DelimiterFrameDecoderTest.java
+ *
+ * @description:DelimiterFrameDecoder测试
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public class DelimiterFrameDecoderTest {
+
+    private final PooledByteBufAllocator allocator = new PooledByteBufAllocator(false);
+    private final LinkedBlockQueue<Object> out = new LinkedBlockQueue<>();
+    private TestSocketChannel channel;
+    private FrameCollector collector;
+
+    /**
+     * 收集解出的帧和异常
+     */
+    private static class FrameCollector extends ChannelInboundHandlerAdapter {
+        final List<String> frames = new ArrayList<>();
+        final List<Throwable> errors = new ArrayList<>();
+
+        @Override
+        public void decode(SocketChannel socketChannel, Object obj, LinkedBlockQueue<Object> out) {
+            byte[] bytes = obj instanceof ByteBuf ? ByteBufUtil.getBytes((ByteBuf) obj) : (byte[]) obj;
+            frames.add(new String(bytes, StandardCharsets.US_ASCII));
+        }
+
+        @Override
+        public void exceptionCaught(SocketChannel socketChannel, Throwable cause) {
+            errors.add(cause);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        channel = new TestSocketChannel(allocator);
+        collector = new FrameCollector();
+    }
+
+    private DelimiterFrameDecoder install(DelimiterFrameDecoder decoder) {
+        channel.getDefaultChannelPipeline().addLast(decoder);
+        channel.getDefaultChannelPipeline().addLast(collector);
+        return decoder;
+    }
+
+    /**
+     * 按零拷贝模式输入，输入缓冲区由调用方在decode返回后释放，和通道的行为一致
+     */
+    private void readByteBuf(DelimiterFrameDecoder decoder, String data) throws Exception {
+        ByteBuf in = allocator.buffer(data.length());
+        in.writeBytes(data.getBytes(StandardCharsets.US_ASCII));
+        try {
+            decoder.decode(channel, in, out);
+        } finally {
+            in.release();
+        }
+    }
+
+    private void readBytes(DelimiterFrameDecoder decoder, String data) throws Exception {
+        decoder.decode(channel, data.getBytes(StandardCharsets.US_ASCII), out);
+    }
+
+    @Test
+    public void multipleFramesInOneRead() throws Exception {
+        DelimiterFrameDecoder decoder = install(new DelimiterFrameDecoder(DelimiterFrameDecoder.lineDelimiter));
+        readByteBuf(decoder, "a\r\nbc\r\n\r\nd");
+        assertEquals(Arrays.asList("a", "bc", ""), collector.frames);
+        readByteBuf(decoder, "ef\r\n");
+        assertEquals(Arrays.asList("a", "bc", "", "def"), collector.frames);
+    }
+
+    @Test
+    public void delimiterSplitAcrossReads() throws Exception {
+        DelimiterFrameDecoder decoder = install(new DelimiterFrameDecoder(DelimiterFrameDecoder.lineDelimiter));
+        readByteBuf(decoder, "hello\r");
+        assertTrue(collector.frames.isEmpty());
+        readByteBuf(decoder, "\nworld\r");
+        assertEquals(Arrays.asList("hello"), collector.frames);
+        readByteBuf(decoder, "\n");
+        assertEquals(Arrays.asList("hello", "world"), collector.frames);
+    }
+
+    @Test
+    public void longDelimiterSplitByteByByte() throws Exception {
+        DelimiterFrameDecoder decoder = install(new DelimiterFrameDecoder(1024, "<END>".getBytes(StandardCharsets.US_ASCII)));
+        String data = "abc<EN<END>de<END>";
+        for (int i = 0; i < data.length(); i++) {
+            readBytes(decoder, data.substring(i, i + 1));
+        }
+        assertEquals(Arrays.asList("abc<EN", "de"), collector.frames);
+    }
+
+    @Test
+    public void earliestDelimiterWins() throws Exception {
+        DelimiterFrameDecoder decoder = install(new DelimiterFrameDecoder(1024, DelimiterFrameDecoder.lineDelimiters()));
+        readBytes(decoder, "a\nb\r\nc\n");
+        assertEquals(Arrays.asList("a", "b", "c"), collector.frames);
+    }
+
+    @Test
+    public void keepDelimiter() throws Exception {
+        DelimiterFrameDecoder decoder = install(new DelimiterFrameDecoder(1024, false, true, DelimiterFrameDecoder.lineDelimiter));
+        readByteBuf(decoder, "a\r");
+        readByteBuf(decoder, "\n");
+        assertEquals(Arrays.asList("a\r\n"), collector.frames);
+    }
+
+    @Test
+    public void tooLongFrameFailFast() throws Exception {
+        DelimiterFrameDecoder decoder = install(new DelimiterFrameDecoder(4, DelimiterFrameDecoder.lineDelimiter));
+        readByteBuf(decoder, "123456");
+        //未读到分隔符就已经报错
+        assertEquals(1, collector.errors.size());
+        assertTrue(collector.errors.get(0) instanceof TooLongFrameException);
+        readByteBuf(decoder, "78\r\nok\r\n");
+        assertEquals(1, collector.errors.size());
+        assertEquals(Arrays.asList("ok"), collector.frames);
+    }
+
+    @Test
+    public void tooLongFrameReportedAfterDiscard() throws Exception {
+        DelimiterFrameDecoder decoder = install(new DelimiterFrameDecoder(4, true, false, DelimiterFrameDecoder.lineDelimiter));
+        readByteBuf(decoder, "123456");
+        assertTrue(collector.errors.isEmpty());
+        readByteBuf(decoder, "78\r\nok\r\n");
+        assertEquals(1, collector.errors.size());
+        assertEquals(Arrays.asList("ok"), collector.frames);
+    }
+
+    @Test
+    public void closeReleasesCumulation() throws Exception {
+        DelimiterFrameDecoder decoder = install(new DelimiterFrameDecoder(DelimiterFrameDecoder.lineDelimiter));
+        readByteBuf(decoder, "partial\r");
+        decoder.channelClosed(channel);
+        //关闭后重新开始，残留的半包不会拼到新数据前面
+        readByteBuf(decoder, "\nnext\r\n");
+        assertEquals(Arrays.asList("\nnext"), collector.frames);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.pipeline;
+
+import com.gettyio.core.buffer.pool.PooledByteBufAllocator;
+import com.gettyio.core.channel.SocketChannel;
+import com.gettyio.core.channel.TestSocketChannel;
+import com.gettyio.core.pipeline.in.ChannelInboundHandlerAdapter;
+import com.gettyio.core.pipeline.out.ChannelOutboundHandlerAdapter;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * DefaultChannelPipelineTest.java
+ *
+ * @description:DefaultChannelPipeline测试
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public class DefaultChannelPipelineTest {
+
+    private TestSocketChannel channel;
+    private DefaultChannelPipeline pipeline;
+
+    /**
+     * 每经过一次在消息后追加标记，再交给下一个处理器
+     */
+    private static class AppendInbound extends ChannelInboundHandlerAdapter {
+        private final String mark;
+
+        AppendInbound(String mark) {
+            this.mark = mark;
+        }
+
+        @Override
+        public void channelRead(SocketChannel socketChannel, Object obj) throws Exception {
+            super.channelRead(socketChannel, obj + mark);
+        }
+    }
+
+    @Sharable
+    private static class SharableAppendOutbound extends ChannelOutboundHandlerAdapter {
+        private final String mark;
+
+        SharableAppendOutbound(String mark) {
+            this.mark = mark;
+        }
+
+        @Override
+        public void encode(SocketChannel socketChannel, Object obj) throws Exception {
+            super.encode(socketChannel, obj + mark);
+        }
+    }
+
+    /**
+     * 收集到达的消息
+     */
+    private static class Collector extends ChannelInboundHandlerAdapter {
+        final StringBuilder received = new StringBuilder();
+
+        @Override
+        public void channelRead(SocketChannel socketChannel, Object obj) {
+            received.append(obj);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        channel = new TestSocketChannel(new PooledByteBufAllocator(false));
+        pipeline = channel.getDefaultChannelPipeline();
+    }
+
+    @Test
+    public void sameInstanceTwiceRunsTwice() throws Exception {
+        AppendInbound a = new AppendInbound("a");
+        Collector collector = new Collector();
+        pipeline.addLast(a);
+        pipeline.addLast(new AppendInbound("b"));
+        pipeline.addLast(a);
+        pipeline.addLast(collector);
+
+        pipeline.inFirstContext().invokeChannelRead(channel, "x");
+        assertEquals("xaba", collector.received.toString());
+    }
+
+    @Test
+    public void sharableInstanceTwiceRunsTwiceOnOutbound() throws Exception {
+        SharableAppendOutbound a = new SharableAppendOutbound("a");
+        pipeline.addLast(a);
+        pipeline.addLast(new SharableAppendOutbound("b"));
+        pipeline.addLast(a);
+
+        pipeline.outFirstContext().invokeEncode(channel, "x");
+        assertEquals(Arrays.<Object>asList("xaba"), channel.written);
+    }
+
+    @Test
+    public void removeDropsOneOccurrence() throws Exception {
+        AppendInbound a = new AppendInbound("a");
+        Collector collector = new Collector();
+        pipeline.addLast(a);
+        pipeline.addLast(a);
+        pipeline.addLast(collector);
+
+        assertTrue(pipeline.remove(a));
+        pipeline.inFirstContext().invokeChannelRead(channel, "x");
+        assertEquals("xa", collector.received.toString());
+
+        assertTrue(pipeline.remove(a));
+        assertSame(collector, pipeline.inPipeFirst());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unsharableInstanceInTwoPipelinesRejected() {
+        AppendInbound a = new AppendInbound("a");
+        pipeline.addLast(a);
+        new TestSocketChannel(new PooledByteBufAllocator(false)).getDefaultChannelPipeline().addLast(a);
+    }
+
+    @Test
+    public void unsharableInstanceReusableAfterClean() {
+        AppendInbound a = new AppendInbound("a");
+        pipeline.addLast(a);
+        pipeline.addLast(a);
+        pipeline.clean();
+        assertNull(pipeline.inFirstContext());
+
+        DefaultChannelPipeline other = new TestSocketChannel(new PooledByteBufAllocator(false)).getDefaultChannelPipeline();
+        other.addLast(a);
+        assertSame(a, other.inPipeFirst());
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ConcurrentLongHashMapTest.java
+ *
+ * @description:ConcurrentLongHashMap测试
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public class ConcurrentLongHashMapTest {
+
+    /**
+     * 与实现相同的散列，用于构造落在同一槽位的键
+     */
+    private static int idealBucket(long key, int capacity) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h = h ^ (h >>> 29);
+        return (int) h & (capacity - 1);
+    }
+
+    /**
+     * 找出count个理想槽位都是bucket的键
+     */
+    private static long[] collidingKeys(int bucket, int capacity, int count) {
+        long[] keys = new long[count];
+        int found = 0;
+        for (long key = 1; found < count; key++) {
+            if (idealBucket(key, capacity) == bucket) {
+                keys[found++] = key;
+            }
+        }
+        return keys;
+    }
+
+    @Test
+    public void basicOperations() {
+        ConcurrentLongHashMap<String> map = new ConcurrentLongHashMap<>();
+        assertTrue(map.isEmpty());
+        assertNull(map.put(1L, "a"));
+        assertEquals("a", map.put(1L, "b"));
+        assertEquals("b", map.putIfAbsent(1L, "c"));
+        assertNull(map.putIfAbsent(2L, "c"));
+        assertEquals(2, map.size());
+        assertTrue(map.containsKey(2L));
+
+        assertFalse(map.remove(1L, "a"));
+        assertTrue(map.remove(1L, "b"));
+        assertNull(map.get(1L));
+        assertEquals("c", map.remove(2L));
+        assertNull(map.remove(2L));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void rejectNullValue() {
+        new ConcurrentLongHashMap<String>().put(1L, null);
+    }
+
+    @Test
+    public void removeShiftsChainAcrossWraparound() {
+        //单段、容量16，三个键都落在最后一个槽位，探测链绕回数组头部
+        ConcurrentLongHashMap<Long> map = new ConcurrentLongHashMap<>(8, 1);
+        long[] keys = collidingKeys(15, 16, 3);
+        for (long key : keys) {
+            map.put(key, key);
+        }
+
+        //删除链头后，后续元素必须仍可查到
+        assertEquals(Long.valueOf(keys[0]), map.remove(keys[0]));
+        assertNull(map.get(keys[0]));
+        assertEquals(Long.valueOf(keys[1]), map.get(keys[1]));
+        assertEquals(Long.valueOf(keys[2]), map.get(keys[2]));
+
+        //重新插入后再删除链中间的元素
+        map.put(keys[0], keys[0]);
+        assertEquals(Long.valueOf(keys[2]), map.remove(keys[2]));
+        assertEquals(Long.valueOf(keys[0]), map.get(keys[0]));
+        assertEquals(Long.valueOf(keys[1]), map.get(keys[1]));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void removeDoesNotMoveEntryPastItsIdealBucket() {
+        //链上混入理想槽位不同的键，删除时它们不能被前移到理想槽位之前
+        ConcurrentLongHashMap<Long> map = new ConcurrentLongHashMap<>(8, 1);
+        long[] first = collidingKeys(14, 16, 2);
+        long[] second = collidingKeys(15, 16, 2);
+        map.put(first[0], first[0]);
+        map.put(first[1], first[1]);
+        map.put(second[0], second[0]);
+        map.put(second[1], second[1]);
+
+        map.remove(first[0]);
+        assertEquals(Long.valueOf(first[1]), map.get(first[1]));
+        assertEquals(Long.valueOf(second[0]), map.get(second[0]));
+        assertEquals(Long.valueOf(second[1]), map.get(second[1]));
+
+        map.remove(second[0]);
+        assertEquals(Long.valueOf(first[1]), map.get(first[1]));
+        assertEquals(Long.valueOf(second[1]), map.get(second[1]));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void randomOperationsMatchHashMap() {
+        //小容量单段，频繁扩容、收缩和删除前移
+        ConcurrentLongHashMap<Long> map = new ConcurrentLongHashMap<>(4, 1);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            long key = random.nextInt(512);
+            int op = random.nextInt(3);
+            if (op == 0) {
+                assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            } else if (op == 1) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.get(key), map.get(key));
+            }
+            if (i % 10000 == 0) {
+                assertEquals(expected.size(), map.size());
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void growThenShrinkKeepsEntries() {
+        ConcurrentLongHashMap<Long> map = new ConcurrentLongHashMap<>(16, 2);
+        for (long i = 0; i < 10000; i++) {
+            map.put(i, i);
+        }
+        for (long i = 0; i < 10000; i += 2) {
+            assertEquals(Long.valueOf(i), map.remove(i));
+        }
+        for (long i = 1; i < 10000; i += 2) {
+            assertEquals(Long.valueOf(i), map.get(i));
+        }
+        assertEquals(5000, map.size());
+
+        List<Long> values = map.values();
+        Collections.sort(values);
+        assertEquals(5000, values.size());
+        assertEquals(Long.valueOf(1), values.get(0));
+        assertEquals(Long.valueOf(9999), values.get(4999));
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1L));
+    }
+
+    @Test
+    public void concurrentWritersAndReaders() throws Exception {
+        final ConcurrentLongHashMap<Long> map = new ConcurrentLongHashMap<>(16, 4);
+        final int threads = 4;
+        final int perThread = 20000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final long base = (long) t * perThread;
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (long i = base; i < base + perThread; i++) {
+                            map.put(i, i);
+                            if (!Long.valueOf(i).equals(map.get(i))) {
+                                throw new AssertionError("missing " + i);
+                            }
+                            if ((i & 1) == 0) {
+                                map.remove(i);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        error.set(e);
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertNull(error.get());
+        assertEquals(threads * perThread / 2, map.size());
+        for (long i = 1; i < (long) threads * perThread; i += 2) {
+            assertEquals(Long.valueOf(i), map.get(i));
+        }
+    }
+}
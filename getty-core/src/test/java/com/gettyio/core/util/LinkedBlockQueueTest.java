@@ -0,0 +1,163 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * LinkedBlockQueueTest.java
+ *
+ * @description:LinkedBlockQueue测试
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public class LinkedBlockQueueTest {
+
+    /**
+     * 泛型数组在运行时是Object[]，经由通配符读取避免强转
+     */
+    private static int arrayLength(LinkedBlockQueue<?> queue) {
+        Object[] items = queue.items;
+        return items.length;
+    }
+
+    private static void fill(LinkedBlockQueue<Integer> queue, int n) throws InterruptedException {
+        for (int i = 0; i < n; i++) {
+            queue.put(i);
+        }
+    }
+
+    private static void drain(LinkedBlockQueue<Integer> queue) throws InterruptedException {
+        while (queue.poll() != null) {
+        }
+    }
+
+    @Test
+    public void growKeepsOrderAcrossWraparound() throws Exception {
+        LinkedBlockQueue<Integer> queue = new LinkedBlockQueue<>(1024);
+        //先让读写下标绕过数组尾部，再触发扩容
+        fill(queue, 10);
+        for (int i = 0; i < 10; i++) {
+            queue.poll();
+        }
+        for (int i = 0; i < 100; i++) {
+            queue.put(i);
+        }
+        assertTrue(arrayLength(queue) >= 100);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Integer.valueOf(i), queue.poll());
+        }
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void interleavedPutAndPollWrapAround() throws Exception {
+        LinkedBlockQueue<Integer> queue = new LinkedBlockQueue<>(16);
+        int next = 0;
+        int expected = 0;
+        for (int round = 0; round < 1000; round++) {
+            for (int i = 0; i < 7; i++) {
+                queue.put(next++);
+            }
+            for (int i = 0; i < 5; i++) {
+                assertEquals(Integer.valueOf(expected++), queue.poll());
+            }
+            if (queue.getCount() > 8) {
+                while (queue.getCount() > 0) {
+                    assertEquals(Integer.valueOf(expected++), queue.poll());
+                }
+            }
+        }
+        assertEquals(16, arrayLength(queue));
+    }
+
+    @Test
+    public void shrinkOnlyAfterRepeatedLowUsage() throws Exception {
+        LinkedBlockQueue<Integer> queue = new LinkedBlockQueue<>(1024);
+        fill(queue, 200);
+        drain(queue);
+        assertEquals(256, arrayLength(queue));
+
+        //少于16次低使用量的清空不收缩
+        for (int i = 0; i < 15; i++) {
+            fill(queue, 3);
+            drain(queue);
+        }
+        assertEquals(256, arrayLength(queue));
+
+        //一次高使用量清空重新计数
+        fill(queue, 100);
+        drain(queue);
+        for (int i = 0; i < 15; i++) {
+            fill(queue, 3);
+            drain(queue);
+        }
+        assertEquals(256, arrayLength(queue));
+
+        fill(queue, 3);
+        drain(queue);
+        assertEquals(128, arrayLength(queue));
+    }
+
+    @Test
+    public void neverShrinksBelowInitialLength() throws Exception {
+        LinkedBlockQueue<Integer> queue = new LinkedBlockQueue<>(1024);
+        fill(queue, 40);
+        drain(queue);
+        for (int i = 0; i < 1000; i++) {
+            queue.put(i);
+            queue.poll();
+        }
+        assertEquals(16, arrayLength(queue));
+    }
+
+    @Test
+    public void putBlocksAtCapacity() throws Exception {
+        final LinkedBlockQueue<Integer> queue = new LinkedBlockQueue<>(4);
+        fill(queue, 4);
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    queue.put(99);
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+        producer.start();
+        producer.join(TimeUnit.MILLISECONDS.toMillis(50));
+        assertTrue(producer.isAlive());
+        assertEquals(4, queue.getCount());
+
+        assertEquals(Integer.valueOf(0), queue.poll());
+        producer.join(5000);
+        assertFalse(producer.isAlive());
+        assertEquals(4, queue.getCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectNonPositiveCapacity() {
+        new LinkedBlockQueue<Integer>(0);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.util;
+
+import com.gettyio.core.function.Function;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * MpscByteBoundedQueueTest.java
+ *
+ * @description:MpscByteBoundedQueue测试
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public class MpscByteBoundedQueueTest {
+
+    private static final Function<byte[], Integer> WEIGHER = new Function<byte[], Integer>() {
+        @Override
+        public Integer apply(byte[] bytes) {
+            return bytes.length;
+        }
+    };
+
+    @Test
+    public void boundedByBytes() throws Exception {
+        MpscByteBoundedQueue<byte[]> queue = new MpscByteBoundedQueue<>(10, WEIGHER);
+        assertTrue(queue.offer(new byte[4]));
+        assertTrue(queue.offer(new byte[6]));
+        assertFalse(queue.offer(new byte[1]));
+        assertEquals(10, queue.getPendingBytes());
+        assertEquals(2, queue.getCount());
+
+        assertEquals(4, queue.poll().length);
+        assertTrue(queue.offer(new byte[4]));
+        assertEquals(10, queue.getPendingBytes());
+    }
+
+    @Test
+    public void emptyQueueAcceptsOversizedElement() throws Exception {
+        MpscByteBoundedQueue<byte[]> queue = new MpscByteBoundedQueue<>(10, WEIGHER);
+        assertTrue(queue.offer(new byte[100]));
+        assertFalse(queue.offer(new byte[1]));
+        assertEquals(100, queue.poll().length);
+        assertEquals(0, queue.getPendingBytes());
+    }
+
+    @Test
+    public void offerTimesOutWhenFull() throws Exception {
+        MpscByteBoundedQueue<byte[]> queue = new MpscByteBoundedQueue<>(10, WEIGHER);
+        queue.offer(new byte[10]);
+        long start = System.nanoTime();
+        assertFalse(queue.offer(new byte[1], 50, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        //超时后没有占用字节数
+        assertEquals(10, queue.getPendingBytes());
+        assertEquals(1, queue.getCount());
+    }
+
+    @Test
+    public void offerWaitsForConsumer() throws Exception {
+        final MpscByteBoundedQueue<byte[]> queue = new MpscByteBoundedQueue<>(10, WEIGHER);
+        queue.offer(new byte[10]);
+        Thread consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(20);
+                    queue.poll();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+        consumer.start();
+        assertTrue(queue.offer(new byte[5], 5, TimeUnit.SECONDS));
+        consumer.join();
+        assertEquals(5, queue.getPendingBytes());
+    }
+
+    @Test(expected = InterruptedException.class)
+    public void putIsInterruptible() throws Exception {
+        MpscByteBoundedQueue<byte[]> queue = new MpscByteBoundedQueue<>(10, WEIGHER);
+        queue.offer(new byte[10]);
+        Thread.currentThread().interrupt();
+        queue.put(new byte[1]);
+    }
+
+    @Test
+    public void takeWakesUpOnOffer() throws Exception {
+        final MpscByteBoundedQueue<byte[]> queue = new MpscByteBoundedQueue<>(10, WEIGHER);
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException ignored) {
+                }
+                queue.offer(new byte[3]);
+            }
+        });
+        producer.start();
+        assertEquals(3, queue.take().length);
+        producer.join();
+    }
+
+    @Test
+    public void producersAndConsumerKeepCountsConsistent() throws Exception {
+        final MpscByteBoundedQueue<byte[]> queue = new MpscByteBoundedQueue<>(1024, WEIGHER);
+        final int producers = 4;
+        final int perProducer = 20000;
+        final AtomicLong produced = new AtomicLong();
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            threads[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perProducer; i++) {
+                        byte[] bytes = new byte[1 + i % 64];
+                        try {
+                            queue.put(bytes);
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        produced.addAndGet(bytes.length);
+                    }
+                }
+            });
+            threads[p].start();
+        }
+        long consumed = 0;
+        int count = 0;
+        while (count < producers * perProducer) {
+            byte[] bytes = queue.poll();
+            if (bytes == null) {
+                continue;
+            }
+            assertTrue(queue.getPendingBytes() >= 0);
+            consumed += bytes.length;
+            count++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(produced.get(), consumed);
+        assertNull(queue.poll());
+        assertEquals(0, queue.getPendingBytes());
+        assertEquals(0, queue.getCount());
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2019 The Getty Project
+ *
+ * The Getty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.gettyio.core.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * MpscLinkedQueueTest.java
+ *
+ * @description:MpscLinkedQueue测试
+ * @author:gogym
+ * @date:2026/10/17
+ * @copyright: Copyright by gettyio.com
+ */
+public class MpscLinkedQueueTest {
+
+    @Test
+    public void offerAndPollInOrder() {
+        MpscLinkedQueue<Integer> queue = new MpscLinkedQueue<>();
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertEquals(100, queue.size());
+        assertEquals(Integer.valueOf(0), queue.peek());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Integer.valueOf(i), queue.poll());
+        }
+        assertTrue(queue.isEmpty());
+        assertNull(queue.peek());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void rejectNull() {
+        new MpscLinkedQueue<Integer>().offer(null);
+    }
+
+    @Test
+    public void iteratorSkipsConsumedNodes() {
+        MpscLinkedQueue<Integer> queue = new MpscLinkedQueue<>();
+        for (int i = 0; i < 5; i++) {
+            queue.offer(i);
+        }
+        queue.poll();
+        queue.poll();
+        List<Integer> values = new ArrayList<>();
+        for (Integer value : queue) {
+            values.add(value);
+        }
+        assertEquals(3, values.size());
+        assertEquals(Integer.valueOf(2), values.get(0));
+        assertEquals(Integer.valueOf(4), values.get(2));
+    }
+
+    @Test
+    public void iteratorKeepsPrefetchedValueWhenConsumed() {
+        MpscLinkedQueue<Integer> queue = new MpscLinkedQueue<>();
+        queue.offer(1);
+        queue.offer(2);
+        Iterator<Integer> iterator = queue.iterator();
+        assertTrue(iterator.hasNext());
+        //hasNext之后元素被消费，next仍返回已取出的元素，不会返回null
+        queue.poll();
+        assertEquals(Integer.valueOf(1), iterator.next());
+        assertEquals(Integer.valueOf(2), iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void iteratorExhausted() {
+        new MpscLinkedQueue<Integer>().iterator().next();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void iteratorRemoveUnsupported() {
+        MpscLinkedQueue<Integer> queue = new MpscLinkedQueue<>();
+        queue.offer(1);
+        Iterator<Integer> iterator = queue.iterator();
+        iterator.next();
+        iterator.remove();
+    }
+
+    @Test
+    public void multipleProducers() throws Exception {
+        final MpscLinkedQueue<Integer> queue = new MpscLinkedQueue<>();
+        final int producers = 4;
+        final int perProducer = 20000;
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final int base = p * perProducer;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perProducer; i++) {
+                        queue.offer(base + i);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+
+        Set<Integer> seen = new HashSet<>();
+        int[] last = new int[producers];
+        for (int p = 0; p < producers; p++) {
+            last[p] = -1;
+        }
+        while (seen.size() < producers * perProducer) {
+            Integer value = queue.poll();
+            if (value == null) {
+                continue;
+            }
+            assertTrue("duplicate " + value, seen.add(value));
+            //同一生产者的元素保持顺序
+            int p = value / perProducer;
+            assertTrue(value % perProducer > last[p]);
+            last[p] = value % perProducer;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(queue.isEmpty());
+    }
+}
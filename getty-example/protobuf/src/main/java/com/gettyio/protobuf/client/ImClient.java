@@ -8,7 +8,7 @@ import com.gettyio.expansion.handler.codec.protobuf.ProtobufEncoder;
 import com.gettyio.expansion.handler.codec.protobuf.ProtobufVarint32FrameDecoder;
 import com.gettyio.expansion.handler.codec.protobuf.ProtobufVarint32LengthFieldPrepender;
 import com.gettyio.core.handler.ssl.SslConfig;
-import com.gettyio.core.handler.ssl.SslService;
+import com.gettyio.core.handler.ssl.SslContextProvider;
 import com.gettyio.core.pipeline.ChannelInitializer;
 import com.gettyio.core.pipeline.DefaultChannelPipeline;
 import com.gettyio.core.util.ThreadPool;
@@ -40,27 +40,29 @@ public class ImClient {
 
     private static void test(int port) {
 
+        //获取证书
+        String pkPath = ImClient.class.getClassLoader().getResource("clientStore.jks")
+                .getPath();
+        //ssl配置
+        SslConfig sSLConfig = new SslConfig();
+        sSLConfig.setKeyFile(pkPath);
+        sSLConfig.setKeyPassword("123456");
+        sSLConfig.setKeystorePassword("123456");
+        sSLConfig.setTrustFile(pkPath);
+        sSLConfig.setTrustPassword("123456");
+        //设置服务器模式
+        sSLConfig.setClientMode(true);
+        //初始化ssl上下文，重连时复用，只加载一次密钥库
+        final SslContextProvider sslContextProvider = new SslContextProvider(sSLConfig);
+
         AioClientStarter client = new AioClientStarter("127.0.0.1", port);
         client.channelInitializer(new ChannelInitializer() {
             @Override
             public void initChannel(SocketChannel channel) throws Exception {
                 //责任链
                 DefaultChannelPipeline defaultChannelPipeline = channel.getDefaultChannelPipeline();
-                //获取证书
-                String pkPath = getClass().getClassLoader().getResource("clientStore.jks")
-                        .getPath();
-                //ssl配置
-                SslConfig sSLConfig = new SslConfig();
-                sSLConfig.setKeyFile(pkPath);
-                sSLConfig.setKeyPassword("123456");
-                sSLConfig.setKeystorePassword("123456");
-                sSLConfig.setTrustFile(pkPath);
-                sSLConfig.setTrustPassword("123456");
-                //设置服务器模式
-                sSLConfig.setClientMode(true);
-                //初始化ssl服务
-                SslService sSLService = new SslService(sSLConfig);
-                //defaultChannelPipeline.addFirst(new SslHandler(channel, sSLService));
+                //每个连接只创建SSLEngine，共用同一个SSL上下文
+                //defaultChannelPipeline.addFirst(new SslHandler(channel, sslContextProvider));
 
                 defaultChannelPipeline.addLast(new ProtobufVarint32LengthFieldPrepender());
                 defaultChannelPipeline.addLast(new ProtobufEncoder());
@@ -9,7 +9,7 @@ import com.gettyio.expansion.handler.codec.protobuf.ProtobufVarint32FrameDecoder
 import com.gettyio.expansion.handler.codec.protobuf.ProtobufVarint32LengthFieldPrepender;
 import com.gettyio.core.handler.ssl.ClientAuth;
 import com.gettyio.core.handler.ssl.SslConfig;
-import com.gettyio.core.handler.ssl.SslService;
+import com.gettyio.core.handler.ssl.SslContextProvider;
 
 import com.gettyio.core.pipeline.ChannelInitializer;
 import com.gettyio.core.pipeline.DefaultChannelPipeline;
@@ -21,6 +21,22 @@ public class ImServer {
 
     public static void main(String[] args) {
 
+        //获取证书
+        String pkPath = ImServer.class.getClassLoader().getResource("serverStore.jks").getPath();
+        //ssl配置
+        SslConfig sSLConfig = new SslConfig();
+        sSLConfig.setKeyFile(pkPath);
+        sSLConfig.setKeyPassword("123456");
+        sSLConfig.setKeystorePassword("123456");
+        sSLConfig.setTrustFile(pkPath);
+        sSLConfig.setTrustPassword("123456");
+        //设置服务器模式
+        sSLConfig.setClientMode(false);
+        //设置单向验证或双向验证
+        sSLConfig.setClientAuth(ClientAuth.REQUIRE);
+        //初始化ssl上下文，整个服务只加载一次密钥库
+        final SslContextProvider sslContextProvider = new SslContextProvider(sSLConfig);
+
         AioServerStarter server = new AioServerStarter(9999);
         server.channelInitializer(new ChannelInitializer() {
             @Override
@@ -28,22 +44,8 @@ public class ImServer {
 
                 DefaultChannelPipeline defaultChannelPipeline = channel.getDefaultChannelPipeline();
 
-                //获取证书
-                String pkPath = getClass().getClassLoader().getResource("serverStore.jks").getPath();
-                //ssl配置
-                SslConfig sSLConfig = new SslConfig();
-                sSLConfig.setKeyFile(pkPath);
-                sSLConfig.setKeyPassword("123456");
-                sSLConfig.setKeystorePassword("123456");
-                sSLConfig.setTrustFile(pkPath);
-                sSLConfig.setTrustPassword("123456");
-                //设置服务器模式
-                sSLConfig.setClientMode(false);
-                //设置单向验证或双向验证
-                sSLConfig.setClientAuth(ClientAuth.REQUIRE);
-                //初始化ssl服务
-                SslService sSLService = new SslService(sSLConfig);
-                //defaultChannelPipeline.addFirst(new SslHandler(channel, sSLService));
+                //每个连接只创建SSLEngine，共用同一个SSL上下文
+                //defaultChannelPipeline.addFirst(new SslHandler(channel, sslContextProvider));
 
                 ChannelTrafficShapingHandler channelTrafficShapingHandler = new ChannelTrafficShapingHandler(5000);
                 defaultChannelPipeline.addLast(channelTrafficShapingHandler);
@@ -9,7 +9,7 @@ import com.gettyio.core.handler.codec.string.StringDecoder;
 import com.gettyio.core.handler.codec.string.StringEncoder;
 import com.gettyio.core.handler.ssl.SslConfig;
 import com.gettyio.core.handler.ssl.SslHandler;
-import com.gettyio.core.handler.ssl.SslService;
+import com.gettyio.core.handler.ssl.SslContextProvider;
 import com.gettyio.core.pipeline.ChannelInitializer;
 import com.gettyio.core.pipeline.DefaultChannelPipeline;
 
@@ -36,9 +36,24 @@ public class AioClient {
         aioConfig.setHost("127.0.0.1");
         aioConfig.setPort(port);
         aioConfig.setFlowControl(false);
-        aioConfig.setHighWaterMark(2);
-        aioConfig.setLowWaterMark(1);
-
+        //水位线按待写出的字节数计算
+        aioConfig.setHighWaterMark(64 * 1024);
+        aioConfig.setLowWaterMark(32 * 1024);
+
+
+        //获取证书
+        String pkPath = getClass().getClassLoader().getResource("clientStore.jks").getPath();
+        //ssl配置
+        SslConfig sSLConfig = new SslConfig();
+        sSLConfig.setKeyFile(pkPath);
+        sSLConfig.setKeyPassword("123456");
+        sSLConfig.setKeystorePassword("123456");
+        //sSLConfig.setTrustFile(pkPath);
+        //sSLConfig.setTrustPassword("123456");
+        //设置服务器模式
+        sSLConfig.setClientMode(true);
+        //初始化ssl上下文，重连时复用，只加载一次密钥库
+        final SslContextProvider sslContextProvider = new SslContextProvider(sSLConfig);
 
         final AioClientStarter client = new AioClientStarter(aioConfig);
         client.channelInitializer(new ChannelInitializer() {
@@ -47,21 +62,8 @@ public class AioClient {
                 //责任链
                 DefaultChannelPipeline defaultChannelPipeline = channel.getDefaultChannelPipeline();
 
-
-                //获取证书
-                String pkPath = getClass().getClassLoader().getResource("clientStore.jks").getPath();
-                //ssl配置
-                SslConfig sSLConfig = new SslConfig();
-                sSLConfig.setKeyFile(pkPath);
-                sSLConfig.setKeyPassword("123456");
-                sSLConfig.setKeystorePassword("123456");
-                //sSLConfig.setTrustFile(pkPath);
-                //sSLConfig.setTrustPassword("123456");
-                //设置服务器模式
-                sSLConfig.setClientMode(true);
-                //初始化ssl服务
-                SslService sSLService = new SslService(sSLConfig);
-                //defaultChannelPipeline.addFirst(new SslHandler(channel, sSLService));
+                //每个连接只创建SSLEngine，共用同一个SSL上下文
+                //defaultChannelPipeline.addFirst(new SslHandler(channel, sslContextProvider));
 
 
                 defaultChannelPipeline.addLast(new StringEncoder());
@@ -10,7 +10,7 @@ import com.gettyio.core.handler.codec.string.StringDecoder;
 import com.gettyio.core.handler.codec.string.StringEncoder;
 import com.gettyio.core.handler.ssl.SslConfig;
 import com.gettyio.core.handler.ssl.SslHandler;
-import com.gettyio.core.handler.ssl.SslService;
+import com.gettyio.core.handler.ssl.SslContextProvider;
 import com.gettyio.core.pipeline.ChannelInitializer;
 import com.gettyio.core.pipeline.DefaultChannelPipeline;
 import com.gettyio.core.util.ThreadPool;
@@ -48,10 +48,24 @@ public class NioClient {
         ClientConfig aioConfig = new ClientConfig();
         aioConfig.setHost("127.0.0.1");
         aioConfig.setPort(port);
-        //aioConfig.setBufferWriterQueueSize(1024 * 1024);
+        //aioConfig.setBufferWriterQueueBytes(1024 * 1024);
         aioConfig.setOption(StandardSocketOptions.SO_SNDBUF, 1024);
 
 
+        //获取证书
+        String pkPath = getClass().getClassLoader().getResource("clientStore.jks").getPath();
+        //ssl配置
+        SslConfig sSLConfig = new SslConfig();
+        sSLConfig.setKeyFile(pkPath);
+        sSLConfig.setKeyPassword("123456");
+        sSLConfig.setKeystorePassword("123456");
+        sSLConfig.setTrustFile(pkPath);
+        sSLConfig.setTrustPassword("123456");
+        //设置服务器模式
+        sSLConfig.setClientMode(true);
+        //初始化ssl上下文，重连时复用，只加载一次密钥库
+        //final SslContextProvider sslContextProvider = new SslContextProvider(sSLConfig);
+
         NioClientStarter client = new NioClientStarter(aioConfig);
         client.socketMode(SocketMode.TCP).channelInitializer(new ChannelInitializer() {
             @Override
@@ -59,21 +73,8 @@ public class NioClient {
                 //责任链
                 DefaultChannelPipeline defaultChannelPipeline = channel.getDefaultChannelPipeline();
 
-
-                //获取证书
-                String pkPath = getClass().getClassLoader().getResource("clientStore.jks").getPath();
-                //ssl配置
-                SslConfig sSLConfig = new SslConfig();
-                sSLConfig.setKeyFile(pkPath);
-                sSLConfig.setKeyPassword("123456");
-                sSLConfig.setKeystorePassword("123456");
-                sSLConfig.setTrustFile(pkPath);
-                sSLConfig.setTrustPassword("123456");
-                //设置服务器模式
-                sSLConfig.setClientMode(true);
-                //初始化ssl服务
-                //SslService sSLService = new SslService(sSLConfig);
-                // defaultChannelPipeline.addFirst(new SslHandler(channel, sSLService));
+                //每个连接只创建SSLEngine，共用同一个SSL上下文
+                //defaultChannelPipeline.addFirst(new SslHandler(channel, sslContextProvider));
 
                 defaultChannelPipeline.addLast(new StringEncoder());
                 //指定结束符解码器
@@ -7,7 +7,7 @@ import com.gettyio.core.channel.starter.AioServerStarter;
 import com.gettyio.core.handler.ssl.ClientAuth;
 import com.gettyio.core.handler.ssl.SslConfig;
 import com.gettyio.core.handler.ssl.SslHandler;
-import com.gettyio.core.handler.ssl.SslService;
+import com.gettyio.core.handler.ssl.SslContextProvider;
 import com.gettyio.core.pipeline.ChannelInitializer;
 import com.gettyio.core.pipeline.DefaultChannelPipeline;
 import com.gettyio.expansion.handler.codec.websocket.WebSocketDecoder;
@@ -27,6 +27,22 @@ public class WsServer {
             //设置端口号
             aioServerConfig.setPort(8888);
 
+            //获取证书
+            String pkPath = WsServer.class.getClassLoader().getResource("serverStore.jks").getPath();
+            //ssl配置
+            SslConfig sSLConfig = new SslConfig();
+            sSLConfig.setKeyFile(pkPath);
+            sSLConfig.setKeyPassword("123456");
+            sSLConfig.setKeystorePassword("123456");
+            sSLConfig.setTrustFile(pkPath);
+            sSLConfig.setTrustPassword("123456");
+            //设置服务器模式
+            sSLConfig.setClientMode(false);
+            //设置单向验证或双向验证
+            sSLConfig.setClientAuth(ClientAuth.NONE);
+            //初始化ssl上下文，整个服务只加载一次密钥库
+            final SslContextProvider sslContextProvider = new SslContextProvider(sSLConfig);
+
             AioServerStarter server = new AioServerStarter(aioServerConfig);
             server.channelInitializer(new ChannelInitializer() {
                 @Override
@@ -34,22 +50,8 @@ public class WsServer {
                     //获取责任链对象
                     DefaultChannelPipeline defaultChannelPipeline = channel.getDefaultChannelPipeline();
 
-                    //获取证书
-                    String pkPath = getClass().getClassLoader().getResource("serverStore.jks").getPath();
-                    //ssl配置
-                    SslConfig sSLConfig = new SslConfig();
-                    sSLConfig.setKeyFile(pkPath);
-                    sSLConfig.setKeyPassword("123456");
-                    sSLConfig.setKeystorePassword("123456");
-                    sSLConfig.setTrustFile(pkPath);
-                    sSLConfig.setTrustPassword("123456");
-                    //设置服务器模式
-                    sSLConfig.setClientMode(false);
-                    //设置单向验证或双向验证
-                    sSLConfig.setClientAuth(ClientAuth.NONE);
-                    //初始化ssl服务
-                    SslService sslService = new SslService(sSLConfig);
-                    //defaultChannelPipeline.addFirst(new SslHandler(channel, sslService));
+                    //每个连接只创建SSLEngine，共用同一个SSL上下文
+                    //defaultChannelPipeline.addFirst(new SslHandler(channel, sslContextProvider));
 
                     defaultChannelPipeline.addLast(new WebSocketEncoder());
                     defaultChannelPipeline.addLast(new WebSocketDecoder());
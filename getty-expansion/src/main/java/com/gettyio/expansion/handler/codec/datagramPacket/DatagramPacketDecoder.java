@@ -18,6 +18,7 @@ package com.gettyio.expansion.handler.codec.datagramPacket;
 import com.gettyio.core.channel.SocketChannel;
 import com.gettyio.core.handler.codec.ObjectToMessageDecoder;
 import com.gettyio.core.pipeline.DatagramPacketHandler;
+import com.gettyio.core.pipeline.Sharable;
 import com.gettyio.core.util.LinkedBlockQueue;
 
 import java.net.DatagramPacket;
@@ -29,8 +30,14 @@ import java.net.DatagramPacket;
  * @date:2020/4/9
  * @copyright: Copyright by gettyio.com
  */
+@Sharable
 public class DatagramPacketDecoder extends ObjectToMessageDecoder implements DatagramPacketHandler {
 
+    /**
+     * 无状态，所有通道共用同一个实例即可
+     */
+    public static final DatagramPacketDecoder INSTANCE = new DatagramPacketDecoder();
+
     @Override
     public void decode(SocketChannel socketChannel, Object obj, LinkedBlockQueue<Object> out) throws Exception {
         DatagramPacket datagramPacket = (DatagramPacket) obj;
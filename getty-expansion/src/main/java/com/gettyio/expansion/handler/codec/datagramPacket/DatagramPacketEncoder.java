@@ -18,6 +18,7 @@ package com.gettyio.expansion.handler.codec.datagramPacket;
 import com.gettyio.core.channel.SocketChannel;
 import com.gettyio.core.handler.codec.MessageToByteEncoder;
 import com.gettyio.core.pipeline.DatagramPacketHandler;
+import com.gettyio.core.pipeline.Sharable;
 
 /**
  * DatagramPacketEncoder.java
@@ -27,11 +28,23 @@ import com.gettyio.core.pipeline.DatagramPacketHandler;
  * @date:2020/4/9
  * @copyright: Copyright by gettyio.com
  */
+@Sharable
 public class DatagramPacketEncoder extends MessageToByteEncoder implements DatagramPacketHandler {
 
+    /**
+     * 无状态，所有通道共用同一个实例即可
+     */
+    public static final DatagramPacketEncoder INSTANCE = new DatagramPacketEncoder();
+
     @Override
     public void encode(SocketChannel socketChannel, Object obj) throws Exception {
         //udp包直接由通道发出，实际这里并没有处理什么
         super.encode(socketChannel, obj);
     }
+
+    @Override
+    public Object sharedEncodingKey(SocketChannel socketChannel) {
+        //输出只取决于消息本身
+        return CHANNEL_INDEPENDENT;
+    }
 }
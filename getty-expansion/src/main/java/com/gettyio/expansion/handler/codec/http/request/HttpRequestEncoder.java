@@ -18,6 +18,7 @@ package com.gettyio.expansion.handler.codec.http.request;
 import com.gettyio.core.buffer.AutoByteBuffer;
 import com.gettyio.core.channel.SocketChannel;
 import com.gettyio.core.handler.codec.MessageToByteEncoder;
+import com.gettyio.core.pipeline.Sharable;
 import com.gettyio.expansion.handler.codec.http.HttpEncodeSerializer;
 
 /**
@@ -28,8 +29,14 @@ import com.gettyio.expansion.handler.codec.http.HttpEncodeSerializer;
  * @date:2020/4/9
  * @copyright: Copyright by gettyio.com
  */
+@Sharable
 public class HttpRequestEncoder extends MessageToByteEncoder {
 
+    /**
+     * 无状态，所有通道共用同一个实例即可
+     */
+    public static final HttpRequestEncoder INSTANCE = new HttpRequestEncoder();
+
     @Override
     public void encode(SocketChannel socketChannel, Object obj) throws Exception {
         AutoByteBuffer buffer = AutoByteBuffer.newByteBuffer();
@@ -42,4 +49,10 @@ public class HttpRequestEncoder extends MessageToByteEncoder {
         }
         super.encode(socketChannel, obj);
     }
+
+    @Override
+    public Object sharedEncodingKey(SocketChannel socketChannel) {
+        //输出只取决于消息本身
+        return CHANNEL_INDEPENDENT;
+    }
 }
@@ -16,8 +16,13 @@
 package com.gettyio.expansion.handler.codec.http.response;
 
 import com.gettyio.core.buffer.AutoByteBuffer;
+import com.gettyio.core.buffer.allocator.ByteBufAllocator;
+import com.gettyio.core.buffer.buffer.CompositeByteBuf;
+import com.gettyio.core.buffer.pool.buffer.UnpooledHeapByteBuf;
 import com.gettyio.core.channel.SocketChannel;
 import com.gettyio.core.handler.codec.MessageToByteEncoder;
+import com.gettyio.core.pipeline.Sharable;
+import com.gettyio.expansion.handler.codec.http.HttpConstants;
 import com.gettyio.expansion.handler.codec.http.HttpEncodeSerializer;
 
 /**
@@ -28,8 +33,14 @@ import com.gettyio.expansion.handler.codec.http.HttpEncodeSerializer;
  * @date:2020/4/9
  * @copyright: Copyright by gettyio.com
  */
+@Sharable
 public class HttpResponseEncoder extends MessageToByteEncoder {
 
+    /**
+     * 无状态，所有通道共用同一个实例即可
+     */
+    public static final HttpResponseEncoder INSTANCE = new HttpResponseEncoder();
+
     @Override
     public void encode(SocketChannel socketChannel, Object obj) throws Exception {
         AutoByteBuffer buffer = AutoByteBuffer.newByteBuffer();
@@ -37,9 +48,27 @@ public class HttpResponseEncoder extends MessageToByteEncoder {
             HttpResponse httpResponse = (HttpResponse) obj;
             HttpEncodeSerializer.encodeInitialLine(buffer, httpResponse);
             HttpEncodeSerializer.encodeHeaders(buffer, httpResponse);
-            HttpEncodeSerializer.encodeContent(buffer, httpResponse);
-            obj = buffer.readableBytesArray();
+            byte[] content = httpResponse.getHttpBody().getContent();
+            if (content == null || !socketChannel.getConfig().isByteBufOutbound()) {
+                HttpEncodeSerializer.encodeContent(buffer, httpResponse);
+                obj = buffer.readableBytesArray();
+            } else {
+                //响应行和头部单独编码，响应体直接组合写出，不再复制
+                ByteBufAllocator allocator = socketChannel.getByteBufAllocator();
+                byte[] head = buffer.readableBytesArray();
+                CompositeByteBuf response = allocator.compositeBuffer(3);
+                response.addComponents(new UnpooledHeapByteBuf(allocator, head, head.length),
+                        new UnpooledHeapByteBuf(allocator, content, content.length),
+                        new UnpooledHeapByteBuf(allocator, HttpConstants.CRLF, HttpConstants.CRLF.length));
+                obj = response;
+            }
         }
         super.encode(socketChannel, obj);
     }
+
+    @Override
+    public Object sharedEncodingKey(SocketChannel socketChannel) {
+        //输出类型取决于是否开启出站零拷贝
+        return socketChannel.getConfig().isByteBufOutbound();
+    }
 }
@@ -17,6 +17,7 @@
 package com.gettyio.expansion.handler.codec.mqtt;
 
 import com.gettyio.core.buffer.AutoByteBuffer;
+import com.gettyio.core.buffer.buffer.ByteBuf;
 import com.gettyio.core.channel.SocketChannel;
 import com.gettyio.core.handler.codec.DecoderException;
 import com.gettyio.core.handler.codec.ObjectToMessageDecoder;
@@ -103,7 +104,13 @@ public final class MqttDecoder extends ObjectToMessageDecoder {
     @Override
     public void decode(SocketChannel socketChannel, Object obj, LinkedBlockQueue<Object> out) throws Exception {
 
-        AutoByteBuffer buffer = AutoByteBuffer.newByteBuffer().writeBytes((byte[]) obj);
+        AutoByteBuffer buffer = AutoByteBuffer.newByteBuffer();
+        if (obj instanceof ByteBuf) {
+            //零拷贝模式，直接从池化缓冲区读取
+            buffer.writeBytes((ByteBuf) obj);
+        } else {
+            buffer.writeBytes((byte[]) obj);
+        }
 
         switch (state()) {
             case READ_FIXED_HEADER:
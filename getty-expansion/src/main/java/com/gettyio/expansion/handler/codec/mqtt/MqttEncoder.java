@@ -19,6 +19,7 @@ import com.gettyio.core.buffer.AutoByteBuffer;
 import com.gettyio.core.channel.SocketChannel;
 import com.gettyio.core.handler.codec.DecoderException;
 import com.gettyio.core.handler.codec.MessageToByteEncoder;
+import com.gettyio.core.pipeline.Sharable;
 import com.gettyio.core.util.CharsetUtil;
 
 import static com.gettyio.expansion.handler.codec.mqtt.MqttCodecUtil.isValidClientId;
@@ -31,6 +32,7 @@ import static com.gettyio.expansion.handler.codec.mqtt.MqttCodecUtil.isValidClie
  * @date:2020/6/9
  * @copyright: Copyright by gettyio.com
  */
+@Sharable
 public final class MqttEncoder extends MessageToByteEncoder {
 
     public static final byte[] EMPTY_BYTES = {};
@@ -45,6 +47,12 @@ public final class MqttEncoder extends MessageToByteEncoder {
         super.encode(socketChannel, autoByteBuffer.array());
     }
 
+    @Override
+    public Object sharedEncodingKey(SocketChannel socketChannel) {
+        //输出只取决于消息本身
+        return CHANNEL_INDEPENDENT;
+    }
+
     /**
      * This is the main encoding method.
      * It's only visible for testing.
@@ -16,6 +16,7 @@
 package com.gettyio.expansion.handler.codec.protobuf;
 
 import com.gettyio.core.buffer.AutoByteBuffer;
+import com.gettyio.core.buffer.buffer.ByteBuf;
 import com.gettyio.core.channel.SocketChannel;
 import com.gettyio.core.util.LinkedBlockQueue;
 import com.google.protobuf.ExtensionRegistry;
@@ -23,6 +24,7 @@ import com.google.protobuf.ExtensionRegistryLite;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.MessageLite;
 import com.gettyio.core.handler.codec.ObjectToMessageDecoder;
+import com.gettyio.core.pipeline.Sharable;
 
 
 /**
@@ -33,6 +35,7 @@ import com.gettyio.core.handler.codec.ObjectToMessageDecoder;
  * @date:2020/4/9
  * @copyright: Copyright by gettyio.com
  */
+@Sharable
 public class ProtobufDecoder extends ObjectToMessageDecoder {
 
 
@@ -75,12 +78,19 @@ public class ProtobufDecoder extends ObjectToMessageDecoder {
     @Override
     public void decode(SocketChannel socketChannel, Object obj, LinkedBlockQueue<Object> out) throws Exception {
 
-        byte[] bytes = (byte[]) obj;
         final byte[] array;
         final int offset;
 
-        AutoByteBuffer msg = AutoByteBuffer.newByteBuffer(bytes.length);
-        msg.writeBytes(bytes);
+        AutoByteBuffer msg;
+        if (obj instanceof ByteBuf) {
+            ByteBuf byteBuf = (ByteBuf) obj;
+            msg = AutoByteBuffer.newByteBuffer(byteBuf.readableBytes());
+            msg.writeBytes(byteBuf);
+        } else {
+            byte[] bytes = (byte[]) obj;
+            msg = AutoByteBuffer.newByteBuffer(bytes.length);
+            msg.writeBytes(bytes);
+        }
         final int length = msg.readableBytes();
         if (msg.hasRemaining()) {
             array = msg.array();
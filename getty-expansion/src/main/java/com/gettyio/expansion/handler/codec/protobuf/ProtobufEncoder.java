@@ -17,6 +17,7 @@ package com.gettyio.expansion.handler.codec.protobuf;
 
 import com.gettyio.core.channel.SocketChannel;
 import com.gettyio.core.handler.codec.MessageToByteEncoder;
+import com.gettyio.core.pipeline.Sharable;
 import com.google.protobuf.MessageLite;
 
 
@@ -28,8 +29,14 @@ import com.google.protobuf.MessageLite;
  * @date:2020/4/9
  * @copyright: Copyright by gettyio.com
  */
+@Sharable
 public class ProtobufEncoder extends MessageToByteEncoder {
 
+    /**
+     * 无状态，所有通道共用同一个实例即可
+     */
+    public static final ProtobufEncoder INSTANCE = new ProtobufEncoder();
+
     @Override
     public void encode(SocketChannel socketChannel, Object obj) throws Exception {
 
@@ -42,4 +49,10 @@ public class ProtobufEncoder extends MessageToByteEncoder {
         }
         super.encode(socketChannel, bytes);
     }
+
+    @Override
+    public Object sharedEncodingKey(SocketChannel socketChannel) {
+        //输出只取决于消息本身
+        return CHANNEL_INDEPENDENT;
+    }
 }
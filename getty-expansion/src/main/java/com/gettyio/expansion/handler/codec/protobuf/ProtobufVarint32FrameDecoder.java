@@ -16,6 +16,7 @@
 package com.gettyio.expansion.handler.codec.protobuf;
 
 import com.gettyio.core.buffer.AutoByteBuffer;
+import com.gettyio.core.buffer.buffer.ByteBuf;
 import com.gettyio.core.channel.SocketChannel;
 import com.gettyio.core.handler.codec.ObjectToMessageDecoder;
 import com.gettyio.core.util.LinkedBlockQueue;
@@ -37,8 +38,12 @@ public class ProtobufVarint32FrameDecoder extends ObjectToMessageDecoder {
     @Override
     public void decode(SocketChannel socketChannel, Object obj, LinkedBlockQueue<Object> out) throws Exception {
 
-        byte[] bytes = (byte[]) obj;
-        autoByteBuffer.writeBytes(bytes);
+        if (obj instanceof ByteBuf) {
+            //零拷贝模式，直接从池化缓冲区累积
+            autoByteBuffer.writeBytes((ByteBuf) obj);
+        } else {
+            autoByteBuffer.writeBytes((byte[]) obj);
+        }
 
         while (autoByteBuffer.hasRemaining()) {
             int preIndex = autoByteBuffer.readerIndex();
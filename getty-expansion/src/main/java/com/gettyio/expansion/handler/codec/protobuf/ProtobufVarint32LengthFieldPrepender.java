@@ -15,9 +15,13 @@
  */
 package com.gettyio.expansion.handler.codec.protobuf;
 
-import com.gettyio.core.buffer.AutoByteBuffer;
+import com.gettyio.core.buffer.allocator.ByteBufAllocator;
+import com.gettyio.core.buffer.buffer.ByteBuf;
+import com.gettyio.core.buffer.buffer.CompositeByteBuf;
+import com.gettyio.core.buffer.pool.buffer.UnpooledHeapByteBuf;
 import com.gettyio.core.channel.SocketChannel;
 import com.gettyio.core.handler.codec.MessageToByteEncoder;
+import com.gettyio.core.pipeline.Sharable;
 
 
 /**
@@ -28,25 +32,41 @@ import com.gettyio.core.handler.codec.MessageToByteEncoder;
  * @date:2020/4/9
  * @copyright: Copyright by gettyio.com
  */
+@Sharable
 public class ProtobufVarint32LengthFieldPrepender extends MessageToByteEncoder {
 
+    /**
+     * 无状态，所有通道共用同一个实例即可
+     */
+    public static final ProtobufVarint32LengthFieldPrepender INSTANCE = new ProtobufVarint32LengthFieldPrepender();
+
     @Override
     public void encode(SocketChannel socketChannel, Object obj) throws Exception {
         byte[] bytes = (byte[]) obj;
 
         int bodyLen = bytes.length;
         int headerLen = computeRawVarint32Size(bodyLen);
-        byte[] b = new byte[headerLen + bodyLen];
 
-        AutoByteBuffer autoByteBuffer = AutoByteBuffer.newByteBuffer(bodyLen);
-        writeRawVarint32(autoByteBuffer, bodyLen);
-        autoByteBuffer.writeBytes(bytes);
-        try {
-            autoByteBuffer.readBytes(b);
-        } catch (AutoByteBuffer.ByteBufferException e) {
-            e.printStackTrace();
+        if (!socketChannel.getConfig().isByteBufOutbound()) {
+            byte[] b = new byte[headerLen + bodyLen];
+            writeRawVarint32(b, bodyLen);
+            System.arraycopy(bytes, 0, b, headerLen, bodyLen);
+            super.encode(socketChannel, b);
+            return;
         }
-        super.encode(socketChannel, b);
+        //出站零拷贝模式下长度头单独分配，消息体直接包装，组合后写出，不再复制消息体
+        ByteBufAllocator allocator = socketChannel.getByteBufAllocator();
+        ByteBuf header = allocator.buffer(headerLen);
+        writeRawVarint32(header, bodyLen);
+        CompositeByteBuf frame = allocator.compositeBuffer(2);
+        frame.addComponents(header, new UnpooledHeapByteBuf(allocator, bytes, bodyLen));
+        super.encode(socketChannel, frame);
+    }
+
+    @Override
+    public Object sharedEncodingKey(SocketChannel socketChannel) {
+        //输出类型取决于是否开启出站零拷贝
+        return socketChannel.getConfig().isByteBufOutbound();
     }
 
 
@@ -56,19 +76,34 @@ public class ProtobufVarint32LengthFieldPrepender extends MessageToByteEncoder {
      * @param out   to be written to
      * @param value to be written
      */
-    static void writeRawVarint32(AutoByteBuffer out, int value) {
+    static void writeRawVarint32(ByteBuf out, int value) {
         while (true) {
             if ((value & ~0x7F) == 0) {
-                out.write(value);
+                out.writeByte(value);
                 return;
             } else {
-                out.write((value & 0x7F) | 0x80);
+                out.writeByte((value & 0x7F) | 0x80);
                 value >>>= 7;
             }
         }
     }
 
 
+    /**
+     * Writes protobuf varint32 to the head of the array.
+     *
+     * @param out   to be written to
+     * @param value to be written
+     */
+    static void writeRawVarint32(byte[] out, int value) {
+        int index = 0;
+        while ((value & ~0x7F) != 0) {
+            out[index++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[index] = (byte) value;
+    }
+
     /**
      * Computes size of protobuf varint32 after encoding.
      *
@@ -16,6 +16,8 @@
 package com.gettyio.expansion.handler.codec.websocket;
 
 import com.gettyio.core.buffer.AutoByteBuffer;
+import com.gettyio.core.buffer.buffer.ByteBuf;
+import com.gettyio.core.buffer.buffer.ByteBufUtil;
 import com.gettyio.core.channel.SocketChannel;
 import com.gettyio.core.handler.codec.ObjectToMessageDecoder;
 import com.gettyio.core.util.CharsetUtil;
@@ -61,7 +63,7 @@ public class WebSocketDecoder extends ObjectToMessageDecoder {
         if (handShake) {
             // 已经握手处理
             if (protocolVersion >= WebSocketConstants.SPLIT_VERSION6) {
-                byteBuffer.writeBytes((byte[]) obj);
+                writeBytes(obj);
                 //解析数据帧
                 WebSocketFrame frame = parserVersion6(byteBuffer);
                 if (frame != null) {
@@ -70,12 +72,13 @@ public class WebSocketDecoder extends ObjectToMessageDecoder {
                     messageFrame = null;
                 }
             } else {
-                out.put(obj);
+                //零拷贝模式下复制出可读字节，避免业务持有已释放的缓冲区
+                out.put(obj instanceof ByteBuf ? ByteBufUtil.getBytes((ByteBuf) obj) : obj);
                 super.decode(socketChannel, obj, out);
             }
         } else {
             // 进行握手处理
-            byteBuffer.writeBytes((byte[]) obj);
+            writeBytes(obj);
             WebSocketHandShake.parserRequest(byteBuffer, requestInfo);
             if (requestInfo.getReadStatus() != WebSocketHandShake.READ_CONTENT) {
                 return;
@@ -98,6 +101,20 @@ public class WebSocketDecoder extends ObjectToMessageDecoder {
     }
 
 
+    /**
+     * 累积数据，兼容byte[]与零拷贝模式下的ByteBuf
+     *
+     * @param obj 消息
+     */
+    private void writeBytes(Object obj) {
+        if (obj instanceof ByteBuf) {
+            byteBuffer.writeBytes((ByteBuf) obj);
+        } else {
+            byteBuffer.writeBytes((byte[]) obj);
+        }
+    }
+
+
     /**
      * 方法名：parser
      *
@@ -16,12 +16,19 @@
 package com.gettyio.expansion.handler.codec.websocket;
 
 import com.gettyio.core.buffer.AutoByteBuffer;
+import com.gettyio.core.buffer.allocator.ByteBufAllocator;
+import com.gettyio.core.buffer.buffer.ByteBuf;
+import com.gettyio.core.buffer.buffer.CompositeByteBuf;
+import com.gettyio.core.buffer.pool.buffer.UnpooledHeapByteBuf;
 import com.gettyio.core.channel.SocketChannel;
 import com.gettyio.core.handler.codec.MessageToByteEncoder;
+import com.gettyio.core.pipeline.Sharable;
 import com.gettyio.expansion.handler.codec.websocket.frame.WebSocketFrame;
 import com.gettyio.core.util.CharsetUtil;
 import com.gettyio.core.util.ObjectUtil;
 
+import java.util.Arrays;
+
 /**
  * version 5+
  * 0                   1                   2                   3
@@ -69,27 +76,40 @@ import com.gettyio.core.util.ObjectUtil;
  * @date:2020/4/9
  * @copyright: Copyright by gettyio.com
  */
+@Sharable
 public class WebSocketEncoder extends MessageToByteEncoder {
 
+    /**
+     * 无状态，所有通道共用同一个实例即可
+     */
+    public static final WebSocketEncoder INSTANCE = new WebSocketEncoder();
+
+    private static final byte[] BEGIN_MSG = WebSocketConstants.BEGIN_MSG.getBytes(CharsetUtil.UTF_8);
+    private static final byte[] END_MSG = WebSocketConstants.END_MSG.getBytes(CharsetUtil.UTF_8);
+
     @Override
     public void encode(SocketChannel aioChannel, Object obj) throws Exception {
         if (aioChannel.getChannelAttribute(WebSocketConstants.WEB_SOCKET_HAND_SHAKE) != null && (boolean) aioChannel.getChannelAttribute(WebSocketConstants.WEB_SOCKET_HAND_SHAKE)) {
             byte[] bytes;
+            //出站零拷贝模式下输出组合ByteBuf，否则输出byte[]
+            ByteBufAllocator allocator = aioChannel.getConfig().isByteBufOutbound() ? aioChannel.getByteBufAllocator() : null;
             if (obj instanceof WebSocketFrame) {
                 bytes = ((WebSocketFrame) obj).getPayloadData();
                 if ((int) aioChannel.getChannelAttribute(WebSocketConstants.WEB_SOCKET_PROTOCOL_VERSION) <= WebSocketConstants.SPLIT_VERSION0) {
-                    AutoByteBuffer autoByteBuffer = AutoByteBuffer.newByteBuffer();
-                    autoByteBuffer.writeBytes(WebSocketConstants.BEGIN_MSG.getBytes(CharsetUtil.UTF_8));
-                    autoByteBuffer.writeBytes(bytes);
-                    autoByteBuffer.writeBytes(WebSocketConstants.END_MSG.getBytes(CharsetUtil.UTF_8));
-                    obj = autoByteBuffer.array();
+                    if (allocator != null) {
+                        CompositeByteBuf frame = allocator.compositeBuffer(3);
+                        frame.addComponents(wrap(allocator, BEGIN_MSG), wrap(allocator, bytes), wrap(allocator, END_MSG));
+                        obj = frame;
+                    } else {
+                        obj = concat(BEGIN_MSG, bytes, END_MSG);
+                    }
                 } else {
-                    obj = codeVersion6(bytes, ((WebSocketFrame) obj).getOpcode());
+                    obj = encodeFrame(allocator, bytes, ((WebSocketFrame) obj).getOpcode());
                 }
             } else {
                 //如果发送的不是WebSocketFrame，则默认构建二进制WebSocketFrame
                 bytes = ObjectUtil.ObjToByteArray(obj);
-                obj = codeVersion6(bytes, Opcode.BINARY.getCode());
+                obj = encodeFrame(allocator, bytes, Opcode.BINARY.getCode());
             }
 
         }
@@ -97,6 +117,36 @@ public class WebSocketEncoder extends MessageToByteEncoder {
     }
 
 
+    @Override
+    public Object sharedEncodingKey(SocketChannel socketChannel) {
+        Object handShake = socketChannel.getChannelAttribute(WebSocketConstants.WEB_SOCKET_HAND_SHAKE);
+        if (handShake == null || !(boolean) handShake) {
+            //握手前消息原样通过
+            return CHANNEL_INDEPENDENT;
+        }
+        //帧格式取决于协议版本，输出类型取决于是否开启出站零拷贝
+        return Arrays.asList(socketChannel.getChannelAttribute(WebSocketConstants.WEB_SOCKET_PROTOCOL_VERSION), socketChannel.getConfig().isByteBufOutbound());
+    }
+
+    private Object encodeFrame(ByteBufAllocator allocator, byte[] msg, byte op) {
+        return allocator != null ? encodeVersion6(allocator, msg, op) : codeVersion6(msg, op);
+    }
+
+    /**
+     * 对websocket协议进行编码，帧头单独生成，与消息体组合后写出，不复制消息体，消息体数组在写出前不能再被修改
+     *
+     * @param allocator 内存分配器
+     * @param msg       消息体
+     * @param op        操作码
+     * @return ByteBuf
+     */
+    public ByteBuf encodeVersion6(ByteBufAllocator allocator, byte[] msg, byte op) {
+        byte[] header = frameHeader(msg, op);
+        CompositeByteBuf frame = allocator.compositeBuffer(2);
+        frame.addComponents(wrap(allocator, header), wrap(allocator, msg));
+        return frame;
+    }
+
     /**
      * 方法名：codeVersion6
      *
@@ -105,8 +155,37 @@ public class WebSocketEncoder extends MessageToByteEncoder {
      * 对websocket协议进行编码
      */
     public byte[] codeVersion6(byte[] msg, byte op) {
+        return concat(frameHeader(msg, op), msg);
+    }
+
+    private static byte[] concat(byte[]... arrays) {
+        int length = 0;
+        for (byte[] array : arrays) {
+            length += array.length;
+        }
+        byte[] result = new byte[length];
+        int pos = 0;
+        for (byte[] array : arrays) {
+            System.arraycopy(array, 0, result, pos, array.length);
+            pos += array.length;
+        }
+        return result;
+    }
+
+    private static ByteBuf wrap(ByteBufAllocator allocator, byte[] bytes) {
+        return new UnpooledHeapByteBuf(allocator, bytes, bytes.length);
+    }
 
-        AutoByteBuffer autoByteBuffer = AutoByteBuffer.newByteBuffer();
+    /**
+     * 生成帧头，包括控制位和扩展长度
+     *
+     * @param msg 消息体
+     * @param op  操作码
+     * @return byte[]
+     */
+    private static byte[] frameHeader(byte[] msg, byte op) {
+
+        AutoByteBuffer autoByteBuffer = AutoByteBuffer.newByteBuffer(10);
         WebSocketFrame messageFrame = new WebSocketFrame();
         messageFrame.setPayloadLen(msg.length);
 
@@ -136,8 +215,6 @@ public class WebSocketEncoder extends MessageToByteEncoder {
 //            }
 //        }
 
-        autoByteBuffer.writeBytes(msg);
-
         return autoByteBuffer.readableBytesArray();
     }
 
@@ -16,6 +16,7 @@
 package com.gettyio.expansion.handler.ipfilter;
 
 import com.gettyio.core.channel.SocketChannel;
+import com.gettyio.core.pipeline.Sharable;
 
 import java.net.InetSocketAddress;
 import java.util.List;
@@ -28,6 +29,7 @@ import java.util.List;
  * @date:2020/4/9
  * @copyright: Copyright by gettyio.com
  */
+@Sharable
 public class IpFilterRuleHandler extends AbstractRemoteAddressFilter<InetSocketAddress> {
 
     IpFilterRule rules;
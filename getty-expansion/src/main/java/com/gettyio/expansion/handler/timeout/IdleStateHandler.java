@@ -17,86 +17,235 @@ package com.gettyio.expansion.handler.timeout;
 
 import com.gettyio.core.channel.SocketChannel;
 import com.gettyio.core.constant.IdleState;
+import com.gettyio.core.logging.InternalLogger;
+import com.gettyio.core.logging.InternalLoggerFactory;
 import com.gettyio.core.pipeline.all.ChannelAllBoundHandlerAdapter;
-import com.gettyio.core.util.ThreadPool;
+import com.gettyio.core.util.timer.HashedWheelTimer;
+import com.gettyio.core.util.timer.Timeout;
+import com.gettyio.core.util.timer.Timer;
+import com.gettyio.core.util.timer.TimerTask;
 
 import java.util.concurrent.TimeUnit;
 
 /**
  * IdleStateHandler.java
  *
- * @description:起搏器
+ * @description:起搏器，所有通道共用一个时间轮做空闲检测，读写时只更新纳秒时间戳
  * @author:gogym
  * @date:2020/4/9
  * @copyright: Copyright by gettyio.com
  */
 public class IdleStateHandler extends ChannelAllBoundHandlerAdapter {
 
+    private static final InternalLogger LOGGER = InternalLoggerFactory.getInstance(IdleStateHandler.class);
 
-    boolean readerIdle = false;
-    boolean writerIdle = false;
+    /**
+     * 最小检测间隔1毫秒
+     */
+    private static final long MIN_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final long readerIdleTimeNanos;
+    private final long writerIdleTimeNanos;
+    private final long allIdleTimeNanos;
 
     /**
-     * 线程池
+     * 最后一次读写的时间，System.nanoTime()
      */
-    ThreadPool pool;
+    private volatile long lastReadTime;
+    private volatile long lastWriteTime;
+
+    /**
+     * 定时器
+     */
+    private final Timer timer;
+    private volatile Timeout readerIdleTimeout;
+    private volatile Timeout writerIdleTimeout;
+    private volatile Timeout allIdleTimeout;
+
+    /**
+     * 是否已停止检测
+     */
+    private volatile boolean destroyed;
+
+    private final SocketChannel socketChannel;
 
     public IdleStateHandler(SocketChannel socketChannel, int readerIdleTimeSeconds, int writerIdleTimeSeconds) {
         this(socketChannel, readerIdleTimeSeconds, writerIdleTimeSeconds, TimeUnit.SECONDS);
     }
 
     public IdleStateHandler(final SocketChannel socketChannel, long readerIdleTime, long writerIdleTime, TimeUnit unit) {
-        pool = new ThreadPool(ThreadPool.FixedThread, 3);
-        if (readerIdleTime > 0) {
-            pool.scheduleWithFixedRate(new Runnable() {
-                @Override
-                public void run() {
-                    if (readerIdle) {
-                        try {
-                            IdleStateHandler.this.userEventTriggered(socketChannel, IdleState.READER_IDLE);
-                        } catch (Exception e) {
-                            e.printStackTrace();
-                        }
-                    }
-                    readerIdle = true;
-                }
-            }, 0, readerIdleTime, unit);
+        this(socketChannel, readerIdleTime, writerIdleTime, 0, unit);
+    }
+
+    public IdleStateHandler(SocketChannel socketChannel, long readerIdleTime, long writerIdleTime, long allIdleTime, TimeUnit unit) {
+        this(HashedWheelTimer.sharedTimer(), socketChannel, readerIdleTime, writerIdleTime, allIdleTime, unit);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param timer          定时器，默认使用共享时间轮
+     * @param socketChannel  通道
+     * @param readerIdleTime 读空闲时间，0表示不检测
+     * @param writerIdleTime 写空闲时间，0表示不检测
+     * @param allIdleTime    读写都空闲的时间，0表示不检测
+     * @param unit           时间单位
+     */
+    public IdleStateHandler(Timer timer, SocketChannel socketChannel, long readerIdleTime, long writerIdleTime, long allIdleTime, TimeUnit unit) {
+        if (timer == null) {
+            throw new NullPointerException("timer");
+        }
+        if (unit == null) {
+            throw new NullPointerException("unit");
         }
+        this.timer = timer;
+        this.socketChannel = socketChannel;
+        this.readerIdleTimeNanos = readerIdleTime <= 0 ? 0 : Math.max(unit.toNanos(readerIdleTime), MIN_TIMEOUT_NANOS);
+        this.writerIdleTimeNanos = writerIdleTime <= 0 ? 0 : Math.max(unit.toNanos(writerIdleTime), MIN_TIMEOUT_NANOS);
+        this.allIdleTimeNanos = allIdleTime <= 0 ? 0 : Math.max(unit.toNanos(allIdleTime), MIN_TIMEOUT_NANOS);
 
-        if (writerIdleTime > 0) {
-            pool.scheduleWithFixedRate(new Runnable() {
-                @Override
-                public void run() {
-                    if (writerIdle) {
-                        try {
-                            IdleStateHandler.this.userEventTriggered(socketChannel, IdleState.WRITER_IDLE);
-                        } catch (Exception e) {
-                            e.printStackTrace();
-                        }
-                    }
-                    writerIdle = true;
-                }
-            }, 0, writerIdleTime, unit);
+        lastReadTime = lastWriteTime = System.nanoTime();
+        if (readerIdleTimeNanos > 0) {
+            readerIdleTimeout = timer.newTimeout(new ReaderIdleTimeoutTask(), readerIdleTimeNanos, TimeUnit.NANOSECONDS);
+        }
+        if (writerIdleTimeNanos > 0) {
+            writerIdleTimeout = timer.newTimeout(new WriterIdleTimeoutTask(), writerIdleTimeNanos, TimeUnit.NANOSECONDS);
+        }
+        if (allIdleTimeNanos > 0) {
+            allIdleTimeout = timer.newTimeout(new AllIdleTimeoutTask(), allIdleTimeNanos, TimeUnit.NANOSECONDS);
         }
     }
 
 
     @Override
     public void channelRead(SocketChannel socketChannel, Object obj) throws Exception {
-        readerIdle = false;
+        lastReadTime = System.nanoTime();
         super.channelRead(socketChannel, obj);
     }
 
     @Override
     public void channelWrite(SocketChannel socketChannel, Object obj) throws Exception {
-        writerIdle = false;
+        lastWriteTime = System.nanoTime();
         super.channelWrite(socketChannel, obj);
     }
 
     @Override
     public void channelClosed(SocketChannel socketChannel) throws Exception {
-        pool.shutdown();
+        destroy();
         super.channelClosed(socketChannel);
     }
 
+    /**
+     * 停止检测，取消所有定时任务
+     */
+    private void destroy() {
+        destroyed = true;
+        if (readerIdleTimeout != null) {
+            readerIdleTimeout.cancel();
+            readerIdleTimeout = null;
+        }
+        if (writerIdleTimeout != null) {
+            writerIdleTimeout.cancel();
+            writerIdleTimeout = null;
+        }
+        if (allIdleTimeout != null) {
+            allIdleTimeout.cancel();
+            allIdleTimeout = null;
+        }
+    }
+
+    /**
+     * 触发空闲事件。定时任务运行在共享的时间轮线程上，事件交给通道的IO线程处理，避免阻塞其他通道的检测
+     *
+     * @param state 空闲状态
+     */
+    private void fireIdle(final IdleState state) {
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    IdleStateHandler.this.userEventTriggered(socketChannel, state);
+                } catch (Exception e) {
+                    LOGGER.error(e.getMessage(), e);
+                }
+            }
+        };
+        if (socketChannel == null) {
+            task.run();
+            return;
+        }
+        try {
+            socketChannel.execute(task);
+        } catch (Exception e) {
+            //IO线程已关闭
+            LOGGER.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 是否应停止检测
+     *
+     * @return boolean
+     */
+    private boolean stopped() {
+        if (destroyed) {
+            return true;
+        }
+        if (socketChannel != null && socketChannel.isInvalid()) {
+            destroy();
+            return true;
+        }
+        return false;
+    }
+
+    private final class ReaderIdleTimeoutTask implements TimerTask {
+        @Override
+        public void run(Timeout timeout) {
+            if (stopped()) {
+                return;
+            }
+            long nextDelay = readerIdleTimeNanos - (System.nanoTime() - lastReadTime);
+            if (nextDelay <= 0) {
+                //读空闲，重新开始计时
+                readerIdleTimeout = timer.newTimeout(this, readerIdleTimeNanos, TimeUnit.NANOSECONDS);
+                fireIdle(IdleState.READER_IDLE);
+            } else {
+                //期间有读取，按剩余时间再检测
+                readerIdleTimeout = timer.newTimeout(this, nextDelay, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private final class WriterIdleTimeoutTask implements TimerTask {
+        @Override
+        public void run(Timeout timeout) {
+            if (stopped()) {
+                return;
+            }
+            long nextDelay = writerIdleTimeNanos - (System.nanoTime() - lastWriteTime);
+            if (nextDelay <= 0) {
+                writerIdleTimeout = timer.newTimeout(this, writerIdleTimeNanos, TimeUnit.NANOSECONDS);
+                fireIdle(IdleState.WRITER_IDLE);
+            } else {
+                writerIdleTimeout = timer.newTimeout(this, nextDelay, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private final class AllIdleTimeoutTask implements TimerTask {
+        @Override
+        public void run(Timeout timeout) {
+            if (stopped()) {
+                return;
+            }
+            long nextDelay = allIdleTimeNanos - (System.nanoTime() - Math.max(lastReadTime, lastWriteTime));
+            if (nextDelay <= 0) {
+                allIdleTimeout = timer.newTimeout(this, allIdleTimeNanos, TimeUnit.NANOSECONDS);
+                fireIdle(IdleState.ALL_IDLE);
+            } else {
+                allIdleTimeout = timer.newTimeout(this, nextDelay, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
 }
@@ -19,6 +19,8 @@ import com.gettyio.core.channel.AioChannel;
 import com.gettyio.core.channel.NioChannel;
 import com.gettyio.core.channel.SocketChannel;
 import com.gettyio.core.channel.config.BaseConfig;
+import com.gettyio.core.channel.internal.WriteCompletionHandler;
+import com.gettyio.core.channel.loop.NioEventLoop;
 import com.gettyio.core.channel.starter.ConnectHandler;
 import com.gettyio.core.handler.ssl.sslfacade.IHandshakeCompletedListener;
 import com.gettyio.core.logging.InternalLogger;
@@ -29,16 +31,16 @@ import com.gettyio.core.util.timer.HashedWheelTimer;
 import com.gettyio.core.util.timer.Timeout;
 import com.gettyio.core.util.timer.TimerTask;
 
+import java.io.IOException;
+import java.net.ConnectException;
 import java.net.InetSocketAddress;
 import java.net.SocketOption;
 import java.nio.channels.AsynchronousChannelGroup;
 import java.nio.channels.AsynchronousSocketChannel;
-import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
-import java.util.Iterator;
+import java.nio.channels.CompletionHandler;
 import java.util.Map;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * ReConnectHandler.java
@@ -60,9 +62,14 @@ public class ReConnectHandler extends ChannelInboundHandlerAdapter implements Ti
      */
     private long threshold = 1000;
     /**
-     * 创建一个定时器
+     * 使用进程内共享的时间轮，大量客户端同时重连也只占用一个定时线程
      */
-    private final HashedWheelTimer timer = new HashedWheelTimer();
+    private final HashedWheelTimer timer = HashedWheelTimer.sharedTimer();
+
+    /**
+     * 是否正在重连，关闭和异常可能同时触发，只发起一轮重连
+     */
+    private final AtomicBoolean reconnecting = new AtomicBoolean();
 
     private SocketChannel channel;
 
@@ -72,7 +79,7 @@ public class ReConnectHandler extends ChannelInboundHandlerAdapter implements Ti
     private ConnectHandler connectHandler;
 
     /**
-     * 默认3s
+     * 连接超时时间，默认3s，小于等于0表示不限制
      */
     private int connectTimeout = 3000;
 
@@ -87,6 +94,7 @@ public class ReConnectHandler extends ChannelInboundHandlerAdapter implements Ti
     }
 
     public ReConnectHandler(int threshold, int connectTimeout, ConnectHandler connectHandler) {
+        this.threshold = threshold;
         this.connectTimeout = connectTimeout;
         this.connectHandler = connectHandler;
     }
@@ -97,13 +105,14 @@ public class ReConnectHandler extends ChannelInboundHandlerAdapter implements Ti
         this.channel = socketChannel;
         //重置时间基数
         attempts = 0;
+        reconnecting.set(false);
         super.channelAdded(socketChannel);
     }
 
 
     @Override
     public void channelClosed(SocketChannel socketChannel) throws Exception {
-        if (!socketChannel.isInitiateClose() && timer.workerState == HashedWheelTimer.WORKER_STATE_INIT) {
+        if (!socketChannel.isInitiateClose()) {
             //如果不是主动关闭，则发起重连
             reConnect(socketChannel);
         }
@@ -113,131 +122,175 @@ public class ReConnectHandler extends ChannelInboundHandlerAdapter implements Ti
 
     @Override
     public void exceptionCaught(SocketChannel socketChannel, Throwable cause) throws Exception {
-        if (timer.workerState == HashedWheelTimer.WORKER_STATE_INIT) {
-            reConnect(socketChannel);
-        }
+        reConnect(socketChannel);
         super.exceptionCaught(socketChannel, cause);
     }
 
     @Override
     public void run(Timeout timeout) throws Exception {
-
-        final BaseConfig clientConfig = channel.getConfig();
-        final ThreadPool workerThreadPool = new ThreadPool(ThreadPool.FixedThread, 2);
-
-        if (channel instanceof AioChannel) {
-            AsynchronousSocketChannel socketChannel = AsynchronousSocketChannel.open(AsynchronousChannelGroup.withFixedThreadPool(1, new ThreadFactory() {
-                @Override
-                public Thread newThread(Runnable target) {
-                    return new Thread(target);
-                }
-            }));
-            if (clientConfig.getSocketOptions() != null) {
-                for (Map.Entry<SocketOption<Object>, Object> entry : clientConfig.getSocketOptions().entrySet()) {
-                    socketChannel.setOption(entry.getKey(), entry.getValue());
+        final SocketChannel oldChannel = channel;
+        final BaseConfig clientConfig = oldChannel.getConfig();
+        final InetSocketAddress remoteAddress = new InetSocketAddress(clientConfig.getHost(), clientConfig.getPort());
+        try {
+            if (oldChannel instanceof AioChannel) {
+                //在原通道所属的aio线程组中连接，并复用原通道的读回调，不再为每次重连创建线程池
+                final AsynchronousChannelGroup group = ((AioChannel) oldChannel).getAsynchronousChannelGroup();
+                final AsynchronousSocketChannel socketChannel = AsynchronousSocketChannel.open(group);
+                try {
+                    setOptions(clientConfig, socketChannel);
+                } catch (IOException e) {
+                    socketChannel.close();
+                    throw e;
                 }
-            }
-            final AsynchronousSocketChannel finalSocketChannel = socketChannel;
-            /**
-             * 非阻塞连接
-             */
-            socketChannel.connect(new InetSocketAddress(clientConfig.getHost(), clientConfig.getPort()), socketChannel, new java.nio.channels.CompletionHandler<Void, AsynchronousSocketChannel>() {
-                @Override
-                public void completed(Void result, AsynchronousSocketChannel attachment) {
-                    logger.info("connect aio server success");
-                    //连接成功则构造AIOSession对象
-                    channel = new AioChannel(finalSocketChannel, clientConfig, new com.gettyio.core.channel.internal.ReadCompletionHandler(workerThreadPool), new com.gettyio.core.channel.internal.WriteCompletionHandler(), channel.getByteBufAllocator(), channel.getChannelPipeline());
-
-                    if (null != connectHandler) {
-                        if (null != channel.getSslHandler()) {
-                            channel.setSslHandshakeCompletedListener(new IHandshakeCompletedListener() {
-                                @Override
-                                public void onComplete() {
-                                    logger.info("Ssl Handshake Completed");
-                                    connectHandler.onCompleted(channel);
+                //连接完成、失败和超时只有第一个生效
+                final AtomicBoolean done = new AtomicBoolean();
+                final Timeout connectTimeoutTask;
+                if (connectTimeout > 0) {
+                    connectTimeoutTask = timer.newTimeout(new TimerTask() {
+                        @Override
+                        public void run(Timeout timeout) throws Exception {
+                            if (done.compareAndSet(false, true)) {
+                                try {
+                                    socketChannel.close();
+                                } catch (IOException e) {
+                                    logger.debug(e.getMessage(), e);
                                 }
-                            });
-                        } else {
-                            connectHandler.onCompleted(channel);
+                                connectFailed(new ConnectException("connection timed out: " + remoteAddress));
+                            }
                         }
-                    }
-                    channel.starRead();
+                    }, connectTimeout, TimeUnit.MILLISECONDS);
+                } else {
+                    connectTimeoutTask = null;
                 }
-
-                @Override
-                public void failed(Throwable exc, AsynchronousSocketChannel attachment) {
-                    logger.error("connect aio server  error", exc);
-                    reConnect(channel);
-                    if (null != connectHandler) {
-                        connectHandler.onFailed(exc);
+                /**
+                 * 非阻塞连接
+                 */
+                socketChannel.connect(remoteAddress, socketChannel, new CompletionHandler<Void, AsynchronousSocketChannel>() {
+                    @Override
+                    public void completed(Void result, AsynchronousSocketChannel attachment) {
+                        if (connectTimeoutTask != null) {
+                            connectTimeoutTask.cancel();
+                        }
+                        if (!done.compareAndSet(false, true)) {
+                            return;
+                        }
+                        logger.info("connect aio server success");
+                        //连接成功则构造AIOSession对象
+                        channel = new AioChannel(socketChannel, clientConfig, ((AioChannel) oldChannel).getReadCompletionHandler(), new WriteCompletionHandler(), oldChannel.getByteBufAllocator(), oldChannel.getChannelPipeline(), group);
+                        reconnecting.set(false);
+                        notifyConnected(channel, null);
+                        channel.starRead();
                     }
-                }
-            });
-        } else if (channel instanceof NioChannel) {
 
-            final java.nio.channels.SocketChannel socketChannel = java.nio.channels.SocketChannel.open();
-
-            if (clientConfig.getSocketOptions() != null) {
-                for (Map.Entry<SocketOption<Object>, Object> entry : clientConfig.getSocketOptions().entrySet()) {
-                    socketChannel.setOption(entry.getKey(), entry.getValue());
+                    @Override
+                    public void failed(Throwable exc, AsynchronousSocketChannel attachment) {
+                        if (connectTimeoutTask != null) {
+                            connectTimeoutTask.cancel();
+                        }
+                        if (done.compareAndSet(false, true)) {
+                            connectFailed(exc);
+                        }
+                    }
+                });
+            } else if (oldChannel instanceof NioChannel) {
+                //在原通道所属的loop上非阻塞连接，超时由时间轮检测
+                final NioEventLoop nioEventLoop = ((NioChannel) oldChannel).getNioEventLoop();
+                final java.nio.channels.SocketChannel socketChannel = java.nio.channels.SocketChannel.open();
+                try {
+                    setOptions(clientConfig, socketChannel);
+                } catch (IOException e) {
+                    socketChannel.close();
+                    throw e;
                 }
-            }
-            socketChannel.configureBlocking(false);
-            /*
-             * 连接到指定的服务地址
-             */
-            socketChannel.connect(new InetSocketAddress(clientConfig.getHost(), clientConfig.getPort()));
-            /*
-             * 创建一个事件选择器Selector
-             */
-            Selector selector = Selector.open();
-
-            /*
-             * 将创建的SocketChannel注册到指定的Selector上，并指定关注的事件类型为OP_CONNECT
-             */
-            socketChannel.register(selector, SelectionKey.OP_CONNECT);
-            while (selector.select() > 0) {
-                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
-                while (it.hasNext()) {
-                    SelectionKey sk = it.next();
-                    if (sk.isConnectable()) {
-                        java.nio.channels.SocketChannel channels = (java.nio.channels.SocketChannel) sk.channel();
-                        //during connecting, finish the connect
-                        if (channels.isConnectionPending()) {
+                nioEventLoop.connect(socketChannel, remoteAddress, connectTimeout, new CompletionHandler<Void, java.nio.channels.SocketChannel>() {
+                    @Override
+                    public void completed(Void result, java.nio.channels.SocketChannel attachment) {
+                        try {
+                            channel = new NioChannel(clientConfig, socketChannel, nioEventLoop, oldChannel.getByteBufAllocator(), oldChannel.getWorkerThreadPool(), oldChannel.getChannelPipeline());
+                            reconnecting.set(false);
+                            //回调放到worker线程池，避免阻塞事件循环
+                            notifyConnected(channel, oldChannel.getWorkerThreadPool());
+                            //创建成功立即开始读
+                            ((NioChannel) channel).register();
+                        } catch (Exception e) {
                             try {
-                                channels.finishConnect();
-                                channel = new NioChannel(clientConfig, socketChannel, ((NioChannel) channel).getNioEventLoop(),channel.getByteBufAllocator(),channel.getWorkerThreadPool(), channel.getChannelPipeline());
-                                if (null != connectHandler) {
-                                    if (null != channel.getSslHandler()) {
-                                        channel.setSslHandshakeCompletedListener(new IHandshakeCompletedListener() {
-                                            @Override
-                                            public void onComplete() {
-                                                logger.info("Ssl Handshake Completed");
-                                                connectHandler.onCompleted(channel);
-                                            }
-                                        });
-                                    } else {
-                                        connectHandler.onCompleted(channel);
-                                    }
-                                }
-                                //创建成功立即开始读
-                                ((NioChannel) channel).register();
-                            } catch (Exception e) {
-                                logger.error(e.getMessage(), e);
-                                reConnect(channel);
-                                if (null != connectHandler) {
-                                    connectHandler.onFailed(e);
-                                }
-                                return;
+                                socketChannel.close();
+                            } catch (IOException ex) {
+                                logger.debug(ex.getMessage(), ex);
                             }
+                            connectFailed(e);
                         }
                     }
-                }
-                it.remove();
+
+                    @Override
+                    public void failed(Throwable exc, java.nio.channels.SocketChannel attachment) {
+                        connectFailed(exc);
+                    }
+                });
+            }
+        } catch (Exception e) {
+            connectFailed(e);
+        }
+    }
+
+    private void setOptions(BaseConfig clientConfig, java.nio.channels.NetworkChannel socketChannel) throws IOException {
+        if (clientConfig.getSocketOptions() != null) {
+            for (Map.Entry<SocketOption<Object>, Object> entry : clientConfig.getSocketOptions().entrySet()) {
+                socketChannel.setOption(entry.getKey(), entry.getValue());
             }
         }
     }
 
+    /**
+     * 通知连接成功，开启SSL时在握手完成后通知
+     *
+     * @param socketChannel    新通道
+     * @param workerThreadPool 回调线程池，为空时直接回调
+     */
+    private void notifyConnected(final SocketChannel socketChannel, final ThreadPool workerThreadPool) {
+        if (null == connectHandler) {
+            return;
+        }
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                connectHandler.onCompleted(socketChannel);
+            }
+        };
+        if (null != socketChannel.getSslHandler()) {
+            socketChannel.setSslHandshakeCompletedListener(new IHandshakeCompletedListener() {
+                @Override
+                public void onComplete() {
+                    logger.info("Ssl Handshake Completed");
+                    execute(task, workerThreadPool);
+                }
+            });
+        } else {
+            execute(task, workerThreadPool);
+        }
+    }
+
+    private void execute(Runnable task, ThreadPool workerThreadPool) {
+        if (workerThreadPool != null) {
+            workerThreadPool.execute(task);
+        } else {
+            task.run();
+        }
+    }
+
+    /**
+     * 连接失败，继续下一轮重连
+     *
+     * @param exc 异常
+     */
+    private void connectFailed(Throwable exc) {
+        logger.error("reconnect server error", exc);
+        scheduleReconnect();
+        if (null != connectHandler) {
+            connectHandler.onFailed(exc);
+        }
+    }
+
 
     /**
      * 重连
@@ -245,16 +298,20 @@ public class ReConnectHandler extends ChannelInboundHandlerAdapter implements Ti
      * @param socketChannel
      */
     public void reConnect(SocketChannel socketChannel) {
-        //判断是否已经连接
-        if (socketChannel.isInvalid()) {
+        //判断是否已经连接，且没有正在进行的重连
+        if (socketChannel.isInvalid() && reconnecting.compareAndSet(false, true)) {
             logger.debug("reconnect...");
-            // 重连的间隔时间会越来越长
-            long timeout = attempts * threshold;
-            //启动定时器，通过定时器连接
-            timer.newTimeout(this, timeout, TimeUnit.MILLISECONDS);
-            if (attempts < 10) {
-                attempts++;
-            }
+            scheduleReconnect();
+        }
+    }
+
+    private void scheduleReconnect() {
+        // 重连的间隔时间会越来越长
+        long timeout = attempts * threshold;
+        //启动定时器，通过定时器连接
+        timer.newTimeout(this, timeout, TimeUnit.MILLISECONDS);
+        if (attempts < 10) {
+            attempts++;
         }
     }
 }
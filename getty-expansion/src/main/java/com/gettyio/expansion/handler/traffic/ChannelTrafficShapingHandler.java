@@ -15,6 +15,7 @@
  */
 package com.gettyio.expansion.handler.traffic;
 
+import com.gettyio.core.buffer.buffer.ByteBuf;
 import com.gettyio.core.channel.SocketChannel;
 import com.gettyio.core.pipeline.all.ChannelAllBoundHandlerAdapter;
 import com.gettyio.core.util.LinkedBlockQueue;
@@ -77,9 +78,9 @@ public class ChannelTrafficShapingHandler extends ChannelAllBoundHandlerAdapter
 
     @Override
     public void decode(SocketChannel socketChannel, Object obj, LinkedBlockQueue<Object> out) throws Exception {
-        byte[] bytes = (byte[]) obj;
-        totalRead += bytes.length;
-        intervalTotalReadTmp += bytes.length;
+        int length = obj instanceof ByteBuf ? ((ByteBuf) obj).readableBytes() : ((byte[]) obj).length;
+        totalRead += length;
+        intervalTotalReadTmp += length;
         totalReadCount++;
         super.decode(socketChannel, obj, out);
     }